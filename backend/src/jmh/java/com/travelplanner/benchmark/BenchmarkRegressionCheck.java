@@ -0,0 +1,120 @@
+package com.travelplanner.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * JMH结果回归检查
+ * 对比基线与本次运行的JSON结果（-rf json），平均耗时或单次操作分配量（-prof gc 的 gc.alloc.rate.norm）
+ * 超过容忍度即视为回归，进程以退出码1结束，可直接用于CI
+ *
+ * 运行方式：
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="AiFieldExtraction|FieldsJson -prof gc -rf json -rff target/jmh-ai-hot-paths.json"
+ * mvn -Pbenchmark exec:exec -Djmh.main=com.travelplanner.benchmark.BenchmarkRegressionCheck
+ *     -Djmh.args="src/jmh/baseline/ai-hot-paths.json target/jmh-ai-hot-paths.json [耗时容忍度] [分配容忍度]"
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+public final class BenchmarkRegressionCheck {
+
+    private static final String ALLOC_METRIC = "gc.alloc.rate.norm";
+
+    /** 耗时默认容忍25%：不同机器和JIT状态下的正常抖动 */
+    private static final double DEFAULT_SCORE_TOLERANCE = 0.25;
+
+    /** 分配量与机器无关，默认只容忍10% */
+    private static final double DEFAULT_ALLOC_TOLERANCE = 0.10;
+
+    /** 基线几乎不分配时（逃逸分析消除）相对变化没有意义，低于该字节数的增量忽略 */
+    private static final double ALLOC_NOISE_BYTES = 16;
+
+    private BenchmarkRegressionCheck() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("用法: BenchmarkRegressionCheck <基线JSON> <本次JSON> [耗时容忍度] [分配容忍度]");
+            System.exit(2);
+        }
+        double scoreTolerance = args.length > 2 ? Double.parseDouble(args[2]) : DEFAULT_SCORE_TOLERANCE;
+        double allocTolerance = args.length > 3 ? Double.parseDouble(args[3]) : DEFAULT_ALLOC_TOLERANCE;
+
+        Map<String, Result> baseline = read(new File(args[0]));
+        Map<String, Result> current = read(new File(args[1]));
+
+        int regressions = 0;
+        System.out.printf("%-90s %14s %14s %8s %14s %14s %8s%n",
+                "Benchmark", "基线(us/op)", "本次(us/op)", "变化", "基线(B/op)", "本次(B/op)", "变化");
+        for (Map.Entry<String, Result> entry : baseline.entrySet()) {
+            Result before = entry.getValue();
+            Result after = current.get(entry.getKey());
+            if (after == null) {
+                System.out.printf("%-90s 本次运行缺少该基准%n", entry.getKey());
+                continue;
+            }
+            double scoreChange = change(before.score, after.score);
+            double allocChange = change(before.alloc, after.alloc);
+            boolean regressed = scoreChange > scoreTolerance
+                    || (!Double.isNaN(allocChange) && allocChange > allocTolerance
+                    && after.alloc - before.alloc > ALLOC_NOISE_BYTES);
+            if (regressed) {
+                regressions++;
+            }
+            System.out.printf("%-90s %14.3f %14.3f %7.1f%% %14.1f %14.1f %7.1f%%%s%n",
+                    entry.getKey(), before.score, after.score, scoreChange * 100,
+                    before.alloc, after.alloc, allocChange * 100, regressed ? "  <-- 回归" : "");
+        }
+
+        if (regressions > 0) {
+            System.out.printf("%d 个基准超过容忍度（耗时 %.0f%%，分配 %.0f%%）%n",
+                    regressions, scoreTolerance * 100, allocTolerance * 100);
+            System.exit(1);
+        }
+        System.out.println("未发现回归");
+    }
+
+    private static double change(double before, double after) {
+        if (Double.isNaN(before) || Double.isNaN(after)) {
+            return Double.NaN;
+        }
+        if (before == 0) {
+            return after == 0 ? 0 : Double.POSITIVE_INFINITY;
+        }
+        return (after - before) / before;
+    }
+
+    private static Map<String, Result> read(File file) throws IOException {
+        Map<String, Result> results = new LinkedHashMap<>();
+        for (JsonNode run : new ObjectMapper().readTree(file)) {
+            StringBuilder key = new StringBuilder(run.path("benchmark").asText());
+            JsonNode params = run.path("params");
+            for (Iterator<Map.Entry<String, JsonNode>> it = params.fields(); it.hasNext(); ) {
+                Map.Entry<String, JsonNode> param = it.next();
+                key.append(':').append(param.getKey()).append('=').append(param.getValue().asText());
+            }
+            JsonNode primary = run.path("primaryMetric");
+            JsonNode alloc = run.path("secondaryMetrics").path(ALLOC_METRIC);
+            results.put(key.toString(), new Result(
+                    primary.path("score").asDouble(),
+                    alloc.isMissingNode() ? Double.NaN : alloc.path("score").asDouble()));
+        }
+        return results;
+    }
+
+    private static final class Result {
+        private final double score;
+        private final double alloc;
+
+        private Result(double score, double alloc) {
+            this.score = score;
+            this.alloc = alloc;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.travelplanner.benchmark;
+
+import com.travelplanner.entity.TravelPlan;
+import com.travelplanner.entity.User;
+import org.hibernate.Session;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对话请求数据库访问路径基准测试
+ * 每轮对话：按用户名加载用户（JWT认证）+ 按ID加载计划（构建planContext），
+ * 对比未启用二级缓存（用户名JPQL查询）与启用二级缓存（自然主键 + 实体缓存）的耗时
+ *
+ * 运行方式：mvn -Pbenchmark test-compile exec:exec -Djmh.args="ChatPathCache"
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChatPathCacheBenchmark {
+
+    private static final int USER_COUNT = 100;
+
+    @Param({"false", "true"})
+    private boolean secondLevelCache;
+
+    private LocalContainerEntityManagerFactoryBean factoryBean;
+    private EntityManagerFactory entityManagerFactory;
+    private Long[] planIds;
+    private int turn;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // 未经Spring Boot初始化时logback默认输出DEBUG日志，会掩盖数据库访问耗时
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME))
+                .setLevel(ch.qos.logback.classic.Level.WARN);
+
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("hibernate.hbm2ddl.auto", "create-drop");
+        properties.put("hibernate.cache.use_second_level_cache", String.valueOf(secondLevelCache));
+        properties.put("hibernate.cache.use_query_cache", String.valueOf(secondLevelCache));
+        if (secondLevelCache) {
+            properties.put("hibernate.cache.region.factory_class", "jcache");
+            properties.put("hibernate.javax.cache.provider", "org.ehcache.jsr107.EhcacheCachingProvider");
+            properties.put("hibernate.javax.cache.uri", "ehcache.xml");
+            properties.put("javax.persistence.sharedCache.mode", "ENABLE_SELECTIVE");
+        }
+
+        factoryBean = new LocalContainerEntityManagerFactoryBean();
+        factoryBean.setDataSource(new DriverManagerDataSource(
+                "jdbc:h2:mem:chat_path_" + secondLevelCache + ";DB_CLOSE_DELAY=-1", "sa", ""));
+        factoryBean.setPackagesToScan("com.travelplanner.entity");
+        factoryBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        factoryBean.setJpaPropertyMap(properties);
+        factoryBean.afterPropertiesSet();
+        entityManagerFactory = factoryBean.getObject();
+
+        planIds = new Long[USER_COUNT];
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        entityManager.getTransaction().begin();
+        for (int i = 0; i < USER_COUNT; i++) {
+            User user = new User();
+            user.setUsername("user" + i);
+            user.setPassword("secret");
+            user.setCreatedAt(LocalDateTime.now());
+            entityManager.persist(user);
+
+            TravelPlan plan = new TravelPlan();
+            plan.setUserId(user.getId());
+            plan.setPlanName("计划" + i);
+            plan.setDestination("杭州");
+            plan.setBudget(5000.0);
+            plan.setCreatedAt(LocalDateTime.now());
+            entityManager.persist(plan);
+            planIds[i] = plan.getId();
+        }
+        entityManager.getTransaction().commit();
+        entityManager.close();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        factoryBean.destroy();
+    }
+
+    @Benchmark
+    public void chatTurn(Blackhole blackhole) {
+        int index = turn++ % USER_COUNT;
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            entityManager.getTransaction().begin();
+            User user;
+            if (secondLevelCache) {
+                user = entityManager.unwrap(Session.class).bySimpleNaturalId(User.class).load("user" + index);
+            } else {
+                user = entityManager.createQuery("SELECT u FROM User u WHERE u.username = :username", User.class)
+                        .setParameter("username", "user" + index)
+                        .getSingleResult();
+            }
+            blackhole.consume(user);
+            blackhole.consume(entityManager.find(TravelPlan.class, planIds[index]));
+            entityManager.getTransaction().commit();
+        } finally {
+            entityManager.close();
+        }
+    }
+}
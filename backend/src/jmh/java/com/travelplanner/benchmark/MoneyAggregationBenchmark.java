@@ -0,0 +1,125 @@
+package com.travelplanner.benchmark;
+
+import com.travelplanner.entity.Expense;
+import com.travelplanner.util.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 费用汇总金额运算基准测试
+ * 对比BigDecimal逐条累加/百分比计算与Money（long最小货币单位）实现的耗时与内存分配
+ *
+ * 运行方式：mvn -Pbenchmark test-compile exec:exec -Djmh.args="MoneyAggregation -prof gc"
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoneyAggregationBenchmark {
+
+    private static final Expense.ExpenseCategory[] CATEGORIES = Expense.ExpenseCategory.values();
+    private static final BigDecimal HUNDRED = new BigDecimal("100");
+
+    @Param({"1000", "100000"})
+    private int expenseCount;
+
+    private List<Expense> expenses;
+    private long[] amountsInMinorUnits;
+    private int[] categoryOrdinals;
+    private BigDecimal budget;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        expenses = new ArrayList<>(expenseCount);
+        amountsInMinorUnits = new long[expenseCount];
+        categoryOrdinals = new int[expenseCount];
+        for (int i = 0; i < expenseCount; i++) {
+            Expense expense = new Expense();
+            expense.setCategory(CATEGORIES[random.nextInt(CATEGORIES.length)]);
+            expense.setAmount(BigDecimal.valueOf(100 + random.nextInt(100_000), 2));
+            expenses.add(expense);
+            amountsInMinorUnits[i] = Money.of(expense.getAmount(), Money.DEFAULT_CURRENCY).getMinorUnits();
+            categoryOrdinals[i] = expense.getCategory().ordinal();
+        }
+        budget = BigDecimal.valueOf(expenseCount * 600L);
+    }
+
+    /**
+     * 原实现：BigDecimal累加，divide/multiply计算百分比
+     */
+    @Benchmark
+    public void bigDecimal(Blackhole blackhole) {
+        BigDecimal total = BigDecimal.ZERO;
+        Map<Expense.ExpenseCategory, BigDecimal> byCategory = new EnumMap<>(Expense.ExpenseCategory.class);
+        for (Expense expense : expenses) {
+            total = total.add(expense.getAmount());
+            byCategory.merge(expense.getCategory(), expense.getAmount(), BigDecimal::add);
+        }
+        blackhole.consume(total.divide(budget, 4, BigDecimal.ROUND_HALF_UP).multiply(HUNDRED));
+        for (BigDecimal amount : byCategory.values()) {
+            blackhole.consume(amount.divide(total, 4, BigDecimal.ROUND_HALF_UP).multiply(HUNDRED));
+        }
+    }
+
+    /**
+     * Money实现：逐条由BigDecimal转换为最小货币单位（包含API边界转换成本）
+     */
+    @Benchmark
+    public void moneyFromBigDecimal(Blackhole blackhole) {
+        long total = 0L;
+        long[] byCategory = new long[CATEGORIES.length];
+        for (Expense expense : expenses) {
+            long amount = Money.toMinorUnits(expense.getAmount(), 2);
+            total += amount;
+            byCategory[expense.getCategory().ordinal()] += amount;
+        }
+        consumePercentages(blackhole, total, byCategory);
+    }
+
+    /**
+     * Money实现：数据已为最小货币单位（热点聚合路径）
+     */
+    @Benchmark
+    public void moneyMinorUnits(Blackhole blackhole) {
+        long total = 0L;
+        long[] byCategory = new long[CATEGORIES.length];
+        for (int i = 0; i < amountsInMinorUnits.length; i++) {
+            total += amountsInMinorUnits[i];
+            byCategory[categoryOrdinals[i]] += amountsInMinorUnits[i];
+        }
+        consumePercentages(blackhole, total, byCategory);
+    }
+
+    private void consumePercentages(Blackhole blackhole, long total, long[] byCategory) {
+        Money budgetMoney = Money.of(budget, Money.DEFAULT_CURRENCY);
+        blackhole.consume(Money.basisPoints(total, budgetMoney.getMinorUnits()));
+        for (long amount : byCategory) {
+            blackhole.consume(Money.basisPoints(amount, total));
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.travelplanner.benchmark;
+
+/**
+ * 基准测试语料
+ * 用户消息覆盖常见的目的地、预算、人数和旅行类型表达方式（包括无法提取任何字段的闲聊）；
+ * 模型响应覆盖纯JSON、带代码块和说明文字、字段缺失或为null等情况
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+public final class TravelRequestCorpus {
+
+    public static final String[] USER_MESSAGES = {
+            "我想去日本东京玩5天，预算2万元，2个人",
+            "两个人去北京玩，预算5000元左右",
+            "下个月带2个孩子去三亚度假，一家人预算1.5万",
+            "计划国庆去成都吃火锅，准备花8000块",
+            "我们3个人想去云南大理和丽江，费用大概1万",
+            "一个人去西藏徒步，预算是6千",
+            "公司安排去上海出差开会，3天，预算3000元以内",
+            "和女朋友去厦门拍照打卡，预算4000元",
+            "想带爸妈去杭州西湖，看看古迹和博物馆，总共4个人",
+            "春节全家去哈尔滨看冰雪大世界，预算2万左右",
+            "我们5个人一起去桂林阳朔，预算每人2000",
+            "蜜月旅行想去马尔代夫，预算5万",
+            "周末想去苏州园林逛逛，休闲放松一下",
+            "去香港购物，买买买，预算1万元",
+            "暑假亲子游，带孩子去西安看兵马俑，3人的旅行",
+            "想去新疆自驾，户外探险，6个人，预算3万",
+            "你好，请问你能做什么？",
+            "推荐一下适合冬天去的地方",
+            "去重庆吃美食，品尝小面和火锅，2人，花费3000元",
+            "下个月想去青岛看海，团队有8个人，预算1.2万",
+            "准备用1万块带老婆孩子去长沙",
+            "一共10个人的团建，去千岛湖，费用8万以下",
+            "独自去敦煌看沙漠，预算大概4千",
+            "想去泰国曼谷和清迈，两个人，预算1.5万元左右",
+            "法国巴黎十天深度游，文化历史为主，预算6万",
+            "去黄山登山，3个人一起，准备花6000",
+            "端午去南京，看看历史古迹，1个人",
+            "计划去广州和深圳，商务会议，费用为5000",
+            "情侣去鼓浪屿，浪漫一点，预算3千元",
+            "带家人去北海道泡温泉，我们4个人，预算4万左右"
+    };
+
+    public static final String[] AI_RESPONSES = {
+            "{\n  \"destination\": \"日本东京\",\n  \"budget\": 20000,\n  \"groupSize\": 2,\n  \"travelType\": \"情侣游\"\n}",
+            "{\"destination\": \"北京\", \"budget\": 5000, \"groupSize\": 2, \"travelType\": null}",
+            "```json\n{\n  \"destination\": \"三亚\",\n  \"budget\": 15000,\n  \"groupSize\": 4,\n  \"travelType\": \"家庭游\"\n}\n```",
+            "根据您的描述，提取结果如下：\n```json\n{\n  \"destination\": \"成都\",\n  \"budget\": 8000,\n"
+                    + "  \"groupSize\": null,\n  \"travelType\": \"美食游\"\n}\n```\n如需调整请告诉我。",
+            "{\n  \"destination\": \"云南大理\",\n  \"budget\": 10000.0,\n  \"groupSize\": 3,\n  \"travelType\": \"自由行\"\n}",
+            "{\n  \"destination\": null,\n  \"budget\": null,\n  \"groupSize\": null,\n  \"travelType\": null\n}",
+            "{\"destination\":\"上海\",\"budget\":3000,\"groupSize\":1,\"travelType\":\"商务游\"}",
+            "{\n  \"destination\": \"杭州\",\n  \"budget\": \"未知\",\n  \"groupSize\": \"4\",\n  \"travelType\": \"文化游\"\n}"
+    };
+
+    private TravelRequestCorpus() {
+    }
+}
@@ -0,0 +1,70 @@
+package com.travelplanner.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.travelplanner.benchmark.TravelRequestCorpus;
+import com.travelplanner.service.AiService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 提取字段序列化基准测试
+ * 对比 /conversations/chat 使用的手工拼接JSON与 /reactive/conversations/chat 使用的 ObjectMapper
+ *
+ * 运行方式：mvn -Pbenchmark test-compile exec:exec -Djmh.args="FieldsJson -prof gc"
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FieldsJsonBenchmark {
+
+    private AiService.ExtractedFields[] fields;
+    private ObjectMapper objectMapper;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String[] messages = TravelRequestCorpus.USER_MESSAGES;
+        fields = new AiService.ExtractedFields[messages.length];
+        for (int i = 0; i < messages.length; i++) {
+            // 字段组合与正则提取结果的分布一致：部分字段为空
+            fields[i] = new AiService.ExtractedFields(
+                    i % 5 == 4 ? null : "目的地" + i,
+                    i % 3 == 2 ? null : 1000.0 * (i + 1),
+                    i % 4 == 3 ? null : i % 6 + 1,
+                    i % 2 == 0 ? "休闲" : null);
+        }
+        objectMapper = new ObjectMapper();
+    }
+
+    @Benchmark
+    public void convertFieldsToJson(Blackhole blackhole) {
+        for (AiService.ExtractedFields field : fields) {
+            blackhole.consume(ConversationController.convertFieldsToJson(field));
+        }
+    }
+
+    @Benchmark
+    public void objectMapperWriteValueAsString(Blackhole blackhole) throws JsonProcessingException {
+        for (AiService.ExtractedFields field : fields) {
+            blackhole.consume(objectMapper.writeValueAsString(field));
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.travelplanner.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.travelplanner.benchmark.TravelRequestCorpus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AiService 本地处理路径基准测试
+ * 每次操作处理整个语料（30条用户消息或8条模型响应），覆盖正则字段提取、模型响应解析、提示词构建和请求体序列化；
+ * 不涉及任何网络调用。位于 service 包内以便直接调用包级可见的方法
+ *
+ * 运行方式：mvn -Pbenchmark test-compile exec:exec -Djmh.args="AiFieldExtraction -prof gc"
+ * 回归检查见 {@link com.travelplanner.benchmark.BenchmarkRegressionCheck}
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AiFieldExtractionBenchmark {
+
+    private static final String PLAN_CONTEXT = "计划名称: 东京之旅, 目的地: 日本东京, 预算: 20000.0, 人数: 2";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private AiService aiService;
+    private String[] messages;
+    private String[] responses;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // 生产环境 com.travelplanner 为INFO级别，解析方法中的INFO日志会主导耗时；这里只测量方法本身
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME))
+                .setLevel(ch.qos.logback.classic.Level.WARN);
+
+        AiMetrics aiMetrics = new AiMetrics(new SimpleMeterRegistry());
+        aiService = AiServices.forTest(null, aiMetrics);
+        messages = TravelRequestCorpus.USER_MESSAGES;
+        responses = TravelRequestCorpus.AI_RESPONSES;
+    }
+
+    @Benchmark
+    public void extractDestination(Blackhole blackhole) {
+        for (String message : messages) {
+            blackhole.consume(aiService.extractDestination(message));
+        }
+    }
+
+    @Benchmark
+    public void extractBudget(Blackhole blackhole) {
+        for (String message : messages) {
+            blackhole.consume(aiService.extractBudget(message));
+        }
+    }
+
+    @Benchmark
+    public void extractGroupSize(Blackhole blackhole) {
+        for (String message : messages) {
+            blackhole.consume(aiService.extractGroupSize(message));
+        }
+    }
+
+    @Benchmark
+    public void extractTravelType(Blackhole blackhole) {
+        for (String message : messages) {
+            blackhole.consume(aiService.extractTravelType(message));
+        }
+    }
+
+    @Benchmark
+    public void extractFieldsWithRegex(Blackhole blackhole) {
+        for (String message : messages) {
+            blackhole.consume(aiService.extractFieldsWithRegex(message));
+        }
+    }
+
+    @Benchmark
+    public void parseFieldsFromAIResponse(Blackhole blackhole) {
+        for (String response : responses) {
+            blackhole.consume(aiService.parseFieldsFromAIResponse(response));
+        }
+    }
+
+    @Benchmark
+    public void buildPrompt(Blackhole blackhole) {
+        for (String message : messages) {
+            blackhole.consume(aiService.buildPrompt(message, PLAN_CONTEXT));
+        }
+    }
+
+    @Benchmark
+    public void buildFieldExtractionPrompt(Blackhole blackhole) {
+        for (String message : messages) {
+            blackhole.consume(aiService.buildFieldExtractionPrompt(message));
+        }
+    }
+
+    @Benchmark
+    public void serializeGenerationRequest(Blackhole blackhole) throws IOException {
+        for (String message : messages) {
+            blackhole.consume(objectMapper.writeValueAsBytes(requestBody(aiService.buildPrompt(message, PLAN_CONTEXT))));
+        }
+    }
+
+    @Benchmark
+    public void serializeGenerationRequestFromString(Blackhole blackhole) throws IOException {
+        // 对照：先拼出完整提示词字符串再序列化（模板化之前的做法）
+        for (String message : messages) {
+            blackhole.consume(objectMapper.writeValueAsBytes(
+                    requestBody(aiService.buildPrompt(message, PLAN_CONTEXT).toString())));
+        }
+    }
+
+    private static Map<String, Object> requestBody(Object prompt) {
+        Map<String, Object> message = new HashMap<>();
+        message.put("role", "user");
+        message.put("content", prompt);
+        Map<String, Object> input = new HashMap<>();
+        input.put("messages", Collections.singletonList(message));
+        Map<String, Object> request = new HashMap<>();
+        request.put("model", "qwen-turbo");
+        request.put("input", input);
+        return request;
+    }
+}
@@ -0,0 +1,107 @@
+package com.travelplanner.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * 异步任务配置类
+ * 为AI相关的后台任务（如预算分析预计算）和Web异步请求（流式导出等）提供独立线程池，避免占用请求线程；
+ * 虚拟线程模式下两个线程池改用虚拟线程工厂，仍保留原有的并发上限与排队容量，避免无限制地压向下游
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+@Configuration
+@EnableAsync
+@Slf4j
+public class AsyncConfig {
+
+    @Value("${app.virtual-threads.enabled:false}")
+    private boolean virtualThreadsEnabled;
+
+    @Value("${app.async.ai-pool-size:2}")
+    private int aiPoolSize;
+
+    @Value("${app.async.ai-max-pool-size:4}")
+    private int aiMaxPoolSize;
+
+    @Value("${app.async.ai-queue-capacity:100}")
+    private int aiQueueCapacity;
+
+    @Value("${app.async.web-pool-size:4}")
+    private int webPoolSize;
+
+    @Value("${app.async.web-max-pool-size:16}")
+    private int webMaxPoolSize;
+
+    @Value("${app.async.web-queue-capacity:50}")
+    private int webQueueCapacity;
+
+    @Value("${app.plan-generation.workers:2}")
+    private int planGenerationWorkers;
+
+    /**
+     * AI后台任务线程池
+     */
+    @Bean(name = "aiTaskExecutor")
+    public ThreadPoolTaskExecutor aiTaskExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(aiPoolSize);
+        executor.setMaxPoolSize(aiMaxPoolSize);
+        executor.setQueueCapacity(aiQueueCapacity);
+        executor.setThreadNamePrefix("ai-task-");
+        applyVirtualThreads(executor);
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+    
+    /**
+     * Web异步请求线程池（StreamingResponseBody导出、SSE等）
+     */
+    @Bean(name = "webAsyncTaskExecutor")
+    public ThreadPoolTaskExecutor webAsyncTaskExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(webPoolSize);
+        executor.setMaxPoolSize(webMaxPoolSize);
+        executor.setQueueCapacity(webQueueCapacity);
+        executor.setThreadNamePrefix("web-async-");
+        applyVirtualThreads(executor);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * 旅游计划生成worker线程池，线程数即同时执行的生成任务数
+     */
+    @Bean(name = "planGenerationExecutor")
+    public ThreadPoolTaskExecutor planGenerationExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(planGenerationWorkers);
+        executor.setMaxPoolSize(planGenerationWorkers);
+        executor.setQueueCapacity(planGenerationWorkers);
+        executor.setThreadNamePrefix("plan-gen-");
+        applyVirtualThreads(executor);
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+    private void applyVirtualThreads(ThreadPoolTaskExecutor executor) {
+        if (!virtualThreadsEnabled) {
+            return;
+        }
+        if (!VirtualThreads.isSupported()) {
+            log.warn("已开启虚拟线程模式，但当前运行时不支持（需要Java 21+），{} 继续使用平台线程: java={}",
+                    executor.getThreadNamePrefix(), System.getProperty("java.version"));
+            return;
+        }
+        executor.setThreadFactory(VirtualThreads.threadFactory(executor.getThreadNamePrefix() + "vt-"));
+    }
+}
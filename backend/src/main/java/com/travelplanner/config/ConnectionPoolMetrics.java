@@ -0,0 +1,177 @@
+package com.travelplanner.config;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 数据库连接池指标
+ * 作为 Hikari 的指标采集器，记录获取连接耗时、连接占用时长与获取超时次数，
+ * 并统计在持有数据库连接期间发起的外部HTTP调用次数。
+ * 本类占用了 Hikari 唯一的指标采集器位置（Spring Boot 不再挂载 Micrometer 自带的采集器），
+ * 因此同时作为 MeterBinder 以 hikaricp.* 名称把同样的数据导出到 /actuator/prometheus
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+@Slf4j
+public class ConnectionPoolMetrics implements MetricsTrackerFactory, MeterBinder {
+
+    private final long slowAcquireMillis;
+
+    private final LongAdder acquireCount = new LongAdder();
+    private final LongAdder acquireNanosTotal = new LongAdder();
+    private final LongAccumulator acquireNanosMax = new LongAccumulator(Math::max, 0L);
+    private final LongAdder slowAcquireCount = new LongAdder();
+    private final LongAdder timeoutCount = new LongAdder();
+    private final LongAdder usageCount = new LongAdder();
+    private final LongAdder usageMillisTotal = new LongAdder();
+    private final LongAccumulator usageMillisMax = new LongAccumulator(Math::max, 0L);
+    private final LongAdder httpCallsInTransaction = new LongAdder();
+
+    private volatile String poolName;
+    private volatile PoolStats poolStats;
+
+    private volatile MeterRegistry registry;
+    private volatile Timer acquireTimer;
+    private volatile Timer usageTimer;
+    private volatile Counter timeoutCounter;
+
+    public ConnectionPoolMetrics(long slowAcquireMillis) {
+        this.slowAcquireMillis = slowAcquireMillis;
+    }
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        this.poolName = poolName;
+        this.poolStats = poolStats;
+        registerMeters();
+        return new IMetricsTracker() {
+            @Override
+            public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                acquireCount.increment();
+                acquireNanosTotal.add(elapsedAcquiredNanos);
+                acquireNanosMax.accumulate(elapsedAcquiredNanos);
+                Timer timer = acquireTimer;
+                if (timer != null) {
+                    timer.record(elapsedAcquiredNanos, TimeUnit.NANOSECONDS);
+                }
+                long millis = TimeUnit.NANOSECONDS.toMillis(elapsedAcquiredNanos);
+                if (millis >= slowAcquireMillis) {
+                    slowAcquireCount.increment();
+                    PoolStats stats = ConnectionPoolMetrics.this.poolStats;
+                    log.warn("获取数据库连接耗时过长: pool={}, elapsed={}ms, active={}, idle={}, pending={}",
+                            ConnectionPoolMetrics.this.poolName, millis, stats.getActiveConnections(),
+                            stats.getIdleConnections(), stats.getPendingThreads());
+                }
+            }
+
+            @Override
+            public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+                usageCount.increment();
+                usageMillisTotal.add(elapsedBorrowedMillis);
+                usageMillisMax.accumulate(elapsedBorrowedMillis);
+                Timer timer = usageTimer;
+                if (timer != null) {
+                    timer.record(elapsedBorrowedMillis, TimeUnit.MILLISECONDS);
+                }
+            }
+
+            @Override
+            public void recordConnectionTimeout() {
+                timeoutCount.increment();
+                Counter counter = timeoutCounter;
+                if (counter != null) {
+                    counter.increment();
+                }
+            }
+        };
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        this.registry = registry;
+        FunctionCounter.builder("db.http.calls.in.transaction", httpCallsInTransaction, LongAdder::sum)
+                .description("持有数据库连接期间发起的外部HTTP调用次数")
+                .register(registry);
+        registerMeters();
+    }
+
+    /**
+     * 连接池启动与指标注册表就绪的先后顺序不固定，两者都就绪后再注册带 pool 标签的指标
+     */
+    private synchronized void registerMeters() {
+        MeterRegistry registry = this.registry;
+        String poolName = this.poolName;
+        if (registry == null || poolName == null || acquireTimer != null) {
+            return;
+        }
+        acquireTimer = Timer.builder("hikaricp.connections.acquire")
+                .description("获取数据库连接耗时")
+                .tag("pool", poolName)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(registry);
+        usageTimer = Timer.builder("hikaricp.connections.usage")
+                .description("数据库连接占用时长")
+                .tag("pool", poolName)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(registry);
+        timeoutCounter = Counter.builder("hikaricp.connections.timeout")
+                .description("获取数据库连接超时次数")
+                .tag("pool", poolName)
+                .register(registry);
+        Gauge.builder("hikaricp.connections.pending", this, metrics -> metrics.poolStats.getPendingThreads())
+                .description("等待数据库连接的线程数")
+                .tag("pool", poolName)
+                .register(registry);
+    }
+
+    /**
+     * 记录一次在持有数据库连接期间发起的外部HTTP调用
+     */
+    public void recordHttpCallInTransaction() {
+        httpCallsInTransaction.increment();
+    }
+
+    /**
+     * 当前指标快照
+     *
+     * @return 指标名 -> 数值
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        PoolStats stats = poolStats;
+        snapshot.put("pool", poolName);
+        if (stats != null) {
+            snapshot.put("active", stats.getActiveConnections());
+            snapshot.put("idle", stats.getIdleConnections());
+            snapshot.put("total", stats.getTotalConnections());
+            snapshot.put("max", stats.getMaxConnections());
+            snapshot.put("pending", stats.getPendingThreads());
+        }
+        long acquires = acquireCount.sum();
+        snapshot.put("acquireCount", acquires);
+        snapshot.put("acquireAvgMicros", acquires == 0 ? 0L : acquireNanosTotal.sum() / acquires / 1000L);
+        snapshot.put("acquireMaxMicros", acquireNanosMax.get() / 1000L);
+        snapshot.put("slowAcquireCount", slowAcquireCount.sum());
+        snapshot.put("timeoutCount", timeoutCount.sum());
+        long usages = usageCount.sum();
+        snapshot.put("usageAvgMillis", usages == 0 ? 0L : usageMillisTotal.sum() / usages);
+        snapshot.put("usageMaxMillis", usageMillisMax.get());
+        snapshot.put("httpCallsInTransaction", httpCallsInTransaction.sum());
+        return snapshot;
+    }
+}
@@ -0,0 +1,146 @@
+package com.travelplanner.config;
+
+import com.travelplanner.service.AiService;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.env.Environment;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.web.client.RestTemplate;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 数据库连接池配置类
+ * 按CPU核数与预期数据库并发自动确定Hikari连接池大小，挂载连接获取耗时指标，
+ * 并在启动时检查是否存在会在事务内调用AI接口的组件
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+@Configuration
+@Slf4j
+public class DataSourcePoolConfig {
+
+    /**
+     * 连接池指标（BeanPostProcessor依赖，需为静态Bean）
+     */
+    @Bean
+    public static ConnectionPoolMetrics connectionPoolMetrics(Environment environment) {
+        return new ConnectionPoolMetrics(
+                environment.getProperty("app.datasource.pool.slow-acquire-ms", Long.class, 100L));
+    }
+
+    /**
+     * 在连接池启动前调整Hikari配置
+     */
+    @Bean
+    public static BeanPostProcessor hikariPoolCustomizer(Environment environment, ConnectionPoolMetrics metrics) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) throws BeansException {
+                if (bean instanceof HikariDataSource) {
+                    customize((HikariDataSource) bean, environment, metrics);
+                }
+                return bean;
+            }
+        };
+    }
+
+    /**
+     * 计算连接池大小：核数 * 2 + 1（PostgreSQL 推荐公式），不超过预期数据库并发，不低于最小值
+     *
+     * @param cores CPU核数
+     * @param expectedConcurrency 预期同时访问数据库的请求数
+     * @param minSize 最小连接数
+     * @return 连接池大小
+     */
+    static int computePoolSize(int cores, int expectedConcurrency, int minSize) {
+        int size = cores * 2 + 1;
+        if (expectedConcurrency > 0) {
+            size = Math.min(size, expectedConcurrency);
+        }
+        return Math.max(size, minSize);
+    }
+
+    private static void customize(HikariDataSource dataSource, Environment environment, ConnectionPoolMetrics metrics) {
+        if (environment.getProperty("app.datasource.pool.auto-size", Boolean.class, false)) {
+            int cores = Runtime.getRuntime().availableProcessors();
+            int size = computePoolSize(cores,
+                    environment.getProperty("app.datasource.pool.expected-concurrency", Integer.class, 0),
+                    environment.getProperty("app.datasource.pool.min-size", Integer.class, 4));
+            dataSource.setMaximumPoolSize(size);
+            dataSource.setMinimumIdle(size);
+            log.info("数据库连接池大小已按CPU核数自动设置: pool={}, cores={}, maximumPoolSize={}",
+                    dataSource.getPoolName(), cores, size);
+        }
+        if (dataSource.getMetricsTrackerFactory() == null && dataSource.getMetricRegistry() == null) {
+            dataSource.setMetricsTrackerFactory(metrics);
+        }
+        log.info("数据库连接池配置: pool={}, connectionTimeout={}ms, leakDetectionThreshold={}ms",
+                dataSource.getPoolName(), dataSource.getConnectionTimeout(), dataSource.getLeakDetectionThreshold());
+    }
+
+    /**
+     * 启动自检：事务组件直接依赖AI服务或HTTP客户端时告警
+     * 此类组件的事务方法调用AI接口时会在整个调用期间占用数据库连接
+     *
+     * @param event 应用就绪事件
+     */
+    @EventListener
+    public void checkHttpCallsInTransactions(ApplicationReadyEvent event) {
+        ApplicationContext context = event.getApplicationContext();
+        List<String> suspects = new ArrayList<>();
+        for (String beanName : context.getBeanDefinitionNames()) {
+            Class<?> type = context.getType(beanName);
+            if (type == null || !type.getName().startsWith("com.travelplanner.")) {
+                continue;
+            }
+            Class<?> targetClass = ClassUtils.getUserClass(type);
+            if (!holdsConnection(targetClass)) {
+                continue;
+            }
+            ReflectionUtils.doWithFields(targetClass, field -> suspects.add(targetClass.getSimpleName() + "." + field.getName()),
+                    DataSourcePoolConfig::isHttpClientField);
+        }
+        if (!suspects.isEmpty()) {
+            log.warn("以下事务组件依赖AI服务或HTTP客户端，事务内的外部调用会占用数据库连接，应移出事务: {}", suspects);
+        }
+    }
+
+    private static boolean holdsConnection(Class<?> type) {
+        Transactional classLevel = AnnotatedElementUtils.findMergedAnnotation(type, Transactional.class);
+        if (classLevel != null && opensTransaction(classLevel)) {
+            return true;
+        }
+        for (Method method : ReflectionUtils.getUniqueDeclaredMethods(type)) {
+            Transactional methodLevel = AnnotatedElementUtils.findMergedAnnotation(method, Transactional.class);
+            if (methodLevel != null && opensTransaction(methodLevel)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean opensTransaction(Transactional transactional) {
+        Propagation propagation = transactional.propagation();
+        return propagation != Propagation.NOT_SUPPORTED && propagation != Propagation.NEVER;
+    }
+
+    private static boolean isHttpClientField(Field field) {
+        return AiService.class.isAssignableFrom(field.getType()) || RestTemplate.class.isAssignableFrom(field.getType());
+    }
+}
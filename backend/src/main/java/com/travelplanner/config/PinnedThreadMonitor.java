@@ -0,0 +1,121 @@
+package com.travelplanner.config;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 虚拟线程钉住（pinning）诊断
+ * 通过JFR事件流订阅 jdk.VirtualThreadPinned：虚拟线程在synchronized块或本地方法中阻塞时无法让出载体线程，
+ * 典型来源是JDBC驱动与连接池内部的同步块。超过阈值的事件计数并按间隔输出带调用栈的告警，
+ * 便于定位需要改用ReentrantLock或升级驱动的代码路径
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+@Slf4j
+public class PinnedThreadMonitor implements AutoCloseable {
+
+    static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+
+    private final Duration threshold;
+    private final long logIntervalMillis;
+
+    private final AtomicLong pinnedEvents = new AtomicLong();
+    private final AtomicLong pinnedNanos = new AtomicLong();
+    private final AtomicLong maxPinnedNanos = new AtomicLong();
+    private final AtomicLong lastLoggedAt = new AtomicLong();
+
+    private volatile AutoCloseable stream;
+
+    public PinnedThreadMonitor(Duration threshold, Duration logInterval) {
+        this.threshold = threshold;
+        this.logIntervalMillis = logInterval.toMillis();
+    }
+
+    /**
+     * 启动JFR事件流，运行时不支持时仅记录日志
+     *
+     * @return 是否成功启动
+     */
+    public boolean start() {
+        try {
+            Class<?> streamClass = Class.forName("jdk.jfr.consumer.RecordingStream");
+            Object recordingStream = streamClass.getConstructor().newInstance();
+            Object settings = streamClass.getMethod("enable", String.class).invoke(recordingStream, PINNED_EVENT);
+            Class.forName("jdk.jfr.EventSettings").getMethod("withStackTrace").invoke(settings);
+            Class.forName("jdk.jfr.EventSettings").getMethod("withThreshold", Duration.class).invoke(settings, threshold);
+            Consumer<Object> handler = this::onPinned;
+            streamClass.getMethod("onEvent", String.class, Consumer.class)
+                    .invoke(recordingStream, PINNED_EVENT, handler);
+            streamClass.getMethod("startAsync").invoke(recordingStream);
+            this.stream = (AutoCloseable) recordingStream;
+            log.info("虚拟线程钉住诊断已启动: event={}, threshold={}ms", PINNED_EVENT, threshold.toMillis());
+            return true;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            log.warn("无法启动虚拟线程钉住诊断（需要支持JFR事件流的Java 21+运行时）: {}", e.toString());
+            return false;
+        }
+    }
+
+    /**
+     * 处理一条钉住事件
+     */
+    void onPinned(Object event) {
+        long nanos = durationNanos(event);
+        pinnedEvents.incrementAndGet();
+        pinnedNanos.addAndGet(nanos);
+        maxPinnedNanos.accumulateAndGet(nanos, Math::max);
+
+        long now = System.currentTimeMillis();
+        long last = lastLoggedAt.get();
+        if (now - last >= logIntervalMillis && lastLoggedAt.compareAndSet(last, now)) {
+            log.warn("虚拟线程被钉住 {}ms（累计{}次），请检查synchronized或本地方法中的阻塞调用: {}",
+                    Duration.ofNanos(nanos).toMillis(), pinnedEvents.get(), event);
+        }
+    }
+
+    /**
+     * 诊断统计快照
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("running", stream != null);
+        snapshot.put("thresholdMs", threshold.toMillis());
+        snapshot.put("pinnedEvents", pinnedEvents.get());
+        snapshot.put("totalPinnedMs", Duration.ofNanos(pinnedNanos.get()).toMillis());
+        snapshot.put("maxPinnedMs", Duration.ofNanos(maxPinnedNanos.get()).toMillis());
+        return snapshot;
+    }
+
+    public long getPinnedEvents() {
+        return pinnedEvents.get();
+    }
+
+    @Override
+    public void close() {
+        AutoCloseable current = stream;
+        stream = null;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (Exception e) {
+                log.debug("关闭JFR事件流失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    private static long durationNanos(Object event) {
+        try {
+            Method getDuration = Class.forName("jdk.jfr.consumer.RecordedEvent").getMethod("getDuration");
+            return ((Duration) getDuration.invoke(event)).toNanos();
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return 0L;
+        }
+    }
+}
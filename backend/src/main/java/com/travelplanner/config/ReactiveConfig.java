@@ -0,0 +1,74 @@
+package com.travelplanner.config;
+
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+
+/**
+ * 响应式调用链配置类
+ * 非阻塞对话接口使用基于Reactor Netty的WebClient调用大模型，等待响应期间不占用任何线程；
+ * 阻塞的JPA访问统一切换到与连接池大小相当的有界调度器上执行，事件循环线程上不做数据库调用
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+@Configuration
+public class ReactiveConfig {
+
+    @Value("${app.qwen.base-url:https://dashscope.aliyuncs.com/api/v1}")
+    private String qwenBaseUrl;
+
+    @Value("${app.reactive.max-connections:1000}")
+    private int maxConnections;
+
+    @Value("${app.reactive.pending-acquire-max:10000}")
+    private int pendingAcquireMax;
+
+    @Value("${app.reactive.connect-timeout-ms:30000}")
+    private int connectTimeoutMs;
+
+    @Value("${app.reactive.response-timeout-ms:60000}")
+    private long responseTimeoutMs;
+
+    @Value("${app.reactive.jdbc-threads:10}")
+    private int jdbcThreads;
+
+    @Value("${app.reactive.jdbc-queue-capacity:10000}")
+    private int jdbcQueueCapacity;
+
+    /**
+     * 通义千问（DashScope）非阻塞客户端
+     */
+    @Bean
+    public WebClient dashScopeWebClient(WebClient.Builder builder) {
+        ConnectionProvider connectionProvider = ConnectionProvider.builder("dashscope")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(pendingAcquireMax)
+                .pendingAcquireTimeout(Duration.ofMillis(responseTimeoutMs))
+                .build();
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMs)
+                .responseTimeout(Duration.ofMillis(responseTimeoutMs));
+        return builder
+                .baseUrl(qwenBaseUrl)
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
+    }
+
+    /**
+     * 阻塞数据库访问调度器，线程数应与数据库连接池大小相当
+     */
+    @Bean(destroyMethod = "dispose")
+    public Scheduler jdbcScheduler() {
+        return Schedulers.newBoundedElastic(jdbcThreads, jdbcQueueCapacity, "jdbc");
+    }
+}
@@ -0,0 +1,216 @@
+package com.travelplanner.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 读写分离路由数据源
+ * 只读事务轮询发往复制延迟在阈值内的从库，其余请求发往主库；
+ * 用户提交写事务后的一段时间内，该用户的只读事务仍发往主库，保证读到自己的写入。
+ * 需包装在 LazyConnectionDataSourceProxy 中使用，使连接在事务的只读标志设置后才真正获取
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+@Slf4j
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource implements DisposableBean {
+
+    public static final String PRIMARY = "primary";
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final long maxLagMillis;
+    private final long stickyWindowMillis;
+    private final String lagQuery;
+
+    /**
+     * 最近提交写事务的用户 -> 提交时间
+     */
+    private final Map<String, Long> recentWriters = new ConcurrentHashMap<>();
+
+    private final AtomicInteger nextReplica = new AtomicInteger();
+
+    /**
+     * @param primary 主库
+     * @param replicas 从库（名称 -> 数据源），lagQuery 为空的从库视为无延迟（本地替身）
+     * @param maxLagMillis 允许的最大复制延迟（毫秒），超过时从库暂停接收读请求
+     * @param stickyWindowMillis 用户写入后只读请求仍走主库的时长（毫秒）
+     * @param lagQuery 查询从库复制延迟（毫秒）的SQL
+     */
+    public ReadWriteRoutingDataSource(DataSource primary, Map<String, DataSource> replicas,
+                                      long maxLagMillis, long stickyWindowMillis, String lagQuery) {
+        this.primary = primary;
+        this.maxLagMillis = maxLagMillis;
+        this.stickyWindowMillis = stickyWindowMillis;
+        this.lagQuery = lagQuery;
+        this.replicas = new ArrayList<>();
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (Map.Entry<String, DataSource> entry : replicas.entrySet()) {
+            this.replicas.add(new Replica(entry.getKey(), entry.getValue()));
+            targets.put(entry.getKey(), entry.getValue());
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        String user = currentUser();
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (user != null && TransactionSynchronizationManager.isSynchronizationActive()
+                    && TransactionSynchronizationManager.isActualTransactionActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        recentWriters.put(user, System.currentTimeMillis());
+                    }
+                });
+            }
+            return PRIMARY;
+        }
+
+        if (user != null && wroteRecently(user)) {
+            return PRIMARY;
+        }
+        Replica replica = nextHealthyReplica();
+        return replica != null ? replica.name : PRIMARY;
+    }
+
+    /**
+     * 检查各从库的复制延迟，延迟超过阈值或无法连接的从库暂停接收读请求
+     */
+    @Scheduled(fixedDelayString = "${app.datasource.routing.lag-check-interval-ms:5000}",
+            initialDelayString = "${app.datasource.routing.lag-check-interval-ms:5000}")
+    public void refreshReplicaLag() {
+        for (Replica replica : replicas) {
+            boolean healthy;
+            try {
+                replica.lagMillis = measureLag(replica);
+                healthy = replica.lagMillis <= maxLagMillis;
+            } catch (SQLException e) {
+                replica.lagMillis = -1L;
+                healthy = false;
+                log.debug("从库延迟检查失败: replica={}, error={}", replica.name, e.getMessage());
+            }
+            if (healthy != replica.healthy) {
+                log.warn("从库状态变更: replica={}, healthy={}, lagMillis={}", replica.name, healthy, replica.lagMillis);
+            }
+            replica.healthy = healthy;
+        }
+
+        long expiredBefore = System.currentTimeMillis() - stickyWindowMillis;
+        recentWriters.values().removeIf(committedAt -> committedAt < expiredBefore);
+    }
+
+    /**
+     * 当前路由状态
+     *
+     * @return 从库名称 -> {healthy, lagMillis}
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        for (Replica replica : replicas) {
+            Map<String, Object> replicaStatus = new LinkedHashMap<>();
+            replicaStatus.put("healthy", replica.healthy);
+            replicaStatus.put("lagMillis", replica.lagMillis);
+            status.put(replica.name, replicaStatus);
+        }
+        return Collections.unmodifiableMap(status);
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof Closeable && replica.dataSource != primary) {
+                ((Closeable) replica.dataSource).close();
+            }
+        }
+    }
+
+    private long measureLag(Replica replica) throws SQLException {
+        if (lagQuery == null || lagQuery.trim().isEmpty()) {
+            return 0L;
+        }
+        try (Connection connection = replica.dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.setQueryTimeout(2);
+            try (ResultSet resultSet = statement.executeQuery(lagQuery)) {
+                return resultSet.next() ? Math.round(resultSet.getDouble(1)) : 0L;
+            }
+        }
+    }
+
+    private boolean wroteRecently(String user) {
+        Long committedAt = recentWriters.get(user);
+        if (committedAt == null) {
+            return false;
+        }
+        if (System.currentTimeMillis() - committedAt > stickyWindowMillis) {
+            recentWriters.remove(user, committedAt);
+            return false;
+        }
+        return true;
+    }
+
+    private Replica nextHealthyReplica() {
+        int size = replicas.size();
+        int start = Math.floorMod(nextReplica.getAndIncrement(), Math.max(size, 1));
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (replica.healthy) {
+                return replica;
+            }
+        }
+        return null;
+    }
+
+    private static String currentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()
+                || authentication instanceof AnonymousAuthenticationToken) {
+            return null;
+        }
+        return authentication.getName();
+    }
+
+    /**
+     * 从库及其健康状态
+     */
+    private static final class Replica {
+        private final String name;
+        private final DataSource dataSource;
+        private volatile boolean healthy;
+        private volatile long lagMillis;
+
+        private Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+    }
+}
@@ -5,6 +5,7 @@ import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
 import org.apache.http.conn.ssl.TrustSelfSignedStrategy;
 import org.apache.http.impl.client.HttpClients;
 import org.apache.http.ssl.SSLContextBuilder;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.client.ClientHttpRequestFactory;
@@ -14,6 +15,7 @@ import org.springframework.http.converter.StringHttpMessageConverter;
 import org.springframework.web.client.RestTemplate;
 
 import javax.net.ssl.SSLContext;
+import javax.sql.DataSource;
 import java.nio.charset.StandardCharsets;
 import java.security.KeyManagementException;
 import java.security.KeyStoreException;
@@ -22,7 +24,7 @@ import java.util.List;
 
 /**
  * RestTemplate配置类
- * 确保HTTP客户端使用UTF-8编码
+ * 确保HTTP客户端使用UTF-8编码，并检查事务内发起的外部调用
  * 
  * @author TravelPlanner Team
  * @version 1.0.0
@@ -30,11 +32,20 @@ import java.util.List;
 @Configuration
 public class RestTemplateConfig {
 
+    /**
+     * HTTP连接池上限。HttpClient默认每个目标主机仅2个连接，并发对话会在连接池上排队
+     */
+    @Value("${app.http.max-connections:200}")
+    private int maxConnections;
+
+    @Value("${app.http.max-connections-per-route:100}")
+    private int maxConnectionsPerRoute;
+
     /**
      * 配置RestTemplate，确保使用UTF-8编码
      */
     @Bean
-    public RestTemplate restTemplate() {
+    public RestTemplate restTemplate(DataSource dataSource, ConnectionPoolMetrics connectionPoolMetrics) {
         RestTemplate restTemplate = new RestTemplate();
         
         // 设置字符编码为UTF-8
@@ -48,6 +59,9 @@ public class RestTemplateConfig {
         // 设置请求工厂
         restTemplate.setRequestFactory(clientHttpRequestFactory());
         
+        // 持有数据库连接时发起外部调用告警
+        restTemplate.getInterceptors().add(new TransactionalHttpCallInterceptor(dataSource, connectionPoolMetrics));
+        
         return restTemplate;
     }
 
@@ -73,6 +87,8 @@ public class RestTemplateConfig {
             // 创建HTTP客户端
             HttpClient httpClient = HttpClients.custom()
                     .setSSLSocketFactory(sslConnectionSocketFactory)
+                    .setMaxConnTotal(maxConnections)
+                    .setMaxConnPerRoute(maxConnectionsPerRoute)
                     .build();
             
             // 创建HTTP组件客户端请求工厂
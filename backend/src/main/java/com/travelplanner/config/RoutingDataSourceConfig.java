@@ -0,0 +1,112 @@
+package com.travelplanner.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 读写分离数据源配置类
+ * 开启后主库使用 spring.datasource 配置，从库使用 app.datasource.routing.replicas 配置（沿用主库的连接池参数）；
+ * local-replica 为 true 时额外创建一个指向主库的本地替身从库，用于开发和测试环境验证路由
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.datasource.routing.enabled", havingValue = "true")
+@Slf4j
+public class RoutingDataSourceConfig {
+
+    /**
+     * 主库连接池
+     */
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    /**
+     * 读写路由数据源
+     */
+    @Bean
+    public ReadWriteRoutingDataSource routingDataSource(HikariDataSource primaryDataSource, Environment environment) {
+        List<ReplicaProperties> replicaProperties = Binder.get(environment)
+                .bind("app.datasource.routing.replicas", Bindable.listOf(ReplicaProperties.class))
+                .orElse(Collections.emptyList());
+
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (int i = 0; i < replicaProperties.size(); i++) {
+            ReplicaProperties replica = replicaProperties.get(i);
+            replicas.put("replica-" + (i + 1), createReplica(primaryDataSource, "replica-" + (i + 1),
+                    replica.getUrl(), replica.getUsername(), replica.getPassword()));
+        }
+        if (environment.getProperty("app.datasource.routing.local-replica", Boolean.class, false)) {
+            replicas.put("local-replica", createReplica(primaryDataSource, "local-replica",
+                    primaryDataSource.getJdbcUrl(), null, null));
+        }
+
+        ReadWriteRoutingDataSource routingDataSource = new ReadWriteRoutingDataSource(primaryDataSource, replicas,
+                environment.getProperty("app.datasource.routing.max-lag-ms", Long.class, 2000L),
+                environment.getProperty("app.datasource.routing.sticky-window-ms", Long.class, 5000L),
+                replicaProperties.isEmpty() ? null : environment.getProperty("app.datasource.routing.lag-query"));
+        // 启动时先检查一次，从库在确认可用前不接收读请求
+        routingDataSource.refreshReplicaLag();
+        log.info("读写分离已启用: replicas={}", routingDataSource.getStatus());
+        return routingDataSource;
+    }
+
+    /**
+     * 应用使用的数据源：延迟获取物理连接，使路由在事务只读标志确定后进行
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(ReadWriteRoutingDataSource routingDataSource) {
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    private static HikariDataSource createReplica(HikariDataSource primary, String name,
+                                                  String url, String username, String password) {
+        HikariConfig config = new HikariConfig();
+        primary.copyStateTo(config);
+        config.setPoolName(primary.getPoolName() + "-" + name);
+        config.setJdbcUrl(url);
+        if (StringUtils.hasText(username)) {
+            config.setUsername(username);
+            config.setPassword(password);
+        }
+        config.setReadOnly(true);
+        // 从库不可用时不阻止启动，由延迟检查标记为不可用
+        config.setInitializationFailTimeout(-1);
+        config.setMetricsTrackerFactory(null);
+        return new HikariDataSource(config);
+    }
+
+    /**
+     * 从库连接配置
+     */
+    @Data
+    public static class ReplicaProperties {
+        private String url;
+        private String username;
+        private String password;
+    }
+}
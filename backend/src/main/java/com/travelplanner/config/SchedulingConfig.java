@@ -0,0 +1,16 @@
+package com.travelplanner.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * 定时任务配置类
+ * 启用定时任务（如汇率表定期刷新）
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -105,6 +105,7 @@ public class SecurityConfig {
                 .antMatchers("/ai/test").permitAll()  // 允许API Key测试端点公开访问
                 .antMatchers("/ai/generate").permitAll()  // 允许AI生成端点公开访问
                 .antMatchers("/conversations/chat").permitAll()  // 临时允许聊天端点公开访问用于测试
+                .antMatchers("/reactive/ai/generate", "/reactive/conversations/chat").permitAll()  // 非阻塞版本与上面保持一致
                 .antMatchers("/plans/**").permitAll()  // 临时允许旅游计划端点公开访问用于测试
                 .antMatchers("/expenses/**").permitAll()  // 临时允许费用管理端点公开访问用于测试
                 // 对话API需要认证 - 已移除公开访问权限
@@ -0,0 +1,45 @@
+package com.travelplanner.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+
+/**
+ * 外部HTTP调用检查拦截器
+ * AI接口调用耗时可达数十秒，若在事务内发起会在整个调用期间占用数据库连接，是连接池耗尽的主要原因；
+ * 检测到当前线程绑定了数据库连接时记录告警
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+@Slf4j
+public class TransactionalHttpCallInterceptor implements ClientHttpRequestInterceptor {
+
+    private final DataSource dataSource;
+    private final ConnectionPoolMetrics metrics;
+
+    public TransactionalHttpCallInterceptor(DataSource dataSource, ConnectionPoolMetrics metrics) {
+        this.dataSource = dataSource;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        if (TransactionSynchronizationManager.hasResource(dataSource)) {
+            metrics.recordHttpCallInTransaction();
+            log.warn("在持有数据库连接期间发起外部HTTP调用，调用期间连接无法归还连接池: transaction={}, {} {}",
+                    TransactionSynchronizationManager.getCurrentTransactionName(),
+                    request.getMethod(), request.getURI().getHost());
+            if (log.isDebugEnabled()) {
+                log.debug("外部HTTP调用堆栈", new IllegalStateException("HTTP call inside transaction"));
+            }
+        }
+        return execution.execute(request, body);
+    }
+}
@@ -0,0 +1,86 @@
+package com.travelplanner.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.coyote.ProtocolHandler;
+import org.springframework.boot.autoconfigure.condition.ConditionOutcome;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.SpringBootCondition;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * 虚拟线程执行模式配置类
+ * 开启 app.virtual-threads.enabled 且运行在Java 21+时，Tomcat为每个请求创建一个虚拟线程，
+ * 对话接口中阻塞等待大模型响应的请求不再占用平台线程，并发能力只受连接数与下游限流约束；
+ * AI后台任务与Web异步请求线程池也改用虚拟线程（见 {@link AsyncConfig}）
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+@Configuration
+@Conditional(VirtualThreadConfig.VirtualThreadsAvailableCondition.class)
+@Slf4j
+public class VirtualThreadConfig {
+
+    private volatile ExecutorService requestExecutor;
+
+    /**
+     * Tomcat请求处理改用每请求一个虚拟线程的执行器
+     */
+    @Bean
+    public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadProtocolHandlerCustomizer() {
+        return protocolHandler -> {
+            requestExecutor = VirtualThreads.newThreadPerTaskExecutor("http-vt-");
+            protocolHandler.setExecutor(requestExecutor);
+            log.info("Tomcat请求处理已切换为虚拟线程: java={}", System.getProperty("java.version"));
+        };
+    }
+
+    /**
+     * 虚拟线程钉住诊断
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "app.virtual-threads.pinning-diagnostics", havingValue = "true", matchIfMissing = true)
+    public PinnedThreadMonitor pinnedThreadMonitor(Environment environment) {
+        PinnedThreadMonitor monitor = new PinnedThreadMonitor(
+                Duration.ofMillis(environment.getProperty("app.virtual-threads.pinned-threshold-ms", Long.class, 20L)),
+                Duration.ofMillis(environment.getProperty("app.virtual-threads.pinned-log-interval-ms", Long.class, 10000L)));
+        monitor.start();
+        return monitor;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // 外部执行器不随Tomcat停止而关闭
+        ExecutorService executor = requestExecutor;
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * 开关打开且运行时支持虚拟线程时生效
+     */
+    static class VirtualThreadsAvailableCondition extends SpringBootCondition {
+
+        @Override
+        public ConditionOutcome getMatchOutcome(ConditionContext context, AnnotatedTypeMetadata metadata) {
+            if (!context.getEnvironment().getProperty("app.virtual-threads.enabled", Boolean.class, false)) {
+                return ConditionOutcome.noMatch("app.virtual-threads.enabled 未开启");
+            }
+            if (!VirtualThreads.isSupported()) {
+                return ConditionOutcome.noMatch("运行时不支持虚拟线程: java " + System.getProperty("java.version"));
+            }
+            return ConditionOutcome.match("虚拟线程执行模式已开启");
+        }
+    }
+}
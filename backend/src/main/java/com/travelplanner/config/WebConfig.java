@@ -1,9 +1,13 @@
 package com.travelplanner.config;
 
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
@@ -18,6 +22,23 @@ import java.util.Arrays;
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
     
+    private final AsyncTaskExecutor webAsyncTaskExecutor;
+    
+    @Value("${app.async.web-request-timeout-ms:300000}")
+    private long webRequestTimeoutMs;
+    
+    public WebConfig(@Qualifier("webAsyncTaskExecutor") AsyncTaskExecutor webAsyncTaskExecutor) {
+        this.webAsyncTaskExecutor = webAsyncTaskExecutor;
+    }
+    
+    /**
+     * 配置异步请求（流式导出、SSE）使用的线程池与超时时间
+     */
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(webAsyncTaskExecutor);
+        configurer.setDefaultTimeout(webRequestTimeoutMs);
+    }
     
     /**
      * 配置CORS
@@ -1,7 +1,12 @@
 package com.travelplanner.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.travelplanner.security.JwtUtil;
+import com.travelplanner.service.AiMetrics;
 import com.travelplanner.service.AiService;
+import com.travelplanner.service.ConversationContextService;
 import com.travelplanner.service.ConversationService;
+import com.travelplanner.service.DataExportService;
 import com.travelplanner.service.TravelPlanService;
 import com.travelplanner.entity.TravelPlan;
 import lombok.RequiredArgsConstructor;
@@ -10,10 +15,15 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
 import java.time.LocalDateTime;
 import java.util.Optional;
@@ -33,17 +43,23 @@ import com.travelplanner.entity.Conversation;
 public class ConversationController {
     
     private final ConversationService conversationService;
+    private final ConversationContextService conversationContextService;
     private final AiService aiService;
+    private final AiMetrics aiMetrics;
     private final TravelPlanService travelPlanService;
+    private final DataExportService dataExportService;
+    private final JwtUtil jwtUtil;
+    private final ObjectMapper objectMapper;
     
     /**
      * 发送消息给AI
      * 
      * @param request 消息请求
+     * @param httpRequest HTTP请求（从JWT令牌中识别调用者）
      * @return AI回复
      */
     @PostMapping("/chat")
-    public ResponseEntity<?> chat(@Valid @RequestBody ChatRequest request) {
+    public ResponseEntity<?> chat(@Valid @RequestBody ChatRequest request, HttpServletRequest httpRequest) {
         try {
             log.info("收到聊天请求: userId={}, planId={}, apiKey={}", 
                 request.getUserId(), request.getPlanId(), 
@@ -51,24 +67,41 @@ public class ConversationController {
             
             long startTime = System.currentTimeMillis();
             
-            // 获取计划上下文
-            String planContext = "";
-            if (request.getPlanId() != null) {
-                planContext = travelPlanService.findById(request.getPlanId())
-                        .map(plan -> String.format("计划名称: %s, 目的地: %s, 预算: %s, 人数: %s", 
-                                plan.getPlanName(), plan.getDestination(), 
-                                plan.getBudget(), plan.getGroupSize()))
-                        .orElse("");
-            }
+            // 获取计划上下文（计划信息 + 该计划的对话摘要与最近对话）
+            String planContext = buildPlanContext(request.getPlanId(), getUserIdFromRequest(httpRequest));
             
-            // 提取旅行字段
+            boolean customKey = request.getApiKey() != null && !request.getApiKey().trim().isEmpty();
             AiService.ExtractedFields extractedFields;
-            if (request.getApiKey() != null && !request.getApiKey().trim().isEmpty()) {
-                // 使用自定义API Key提取字段
-                extractedFields = aiService.extractFieldsWithCustomKey(request.getApiKey(), request.getMessage());
+            String aiResponse;
+            if (aiService.isCombinedChat()) {
+                // 单次调用同时返回字段和计划
+                AiService.CombinedReply reply = customKey
+                        ? aiService.chatWithCustomKey(request.getApiKey(), request.getMessage(), planContext)
+                        : aiService.chat(request.getUserId(), request.getMessage(), planContext);
+                extractedFields = reply.getFields();
+                aiResponse = reply.getMessage();
             } else {
-                // 使用用户特定的API Key或默认API Key
-                extractedFields = aiService.extractTravelFields(request.getUserId(), request.getMessage());
+                // 提取旅行字段
+                if (customKey) {
+                    // 使用自定义API Key提取字段
+                    extractedFields = aiService.extractFieldsWithCustomKey(request.getApiKey(), request.getMessage());
+                } else {
+                    // 使用用户特定的API Key或默认API Key
+                    extractedFields = aiService.extractTravelFields(request.getUserId(), request.getMessage());
+                }
+                
+                // 调用AI服务生成回复
+                if (customKey) {
+                    // 使用自定义API Key
+                    aiResponse = aiService.generateTravelPlanWithCustomKey(
+                        request.getApiKey(), 
+                        request.getMessage(), 
+                        planContext
+                    );
+                } else {
+                    // 使用用户特定的API Key或默认API Key
+                    aiResponse = aiService.generateTravelPlan(request.getUserId(), request.getMessage(), planContext);
+                }
             }
             
             // 检查字段提取是否成功
@@ -81,36 +114,23 @@ public class ConversationController {
                 extractedFields.getDestination(), extractedFields.getBudget(), 
                 extractedFields.getGroupSize(), extractedFields.getTravelType());
             
-            // 调用AI服务生成回复
-            String aiResponse;
-            if (request.getApiKey() != null && !request.getApiKey().trim().isEmpty()) {
-                // 使用自定义API Key
-                aiResponse = aiService.generateTravelPlanWithCustomKey(
-                    request.getApiKey(), 
-                    request.getMessage(), 
-                    planContext
-                );
-            } else {
-                // 使用用户特定的API Key或默认API Key
-                aiResponse = aiService.generateTravelPlan(request.getUserId(), request.getMessage(), planContext);
-            }
-            
             long processingTime = System.currentTimeMillis() - startTime;
             
             // 将提取的字段转换为JSON字符串
             String extractedFieldsJson = convertFieldsToJson(extractedFields);
             
             // 保存对话记录
-            conversationService.saveConversation(
-                request.getUserId(),
-                request.getPlanId(),
-                request.getMessage(),
-                aiResponse,
-                "text",
-                null,
-                processingTime,
-                extractedFieldsJson
-            );
+            aiMetrics.time(AiMetrics.STAGE_DB_SAVE, AiMetrics.NO_MODEL, aiMetrics.currentEndpoint(),
+                () -> conversationService.saveConversation(
+                    request.getUserId(),
+                    request.getPlanId(),
+                    request.getMessage(),
+                    aiResponse,
+                    "text",
+                    null,
+                    processingTime,
+                    extractedFieldsJson
+                ));
             
             // 不再自动创建旅游计划，改为用户手动选择保存
             Long createdPlanId = null;
@@ -246,12 +266,14 @@ public class ConversationController {
      * @param userId 用户ID
      * @param planId 计划ID
      * @param audioFile 音频文件
+     * @param request HTTP请求（从JWT令牌中识别调用者）
      * @return AI回复
      */
     @PostMapping("/voice")
     public ResponseEntity<?> voiceChat(@RequestParam Long userId,
                                       @RequestParam(required = false) Long planId,
-                                      @RequestParam("audio") MultipartFile audioFile) {
+                                      @RequestParam("audio") MultipartFile audioFile,
+                                      HttpServletRequest request) {
         try {
             log.info("收到语音消息: userId={}, planId={}", userId, planId);
             
@@ -266,15 +288,8 @@ public class ConversationController {
                         .body(MapUtils.of("error", "语音识别失败"));
             }
             
-            // 获取计划上下文
-            String planContext = "";
-            if (planId != null) {
-                planContext = travelPlanService.findById(planId)
-                        .map(plan -> String.format("计划名称: %s, 目的地: %s, 预算: %s, 人数: %s", 
-                                plan.getPlanName(), plan.getDestination(), 
-                                plan.getBudget(), plan.getGroupSize()))
-                        .orElse("");
-            }
+            // 获取计划上下文（计划信息 + 该计划的对话摘要与最近对话）
+            String planContext = buildPlanContext(planId, getUserIdFromRequest(request));
             
             // 调用AI服务生成回复
             String aiResponse = aiService.generateTravelPlan(userMessage, planContext);
@@ -285,15 +300,16 @@ public class ConversationController {
             long processingTime = System.currentTimeMillis() - startTime;
             
             // 保存对话记录
-            conversationService.saveConversation(
-                userId,
-                planId,
-                userMessage,
-                aiResponse,
-                "voice",
-                voiceFileUrl,
-                processingTime
-            );
+            aiMetrics.time(AiMetrics.STAGE_DB_SAVE, AiMetrics.NO_MODEL, aiMetrics.currentEndpoint(),
+                () -> conversationService.saveConversation(
+                    userId,
+                    planId,
+                    userMessage,
+                    aiResponse,
+                    "voice",
+                    voiceFileUrl,
+                    processingTime
+                ));
             
             // 构建响应
             VoiceChatResponse response = new VoiceChatResponse();
@@ -377,6 +393,41 @@ public class ConversationController {
         }
     }
     
+    /**
+     * 导出对话记录
+     * 通过数据库游标逐条写出，内存占用与记录数量无关
+     * 
+     * @param userId 用户ID
+     * @param planId 计划ID（可选）
+     * @param format 导出格式（csv/ndjson）
+     * @param request HTTP请求
+     * @return 流式导出内容
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportConversations(@RequestParam Long userId,
+                                                                     @RequestParam(required = false) Long planId,
+                                                                     @RequestParam(defaultValue = "ndjson") String format,
+                                                                     HttpServletRequest request) {
+        String exportFormat;
+        try {
+            exportFormat = DataExportService.normalizeFormat(format);
+        } catch (IllegalArgumentException e) {
+            return errorStream(e.getMessage());
+        }
+        if (!userId.equals(getUserIdFromRequest(request))) {
+            return errorStream("无权导出该用户的对话记录");
+        }
+        
+        log.info("导出对话记录: userId={}, planId={}, format={}", userId, planId, exportFormat);
+        String filename = "conversations-" + userId + (planId != null ? "-" + planId : "") + "." + exportFormat;
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .contentType(DataExportService.FORMAT_CSV.equals(exportFormat)
+                        ? MediaType.parseMediaType("text/csv;charset=UTF-8")
+                        : MediaType.parseMediaType("application/x-ndjson;charset=UTF-8"))
+                .body(outputStream -> dataExportService.exportConversations(userId, planId, exportFormat, outputStream));
+    }
+    
     /**
      * 删除对话记录
      * 
@@ -409,6 +460,53 @@ public class ConversationController {
         }
     }
     
+    /**
+     * 创建输出错误信息的流式响应
+     */
+    private ResponseEntity<StreamingResponseBody> errorStream(String message) {
+        return ResponseEntity.badRequest()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(outputStream -> objectMapper.writeValue(outputStream, MapUtils.of("error", message)));
+    }
+    
+    /**
+     * 构建计划上下文：计划信息，计划属于当前登录用户时再附加该计划的对话摘要与最近对话
+     * 调用者以JWT令牌为准（请求参数中的userId可被任意填写），未登录或其他用户只得到计划信息，
+     * 不暴露计划所有者的对话内容
+     *
+     * @param planId 计划ID
+     * @param callerId 令牌中的用户ID，未登录时为null
+     */
+    private String buildPlanContext(Long planId, Long callerId) {
+        if (planId == null) {
+            return "";
+        }
+        Optional<TravelPlan> plan = travelPlanService.findById(planId);
+        String planContext = plan
+                .map(p -> String.format("计划名称: %s, 目的地: %s, 预算: %s, 人数: %s", 
+                        p.getPlanName(), p.getDestination(), 
+                        p.getBudget(), p.getGroupSize()))
+                .orElse("");
+        if (plan.isPresent() && callerId != null && callerId.equals(plan.get().getUserId())) {
+            planContext = conversationContextService.withHistory(planId, planContext);
+        }
+        return planContext;
+    }
+    
+    /**
+     * 从请求的JWT令牌中获取用户ID
+     */
+    private Long getUserIdFromRequest(HttpServletRequest request) {
+        String bearerToken = request.getHeader("Authorization");
+        if (StringUtils.hasText(bearerToken) && bearerToken.startsWith("Bearer ")) {
+            String jwt = bearerToken.substring(7);
+            if (jwtUtil.validateToken(jwt)) {
+                return jwtUtil.getUserIdFromToken(jwt);
+            }
+        }
+        return null;
+    }
+    
     /**
      * 从AI回复中创建旅游计划
      */
@@ -537,7 +635,7 @@ public class ConversationController {
     /**
      * 将提取的字段转换为JSON字符串
      */
-    private String convertFieldsToJson(AiService.ExtractedFields fields) {
+    static String convertFieldsToJson(AiService.ExtractedFields fields) {
         try {
             StringBuilder json = new StringBuilder();
             json.append("{");
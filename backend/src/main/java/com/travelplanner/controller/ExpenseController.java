@@ -1,7 +1,16 @@
 package com.travelplanner.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.travelplanner.entity.Expense;
+import com.travelplanner.service.BudgetAnalysisService;
+import com.travelplanner.service.DataExportService;
+import com.travelplanner.service.ExpenseImportResult;
+import com.travelplanner.service.ExpenseImportService;
+import com.travelplanner.service.ExpenseRollupService;
 import com.travelplanner.service.ExpenseService;
+import com.travelplanner.service.ExpenseTimeSeries;
+import com.travelplanner.service.UserAnalyticsService;
+import com.travelplanner.service.UserSpendingAnalytics;
 import com.travelplanner.security.JwtUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -10,12 +19,18 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.Map;
@@ -35,6 +50,12 @@ import com.travelplanner.util.MapUtils;
 public class ExpenseController {
     
     private final ExpenseService expenseService;
+    private final BudgetAnalysisService budgetAnalysisService;
+    private final ExpenseImportService expenseImportService;
+    private final DataExportService dataExportService;
+    private final ExpenseRollupService expenseRollupService;
+    private final UserAnalyticsService userAnalyticsService;
+    private final ObjectMapper objectMapper;
     private final JwtUtil jwtUtil;
     
     /**
@@ -63,6 +84,45 @@ public class ExpenseController {
         }
     }
     
+    /**
+     * 批量导入费用记录
+     * 支持CSV（首行为表头）与JSON（费用对象数组）格式，逐行解析并分批写入，返回每行的错误信息
+     * 
+     * @param planId 计划ID
+     * @param file 导入文件
+     * @param format 文件格式（csv/json），为空时根据文件名判断
+     * @param request HTTP请求
+     * @return 导入结果
+     */
+    @PostMapping(value = "/plans/{planId}/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> importExpenses(
+            @PathVariable Long planId,
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(required = false) String format,
+            HttpServletRequest request) {
+        try {
+            Long userId = getUserIdFromRequest(request);
+            if (userId == null) {
+                return ResponseEntity.badRequest()
+                        .body(MapUtils.of("code", 400, "message", "用户未认证"));
+            }
+            
+            log.info("批量导入费用请求: planId={}, file={}, size={}", planId, file.getOriginalFilename(), file.getSize());
+            ExpenseImportResult result = expenseImportService.importExpenses(planId, userId, file, format);
+            
+            return ResponseEntity.ok(MapUtils.of(
+                "code", 200,
+                "message", "费用导入完成",
+                "data", result
+            ));
+            
+        } catch (Exception e) {
+            log.error("批量导入费用失败: {}", e.getMessage());
+            return ResponseEntity.badRequest()
+                    .body(MapUtils.of("code", 400, "message", e.getMessage()));
+        }
+    }
+    
     /**
      * 更新费用记录
      * 
@@ -235,6 +295,40 @@ public class ExpenseController {
         }
     }
     
+    /**
+     * 导出用户的全部费用记录
+     * 通过数据库游标逐条写出，内存占用与记录数量无关
+     * 
+     * @param userId 用户ID
+     * @param format 导出格式（csv/ndjson）
+     * @param request HTTP请求
+     * @return 流式导出内容
+     */
+    @GetMapping("/users/{userId}/export")
+    public ResponseEntity<StreamingResponseBody> exportUserExpenses(
+            @PathVariable Long userId,
+            @RequestParam(defaultValue = "csv") String format,
+            HttpServletRequest request) {
+        String exportFormat;
+        try {
+            exportFormat = DataExportService.normalizeFormat(format);
+        } catch (IllegalArgumentException e) {
+            return errorStream(e.getMessage());
+        }
+        if (!userId.equals(getUserIdFromRequest(request))) {
+            return errorStream("无权导出该用户的费用记录");
+        }
+        
+        log.info("导出用户费用记录: userId={}, format={}", userId, exportFormat);
+        String filename = "expenses-" + userId + "-" + LocalDate.now() + "." + exportFormat;
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .contentType(DataExportService.FORMAT_CSV.equals(exportFormat)
+                        ? MediaType.parseMediaType("text/csv;charset=UTF-8")
+                        : MediaType.parseMediaType("application/x-ndjson;charset=UTF-8"))
+                .body(outputStream -> dataExportService.exportExpenses(userId, exportFormat, outputStream));
+    }
+    
     /**
      * 获取计划的总费用
      * 
@@ -316,8 +410,103 @@ public class ExpenseController {
         }
     }
     
+    /**
+     * 获取计划的费用时间序列
+     * 返回按日/周/月连续排列的费用（无费用的时间段为0）、累计费用与剩余预算
+     * 
+     * @param planId 计划ID
+     * @param granularity 时间粒度（day/week/month）
+     * @param from 起始日期（可选，默认计划开始日期）
+     * @param to 结束日期（可选，默认计划结束日期）
+     * @return 时间序列
+     */
+    @GetMapping("/plans/{planId}/timeseries")
+    public ResponseEntity<?> getPlanTimeSeries(
+            @PathVariable Long planId,
+            @RequestParam(defaultValue = "day") String granularity,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        try {
+            ExpenseTimeSeries series = expenseRollupService.getPlanSeries(planId, granularity, from, to);
+            
+            return ResponseEntity.ok(MapUtils.of(
+                "code", 200,
+                "message", "success",
+                "data", series
+            ));
+            
+        } catch (Exception e) {
+            log.error("获取计划费用时间序列失败: {}", e.getMessage());
+            return ResponseEntity.badRequest()
+                    .body(MapUtils.of("code", 400, "message", e.getMessage()));
+        }
+    }
+    
+    /**
+     * 获取用户的费用时间序列（所有计划合计）
+     * 
+     * @param userId 用户ID
+     * @param granularity 时间粒度（day/week/month）
+     * @param from 起始日期（可选，默认最早费用日期）
+     * @param to 结束日期（可选，默认最晚费用日期）
+     * @return 时间序列
+     */
+    @GetMapping("/users/{userId}/timeseries")
+    public ResponseEntity<?> getUserTimeSeries(
+            @PathVariable Long userId,
+            @RequestParam(defaultValue = "month") String granularity,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        try {
+            ExpenseTimeSeries series = expenseRollupService.getUserSeries(userId, granularity, from, to);
+            
+            return ResponseEntity.ok(MapUtils.of(
+                "code", 200,
+                "message", "success",
+                "data", series
+            ));
+            
+        } catch (Exception e) {
+            log.error("获取用户费用时间序列失败: {}", e.getMessage());
+            return ResponseEntity.badRequest()
+                    .body(MapUtils.of("code", 400, "message", e.getMessage()));
+        }
+    }
+    
+    /**
+     * 获取用户的跨计划消费分析
+     * 包含按计划、类别、月份的费用合计及各计划的预算执行情况
+     * 
+     * @param userId 用户ID
+     * @param request HTTP请求
+     * @return 消费分析结果
+     */
+    @GetMapping("/users/{userId}/analytics")
+    public ResponseEntity<?> getUserAnalytics(@PathVariable Long userId, HttpServletRequest request) {
+        try {
+            if (!userId.equals(getUserIdFromRequest(request))) {
+                return ResponseEntity.badRequest()
+                        .body(MapUtils.of("code", 400, "message", "无权查看该用户的消费分析"));
+            }
+            
+            UserSpendingAnalytics analytics = userAnalyticsService.getUserAnalytics(userId);
+            
+            return ResponseEntity.ok(MapUtils.of(
+                "code", 200,
+                "message", "success",
+                "data", analytics
+            ));
+            
+        } catch (Exception e) {
+            log.error("获取用户消费分析失败: {}", e.getMessage());
+            return ResponseEntity.badRequest()
+                    .body(MapUtils.of("code", 400, "message", e.getMessage()));
+        }
+    }
+    
     /**
      * 获取计划的预算分析
+     * 预算数值立即返回；AI分析未就绪时 aiStatus 为 PENDING，可通过 /budget-analysis/ai 轮询或 /budget-analysis/ai/stream 订阅
      * 
      * @param planId 计划ID
      * @param request HTTP请求
@@ -326,19 +515,13 @@ public class ExpenseController {
     @GetMapping("/plans/{planId}/budget-analysis")
     public ResponseEntity<?> getBudgetAnalysis(@PathVariable Long planId, HttpServletRequest request) {
         try {
-            // 从JWT token中获取用户ID
-            String jwt = getJwtFromRequest(request);
-            Long userId = null;
-            if (jwt != null && jwtUtil.validateToken(jwt)) {
-                userId = jwtUtil.getUserIdFromToken(jwt);
-            }
-            
+            Long userId = getUserIdFromRequest(request);
             if (userId == null) {
                 return ResponseEntity.badRequest()
                         .body(MapUtils.of("code", 400, "message", "用户未认证"));
             }
             
-            Map<String, Object> analysis = expenseService.getBudgetAnalysis(planId, userId);
+            Map<String, Object> analysis = budgetAnalysisService.getBudgetAnalysis(planId, userId);
             
             return ResponseEntity.ok(MapUtils.of(
                 "code", 200,
@@ -353,6 +536,61 @@ public class ExpenseController {
         }
     }
     
+    /**
+     * 获取计划的AI预算分析（轮询）
+     * 
+     * @param planId 计划ID
+     * @param request HTTP请求
+     * @return AI分析状态与内容
+     */
+    @GetMapping("/plans/{planId}/budget-analysis/ai")
+    public ResponseEntity<?> getAiBudgetAnalysis(@PathVariable Long planId, HttpServletRequest request) {
+        try {
+            Long userId = getUserIdFromRequest(request);
+            if (userId == null) {
+                return ResponseEntity.badRequest()
+                        .body(MapUtils.of("code", 400, "message", "用户未认证"));
+            }
+            
+            Map<String, Object> aiAnalysis = budgetAnalysisService.getAiAnalysis(planId, userId);
+            
+            return ResponseEntity.ok(MapUtils.of(
+                "code", 200,
+                "message", "success",
+                "data", aiAnalysis
+            ));
+            
+        } catch (Exception e) {
+            log.error("获取AI预算分析失败: {}", e.getMessage());
+            return ResponseEntity.badRequest()
+                    .body(MapUtils.of("code", 400, "message", e.getMessage()));
+        }
+    }
+    
+    /**
+     * 订阅计划的AI预算分析（SSE）
+     * 分析就绪后推送一次 ai-analysis 事件
+     * 
+     * @param planId 计划ID
+     * @param request HTTP请求
+     * @return SSE事件流
+     */
+    @GetMapping(value = "/plans/{planId}/budget-analysis/ai/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamAiBudgetAnalysis(@PathVariable Long planId, HttpServletRequest request) {
+        try {
+            Long userId = getUserIdFromRequest(request);
+            if (userId == null) {
+                return errorEmitter("用户未认证");
+            }
+            
+            return budgetAnalysisService.subscribeAiAnalysis(planId, userId);
+            
+        } catch (Exception e) {
+            log.error("订阅AI预算分析失败: {}", e.getMessage());
+            return errorEmitter(e.getMessage());
+        }
+    }
+    
     /**
      * 获取AI预算优化建议
      * 
@@ -365,7 +603,7 @@ public class ExpenseController {
             @PathVariable Long planId,
             @RequestParam BigDecimal targetSavings) {
         try {
-            Map<String, Object> optimization = expenseService.getBudgetOptimization(planId, targetSavings);
+            Map<String, Object> optimization = budgetAnalysisService.getBudgetOptimization(planId, targetSavings);
             
             return ResponseEntity.ok(MapUtils.of(
                 "code", 200,
@@ -380,6 +618,49 @@ public class ExpenseController {
         }
     }
     
+    /**
+     * 创建只推送一次错误事件的SSE发射器
+     * 
+     * @param message 错误信息
+     * @return SSE发射器
+     */
+    private SseEmitter errorEmitter(String message) {
+        SseEmitter emitter = new SseEmitter();
+        try {
+            emitter.send(SseEmitter.event().name("error").data(MapUtils.of("code", 400, "message", message)));
+            emitter.complete();
+        } catch (IOException e) {
+            emitter.completeWithError(e);
+        }
+        return emitter;
+    }
+    
+    /**
+     * 创建输出错误信息的流式响应
+     * 
+     * @param message 错误信息
+     * @return 400响应
+     */
+    private ResponseEntity<StreamingResponseBody> errorStream(String message) {
+        return ResponseEntity.badRequest()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(outputStream -> objectMapper.writeValue(outputStream, MapUtils.of("code", 400, "message", message)));
+    }
+    
+    /**
+     * 从请求的JWT令牌中获取用户ID
+     * 
+     * @param request HTTP请求
+     * @return 用户ID，未认证时返回null
+     */
+    private Long getUserIdFromRequest(HttpServletRequest request) {
+        String jwt = getJwtFromRequest(request);
+        if (jwt != null && jwtUtil.validateToken(jwt)) {
+            return jwtUtil.getUserIdFromToken(jwt);
+        }
+        return null;
+    }
+    
     /**
      * 从请求中获取JWT令牌
      * 
@@ -1,5 +1,10 @@
 package com.travelplanner.controller;
 
+import com.travelplanner.config.ConnectionPoolMetrics;
+import com.travelplanner.config.PinnedThreadMonitor;
+import com.travelplanner.config.ReadWriteRoutingDataSource;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -16,8 +21,13 @@ import java.util.Map;
  */
 @RestController
 @RequestMapping("/health")
+@RequiredArgsConstructor
 public class HealthController {
     
+    private final ConnectionPoolMetrics connectionPoolMetrics;
+    private final ObjectProvider<ReadWriteRoutingDataSource> routingDataSource;
+    private final ObjectProvider<PinnedThreadMonitor> pinnedThreadMonitor;
+    
     /**
      * 健康检查端点
      * 
@@ -29,6 +39,9 @@ public class HealthController {
         response.put("status", "UP");
         response.put("service", "travel-planner");
         response.put("timestamp", System.currentTimeMillis());
+        response.put("database", connectionPoolMetrics.snapshot());
+        routingDataSource.ifAvailable(routing -> response.put("replicas", routing.getStatus()));
+        pinnedThreadMonitor.ifAvailable(monitor -> response.put("virtualThreads", monitor.snapshot()));
         
         return ResponseEntity.ok(response);
     }
@@ -0,0 +1,186 @@
+package com.travelplanner.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.travelplanner.service.AiMetrics;
+import com.travelplanner.service.AiService;
+import com.travelplanner.service.ReactiveAiService;
+import com.travelplanner.service.ReactiveConversationStore;
+import com.travelplanner.util.MapUtils;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
+
+import javax.validation.Valid;
+import java.security.Principal;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 非阻塞对话控制器
+ * 与 /conversations/chat、/ai/generate 的请求和响应格式相同，处理方法返回Mono：
+ * Servlet线程在提交请求后立即释放，模型调用由WebClient异步完成，数据库访问在有界调度器上执行，
+ * 少量线程即可同时保持数千个等待模型响应的对话
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+@RestController
+@RequestMapping("/reactive")
+@RequiredArgsConstructor
+@Slf4j
+public class ReactiveConversationController {
+
+    private final ReactiveAiService reactiveAiService;
+    private final ReactiveConversationStore conversationStore;
+    private final ObjectMapper objectMapper;
+    private final AiMetrics aiMetrics;
+
+    /**
+     * 发送消息给AI（非阻塞）
+     *
+     * @param request 消息请求
+     * @param principal 已认证的调用者，匿名访问时为null
+     * @return AI回复
+     */
+    @PostMapping("/conversations/chat")
+    public Mono<ResponseEntity<?>> chat(@Valid @RequestBody ConversationController.ChatRequest request,
+                                        Principal principal) {
+        long startTime = System.currentTimeMillis();
+        String endpoint = aiMetrics.currentEndpoint();
+        boolean customKey = request.getApiKey() != null && !request.getApiKey().trim().isEmpty();
+
+        // 对话历史只附加到调用者自己的计划上，调用者以认证信息为准（请求体中的userId可以伪造）
+        Mono<String> planContext = request.getPlanId() == null ? Mono.just("")
+                : conversationStore.findPlan(request.getPlanId())
+                        .flatMap(plan -> {
+                            String context = String.format("计划名称: %s, 目的地: %s, 预算: %s, 人数: %s",
+                                    plan.getPlanName(), plan.getDestination(),
+                                    plan.getBudget(), plan.getGroupSize());
+                            return conversationStore.findUserId(principal != null ? principal.getName() : null)
+                                    .filter(callerId -> callerId.equals(plan.getUserId()))
+                                    .flatMap(callerId -> conversationStore.withHistory(request.getPlanId(), context))
+                                    .defaultIfEmpty(context);
+                        })
+                        .defaultIfEmpty("");
+
+        Mono<Tuple2<AiService.ExtractedFields, String>> reply;
+        if (reactiveAiService.isCombinedChat()) {
+            // 单次调用同时返回字段和计划
+            reply = planContext.flatMap(context -> customKey
+                            ? reactiveAiService.chatWithCustomKey(request.getApiKey(), request.getMessage(), context)
+                            : reactiveAiService.chat(request.getUserId(), request.getMessage(), context))
+                    .map(combined -> Tuples.of(combined.getFields(), combined.getMessage()));
+        } else {
+            Mono<AiService.ExtractedFields> extractedFields = customKey
+                    ? reactiveAiService.extractFieldsWithCustomKey(request.getApiKey(), request.getMessage())
+                    : reactiveAiService.extractTravelFields(request.getUserId(), request.getMessage());
+
+            // 字段提取与计划生成互不依赖，同时发起
+            Mono<String> aiResponse = planContext.flatMap(context -> customKey
+                    ? reactiveAiService.generateTravelPlanWithCustomKey(request.getApiKey(), request.getMessage(), context)
+                    : reactiveAiService.generateTravelPlan(request.getUserId(), request.getMessage(), context));
+            reply = Mono.zip(extractedFields, aiResponse);
+        }
+
+        return reply
+                .flatMap(result -> {
+                    AiService.ExtractedFields fields = result.getT1();
+                    long processingTime = System.currentTimeMillis() - startTime;
+                    return aiMetrics.time(conversationStore.saveConversation(request.getUserId(), request.getPlanId(),
+                                            request.getMessage(), result.getT2(), processingTime, toJson(fields)),
+                                    AiMetrics.STAGE_DB_SAVE, AiMetrics.NO_MODEL, endpoint)
+                            .thenReturn(buildChatResponse(result.getT2(), processingTime, fields));
+                })
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .onErrorResume(e -> {
+                    log.error("聊天处理失败: {}", e.getMessage());
+                    return Mono.just(ResponseEntity.badRequest().body(MapUtils.of("error", "处理消息时发生错误")));
+                });
+    }
+
+    /**
+     * 使用当前用户的API Key生成旅游计划（非阻塞）
+     *
+     * @param userId 用户ID
+     * @param request 生成请求
+     * @return 生成的计划
+     */
+    @PostMapping("/ai/generate/{userId}")
+    public Mono<ResponseEntity<?>> generateWithUserKey(@PathVariable Long userId, @RequestBody Map<String, String> request) {
+        String userMessage = request.get("userMessage");
+        String planContext = request.get("planContext");
+        if (userMessage == null || userMessage.trim().isEmpty()) {
+            return Mono.just(ResponseEntity.badRequest().body(createResponseMap(false, "用户消息不能为空")));
+        }
+        return toGenerateResponse(reactiveAiService.generateTravelPlan(userId, userMessage,
+                planContext != null ? planContext : ""));
+    }
+
+    /**
+     * 使用自定义API Key生成旅游计划（非阻塞）
+     *
+     * @param request 生成请求
+     * @return 生成的计划
+     */
+    @PostMapping("/ai/generate")
+    public Mono<ResponseEntity<?>> generateWithCustomKey(@RequestBody Map<String, String> request) {
+        String apiKey = request.get("apiKey");
+        String userMessage = request.get("userMessage");
+        String planContext = request.get("planContext");
+        if (apiKey == null || apiKey.trim().isEmpty()) {
+            return Mono.just(ResponseEntity.badRequest().body(createResponseMap(false, "API Key不能为空")));
+        }
+        if (userMessage == null || userMessage.trim().isEmpty()) {
+            return Mono.just(ResponseEntity.badRequest().body(createResponseMap(false, "用户消息不能为空")));
+        }
+        return toGenerateResponse(reactiveAiService.generateTravelPlanWithCustomKey(apiKey, userMessage,
+                planContext != null ? planContext : ""));
+    }
+
+    private Mono<ResponseEntity<?>> toGenerateResponse(Mono<String> result) {
+        return result
+                .<ResponseEntity<?>>map(text -> {
+                    Map<String, Object> response = new HashMap<>();
+                    response.put("success", true);
+                    response.put("result", text);
+                    return ResponseEntity.ok(response);
+                })
+                .onErrorResume(e -> {
+                    log.error("生成旅游计划失败: {}", e.getMessage());
+                    return Mono.just(ResponseEntity.badRequest().body(createResponseMap(false, "生成失败: " + e.getMessage())));
+                });
+    }
+
+    private ConversationController.ChatResponse buildChatResponse(String aiResponse, long processingTime,
+                                                                  AiService.ExtractedFields fields) {
+        ConversationController.ChatResponse response = new ConversationController.ChatResponse();
+        response.setMessage(aiResponse);
+        response.setProcessingTime(processingTime);
+        response.setTimestamp(LocalDateTime.now().toString());
+        response.setExtractedFields(new ConversationController.ExtractedFields(
+                fields.getDestination(), fields.getBudget(), fields.getGroupSize(), fields.getTravelType()));
+        return response;
+    }
+
+    private String toJson(AiService.ExtractedFields fields) {
+        try {
+            return objectMapper.writeValueAsString(fields);
+        } catch (JsonProcessingException e) {
+            log.error("转换字段为JSON失败: {}", e.getMessage());
+            return "{}";
+        }
+    }
+
+    private Map<String, Object> createResponseMap(boolean success, String message) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", success);
+        response.put("message", message);
+        return response;
+    }
+}
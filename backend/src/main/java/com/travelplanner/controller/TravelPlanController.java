@@ -1,6 +1,9 @@
 package com.travelplanner.controller;
 
+import com.travelplanner.entity.PlanGenerationJob;
 import com.travelplanner.entity.TravelPlan;
+import com.travelplanner.security.JwtUtil;
+import com.travelplanner.service.PlanGenerationJobService;
 import com.travelplanner.service.TravelPlanService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -8,12 +11,18 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
+import java.io.IOException;
 import java.time.LocalDateTime;
 import com.travelplanner.util.MapUtils;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -29,6 +38,8 @@ import java.util.Optional;
 public class TravelPlanController {
     
     private final TravelPlanService travelPlanService;
+    private final PlanGenerationJobService planGenerationJobService;
+    private final JwtUtil jwtUtil;
     
     /**
      * 创建旅游计划
@@ -190,6 +201,135 @@ public class TravelPlanController {
         }
     }
     
+    /**
+     * 提交AI生成旅游计划任务
+     * 任务入队后立即返回202，客户端通过 GET /plans/{planId}/generate 轮询或订阅 /generate/stream 获取结果；
+     * 只有计划的所有者可以提交，调用者以JWT令牌为准
+     * 
+     * @param planId 计划ID
+     * @param request 可选，{"message": "生成要求"}
+     * @param httpRequest HTTP请求
+     * @return 任务状态
+     */
+    @PostMapping("/{planId}/generate")
+    public ResponseEntity<?> generatePlan(@PathVariable Long planId,
+                                          @RequestBody(required = false) Map<String, String> request,
+                                          HttpServletRequest httpRequest) {
+        try {
+            if (!isPlanOwner(planId, httpRequest)) {
+                return ResponseEntity.badRequest()
+                        .body(MapUtils.of("error", "无权为该计划生成行程"));
+            }
+            
+            String message = request != null ? request.get("message") : null;
+            PlanGenerationJob job = planGenerationJobService.enqueue(planId, message);
+            return ResponseEntity.accepted().body(planGenerationJobService.describe(job));
+            
+        } catch (Exception e) {
+            log.error("提交计划生成任务失败: {}", e.getMessage());
+            return ResponseEntity.badRequest()
+                    .body(MapUtils.of("error", e.getMessage()));
+        }
+    }
+    
+    /**
+     * 查询计划最近的生成任务，只有计划的所有者可以查询
+     * 
+     * @param planId 计划ID
+     * @param request HTTP请求
+     * @return 任务状态
+     */
+    @GetMapping("/{planId}/generate")
+    public ResponseEntity<?> getGenerationStatus(@PathVariable Long planId, HttpServletRequest request) {
+        if (!isPlanOwner(planId, request)) {
+            return ResponseEntity.badRequest()
+                    .body(MapUtils.of("error", "无权查看该计划的生成任务"));
+        }
+        Optional<PlanGenerationJob> job = planGenerationJobService.findLatest(planId);
+        if (job.isPresent()) {
+            return ResponseEntity.ok(planGenerationJobService.describe(job.get()));
+        } else {
+            return ResponseEntity.notFound().build();
+        }
+    }
+    
+    /**
+     * 订阅计划生成结果（SSE），任务结束时推送 plan-generation 事件；只有计划的所有者可以订阅
+     * 
+     * @param planId 计划ID
+     * @param request HTTP请求
+     * @return SSE流
+     */
+    @GetMapping(value = "/{planId}/generate/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamGenerationStatus(@PathVariable Long planId, HttpServletRequest request) {
+        if (!isPlanOwner(planId, request)) {
+            return errorEmitter("无权查看该计划的生成任务");
+        }
+        try {
+            return planGenerationJobService.subscribe(planId);
+            
+        } catch (Exception e) {
+            log.error("订阅计划生成结果失败: {}", e.getMessage());
+            return errorEmitter(e.getMessage());
+        }
+    }
+    
+    /**
+     * 推送一次 error 事件后关闭的SSE发射器
+     */
+    private SseEmitter errorEmitter(String message) {
+        SseEmitter emitter = new SseEmitter();
+        try {
+            emitter.send(SseEmitter.event().name("error").data(MapUtils.of("error", message)));
+            emitter.complete();
+        } catch (IOException ex) {
+            emitter.completeWithError(ex);
+        }
+        return emitter;
+    }
+    
+    /**
+     * 判断JWT令牌对应的用户是否为计划所有者，未认证或计划不存在时返回false
+     * 
+     * @param planId 计划ID
+     * @param request HTTP请求
+     * @return 是否为计划所有者
+     */
+    private boolean isPlanOwner(Long planId, HttpServletRequest request) {
+        Long userId = getUserIdFromRequest(request);
+        return userId != null && travelPlanService.findById(planId)
+                .map(plan -> userId.equals(plan.getUserId()))
+                .orElse(false);
+    }
+    
+    /**
+     * 从请求中获取用户ID
+     * 
+     * @param request HTTP请求
+     * @return 用户ID，未认证时返回null
+     */
+    private Long getUserIdFromRequest(HttpServletRequest request) {
+        String jwt = getJwtFromRequest(request);
+        if (jwt != null && jwtUtil.validateToken(jwt)) {
+            return jwtUtil.getUserIdFromToken(jwt);
+        }
+        return null;
+    }
+    
+    /**
+     * 从请求中获取JWT令牌
+     * 
+     * @param request HTTP请求
+     * @return JWT令牌
+     */
+    private String getJwtFromRequest(HttpServletRequest request) {
+        String bearerToken = request.getHeader("Authorization");
+        if (StringUtils.hasText(bearerToken) && bearerToken.startsWith("Bearer ")) {
+            return bearerToken.substring(7);
+        }
+        return null;
+    }
+    
     /**
      * 转换为响应DTO
      */
@@ -1,6 +1,8 @@
 package com.travelplanner.controller;
 
 import com.travelplanner.entity.User;
+import com.travelplanner.entity.UserTokenUsage;
+import com.travelplanner.service.TokenUsageService;
 import com.travelplanner.service.UserService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -8,6 +10,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import javax.validation.Valid;
+import java.util.List;
 import java.util.Map;
 import com.travelplanner.util.MapUtils;
 import java.util.Optional;
@@ -25,6 +28,7 @@ import java.util.Optional;
 public class UserController {
     
     private final UserService userService;
+    private final TokenUsageService tokenUsageService;
     
     /**
      * 用户注册
@@ -252,6 +256,43 @@ public class UserController {
         }
     }
     
+    /**
+     * 获取用户最近的模型token用量
+     * 
+     * @param userId 用户ID
+     * @param days 天数（含今天），默认30天
+     * @return 按日期、任务阶段汇总的用量及合计
+     */
+    @GetMapping("/{userId}/token-usage")
+    public ResponseEntity<?> getTokenUsage(@PathVariable Long userId,
+                                           @RequestParam(defaultValue = "30") int days) {
+        try {
+            List<UserTokenUsage> usage = tokenUsageService.getUsage(userId, Math.min(Math.max(days, 1), 366));
+            
+            long inputTokens = 0;
+            long outputTokens = 0;
+            long requests = 0;
+            for (UserTokenUsage item : usage) {
+                inputTokens += item.getInputTokens();
+                outputTokens += item.getOutputTokens();
+                requests += item.getRequestCount();
+            }
+            
+            Map<String, Object> response = MapUtils.createResponseMap(true, "获取成功");
+            response.put("usage", usage);
+            response.put("totalRequests", requests);
+            response.put("totalInputTokens", inputTokens);
+            response.put("totalOutputTokens", outputTokens);
+            
+            return ResponseEntity.ok(response);
+            
+        } catch (Exception e) {
+            log.error("获取token用量失败: {}", e.getMessage());
+            return ResponseEntity.badRequest()
+                    .body(MapUtils.createResponseMap(false, "获取失败: " + e.getMessage()));
+        }
+    }
+    
     /**
      * 掩码API Key（只显示前几位和后几位）
      * 
@@ -0,0 +1,49 @@
+package com.travelplanner.entity;
+
+import javax.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+
+import java.time.LocalDateTime;
+
+/**
+ * 对话滚动摘要实体类
+ * 每个计划一条记录，保存已折叠进摘要的早期对话的概要；lastConversationId 之后的对话尚未折叠，
+ * 后台按批增量更新，不重新处理已摘要的对话
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+@Entity
+@Table(name = "conversation_summaries")
+@Data
+@EqualsAndHashCode(callSuper = false)
+@EntityListeners(AuditingEntityListener.class)
+public class ConversationSummary {
+
+    @Id
+    @Column(name = "plan_id")
+    private Long planId;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "summary", nullable = false, length = 4000)
+    private String summary;
+
+    @Column(name = "last_conversation_id", nullable = false)
+    private Long lastConversationId; // 已折叠进摘要的最后一条对话ID
+
+    @Column(name = "summarized_turns", nullable = false)
+    private Integer summarizedTurns = 0;
+
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version; // 多实例同时更新同一计划的摘要时，后提交者失败
+
+    @LastModifiedDate
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
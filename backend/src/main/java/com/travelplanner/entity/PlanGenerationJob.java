@@ -0,0 +1,79 @@
+package com.travelplanner.entity;
+
+import javax.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+
+import java.time.LocalDateTime;
+
+/**
+ * 旅游计划生成任务实体类
+ * 持久化的任务队列记录：worker通过条件更新认领任务，认领期间设置可见性超时（lockedUntil），
+ * worker异常退出后任务在超时后重新可见并被其他worker认领
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+@Entity
+@Table(name = "plan_generation_jobs")
+@Data
+@EqualsAndHashCode(callSuper = false)
+@EntityListeners(AuditingEntityListener.class)
+public class PlanGenerationJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "plan_id", nullable = false)
+    private Long planId;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "user_message", length = 2000)
+    private String userMessage; // 生成要求，为空时根据计划信息生成
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    private JobStatus status = JobStatus.QUEUED;
+
+    @Column(name = "attempts", nullable = false)
+    private Integer attempts = 0;
+
+    @Column(name = "max_attempts", nullable = false)
+    private Integer maxAttempts;
+
+    @Column(name = "available_at", nullable = false)
+    private LocalDateTime availableAt; // 最早可被认领的时间（重试退避）
+
+    @Column(name = "locked_by", length = 100)
+    private String lockedBy; // 认领任务的worker
+
+    @Column(name = "locked_until")
+    private LocalDateTime lockedUntil; // 可见性超时
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    @CreatedDate
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @LastModifiedDate
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    /**
+     * 任务状态枚举
+     */
+    public enum JobStatus {
+        QUEUED, RUNNING, SUCCEEDED, FAILED
+    }
+}
@@ -0,0 +1,50 @@
+package com.travelplanner.entity;
+
+import javax.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * 用户token用量实体类
+ * 按用户、日期和任务阶段汇总模型调用的请求数与输入/输出token数；
+ * 响应带 usage 时记录实际用量，否则记录本地估算值
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+@Entity
+@Table(name = "user_token_usage",
+        uniqueConstraints = @UniqueConstraint(name = "uk_user_token_usage_user_date_stage",
+                columnNames = {"user_id", "usage_date", "stage"}))
+@Data
+@EqualsAndHashCode(callSuper = false)
+public class UserTokenUsage {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "usage_date", nullable = false)
+    private LocalDate usageDate;
+
+    @Column(name = "stage", nullable = false, length = 32)
+    private String stage;
+
+    @Column(name = "request_count", nullable = false)
+    private Long requestCount = 0L;
+
+    @Column(name = "input_tokens", nullable = false)
+    private Long inputTokens = 0L;
+
+    @Column(name = "output_tokens", nullable = false)
+    private Long outputTokens = 0L;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
@@ -5,11 +5,14 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * 对话记录数据访问接口
@@ -47,6 +50,27 @@ public interface ConversationRepository extends JpaRepository<Conversation, Long
      */
     List<Conversation> findByPlanIdOrderByCreatedAtAsc(Long planId);
     
+    /**
+     * 查找计划最近的对话记录（由新到旧）
+     * 
+     * @param planId 计划ID
+     * @param pageable 分页参数（只取第一页）
+     * @return 对话记录列表
+     */
+    List<Conversation> findByPlanIdOrderByCreatedAtDesc(Long planId, Pageable pageable);
+    
+    /**
+     * 查找计划中ID在指定区间内的对话记录（由旧到新），用于增量更新对话摘要
+     * 
+     * @param planId 计划ID
+     * @param afterId 起始ID（不含）
+     * @param beforeId 结束ID（不含）
+     * @param pageable 分页参数（只取第一页）
+     * @return 对话记录列表
+     */
+    List<Conversation> findByPlanIdAndIdGreaterThanAndIdLessThanOrderByIdAsc(Long planId, Long afterId, Long beforeId,
+                                                                               Pageable pageable);
+    
     /**
      * 查找指定时间范围内的对话记录
      * 
@@ -92,4 +116,19 @@ public interface ConversationRepository extends JpaRepository<Conversation, Long
      * @param planId 计划ID
      */
     void deleteByUserIdAndPlanId(Long userId, Long planId);
+    
+    /**
+     * 以只读游标流式读取用户的对话记录（用于导出）
+     * 调用方需在只读事务内消费并关闭Stream
+     * 
+     * @param userId 用户ID
+     * @param planId 计划ID，为null时读取全部计划
+     * @return 对话记录流
+     */
+    @QueryHints({
+        @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "200"),
+        @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_READONLY, value = "true")
+    })
+    @Query("SELECT c FROM Conversation c WHERE c.userId = :userId AND (:planId IS NULL OR c.planId = :planId) ORDER BY c.createdAt ASC, c.id ASC")
+    Stream<Conversation> streamByUserIdAndPlanId(@Param("userId") Long userId, @Param("planId") Long planId);
 }
@@ -0,0 +1,22 @@
+package com.travelplanner.repository;
+
+import com.travelplanner.entity.ConversationSummary;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * 对话滚动摘要数据访问接口
+ * 
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+@Repository
+public interface ConversationSummaryRepository extends JpaRepository<ConversationSummary, Long> {
+    
+    /**
+     * 删除用户所有计划的摘要
+     * 
+     * @param userId 用户ID
+     */
+    void deleteByUserId(Long userId);
+}
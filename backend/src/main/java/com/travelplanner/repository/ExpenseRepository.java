@@ -5,12 +5,15 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * 费用记录数据访问层
@@ -89,6 +92,15 @@ public interface ExpenseRepository extends JpaRepository<Expense, Long> {
     @Query("SELECT e.category, COALESCE(SUM(e.amount), 0) FROM Expense e WHERE e.planId = :planId GROUP BY e.category")
     List<Object[]> getAmountByCategoryAndPlanId(@Param("planId") Long planId);
     
+    /**
+     * 计算计划的费用按类别、币种和日期分组统计（用于按汇率折算）
+     * 
+     * @param planId 计划ID
+     * @return 费用统计列表：[类别, 币种, 日期, 金额]
+     */
+    @Query("SELECT e.category, e.currency, e.expenseDate, COALESCE(SUM(e.amount), 0) FROM Expense e WHERE e.planId = :planId GROUP BY e.category, e.currency, e.expenseDate")
+    List<Object[]> getAmountByCategoryCurrencyAndDateAndPlanId(@Param("planId") Long planId);
+    
     /**
      * 计算用户的费用按类别统计
      * 
@@ -98,6 +110,15 @@ public interface ExpenseRepository extends JpaRepository<Expense, Long> {
     @Query("SELECT e.category, COALESCE(SUM(e.amount), 0) FROM Expense e WHERE e.userId = :userId GROUP BY e.category")
     List<Object[]> getAmountByCategoryAndUserId(@Param("userId") Long userId);
     
+    /**
+     * 计算用户的费用按计划、类别、币种和日期分组统计（用于跨计划分析）
+     * 
+     * @param userId 用户ID
+     * @return 费用统计列表：[计划ID, 类别, 币种, 日期, 金额]
+     */
+    @Query("SELECT e.planId, e.category, e.currency, e.expenseDate, COALESCE(SUM(e.amount), 0) FROM Expense e WHERE e.userId = :userId GROUP BY e.planId, e.category, e.currency, e.expenseDate")
+    List<Object[]> getAmountByPlanCategoryCurrencyAndDateAndUserId(@Param("userId") Long userId);
+    
     /**
      * 计算计划的费用按日期统计
      * 
@@ -107,6 +128,24 @@ public interface ExpenseRepository extends JpaRepository<Expense, Long> {
     @Query("SELECT e.expenseDate, COALESCE(SUM(e.amount), 0) FROM Expense e WHERE e.planId = :planId GROUP BY e.expenseDate ORDER BY e.expenseDate")
     List<Object[]> getAmountByDateAndPlanId(@Param("planId") Long planId);
     
+    /**
+     * 计算计划的费用按日期和币种分组统计（用于时间序列汇总）
+     * 
+     * @param planId 计划ID
+     * @return 费用统计列表：[日期, 币种, 金额]
+     */
+    @Query("SELECT e.expenseDate, e.currency, COALESCE(SUM(e.amount), 0) FROM Expense e WHERE e.planId = :planId GROUP BY e.expenseDate, e.currency")
+    List<Object[]> getAmountByDateAndCurrencyAndPlanId(@Param("planId") Long planId);
+    
+    /**
+     * 计算用户的费用按日期和币种分组统计（用于时间序列汇总）
+     * 
+     * @param userId 用户ID
+     * @return 费用统计列表：[日期, 币种, 金额]
+     */
+    @Query("SELECT e.expenseDate, e.currency, COALESCE(SUM(e.amount), 0) FROM Expense e WHERE e.userId = :userId GROUP BY e.expenseDate, e.currency")
+    List<Object[]> getAmountByDateAndCurrencyAndUserId(@Param("userId") Long userId);
+    
     /**
      * 查找计划中指定日期的费用记录
      * 
@@ -125,6 +164,18 @@ public interface ExpenseRepository extends JpaRepository<Expense, Long> {
      * @return 费用记录分页列表
      */
     Page<Expense> findByPlanIdAndCurrencyOrderByExpenseDateDesc(Long planId, String currency, Pageable pageable);
+    
+    /**
+     * 以只读游标流式读取用户的全部费用记录（用于导出）
+     * 调用方需在只读事务内消费并关闭Stream
+     * 
+     * @param userId 用户ID
+     * @return 费用记录流
+     */
+    @QueryHints({
+        @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_READONLY, value = "true")
+    })
+    @Query("SELECT e FROM Expense e WHERE e.userId = :userId ORDER BY e.expenseDate DESC, e.id DESC")
+    Stream<Expense> streamByUserId(@Param("userId") Long userId);
 }
-
-
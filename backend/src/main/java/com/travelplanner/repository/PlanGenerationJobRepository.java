@@ -0,0 +1,101 @@
+package com.travelplanner.repository;
+
+import com.travelplanner.entity.PlanGenerationJob;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 旅游计划生成任务数据访问接口
+ * 认领与状态变更均为带条件的更新语句，返回受影响行数；多个worker（包括多个实例）竞争同一任务时只有一个成功
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+@Repository
+public interface PlanGenerationJobRepository extends JpaRepository<PlanGenerationJob, Long> {
+
+    /**
+     * 查找可认领的任务：已到可执行时间的排队任务，以及可见性超时已过的运行中任务
+     *
+     * @param now 当前时间
+     * @param pageable 数量限制
+     * @return 任务ID列表
+     */
+    @Query("SELECT j.id FROM PlanGenerationJob j WHERE "
+            + "(j.status = com.travelplanner.entity.PlanGenerationJob$JobStatus.QUEUED AND j.availableAt <= :now) "
+            + "OR (j.status = com.travelplanner.entity.PlanGenerationJob$JobStatus.RUNNING AND j.lockedUntil < :now) "
+            + "ORDER BY j.availableAt ASC, j.id ASC")
+    List<Long> findClaimableIds(@Param("now") LocalDateTime now, Pageable pageable);
+
+    /**
+     * 认领任务
+     *
+     * @return 1表示认领成功，0表示已被其他worker认领或不再可认领
+     */
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("UPDATE PlanGenerationJob j SET j.status = com.travelplanner.entity.PlanGenerationJob$JobStatus.RUNNING, "
+            + "j.lockedBy = :worker, j.lockedUntil = :lockedUntil, j.attempts = j.attempts + 1, j.updatedAt = :now "
+            + "WHERE j.id = :id AND ("
+            + "(j.status = com.travelplanner.entity.PlanGenerationJob$JobStatus.QUEUED AND j.availableAt <= :now) "
+            + "OR (j.status = com.travelplanner.entity.PlanGenerationJob$JobStatus.RUNNING AND j.lockedUntil < :now))")
+    int claim(@Param("id") Long id, @Param("worker") String worker,
+              @Param("now") LocalDateTime now, @Param("lockedUntil") LocalDateTime lockedUntil);
+
+    /**
+     * 标记任务成功（仅限当前持有者）
+     */
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("UPDATE PlanGenerationJob j SET j.status = com.travelplanner.entity.PlanGenerationJob$JobStatus.SUCCEEDED, "
+            + "j.lockedBy = NULL, j.lockedUntil = NULL, j.lastError = NULL, j.completedAt = :now, j.updatedAt = :now "
+            + "WHERE j.id = :id AND j.lockedBy = :worker "
+            + "AND j.status = com.travelplanner.entity.PlanGenerationJob$JobStatus.RUNNING")
+    int markSucceeded(@Param("id") Long id, @Param("worker") String worker, @Param("now") LocalDateTime now);
+
+    /**
+     * 放回队列等待重试（仅限当前持有者）
+     */
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("UPDATE PlanGenerationJob j SET j.status = com.travelplanner.entity.PlanGenerationJob$JobStatus.QUEUED, "
+            + "j.lockedBy = NULL, j.lockedUntil = NULL, j.availableAt = :availableAt, j.lastError = :error, "
+            + "j.updatedAt = :now "
+            + "WHERE j.id = :id AND j.lockedBy = :worker "
+            + "AND j.status = com.travelplanner.entity.PlanGenerationJob$JobStatus.RUNNING")
+    int markForRetry(@Param("id") Long id, @Param("worker") String worker, @Param("now") LocalDateTime now,
+                     @Param("availableAt") LocalDateTime availableAt, @Param("error") String error);
+
+    /**
+     * 标记任务最终失败（仅限当前持有者）
+     */
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("UPDATE PlanGenerationJob j SET j.status = com.travelplanner.entity.PlanGenerationJob$JobStatus.FAILED, "
+            + "j.lockedBy = NULL, j.lockedUntil = NULL, j.lastError = :error, j.completedAt = :now, j.updatedAt = :now "
+            + "WHERE j.id = :id AND j.lockedBy = :worker "
+            + "AND j.status = com.travelplanner.entity.PlanGenerationJob$JobStatus.RUNNING")
+    int markFailed(@Param("id") Long id, @Param("worker") String worker, @Param("now") LocalDateTime now,
+                   @Param("error") String error);
+
+    /**
+     * 查找计划最近的一个任务
+     */
+    Optional<PlanGenerationJob> findFirstByPlanIdOrderByIdDesc(Long planId);
+
+    /**
+     * 查找计划处于指定状态的最近一个任务
+     */
+    Optional<PlanGenerationJob> findFirstByPlanIdAndStatusInOrderByIdDesc(Long planId,
+                                                                        Collection<PlanGenerationJob.JobStatus> statuses);
+
+    /**
+     * 按状态统计任务数量
+     */
+    long countByStatus(PlanGenerationJob.JobStatus status);
+}
@@ -4,12 +4,17 @@ import com.travelplanner.entity.TravelPlan;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * 旅游计划数据访问接口
@@ -29,6 +34,14 @@ public interface TravelPlanRepository extends JpaRepository<TravelPlan, Long> {
      */
     Page<TravelPlan> findByUserIdOrderByCreatedAtDesc(Long userId, Pageable pageable);
     
+    /**
+     * 查找用户的全部旅游计划
+     * 
+     * @param userId 用户ID
+     * @return 旅游计划列表
+     */
+    List<TravelPlan> findByUserId(Long userId);
+    
     /**
      * 根据用户ID和状态查找旅游计划
      * 
@@ -63,10 +76,12 @@ public interface TravelPlanRepository extends JpaRepository<TravelPlan, Long> {
     
     /**
      * 统计用户的旅游计划数量
+     * 结果进入查询缓存，travel_plans 表有写入时失效
      * 
      * @param userId 用户ID
      * @return 计划数量
      */
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_CACHEABLE, value = "true"))
     long countByUserId(Long userId);
     
     /**
@@ -76,5 +91,17 @@ public interface TravelPlanRepository extends JpaRepository<TravelPlan, Long> {
      * @param status 计划状态
      * @return 计划数量
      */
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_CACHEABLE, value = "true"))
     long countByUserIdAndStatus(Long userId, TravelPlan.PlanStatus status);
+    
+    /**
+     * 查询旅游计划并加行锁（SELECT ... FOR UPDATE），锁在当前事务结束时释放
+     * 用于串行化同一计划上需要"先检查再写入"的操作
+     * 
+     * @param id 计划ID
+     * @return 旅游计划
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT tp FROM TravelPlan tp WHERE tp.id = :id")
+    Optional<TravelPlan> findByIdForUpdate(@Param("id") Long id);
 }
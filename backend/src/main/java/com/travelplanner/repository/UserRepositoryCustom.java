@@ -0,0 +1,23 @@
+package com.travelplanner.repository;
+
+import com.travelplanner.entity.User;
+
+import java.util.Optional;
+
+/**
+ * 用户数据访问自定义接口
+ * 
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+public interface UserRepositoryCustom {
+    
+    /**
+     * 按自然主键（用户名）查找用户
+     * 优先命中二级缓存中的用户名映射和用户实体，不执行查询
+     * 
+     * @param username 用户名
+     * @return 用户信息
+     */
+    Optional<User> findByNaturalUsername(String username);
+}
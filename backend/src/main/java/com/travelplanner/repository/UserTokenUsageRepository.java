@@ -0,0 +1,47 @@
+package com.travelplanner.repository;
+
+import com.travelplanner.entity.UserTokenUsage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 用户token用量数据访问接口
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+@Repository
+public interface UserTokenUsageRepository extends JpaRepository<UserTokenUsage, Long> {
+
+    /**
+     * 在已有记录上累加用量（单条UPDATE，多实例同时累加同一行不会丢失）
+     *
+     * @return 更新的行数，0表示该用户当天该阶段还没有记录
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("UPDATE UserTokenUsage u SET u.requestCount = u.requestCount + :requests, "
+            + "u.inputTokens = u.inputTokens + :inputTokens, u.outputTokens = u.outputTokens + :outputTokens, "
+            + "u.updatedAt = :now "
+            + "WHERE u.userId = :userId AND u.usageDate = :usageDate AND u.stage = :stage")
+    int addUsage(@Param("userId") Long userId, @Param("usageDate") LocalDate usageDate, @Param("stage") String stage,
+                 @Param("requests") long requests, @Param("inputTokens") long inputTokens,
+                 @Param("outputTokens") long outputTokens, @Param("now") LocalDateTime now);
+
+    /**
+     * 查询用户自某日起的用量
+     *
+     * @param userId 用户ID
+     * @param from 起始日期（含）
+     * @return 用量记录，按日期倒序
+     */
+    List<UserTokenUsage> findByUserIdAndUsageDateGreaterThanEqualOrderByUsageDateDescStageAsc(Long userId, LocalDate from);
+}
@@ -0,0 +1,229 @@
+package com.travelplanner.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.servlet.HandlerMapping;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * AI处理链路指标
+ * 按阶段（API Key查询、字段提取、计划生成、响应解析、对话保存）记录耗时直方图，
+ * 标签为 stage/model/endpoint/outcome；并按模型和接口累计通义千问响应 usage 中的token用量，
+ * 按阶段记录提示词的估算token数及超出预算被裁剪的次数；按 stage/model/reason 记录模型路由次数，
+ * 按 stage/model 累计调用费用。
+ * 通过 /actuator/prometheus 导出
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+@Component
+public class AiMetrics {
+
+    public static final String STAGE_TIMER = "ai.pipeline.stage";
+    public static final String TOKEN_COUNTER = "ai.tokens";
+    public static final String PROMPT_TOKENS = "ai.prompt.tokens";
+    public static final String PROMPT_TRIMMED = "ai.prompt.trimmed";
+    public static final String ROUTE_COUNTER = "ai.route.requests";
+    public static final String ROUTE_COST = "ai.route.cost";
+
+    public static final String STAGE_KEY_LOOKUP = "key_lookup";
+    public static final String STAGE_EXTRACT_LLM = "extract_llm";
+    public static final String STAGE_EXTRACT_REGEX = "extract_regex";
+    public static final String STAGE_GENERATE = "generate";
+    public static final String STAGE_PARSE = "parse";
+    public static final String STAGE_DB_SAVE = "db_save";
+    public static final String STAGE_BUDGET_ANALYSIS = "budget_analysis";
+    public static final String STAGE_BUDGET_OPTIMIZE = "budget_optimize";
+    public static final String STAGE_SUMMARIZE = "summarize";
+    public static final String STAGE_CHAT_COMBINED = "chat_combined";
+
+    /**
+     * 成功
+     */
+    public static final String OUTCOME_SUCCESS = "success";
+    /**
+     * 模型接口返回了错误码或无法使用的响应
+     */
+    public static final String OUTCOME_ERROR = "error";
+    /**
+     * 调用抛出异常（网络错误、超时、HTTP 4xx/5xx等）
+     */
+    public static final String OUTCOME_FAILURE = "failure";
+
+    /**
+     * 不涉及模型调用的阶段使用的模型标签
+     */
+    public static final String NO_MODEL = "none";
+    public static final String MOCK_MODEL = "mock";
+
+    /**
+     * 非HTTP请求线程（后台任务、定时任务）使用的接口标签
+     */
+    public static final String BACKGROUND_ENDPOINT = "background";
+
+    private final MeterRegistry registry;
+
+    public AiMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * 开始计时
+     */
+    public Timer.Sample start() {
+        return Timer.start(registry);
+    }
+
+    /**
+     * 结束计时并记录到对应阶段
+     */
+    public void stop(Timer.Sample sample, String stage, String model, String endpoint, String outcome) {
+        sample.stop(timer(stage, model, endpoint, outcome));
+    }
+
+    /**
+     * 记录一次同步调用的耗时，抛出异常时结果记为failure
+     */
+    public <T> T time(String stage, String model, String endpoint, Supplier<T> call) {
+        Timer.Sample sample = start();
+        String outcome = OUTCOME_FAILURE;
+        try {
+            T result = call.get();
+            outcome = OUTCOME_SUCCESS;
+            return result;
+        } finally {
+            stop(sample, stage, model, endpoint, outcome);
+        }
+    }
+
+    /**
+     * 记录Mono从订阅到结束的耗时；取消（如超时）时不记录
+     */
+    public <T> Mono<T> time(Mono<T> call, String stage, String model, String endpoint) {
+        return Mono.defer(() -> {
+            Timer.Sample sample = start();
+            return call
+                    .doOnSuccess(result -> stop(sample, stage, model, endpoint, OUTCOME_SUCCESS))
+                    .doOnError(e -> stop(sample, stage, model, endpoint, OUTCOME_FAILURE));
+        });
+    }
+
+    /**
+     * 累计通义千问响应中的token用量（usage.input_tokens / usage.output_tokens）
+     *
+     * @param model 模型
+     * @param endpoint 接口
+     * @param responseBody 响应体，可为空
+     */
+    public void recordUsage(String model, String endpoint, Map<String, Object> responseBody) {
+        if (responseBody == null || !(responseBody.get("usage") instanceof Map)) {
+            return;
+        }
+        Map<?, ?> usage = (Map<?, ?>) responseBody.get("usage");
+        incrementTokens(model, endpoint, "input", usage.get("input_tokens"));
+        incrementTokens(model, endpoint, "output", usage.get("output_tokens"));
+    }
+
+    /**
+     * 记录发送前提示词的估算token数
+     */
+    public void recordPromptTokens(String stage, int tokens) {
+        DistributionSummary.builder(PROMPT_TOKENS)
+                .description("提示词估算token数")
+                .baseUnit("tokens")
+                .tag("stage", stage)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(registry)
+                .record(tokens);
+    }
+
+    /**
+     * 记录一次提示词超出输入预算被裁剪
+     */
+    public void recordPromptTrimmed(String stage) {
+        Counter.builder(PROMPT_TRIMMED)
+                .description("提示词超出输入预算被裁剪的次数")
+                .tag("stage", stage)
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * 记录一次模型路由
+     *
+     * @param reason 选择该模型的原因（ModelRouter.REASON_*）
+     */
+    public void recordRoute(String stage, String model, String reason) {
+        Counter.builder(ROUTE_COUNTER)
+                .description("模型路由次数")
+                .tag("stage", stage)
+                .tag("model", model)
+                .tag("reason", reason)
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * 累计一次模型调用的费用（元）
+     */
+    public void recordCost(String stage, String model, double cost) {
+        Counter.builder(ROUTE_COST)
+                .description("模型调用费用")
+                .baseUnit("yuan")
+                .tag("stage", stage)
+                .tag("model", model)
+                .register(registry)
+                .increment(cost);
+    }
+
+    /**
+     * 当前请求匹配的接口路径模板，非请求线程为 background
+     * 异步链路需在请求线程上（组装阶段）取值
+     */
+    public String currentEndpoint() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return BACKGROUND_ENDPOINT;
+        }
+        Object pattern = attributes.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE,
+                RequestAttributes.SCOPE_REQUEST);
+        return pattern != null ? pattern.toString() : BACKGROUND_ENDPOINT;
+    }
+
+    private Timer timer(String stage, String model, String endpoint, String outcome) {
+        return Timer.builder(STAGE_TIMER)
+                .description("AI处理链路各阶段耗时")
+                .tag("stage", stage)
+                .tag("model", model)
+                .tag("endpoint", endpoint)
+                .tag("outcome", outcome)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofMinutes(2))
+                .register(registry);
+    }
+
+    private void incrementTokens(String model, String endpoint, String type, Object value) {
+        if (!(value instanceof Number) || ((Number) value).longValue() <= 0) {
+            return;
+        }
+        Counter.builder(TOKEN_COUNTER)
+                .description("通义千问token用量")
+                .baseUnit("tokens")
+                .tag("model", model)
+                .tag("endpoint", endpoint)
+                .tag("type", type)
+                .register(registry)
+                .increment(((Number) value).doubleValue());
+    }
+}
@@ -1,7 +1,14 @@
 package com.travelplanner.service;
 
+import com.travelplanner.util.FieldsBlockSplitter;
+import com.travelplanner.util.PayloadLogs;
+import com.travelplanner.util.PromptTemplate;
+import com.travelplanner.util.TokenEstimator;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
@@ -27,8 +34,18 @@ import javax.crypto.spec.SecretKeySpec;
 @Slf4j
 public class AiService {
     
+    /**
+     * 提示词与模型响应内容日志，见 {@link PayloadLogs}
+     */
+    private static final Logger payloadLog = LoggerFactory.getLogger(PayloadLogs.LOGGER_NAME);
+    
     private final RestTemplate restTemplate;
     private final UserService userService;
+    private final AiMetrics aiMetrics;
+    private final TokenBudget tokenBudget;
+    private final TokenUsageService tokenUsageService;
+    private final PromptTemplateRegistry promptTemplates;
+    private final ModelRouter modelRouter;
     
     /**
      * 初始化时检查配置
@@ -70,6 +87,56 @@ public class AiService {
     @Value("${app.ai.mock-mode:true}")
     private boolean mockMode;
     
+    /**
+     * 对话使用单次调用模式：字段块与计划正文在同一次模型调用中返回
+     */
+    @Value("${app.ai.combined-chat:false}")
+    private boolean combinedChat;
+    
+    /**
+     * 正常调用输出请求/响应内容的比例，出错的调用总是输出
+     */
+    @Value("${app.logging.payload.sample-rate:0.01}")
+    private double payloadSampleRate = 0.01;
+    
+    /**
+     * 内容日志的最大字符数
+     */
+    @Value("${app.logging.payload.max-length:1000}")
+    private int payloadMaxLength = 1000;
+    
+    /**
+     * 通义千问文本生成接口路径（相对于 app.qwen.base-url），模型由 {@link ModelRouter} 按任务选择
+     */
+    private static final String GENERATION_PATH = "/services/aigc/text-generation/generation";
+    
+    /**
+     * 桩程序模式下模拟的模型响应延迟（毫秒）
+     */
+    static final long MOCK_LATENCY_MS = 2000;
+    
+    /**
+     * 是否运行在桩程序模式
+     */
+    public boolean isMockMode() {
+        return mockMode;
+    }
+    
+    /**
+     * 对话是否使用单次调用模式
+     */
+    public boolean isCombinedChat() {
+        return combinedChat;
+    }
+    
+    /**
+     * 是否为演示用的假API Key
+     */
+    static boolean isDemoApiKey(String apiKey) {
+        return apiKey.startsWith("sk-test-") || apiKey.startsWith("sk-demo-")
+                || apiKey.equals("your_qwen_api_key") || apiKey.contains("demo");
+    }
+    
     /**
      * 提取的旅行计划字段
      */
@@ -106,6 +173,22 @@ public class AiService {
         }
     }
     
+    /**
+     * 单次调用模式的对话结果
+     */
+    public static class CombinedReply {
+        private final ExtractedFields fields;
+        private final String message;
+        
+        public CombinedReply(ExtractedFields fields, String message) {
+            this.fields = fields;
+            this.message = message;
+        }
+        
+        public ExtractedFields getFields() { return fields; }
+        public String getMessage() { return message; }
+    }
+    
     /**
      * 从用户消息中提取旅行计划字段（使用用户特定的API Key）
      * 
@@ -116,14 +199,14 @@ public class AiService {
     public ExtractedFields extractTravelFields(Long userId, String userMessage) {
         try {
             // 获取用户的API Key
-            String userApiKey = userService.getQwenApiKey(userId);
+            String userApiKey = lookupApiKey(userId);
             if (userApiKey == null || userApiKey.trim().isEmpty()) {
                 log.warn("用户 {} 未配置API Key，使用默认配置", userId);
                 return extractTravelFields(userMessage);
             }
             
             // 使用用户特定的API Key进行字段提取
-            return extractFieldsWithCustomKey(userApiKey, userMessage);
+            return extractFieldsWithCustomKey(userApiKey, userId, userMessage);
             
         } catch (Exception e) {
             log.error("使用用户API Key提取字段失败: {}", e.getMessage());
@@ -140,7 +223,7 @@ public class AiService {
      */
     public ExtractedFields extractTravelFields(String userMessage) {
         try {
-            log.info("开始提取旅行字段: {}", userMessage);
+            log.debug("开始提取旅行字段: {}", userMessage);
             
             ExtractedFields fields = new ExtractedFields();
             
@@ -155,10 +238,8 @@ public class AiService {
             } else {
                 // 如果AI提取失败，回退到正则表达式提取
                 log.warn("AI字段提取失败，使用正则表达式提取");
-                fields.setDestination(extractDestination(userMessage));
-                fields.setBudget(extractBudget(userMessage));
-                fields.setGroupSize(extractGroupSize(userMessage));
-                fields.setTravelType(extractTravelType(userMessage));
+                fields = aiMetrics.time(AiMetrics.STAGE_EXTRACT_REGEX, AiMetrics.NO_MODEL, aiMetrics.currentEndpoint(),
+                        () -> extractFieldsWithRegex(userMessage));
                 
                 log.info("正则表达式字段提取结果: destination={}, budget={}, groupSize={}, travelType={}", 
                     fields.getDestination(), fields.getBudget(), fields.getGroupSize(), fields.getTravelType());
@@ -177,30 +258,20 @@ public class AiService {
     
     /**
      * 通过通义千问API提取和规范化字段
+     * 未配置API Key时不发起调用，直接返回null由调用方回退到正则表达式提取
      */
     private ExtractedFields extractFieldsWithAI(String userMessage) {
+        if (qwenApiKey == null || qwenApiKey.trim().isEmpty()) {
+            log.debug("通义千问API Key未配置，跳过AI字段提取");
+            return null;
+        }
         try {
-            String prompt = String.format(
-                "请从以下用户消息中提取旅行规划的关键信息，并以JSON格式返回：\n" +
-                "用户消息：%s\n\n" +
-                "请提取以下字段：\n" +
-                "1. destination（目的地）：提取具体的城市或国家名称，如\"日本东京\"、\"北京\"等\n" +
-                "2. budget（预算）：提取数字金额，统一转换为人民币元，如10000表示1万元\n" +
-                "3. groupSize（人数）：提取旅行人数，如2表示2个人\n" +
-                "4. travelType（旅行类型）：如\"家庭游\"、\"情侣游\"、\"商务游\"、\"自由行\"等\n\n" +
-                "请严格按照以下JSON格式返回，如果某个字段无法提取则设为null：\n" +
-                "{\n" +
-                "  \"destination\": \"具体目的地\",\n" +
-                "  \"budget\": 数字金额,\n" +
-                "  \"groupSize\": 人数,\n" +
-                "  \"travelType\": \"旅行类型\"\n" +
-                "}",
-                userMessage
-            );
-            
-            log.info("字段提取提示词: {}", prompt);
-            String response = callQwenAPI(prompt);
-            log.info("通义千问字段提取响应: {}", response);
+            PromptTemplate.Rendered prompt = buildFieldExtractionPrompt(userMessage);
+            
+            log.debug("字段提取提示词: {}", prompt);
+            String model = modelRouter.route(AiMetrics.STAGE_EXTRACT_LLM, null);
+            String response = callQwenAPI(model, prompt);
+            log.debug("通义千问字段提取响应: {}", response);
             
             // 检查API调用是否成功
             if (response == null || response.trim().isEmpty()) {
@@ -209,16 +280,13 @@ public class AiService {
             }
             
             // 解析JSON响应
-            ExtractedFields fields = parseFieldsFromAIResponse(response);
+            ExtractedFields fields = aiMetrics.time(AiMetrics.STAGE_PARSE, model, aiMetrics.currentEndpoint(),
+                    () -> parseFieldsFromAIResponse(response));
             
             // 调试输出：打印提取出的字段
             if (fields != null) {
-                log.info("=== 提取出的字段调试信息 ===");
-                log.info("目的地 (destination): '{}'", fields.getDestination());
-                log.info("预算 (budget): {}", fields.getBudget());
-                log.info("团队人数 (groupSize): {}", fields.getGroupSize());
-                log.info("旅行类型 (travelType): '{}'", fields.getTravelType());
-                log.info("=== 字段提取完成 ===");
+                log.debug("提取出的字段: destination='{}', budget={}, groupSize={}, travelType='{}'",
+                    fields.getDestination(), fields.getBudget(), fields.getGroupSize(), fields.getTravelType());
             } else {
                 log.warn("字段提取结果为null");
             }
@@ -239,28 +307,17 @@ public class AiService {
      * @return 提取的字段
      */
     public ExtractedFields extractFieldsWithCustomKey(String apiKey, String userMessage) {
+        return extractFieldsWithCustomKey(apiKey, null, userMessage);
+    }
+    
+    private ExtractedFields extractFieldsWithCustomKey(String apiKey, Long userId, String userMessage) {
         try {
-            String prompt = String.format(
-                "请从以下用户消息中提取旅行规划的关键信息，并以JSON格式返回：\n" +
-                "用户消息：%s\n\n" +
-                "请提取以下字段：\n" +
-                "1. destination（目的地）：提取具体的城市或国家名称，如\"日本东京\"、\"北京\"等\n" +
-                "2. budget（预算）：提取数字金额，统一转换为人民币元，如10000表示1万元\n" +
-                "3. groupSize（人数）：提取旅行人数，如2表示2个人\n" +
-                "4. travelType（旅行类型）：如\"家庭游\"、\"情侣游\"、\"商务游\"、\"自由行\"等\n\n" +
-                "请严格按照以下JSON格式返回，如果某个字段无法提取则设为null：\n" +
-                "{\n" +
-                "  \"destination\": \"具体目的地\",\n" +
-                "  \"budget\": 数字金额,\n" +
-                "  \"groupSize\": 人数,\n" +
-                "  \"travelType\": \"旅行类型\"\n" +
-                "}",
-                userMessage
-            );
+            PromptTemplate.Rendered prompt = buildFieldExtractionPrompt(userMessage);
             
             log.info("使用自定义API Key进行字段提取");
-            String response = callQwenAPIWithCustomKey(apiKey, prompt);
-            log.info("通义千问字段提取响应: {}", response);
+            String model = modelRouter.route(AiMetrics.STAGE_EXTRACT_LLM, userId);
+            String response = callQwenAPIWithCustomKey(apiKey, userId, model, prompt);
+            log.debug("通义千问字段提取响应: {}", response);
             
             // 检查API调用是否成功
             if (response == null || response.trim().isEmpty()) {
@@ -269,16 +326,13 @@ public class AiService {
             }
             
             // 解析JSON响应
-            ExtractedFields fields = parseFieldsFromAIResponse(response);
+            ExtractedFields fields = aiMetrics.time(AiMetrics.STAGE_PARSE, model, aiMetrics.currentEndpoint(),
+                    () -> parseFieldsFromAIResponse(response));
             
             // 调试输出：打印提取出的字段
             if (fields != null) {
-                log.info("=== 提取出的字段调试信息 ===");
-                log.info("目的地 (destination): '{}'", fields.getDestination());
-                log.info("预算 (budget): {}", fields.getBudget());
-                log.info("团队人数 (groupSize): {}", fields.getGroupSize());
-                log.info("旅行类型 (travelType): '{}'", fields.getTravelType());
-                log.info("=== 字段提取完成 ===");
+                log.debug("提取出的字段: destination='{}', budget={}, groupSize={}, travelType='{}'",
+                    fields.getDestination(), fields.getBudget(), fields.getGroupSize(), fields.getTravelType());
             } else {
                 log.warn("字段提取结果为null");
             }
@@ -291,10 +345,21 @@ public class AiService {
         }
     }
     
+    /**
+     * 构建字段提取提示词
+     * 用户消息超出输入预算时截断（字段信息通常出现在消息开头）
+     */
+    PromptTemplate.Rendered buildFieldExtractionPrompt(String userMessage) {
+        PromptTemplate template = promptTemplates.get(PromptTemplateRegistry.FIELD_EXTRACTION);
+        String message = TokenEstimator.truncate(String.valueOf(userMessage),
+                tokenBudget.getMaxInputTokens() - template.getStaticTokens());
+        return template.render(Collections.singletonMap("userMessage", message));
+    }
+    
     /**
      * 解析AI响应的JSON格式字段
      */
-    private ExtractedFields parseFieldsFromAIResponse(String response) {
+    ExtractedFields parseFieldsFromAIResponse(String response) {
         try {
             // 检查响应是否为null或空
             if (response == null || response.trim().isEmpty()) {
@@ -306,18 +371,18 @@ public class AiService {
             
             // 简单的JSON解析（不使用复杂的JSON库）
             String jsonContent = response.trim();
-            log.info("开始解析JSON响应: {}", jsonContent);
+            log.debug("开始解析JSON响应: {}", jsonContent);
             
             // 提取destination
             String destination = extractJsonValue(jsonContent, "destination");
-            log.info("提取的destination原始值: '{}'", destination);
+            log.debug("提取的destination原始值: '{}'", destination);
             if (destination != null && !destination.equals("null")) {
                 fields.setDestination(destination.replaceAll("\"", "").trim());
             }
             
             // 提取budget
             String budgetStr = extractJsonValue(jsonContent, "budget");
-            log.info("提取的budget原始值: '{}'", budgetStr);
+            log.debug("提取的budget原始值: '{}'", budgetStr);
             if (budgetStr != null && !budgetStr.equals("null")) {
                 try {
                     Double budget = Double.parseDouble(budgetStr.replaceAll("\"", "").trim());
@@ -329,7 +394,7 @@ public class AiService {
             
             // 提取groupSize
             String groupSizeStr = extractJsonValue(jsonContent, "groupSize");
-            log.info("提取的groupSize原始值: '{}'", groupSizeStr);
+            log.debug("提取的groupSize原始值: '{}'", groupSizeStr);
             if (groupSizeStr != null && !groupSizeStr.equals("null")) {
                 try {
                     Integer groupSize = Integer.parseInt(groupSizeStr.replaceAll("\"", "").trim());
@@ -341,12 +406,12 @@ public class AiService {
             
             // 提取travelType
             String travelType = extractJsonValue(jsonContent, "travelType");
-            log.info("提取的travelType原始值: '{}'", travelType);
+            log.debug("提取的travelType原始值: '{}'", travelType);
             if (travelType != null && !travelType.equals("null")) {
                 fields.setTravelType(travelType.replaceAll("\"", "").trim());
             }
             
-            log.info("JSON解析完成，最终字段: destination='{}', budget={}, groupSize={}, travelType='{}'", 
+            log.debug("JSON解析完成，最终字段: destination='{}', budget={}, groupSize={}, travelType='{}'", 
                 fields.getDestination(), fields.getBudget(), fields.getGroupSize(), fields.getTravelType());
             
             return fields;
@@ -366,12 +431,9 @@ public class AiService {
             Pattern regex = Pattern.compile(pattern);
             Matcher matcher = regex.matcher(json);
             
-            log.info("提取字段 '{}' 的正则表达式: {}", fieldName, pattern);
-            log.info("匹配的JSON内容: {}", json);
-            
             if (matcher.find()) {
                 String result = matcher.group(1).trim();
-                log.info("字段 '{}' 提取结果: '{}'", fieldName, result);
+                log.debug("字段 '{}' 提取结果: '{}'", fieldName, result);
                 return result;
             }
             log.warn("字段 '{}' 未找到匹配", fieldName);
@@ -385,11 +447,11 @@ public class AiService {
     /**
      * 调用通义千问API的通用方法
      */
-    private String callQwenAPI(String prompt) {
+    private String callQwenAPI(String model, PromptTemplate.Rendered prompt) {
         try {
             // 构建请求体 - 使用通义千问的正确格式
             Map<String, Object> request = new HashMap<>();
-            request.put("model", "qwen-turbo");
+            request.put("model", model);
             
             // 使用messages格式（通义千问标准格式）
             java.util.List<Map<String, Object>> messages = new java.util.ArrayList<>();
@@ -406,7 +468,7 @@ public class AiService {
             // 构建parameters对象
             Map<String, Object> parameters = new HashMap<>();
             parameters.put("temperature", 0.3); // 降低温度以获得更稳定的JSON输出
-            parameters.put("max_tokens", 500);  // 减少token数量
+            parameters.put("max_tokens", tokenBudget.maxOutputTokens(AiMetrics.STAGE_EXTRACT_LLM, prompt.tokens()));
             request.put("parameters", parameters);
             
             // 设置请求头
@@ -418,12 +480,11 @@ public class AiService {
             HttpEntity<Map<String, Object>> entity = new HttpEntity<>(request, headers);
             
             // 使用正确的通义千问API端点
-            String url = "https://dashscope.aliyuncs.com/api/v1/services/aigc/text-generation/generation";
+            String url = qwenBaseUrl + GENERATION_PATH;
             
             log.info("调用通义千问字段提取API: {}", url);
             
-            @SuppressWarnings("unchecked")
-            ResponseEntity<Map<String, Object>> response = restTemplate.postForEntity(url, entity, (Class<Map<String, Object>>) (Class<?>) Map.class);
+            ResponseEntity<Map<String, Object>> response = postGeneration(url, entity, AiMetrics.STAGE_EXTRACT_LLM, null);
             
             if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
                 Map<String, Object> responseBody = response.getBody();
@@ -460,14 +521,16 @@ public class AiService {
      * 使用自定义API Key调用通义千问API
      * 
      * @param apiKey 自定义API Key
+     * @param userId 用户ID，用于记录token用量，可为空
+     * @param model 模型
      * @param prompt 提示词
      * @return API响应
      */
-    private String callQwenAPIWithCustomKey(String apiKey, String prompt) {
+    private String callQwenAPIWithCustomKey(String apiKey, Long userId, String model, PromptTemplate.Rendered prompt) {
         try {
             // 构建请求体 - 使用通义千问的正确格式
             Map<String, Object> request = new HashMap<>();
-            request.put("model", "qwen-turbo");
+            request.put("model", model);
             
             // 使用messages格式（通义千问标准格式）
             java.util.List<Map<String, Object>> messages = new java.util.ArrayList<>();
@@ -484,7 +547,7 @@ public class AiService {
             // 构建parameters对象
             Map<String, Object> parameters = new HashMap<>();
             parameters.put("temperature", 0.3); // 降低温度以获得更稳定的JSON输出
-            parameters.put("max_tokens", 500);  // 减少token数量
+            parameters.put("max_tokens", tokenBudget.maxOutputTokens(AiMetrics.STAGE_EXTRACT_LLM, prompt.tokens()));
             request.put("parameters", parameters);
             
             // 设置请求头
@@ -496,12 +559,11 @@ public class AiService {
             HttpEntity<Map<String, Object>> entity = new HttpEntity<>(request, headers);
             
             // 使用正确的通义千问API端点
-            String url = "https://dashscope.aliyuncs.com/api/v1/services/aigc/text-generation/generation";
+            String url = qwenBaseUrl + GENERATION_PATH;
             
             log.info("使用自定义API Key调用通义千问字段提取API: {}", url);
             
-            @SuppressWarnings("unchecked")
-            ResponseEntity<Map<String, Object>> response = restTemplate.postForEntity(url, entity, (Class<Map<String, Object>>) (Class<?>) Map.class);
+            ResponseEntity<Map<String, Object>> response = postGeneration(url, entity, AiMetrics.STAGE_EXTRACT_LLM, userId);
             
             if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
                 Map<String, Object> responseBody = response.getBody();
@@ -534,10 +596,22 @@ public class AiService {
         }
     }
     
+    /**
+     * 使用正则表达式从用户消息中提取字段（AI提取失败时的回退）
+     */
+    ExtractedFields extractFieldsWithRegex(String userMessage) {
+        ExtractedFields fields = new ExtractedFields();
+        fields.setDestination(extractDestination(userMessage));
+        fields.setBudget(extractBudget(userMessage));
+        fields.setGroupSize(extractGroupSize(userMessage));
+        fields.setTravelType(extractTravelType(userMessage));
+        return fields;
+    }
+    
     /**
      * 提取目的地
      */
-    private String extractDestination(String userMessage) {
+    String extractDestination(String userMessage) {
         // 常见目的地关键词
         String[] destinations = {
             "北京", "上海", "广州", "深圳", "杭州", "南京", "苏州", "成都", "重庆", "西安", "武汉", "长沙", "青岛", "大连", "厦门", "福州", "昆明", "贵阳", "南宁", "海口", "三亚", "拉萨", "乌鲁木齐", "银川", "西宁", "兰州", "呼和浩特", "哈尔滨", "长春", "沈阳", "石家庄", "太原", "济南", "合肥", "南昌", "郑州", "长沙", "武汉", "成都", "重庆", "贵阳", "昆明", "南宁", "海口", "三亚", "拉萨", "乌鲁木齐", "银川", "西宁", "兰州", "呼和浩特",
@@ -567,7 +641,7 @@ public class AiService {
     /**
      * 提取预算
      */
-    private Double extractBudget(String userMessage) {
+    Double extractBudget(String userMessage) {
         // 匹配各种预算表达方式
         Pattern[] patterns = {
             Pattern.compile("(?:预算|花费|费用|价格|价钱|成本)(?:是|为|约|大概|左右)?(?:\\s*)([0-9]+(?:\\.[0-9]+)?)(?:万|千|元|块)?"),
@@ -604,7 +678,7 @@ public class AiService {
     /**
      * 提取人数
      */
-    private Integer extractGroupSize(String userMessage) {
+    Integer extractGroupSize(String userMessage) {
         // 匹配各种人数表达方式
         Pattern[] patterns = {
             Pattern.compile("([0-9]+)(?:个人|人|名|位)"),  // 最简单的模式：数字+人
@@ -645,7 +719,7 @@ public class AiService {
     /**
      * 提取旅行类型
      */
-    private String extractTravelType(String userMessage) {
+    String extractTravelType(String userMessage) {
         String message = userMessage.toLowerCase();
         
         if (message.contains("商务") || message.contains("出差") || message.contains("会议")) {
@@ -682,21 +756,20 @@ public class AiService {
     public String generateTravelPlan(Long userId, String userMessage, String planContext) {
         try {
             // 获取用户的API Key
-            String userApiKey = userService.getQwenApiKey(userId);
+            String userApiKey = lookupApiKey(userId);
             if (userApiKey == null || userApiKey.trim().isEmpty()) {
                 log.warn("用户 {} 未配置API Key", userId);
                 return "抱歉，您还没有配置通义千问API Key。请在个人设置中添加您的API Key以使用AI功能。";
             }
             
             // 检查API Key是否为演示用的假Key
-            if (userApiKey.startsWith("sk-test-") || userApiKey.startsWith("sk-demo-") || 
-                userApiKey.equals("your_qwen_api_key") || userApiKey.contains("demo")) {
+            if (isDemoApiKey(userApiKey)) {
                 log.warn("用户 {} 使用的是演示API Key: {}", userId, userApiKey);
                 return "检测到您使用的是演示API Key，请配置真实的通义千问API Key以使用AI功能。";
             }
             
             // 使用用户特定的API Key
-            return generateTravelPlanWithCustomKey(userApiKey, userMessage, planContext);
+            return generateTravelPlanWithCustomKey(userApiKey, userId, userMessage, planContext);
             
         } catch (Exception e) {
             log.error("使用用户API Key生成旅游计划失败: {}", e.getMessage(), e);
@@ -736,13 +809,14 @@ public class AiService {
             
             // 构建请求体 - 使用通义千问的正确格式
             Map<String, Object> request = new HashMap<>();
-            request.put("model", "qwen-turbo");
+            request.put("model", modelRouter.route(AiMetrics.STAGE_GENERATE, null));
             
             // 使用messages格式（通义千问标准格式）
+            PromptTemplate.Rendered prompt = buildPrompt(userMessage, planContext);
             java.util.List<Map<String, Object>> messages = new java.util.ArrayList<>();
             Map<String, Object> message = new HashMap<>();
             message.put("role", "user");
-            message.put("content", buildPrompt(userMessage, planContext));
+            message.put("content", prompt);
             messages.add(message);
             
             // 构建input对象（通义千问的正确格式）
@@ -753,7 +827,7 @@ public class AiService {
             // 构建parameters对象
             Map<String, Object> parameters = new HashMap<>();
             parameters.put("temperature", 0.7);
-            parameters.put("max_tokens", 2000);
+            parameters.put("max_tokens", tokenBudget.maxOutputTokens(AiMetrics.STAGE_GENERATE, prompt.tokens()));
             request.put("parameters", parameters);
             
             // 设置请求头
@@ -765,16 +839,11 @@ public class AiService {
             HttpEntity<Map<String, Object>> entity = new HttpEntity<>(request, headers);
             
             // 使用正确的通义千问API端点
-            String url = "https://dashscope.aliyuncs.com/api/v1/services/aigc/text-generation/generation";
+            String url = qwenBaseUrl + GENERATION_PATH;
             
-            log.info("调用通义千问API: {}", url);
-            log.info("请求体: {}", request);
+            log.debug("调用通义千问API: {}", url);
             
-            @SuppressWarnings("unchecked")
-            ResponseEntity<Map<String, Object>> response = restTemplate.postForEntity(url, entity, (Class<Map<String, Object>>) (Class<?>) Map.class);
-            
-            log.info("响应状态: {}", response.getStatusCode());
-            log.info("响应体: {}", response.getBody());
+            ResponseEntity<Map<String, Object>> response = postGeneration(url, entity, AiMetrics.STAGE_GENERATE, null);
             
             if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
                 Map<String, Object> responseBody = response.getBody();
@@ -787,19 +856,13 @@ public class AiService {
                     return "AI服务返回错误: " + errorMessage;
                 }
                 
-                // 详细记录响应结构用于调试
-                log.info("响应体键值: {}", responseBody.keySet());
-                log.info("完整响应体内容: {}", responseBody);
-                
                 // 解析响应 - 通义千问的响应格式
                 if (responseBody.containsKey("output")) {
                     @SuppressWarnings("unchecked")
                     Map<String, Object> output = (Map<String, Object>) responseBody.get("output");
-                    log.info("output对象: {}", output);
                     if (output != null && output.containsKey("text")) {
                         String text = (String) output.get("text");
                         log.info("通义千问生成成功，内容长度: {}", text != null ? text.length() : 0);
-                        log.info("AI回复内容: {}", text);
                         return text != null ? text : "AI生成的内容为空";
                     }
                 }
@@ -808,14 +871,11 @@ public class AiService {
                 if (responseBody.containsKey("choices")) {
                     @SuppressWarnings("unchecked")
                     java.util.List<Map<String, Object>> choices = (java.util.List<Map<String, Object>>) responseBody.get("choices");
-                    log.info("choices对象: {}", choices);
                     if (choices != null && !choices.isEmpty()) {
                         Map<String, Object> firstChoice = choices.get(0);
-                        log.info("第一个choice: {}", firstChoice);
                         if (firstChoice.containsKey("text")) {
                             String text = (String) firstChoice.get("text");
                             log.info("通义千问生成成功(choices格式)，内容长度: {}", text != null ? text.length() : 0);
-                            log.info("AI回复内容: {}", text);
                             return text != null ? text : "AI生成的内容为空";
                         }
                     }
@@ -825,13 +885,12 @@ public class AiService {
                 if (responseBody.containsKey("text")) {
                     String text = (String) responseBody.get("text");
                     log.info("直接获取text字段成功，内容长度: {}", text != null ? text.length() : 0);
-                    log.info("AI回复内容: {}", text);
                     return text != null ? text : "AI生成的内容为空";
                 }
                 
                 // 如果没有找到预期的响应格式，记录详细信息并返回错误
                 log.warn("未找到预期的响应格式，响应体结构: {}", responseBody.keySet());
-                log.warn("完整响应体: {}", responseBody);
+                log.warn("完整响应体: {}", PayloadLogs.abbreviate(responseBody, payloadMaxLength));
                 return "抱歉，AI服务响应格式异常，请稍后再试。响应结构: " + responseBody.keySet();
             }
             
@@ -974,35 +1033,47 @@ public class AiService {
      * @param userId 用户ID
      * @param budgetData 预算数据
      * @param expenseData 支出数据
-     * @return AI分析结果
+     * @return AI分析结果，失败时为面向用户的错误说明
      */
     public String analyzeBudgetWithAI(Long planId, Long userId, Map<String, Object> budgetData, Map<String, Object> expenseData) {
         try {
-            log.info("使用AI进行预算分析，计划ID: {}, 用户ID: {}", planId, userId);
-            
-            // 获取用户的API Key
-            String userApiKey = userService.getQwenApiKey(userId);
-            if (userApiKey == null || userApiKey.trim().isEmpty()) {
-                log.warn("用户 {} 未配置API Key", userId);
-                return "抱歉，您还没有配置通义千问API Key。请在个人设置中添加您的API Key以使用AI预算分析功能。";
-            }
-            
-            // 检查API Key是否为演示用的假Key
-            if (userApiKey.startsWith("sk-test-") || userApiKey.startsWith("sk-demo-") || 
-                userApiKey.equals("your_qwen_api_key") || userApiKey.contains("demo")) {
-                log.warn("用户 {} 使用的是演示API Key: {}", userId, userApiKey);
-                return "检测到您使用的是演示API Key，请配置真实的通义千问API Key以使用AI预算分析功能。";
-            }
-            
-            // 使用用户特定的API Key进行预算分析
-            return analyzeBudgetWithCustomKey(userApiKey, planId, budgetData, expenseData);
-            
+            return requestBudgetAnalysis(planId, userId, budgetData, expenseData);
+        } catch (AiServiceException e) {
+            return e.getMessage();
         } catch (Exception e) {
             log.error("使用用户API Key进行预算分析失败: {}", e.getMessage());
             return "AI预算分析服务暂时不可用，请检查您的API Key是否正确，或稍后重试。错误信息：" + e.getMessage();
         }
     }
     
+    /**
+     * 使用用户的API Key进行预算分析，失败时抛出异常而不是返回提示文本（供调用方区分结果与错误，避免缓存错误说明）
+     * 
+     * @param planId 计划ID
+     * @param userId 用户ID
+     * @param budgetData 预算数据
+     * @param expenseData 支出数据
+     * @return AI分析结果
+     * @throws AiServiceException 未配置API Key或AI服务返回错误时
+     * @throws org.springframework.web.client.RestClientException 调用AI服务失败时
+     */
+    public String requestBudgetAnalysis(Long planId, Long userId, Map<String, Object> budgetData, Map<String, Object> expenseData) {
+        log.info("使用AI进行预算分析，计划ID: {}, 用户ID: {}", planId, userId);
+        
+        String userApiKey = lookupApiKey(userId);
+        if (userApiKey == null || userApiKey.trim().isEmpty()) {
+            log.warn("用户 {} 未配置API Key", userId);
+            throw new AiServiceException("抱歉，您还没有配置通义千问API Key。请在个人设置中添加您的API Key以使用AI预算分析功能。", false);
+        }
+        if (isDemoApiKey(userApiKey)) {
+            log.warn("用户 {} 使用的是演示API Key", userId);
+            throw new AiServiceException("检测到您使用的是演示API Key，请配置真实的通义千问API Key以使用AI预算分析功能。", false);
+        }
+        
+        return requestGeneration(userApiKey, userId, modelRouter.route(AiMetrics.STAGE_BUDGET_ANALYSIS, userId),
+                buildBudgetAnalysisPrompt(budgetData, expenseData), AiMetrics.STAGE_BUDGET_ANALYSIS, 0.3);
+    }
+    
     /**
      * AI预算分析和优化（使用配置文件中的API Key）
      * 
@@ -1016,13 +1087,14 @@ public class AiService {
             log.info("使用AI进行预算分析，计划ID: {}", planId);
             
             Map<String, Object> request = new HashMap<>();
-            request.put("model", "qwen-turbo");
+            request.put("model", modelRouter.route(AiMetrics.STAGE_BUDGET_ANALYSIS, null));
             
             // 使用正确的messages格式
+            PromptTemplate.Rendered prompt = buildBudgetAnalysisPrompt(budgetData, expenseData);
             java.util.List<Map<String, Object>> messages = new java.util.ArrayList<>();
             Map<String, Object> message = new HashMap<>();
             message.put("role", "user");
-            message.put("content", buildBudgetAnalysisPrompt(budgetData, expenseData));
+            message.put("content", prompt);
             messages.add(message);
             
             // 构建input对象（通义千问的正确格式）
@@ -1033,7 +1105,7 @@ public class AiService {
             // 构建parameters对象
             Map<String, Object> parameters = new HashMap<>();
             parameters.put("temperature", 0.3);
-            parameters.put("max_tokens", 1500);
+            parameters.put("max_tokens", tokenBudget.maxOutputTokens(AiMetrics.STAGE_BUDGET_ANALYSIS, prompt.tokens()));
             request.put("parameters", parameters);
             
             HttpHeaders headers = new HttpHeaders();
@@ -1043,9 +1115,8 @@ public class AiService {
             
             HttpEntity<Map<String, Object>> entity = new HttpEntity<>(request, headers);
             
-            String url = qwenBaseUrl + "/services/aigc/text-generation/generation";
-            @SuppressWarnings("unchecked")
-            ResponseEntity<Map<String, Object>> response = restTemplate.postForEntity(url, entity, (Class<Map<String, Object>>) (Class<?>) Map.class);
+            String url = qwenBaseUrl + GENERATION_PATH;
+            ResponseEntity<Map<String, Object>> response = postGeneration(url, entity, AiMetrics.STAGE_BUDGET_ANALYSIS, null);
             
             if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
                 Map<String, Object> responseBody = response.getBody();
@@ -1066,26 +1137,26 @@ public class AiService {
     }
     
     /**
-     * 使用自定义API Key进行预算分析
+     * AI预算优化建议
      * 
-     * @param apiKey 自定义API Key
      * @param planId 计划ID
-     * @param budgetData 预算数据
-     * @param expenseData 支出数据
-     * @return AI分析结果
+     * @param currentBudget 当前预算
+     * @param targetSavings 目标节省金额
+     * @return AI优化建议
      */
-    private String analyzeBudgetWithCustomKey(String apiKey, Long planId, Map<String, Object> budgetData, Map<String, Object> expenseData) {
+    public String optimizeBudgetWithAI(Long planId, BigDecimal currentBudget, BigDecimal targetSavings) {
         try {
-            log.info("使用自定义API Key进行预算分析，计划ID: {}", planId);
+            log.info("使用AI进行预算优化，计划ID: {}", planId);
             
             Map<String, Object> request = new HashMap<>();
-            request.put("model", "qwen-turbo");
+            request.put("model", modelRouter.route(AiMetrics.STAGE_BUDGET_OPTIMIZE, null));
             
             // 使用正确的messages格式
+            PromptTemplate.Rendered prompt = buildBudgetOptimizationPrompt(currentBudget, targetSavings);
             java.util.List<Map<String, Object>> messages = new java.util.ArrayList<>();
             Map<String, Object> message = new HashMap<>();
             message.put("role", "user");
-            message.put("content", buildBudgetAnalysisPrompt(budgetData, expenseData));
+            message.put("content", prompt);
             messages.add(message);
             
             // 构建input对象（通义千问的正确格式）
@@ -1095,20 +1166,19 @@ public class AiService {
             
             // 构建parameters对象
             Map<String, Object> parameters = new HashMap<>();
-            parameters.put("temperature", 0.3);
-            parameters.put("max_tokens", 1500);
+            parameters.put("temperature", 0.4);
+            parameters.put("max_tokens", tokenBudget.maxOutputTokens(AiMetrics.STAGE_BUDGET_OPTIMIZE, prompt.tokens()));
             request.put("parameters", parameters);
             
             HttpHeaders headers = new HttpHeaders();
             headers.setContentType(MediaType.APPLICATION_JSON);
-            headers.set("Authorization", "Bearer " + apiKey);
+            headers.set("Authorization", "Bearer " + qwenApiKey);
             headers.set("X-DashScope-Async", "disable"); // 确保同步调用
             
             HttpEntity<Map<String, Object>> entity = new HttpEntity<>(request, headers);
             
-            String url = qwenBaseUrl + "/services/aigc/text-generation/generation";
-            @SuppressWarnings("unchecked")
-            ResponseEntity<Map<String, Object>> response = restTemplate.postForEntity(url, entity, (Class<Map<String, Object>>) (Class<?>) Map.class);
+            String url = qwenBaseUrl + GENERATION_PATH;
+            ResponseEntity<Map<String, Object>> response = postGeneration(url, entity, AiMetrics.STAGE_BUDGET_OPTIMIZE, null);
             
             if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
                 Map<String, Object> responseBody = response.getBody();
@@ -1116,134 +1186,246 @@ public class AiService {
                 Map<String, Object> output = (Map<String, Object>) responseBody.get("output");
                 String text = (String) output.get("text");
                 
-                log.info("AI预算分析生成成功");
+                log.info("AI预算优化生成成功");
                 return text;
             }
             
-            return "AI预算分析服务暂时不可用，请稍后再试。";
+            return "AI预算优化服务暂时不可用，请稍后再试。";
             
         } catch (Exception e) {
-            log.error("AI预算分析失败: {}", e.getMessage());
-            return "AI预算分析失败，请稍后再试。";
+            log.error("AI预算优化失败: {}", e.getMessage());
+            return "AI预算优化失败，请稍后再试。";
         }
     }
     
     /**
-     * AI预算优化建议
+     * 生成对话摘要
+     * 优先使用用户配置的API Key，未配置时使用配置文件中的API Key；
+     * 桩程序模式、没有可用的API Key或调用失败时返回null，由调用方降级处理
      * 
-     * @param planId 计划ID
-     * @param currentBudget 当前预算
-     * @param targetSavings 目标节省金额
-     * @return AI优化建议
+     * @param userId 用户ID
+     * @param prompt 摘要提示词
+     * @param maxTokens 摘要最大token数
+     * @return 摘要内容
      */
-    public String optimizeBudgetWithAI(Long planId, BigDecimal currentBudget, BigDecimal targetSavings) {
+    public String summarizeConversation(Long userId, String prompt, int maxTokens) {
+        if (mockMode) {
+            return null;
+        }
         try {
-            log.info("使用AI进行预算优化，计划ID: {}", planId);
-            
-            Map<String, Object> request = new HashMap<>();
-            request.put("model", "qwen-turbo");
+            String apiKey = userId != null ? lookupApiKey(userId) : null;
+            if (apiKey == null || apiKey.trim().isEmpty()) {
+                apiKey = qwenApiKey;
+            }
+            if (apiKey == null || apiKey.trim().isEmpty() || isDemoApiKey(apiKey)) {
+                return null;
+            }
             
-            // 使用正确的messages格式
-            java.util.List<Map<String, Object>> messages = new java.util.ArrayList<>();
             Map<String, Object> message = new HashMap<>();
             message.put("role", "user");
-            message.put("content", buildBudgetOptimizationPrompt(currentBudget, targetSavings));
-            messages.add(message);
-            
-            // 构建input对象（通义千问的正确格式）
+            message.put("content", prompt);
             Map<String, Object> input = new HashMap<>();
-            input.put("messages", messages);
-            request.put("input", input);
-            
-            // 构建parameters对象
+            input.put("messages", Collections.singletonList(message));
             Map<String, Object> parameters = new HashMap<>();
-            parameters.put("temperature", 0.4);
-            parameters.put("max_tokens", 1200);
+            parameters.put("temperature", 0.3);
+            parameters.put("max_tokens", tokenBudget.maxOutputTokens(maxTokens, prompt));
+            Map<String, Object> request = new HashMap<>();
+            request.put("model", modelRouter.route(AiMetrics.STAGE_SUMMARIZE, userId));
+            request.put("input", input);
             request.put("parameters", parameters);
             
             HttpHeaders headers = new HttpHeaders();
             headers.setContentType(MediaType.APPLICATION_JSON);
-            headers.set("Authorization", "Bearer " + qwenApiKey);
+            headers.set("Authorization", "Bearer " + apiKey);
             headers.set("X-DashScope-Async", "disable"); // 确保同步调用
             
-            HttpEntity<Map<String, Object>> entity = new HttpEntity<>(request, headers);
-            
-            String url = qwenBaseUrl + "/services/aigc/text-generation/generation";
-            @SuppressWarnings("unchecked")
-            ResponseEntity<Map<String, Object>> response = restTemplate.postForEntity(url, entity, (Class<Map<String, Object>>) (Class<?>) Map.class);
-            
-            if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
-                Map<String, Object> responseBody = response.getBody();
+            ResponseEntity<Map<String, Object>> response = postGeneration(qwenBaseUrl + GENERATION_PATH,
+                    new HttpEntity<>(request, headers), AiMetrics.STAGE_SUMMARIZE, userId);
+            Map<String, Object> responseBody = response.getBody();
+            if (response.getStatusCode() == HttpStatus.OK && responseBody != null && !responseBody.containsKey("code")) {
                 @SuppressWarnings("unchecked")
                 Map<String, Object> output = (Map<String, Object>) responseBody.get("output");
-                String text = (String) output.get("text");
-                
-                log.info("AI预算优化生成成功");
-                return text;
+                Object text = output != null ? output.get("text") : null;
+                return text != null ? text.toString() : null;
             }
-            
-            return "AI预算优化服务暂时不可用，请稍后再试。";
+            return null;
             
         } catch (Exception e) {
-            log.error("AI预算优化失败: {}", e.getMessage());
-            return "AI预算优化失败，请稍后再试。";
+            log.warn("对话摘要生成失败: {}", e.getMessage());
+            return null;
         }
     }
     
+    /**
+     * 调用通义千问文本生成接口，记录调用耗时与token用量
+     * 接口返回错误码时结果记为error，请求异常时记为failure
+     * 请求/响应内容按 app.logging.payload.sample-rate 采样输出，error/failure 时总是输出
+     * 
+     * @param userId 发起调用的用户，用于记录该用户的token用量，可为空
+     */
+    @SuppressWarnings("unchecked")
+    private ResponseEntity<Map<String, Object>> postGeneration(String url, HttpEntity<Map<String, Object>> entity, String stage,
+                                                               Long userId) {
+        String endpoint = aiMetrics.currentEndpoint();
+        String model = String.valueOf(entity.getBody().get("model"));
+        int promptTokens = promptTokensOf(entity.getBody());
+        aiMetrics.recordPromptTokens(stage, promptTokens);
+        modelRouter.begin(model);
+        Timer.Sample sample = aiMetrics.start();
+        String outcome = AiMetrics.OUTCOME_FAILURE;
+        try {
+            ResponseEntity<Map<String, Object>> response = restTemplate.postForEntity(url, entity, (Class<Map<String, Object>>) (Class<?>) Map.class);
+            Map<String, Object> body = response.getBody();
+            outcome = response.getStatusCode() == HttpStatus.OK && body != null && !body.containsKey("code")
+                    ? AiMetrics.OUTCOME_SUCCESS : AiMetrics.OUTCOME_ERROR;
+            aiMetrics.recordUsage(model, endpoint, body);
+            modelRouter.recordCost(stage, model, promptTokens, body);
+            tokenUsageService.record(userId, stage, promptTokens, body);
+            if (AiMetrics.OUTCOME_ERROR.equals(outcome)) {
+                payloadLog.warn("通义千问返回错误: stage={}, status={}, 请求体: {}, 响应体: {}", stage, response.getStatusCode(),
+                        PayloadLogs.abbreviate(entity.getBody(), payloadMaxLength), PayloadLogs.abbreviate(body, payloadMaxLength));
+            } else if (payloadLog.isInfoEnabled() && PayloadLogs.sample(payloadSampleRate)) {
+                payloadLog.info("通义千问调用: stage={}, 请求体: {}, 响应体: {}", stage,
+                        PayloadLogs.abbreviate(entity.getBody(), payloadMaxLength), PayloadLogs.abbreviate(body, payloadMaxLength));
+            }
+            return response;
+        } catch (RuntimeException e) {
+            payloadLog.warn("通义千问调用异常: stage={}, 请求体: {}, 错误: {}", stage,
+                    PayloadLogs.abbreviate(entity.getBody(), payloadMaxLength), e.getMessage());
+            throw e;
+        } finally {
+            aiMetrics.stop(sample, stage, model, endpoint, outcome);
+            modelRouter.finish(model);
+        }
+    }
+    
+    /**
+     * 请求体中提示词（input.messages[].content）的估算token数
+     * 模板渲染的提示词使用渲染时的估算结果，不生成完整文本
+     */
+    private int promptTokensOf(Map<String, Object> request) {
+        Object input = request != null ? request.get("input") : null;
+        Object messages = input instanceof Map ? ((Map<?, ?>) input).get("messages") : null;
+        if (!(messages instanceof List)) {
+            return 0;
+        }
+        int tokens = 0;
+        for (Object message : (List<?>) messages) {
+            Object content = message instanceof Map ? ((Map<?, ?>) message).get("content") : null;
+            if (content instanceof PromptTemplate.Rendered) {
+                tokens += ((PromptTemplate.Rendered) content).tokens();
+            } else if (content != null) {
+                tokens += tokenBudget.estimate(content.toString());
+            }
+        }
+        return tokens;
+    }
+    
+    /**
+     * 查询用户配置的API Key，同时刷新用户等级供模型路由使用
+     */
+    private String lookupApiKey(Long userId) {
+        return aiMetrics.time(AiMetrics.STAGE_KEY_LOOKUP, AiMetrics.NO_MODEL, aiMetrics.currentEndpoint(), () -> {
+            modelRouter.refreshTier(userId);
+            return userService.getQwenApiKey(userId);
+        });
+    }
+    
     /**
      * 构建AI提示词
+     * 估算token数超出 app.ai.token-budget.max-input-tokens 时先裁剪计划上下文（最多裁到预算的一半），
+     * 仍然超出再裁剪用户消息
      */
-    private String buildPrompt(String userMessage, String planContext) {
-        StringBuilder prompt = new StringBuilder();
-        prompt.append("你是一个专业的旅游规划助手。请根据用户的需求，生成详细的旅游计划。\n\n");
-        
-        if (planContext != null && !planContext.isEmpty()) {
-            prompt.append("当前计划信息：\n").append(planContext).append("\n\n");
+    PromptTemplate.Rendered buildPrompt(String userMessage, String planContext) {
+        return buildPlanPrompt(PromptTemplateRegistry.TRAVEL_PLAN, AiMetrics.STAGE_GENERATE, userMessage, planContext);
+    }
+    
+    /**
+     * 构建单次调用模式的提示词（字段块 + 旅游计划），裁剪规则与 {@link #buildPrompt} 相同
+     */
+    PromptTemplate.Rendered buildCombinedPrompt(String userMessage, String planContext) {
+        return buildPlanPrompt(PromptTemplateRegistry.CHAT_COMBINED, AiMetrics.STAGE_CHAT_COMBINED, userMessage, planContext);
+    }
+    
+    private PromptTemplate.Rendered buildPlanPrompt(String templateName, String stage, String userMessage,
+                                                    String planContext) {
+        PromptTemplate template = promptTemplates.get(templateName);
+        String message = String.valueOf(userMessage);
+        String context = planContext != null ? planContext : "";
+        int available = tokenBudget.getMaxInputTokens() - template.getStaticTokens();
+        int messageTokens = tokenBudget.estimate(message);
+        int contextTokens = tokenBudget.estimate(context);
+        if (messageTokens + contextTokens > available) {
+            context = TokenEstimator.truncate(context,
+                    Math.min(contextTokens, Math.max(available - messageTokens, available / 2)));
+            message = TokenEstimator.truncate(message, available - tokenBudget.estimate(context));
+            aiMetrics.recordPromptTrimmed(stage);
+            log.info("提示词超出输入预算已裁剪: 上下文{}→{}, 用户消息{}→{} (估算token)", contextTokens,
+                    tokenBudget.estimate(context), messageTokens, tokenBudget.estimate(message));
         }
-        
-        prompt.append("用户需求：\n").append(userMessage).append("\n\n");
-        prompt.append("请提供以下内容的旅游计划：\n");
-        prompt.append("1. 行程安排（详细的时间安排）\n");
-        prompt.append("2. 景点推荐（包含景点介绍和游览时间）\n");
-        prompt.append("3. 住宿建议（酒店类型和位置）\n");
-        prompt.append("4. 美食推荐（当地特色美食）\n");
-        prompt.append("5. 交通方式（城市间和市内交通）\n");
-        prompt.append("6. 预算估算（各项费用明细）\n");
-        prompt.append("7. 注意事项（天气、文化、安全等）\n\n");
-        prompt.append("请用中文回答，内容要详细实用，格式清晰。");
-        
-        return prompt.toString();
+        Map<String, Object> values = new HashMap<>(4);
+        values.put("userMessage", message);
+        values.put("planContext", context);
+        return template.render(values);
     }
     
     /**
      * 构建预算分析提示词
+     * 支出分类按金额从高到低列出，超出输入预算时金额较小的分类合并为"其他"一行
      */
-    private String buildBudgetAnalysisPrompt(Map<String, Object> budgetData, Map<String, Object> expenseData) {
-        StringBuilder prompt = new StringBuilder();
-        prompt.append("请根据以下旅游预算数据进行分析：\n\n");
+    PromptTemplate.Rendered buildBudgetAnalysisPrompt(Map<String, Object> budgetData, Map<String, Object> expenseData) {
+        PromptTemplate template = promptTemplates.get(PromptTemplateRegistry.BUDGET_ANALYSIS);
+        Map<String, Object> values = new HashMap<>(8);
+        values.put("totalBudget", String.valueOf(budgetData.get("totalBudget")));
+        values.put("totalExpense", String.valueOf(expenseData.get("totalExpense")));
+        values.put("remainingBudget", String.valueOf(budgetData.get("remainingBudget")));
+        values.put("budgetUtilization", String.valueOf(expenseData.get("budgetUtilization")));
         
-        prompt.append("预算情况：\n");
-        prompt.append("- 总预算：").append(budgetData.get("totalBudget")).append("元\n");
-        prompt.append("- 已支出：").append(expenseData.get("totalExpense")).append("元\n");
-        prompt.append("- 剩余预算：").append(budgetData.get("remainingBudget")).append("元\n");
-        prompt.append("- 预算使用率：").append(expenseData.get("budgetUtilization")).append("%\n\n");
-        
-        prompt.append("支出分类：\n");
+        StringBuilder lines = new StringBuilder();
         @SuppressWarnings("unchecked")
         Map<String, Object> categoryBreakdown = (Map<String, Object>) expenseData.get("categoryBreakdown");
         if (categoryBreakdown != null) {
-            for (Map.Entry<String, Object> entry : categoryBreakdown.entrySet()) {
-                prompt.append("- ").append(entry.getKey()).append("：").append(entry.getValue()).append("元\n");
+            List<Map.Entry<String, Object>> categories = new ArrayList<>(categoryBreakdown.entrySet());
+            categories.sort((a, b) -> toAmount(b.getValue()).compareTo(toAmount(a.getValue())));
+            // 为"其他"一行预留约20个token
+            int available = tokenBudget.getMaxInputTokens() - template.getStaticTokens() - 20;
+            for (Object value : values.values()) {
+                available -= tokenBudget.estimate((CharSequence) value);
+            }
+            int index = 0;
+            for (; index < categories.size(); index++) {
+                Map.Entry<String, Object> entry = categories.get(index);
+                int length = lines.length();
+                lines.append("- ").append(entry.getKey()).append("：").append(entry.getValue()).append("元\n");
+                int tokens = tokenBudget.estimate(lines.subSequence(length, lines.length()));
+                if (tokens > available) {
+                    lines.setLength(length);
+                    break;
+                }
+                available -= tokens;
+            }
+            if (index < categories.size()) {
+                BigDecimal rest = BigDecimal.ZERO;
+                for (Map.Entry<String, Object> entry : categories.subList(index, categories.size())) {
+                    rest = rest.add(toAmount(entry.getValue()));
+                }
+                lines.append("- 其他").append(categories.size() - index).append("类：").append(rest.toPlainString()).append("元\n");
+                aiMetrics.recordPromptTrimmed(AiMetrics.STAGE_BUDGET_ANALYSIS);
             }
         }
-        
-        prompt.append("\n请简单分析：\n");
-        prompt.append("1. 当前预算执行情况\n");
-        prompt.append("2. 主要支出类别分析\n");
-        prompt.append("3. 后续支出建议\n\n");
-        prompt.append("请用简洁的中文回答。");
-        
-        return prompt.toString();
+        values.put("categories", lines);
+        return template.render(values);
+    }
+    
+    private static BigDecimal toAmount(Object value) {
+        if (value instanceof BigDecimal) {
+            return (BigDecimal) value;
+        }
+        try {
+            return value != null ? new BigDecimal(value.toString()) : BigDecimal.ZERO;
+        } catch (NumberFormatException e) {
+            return BigDecimal.ZERO;
+        }
     }
     
     /**
@@ -1287,128 +1469,244 @@ public class AiService {
      * @return AI生成的回复
      */
     public String generateTravelPlanWithCustomKey(String apiKey, String userMessage, String planContext) {
+        return generateTravelPlanWithCustomKey(apiKey, null, userMessage, planContext);
+    }
+    
+    private String generateTravelPlanWithCustomKey(String apiKey, Long userId, String userMessage, String planContext) {
         try {
-            // 如果启用桩程序模式，返回模拟数据
-            if (mockMode) {
-                log.info("使用桩程序模式生成旅游计划（自定义API Key）");
-                return generateMockTravelPlan(userMessage, planContext);
+            return requestTravelPlanWithCustomKey(apiKey, userId, userMessage, planContext);
+        } catch (AiServiceException e) {
+            return e.getMessage();
+        } catch (Exception e) {
+            log.error("自定义API Key生成失败: {}", e.getMessage(), e);
+            return "抱歉，生成旅游计划时发生错误，请稍后再试。错误信息: " + e.getMessage();
+        }
+    }
+    
+    /**
+     * 使用用户的API Key生成旅游计划，失败时抛出异常而不是返回提示文本（供后台任务判断是否重试）
+     * 桩程序模式下不要求用户配置API Key
+     * 
+     * @param userId 用户ID
+     * @param userMessage 用户消息
+     * @param planContext 计划上下文
+     * @return AI生成的内容
+     * @throws AiServiceException 未配置API Key或AI服务返回错误时
+     * @throws org.springframework.web.client.RestClientException 调用AI服务失败时
+     */
+    public String requestTravelPlan(Long userId, String userMessage, String planContext) {
+        if (mockMode) {
+            return requestTravelPlanWithCustomKey(null, userId, userMessage, planContext);
+        }
+        String userApiKey = lookupApiKey(userId);
+        if (userApiKey == null || userApiKey.trim().isEmpty()) {
+            throw new AiServiceException("用户未配置通义千问API Key", false);
+        }
+        if (isDemoApiKey(userApiKey)) {
+            throw new AiServiceException("用户使用的是演示API Key", false);
+        }
+        return requestTravelPlanWithCustomKey(userApiKey, userId, userMessage, planContext);
+    }
+    
+    private String requestTravelPlanWithCustomKey(String apiKey, Long userId, String userMessage, String planContext) {
+        // 如果启用桩程序模式，返回模拟数据
+        if (mockMode) {
+            log.info("使用桩程序模式生成旅游计划（自定义API Key）");
+            return generateMockTravelPlan(userMessage, planContext);
+        }
+        
+        log.info("使用自定义API Key生成旅游计划");
+        
+        return requestGeneration(apiKey, userId, modelRouter.route(AiMetrics.STAGE_GENERATE, userId),
+                buildPrompt(userMessage, planContext), AiMetrics.STAGE_GENERATE, 0.7);
+    }
+    
+    /**
+     * 调用通义千问文本生成接口，失败时抛出异常
+     * 
+     * @param model 模型
+     * @param stage 任务阶段，决定 max_tokens 与指标标签
+     * @param temperature 采样温度
+     * @return 生成的文本
+     * @throws AiServiceException AI服务返回错误或响应格式异常时
+     */
+    private String requestGeneration(String apiKey, Long userId, String model, PromptTemplate.Rendered prompt,
+                                     String stage, double temperature) {
+        // 构建请求体 - 使用通义千问的正确格式
+        Map<String, Object> request = new HashMap<>();
+        request.put("model", model);
+        
+        // 使用messages格式（通义千问标准格式）
+        java.util.List<Map<String, Object>> messages = new java.util.ArrayList<>();
+        Map<String, Object> message = new HashMap<>();
+        message.put("role", "user");
+        message.put("content", prompt);
+        messages.add(message);
+        
+        // 构建input对象（通义千问的正确格式）
+        Map<String, Object> input = new HashMap<>();
+        input.put("messages", messages);
+        request.put("input", input);
+        
+        // 构建parameters对象
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("temperature", temperature);
+        parameters.put("max_tokens", tokenBudget.maxOutputTokens(stage, prompt.tokens()));
+        request.put("parameters", parameters);
+        
+        // 设置请求头
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.set("Authorization", "Bearer " + apiKey);
+        headers.set("X-DashScope-Async", "disable"); // 确保同步调用
+        
+        HttpEntity<Map<String, Object>> entity = new HttpEntity<>(request, headers);
+        
+        // 使用正确的通义千问API端点
+        String url = qwenBaseUrl + GENERATION_PATH;
+        
+        log.debug("调用通义千问API: {}", url);
+        
+        ResponseEntity<Map<String, Object>> response = postGeneration(url, entity, stage, userId);
+        
+        if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
+            Map<String, Object> responseBody = response.getBody();
+            
+            // 检查是否有错误
+            if (responseBody.containsKey("code")) {
+                String errorCode = String.valueOf(responseBody.get("code"));
+                String errorMessage = String.valueOf(responseBody.get("message"));
+                log.error("通义千问API返回错误: code={}, message={}", errorCode, errorMessage);
+                throw new AiServiceException("AI服务返回错误: " + errorMessage,
+                        !errorCode.contains("InvalidApiKey") && !errorCode.contains("AccessDenied"));
             }
             
-            log.info("使用自定义API Key生成旅游计划");
-            
-            // 构建请求体 - 使用通义千问的正确格式
-            Map<String, Object> request = new HashMap<>();
-            request.put("model", "qwen-turbo");
-            
-            // 使用messages格式（通义千问标准格式）
-            java.util.List<Map<String, Object>> messages = new java.util.ArrayList<>();
-            Map<String, Object> message = new HashMap<>();
-            message.put("role", "user");
-            message.put("content", buildPrompt(userMessage, planContext));
-            messages.add(message);
-            
-            // 构建input对象（通义千问的正确格式）
-            Map<String, Object> input = new HashMap<>();
-            input.put("messages", messages);
-            request.put("input", input);
-            
-            // 构建parameters对象
-            Map<String, Object> parameters = new HashMap<>();
-            parameters.put("temperature", 0.7);
-            parameters.put("max_tokens", 2000);
-            request.put("parameters", parameters);
-            
-            // 设置请求头
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            headers.set("Authorization", "Bearer " + apiKey);
-            headers.set("X-DashScope-Async", "disable"); // 确保同步调用
-            
-            HttpEntity<Map<String, Object>> entity = new HttpEntity<>(request, headers);
-            
-            // 使用正确的通义千问API端点
-            String url = "https://dashscope.aliyuncs.com/api/v1/services/aigc/text-generation/generation";
-            
-            log.info("调用通义千问API: {}", url);
-            log.info("请求体: {}", request);
-            
-            @SuppressWarnings("unchecked")
-            ResponseEntity<Map<String, Object>> response = restTemplate.postForEntity(url, entity, (Class<Map<String, Object>>) (Class<?>) Map.class);
-            
-            log.info("响应状态: {}", response.getStatusCode());
-            log.info("响应体: {}", response.getBody());
-            
-            if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
-                Map<String, Object> responseBody = response.getBody();
-                
-                // 检查是否有错误
-                if (responseBody.containsKey("code")) {
-                    String errorCode = String.valueOf(responseBody.get("code"));
-                    String errorMessage = String.valueOf(responseBody.get("message"));
-                    log.error("通义千问API返回错误: code={}, message={}", errorCode, errorMessage);
-                    return "AI服务返回错误: " + errorMessage;
+            // 解析响应 - 通义千问的响应格式
+            if (responseBody.containsKey("output")) {
+                @SuppressWarnings("unchecked")
+                Map<String, Object> output = (Map<String, Object>) responseBody.get("output");
+                if (output != null && output.containsKey("text")) {
+                    String text = (String) output.get("text");
+                    log.info("自定义API Key生成成功，内容长度: {}", text != null ? text.length() : 0);
+                    return text != null ? text : "AI生成的内容为空";
                 }
-                
-                // 解析响应 - 通义千问的响应格式
-                if (responseBody.containsKey("output")) {
-                    @SuppressWarnings("unchecked")
-                    Map<String, Object> output = (Map<String, Object>) responseBody.get("output");
-                    if (output != null && output.containsKey("text")) {
-                        String text = (String) output.get("text");
-                        log.info("自定义API Key生成成功，内容长度: {}", text != null ? text.length() : 0);
+            }
+            
+            // 尝试其他可能的响应格式
+            if (responseBody.containsKey("choices")) {
+                @SuppressWarnings("unchecked")
+                java.util.List<Map<String, Object>> choices = (java.util.List<Map<String, Object>>) responseBody.get("choices");
+                if (choices != null && !choices.isEmpty()) {
+                    Map<String, Object> firstChoice = choices.get(0);
+                    if (firstChoice.containsKey("text")) {
+                        String text = (String) firstChoice.get("text");
+                        log.info("自定义API Key生成成功(choices格式)，内容长度: {}", text != null ? text.length() : 0);
                         return text != null ? text : "AI生成的内容为空";
                     }
                 }
-                
-                // 尝试其他可能的响应格式
-                if (responseBody.containsKey("choices")) {
-                    @SuppressWarnings("unchecked")
-                    java.util.List<Map<String, Object>> choices = (java.util.List<Map<String, Object>>) responseBody.get("choices");
-                    if (choices != null && !choices.isEmpty()) {
-                        Map<String, Object> firstChoice = choices.get(0);
-                        if (firstChoice.containsKey("text")) {
-                            String text = (String) firstChoice.get("text");
-                            log.info("自定义API Key生成成功(choices格式)，内容长度: {}", text != null ? text.length() : 0);
-                            return text != null ? text : "AI生成的内容为空";
-                        }
-                    }
-                }
-                
-                // 如果没有找到预期的响应格式，记录详细信息并返回错误
-                log.warn("未找到预期的响应格式，响应体结构: {}", responseBody.keySet());
-                log.warn("完整响应体: {}", responseBody);
-                return "抱歉，AI服务响应格式异常，请稍后再试。";
             }
             
-            return "抱歉，AI服务暂时不可用，请稍后再试。";
-            
+            // 如果没有找到预期的响应格式，记录详细信息并返回错误
+            log.warn("未找到预期的响应格式，响应体结构: {}", responseBody.keySet());
+            log.warn("完整响应体: {}", PayloadLogs.abbreviate(responseBody, payloadMaxLength));
+            throw new AiServiceException("抱歉，AI服务响应格式异常，请稍后再试。", false);
+        }
+        
+        throw new AiServiceException("抱歉，AI服务暂时不可用，请稍后再试。", true);
+    }
+    
+    /**
+     * 单次调用完成字段提取和计划生成（使用用户特定的API Key）
+     * 用户未配置API Key时与分开调用一致：字段使用默认配置提取，回复为配置提示
+     * 
+     * @param userId 用户ID
+     * @param userMessage 用户消息
+     * @param planContext 计划上下文
+     * @return 提取的字段与AI回复
+     */
+    public CombinedReply chat(Long userId, String userMessage, String planContext) {
+        String userApiKey;
+        try {
+            userApiKey = lookupApiKey(userId);
         } catch (Exception e) {
-            log.error("自定义API Key生成失败: {}", e.getMessage(), e);
-            return "抱歉，生成旅游计划时发生错误，请稍后再试。错误信息: " + e.getMessage();
+            log.error("查询用户API Key失败: {}", e.getMessage(), e);
+            return new CombinedReply(extractTravelFields(userMessage), "AI服务暂时不可用，请稍后重试。错误信息：" + e.getMessage());
+        }
+        if (userApiKey == null || userApiKey.trim().isEmpty()) {
+            log.warn("用户 {} 未配置API Key", userId);
+            return new CombinedReply(extractTravelFields(userMessage),
+                    "抱歉，您还没有配置通义千问API Key。请在个人设置中添加您的API Key以使用AI功能。");
+        }
+        if (isDemoApiKey(userApiKey)) {
+            log.warn("用户 {} 使用的是演示API Key", userId);
+            return new CombinedReply(extractTravelFields(userMessage),
+                    "检测到您使用的是演示API Key，请配置真实的通义千问API Key以使用AI功能。");
+        }
+        return chatWithCustomKey(userApiKey, userId, userMessage, planContext);
+    }
+    
+    /**
+     * 使用自定义API Key单次调用完成字段提取和计划生成
+     * 
+     * @param apiKey 自定义API Key
+     * @param userMessage 用户消息
+     * @param planContext 计划上下文
+     * @return 提取的字段与AI回复
+     */
+    public CombinedReply chatWithCustomKey(String apiKey, String userMessage, String planContext) {
+        return chatWithCustomKey(apiKey, null, userMessage, planContext);
+    }
+    
+    private CombinedReply chatWithCustomKey(String apiKey, Long userId, String userMessage, String planContext) {
+        String endpoint = aiMetrics.currentEndpoint();
+        if (mockMode) {
+            log.info("使用桩程序模式生成旅游计划（单次调用）");
+            return new CombinedReply(timedRegexFields(userMessage, endpoint), generateMockTravelPlan(userMessage, planContext));
+        }
+        String model = modelRouter.route(AiMetrics.STAGE_CHAT_COMBINED, userId);
+        String text;
+        try {
+            text = requestGeneration(apiKey, userId, model, buildCombinedPrompt(userMessage, planContext),
+                    AiMetrics.STAGE_CHAT_COMBINED, 0.7);
+        } catch (AiServiceException e) {
+            return new CombinedReply(timedRegexFields(userMessage, endpoint), e.getMessage());
+        } catch (Exception e) {
+            log.error("单次调用生成失败: {}", e.getMessage(), e);
+            return new CombinedReply(timedRegexFields(userMessage, endpoint),
+                    "抱歉，生成旅游计划时发生错误，请稍后再试。错误信息: " + e.getMessage());
         }
+        FieldsBlockSplitter splitter = new FieldsBlockSplitter();
+        String plan = splitter.feed(text) + splitter.finish();
+        return toCombinedReply(splitter.getFields(), plan, userMessage, model, endpoint);
+    }
+    
+    /**
+     * 由拆分出的字段块和计划正文构建对话结果，字段块缺失或解析不出任何字段时使用正则表达式提取
+     */
+    CombinedReply toCombinedReply(String fieldsText, String plan, String userMessage, String model, String endpoint) {
+        ExtractedFields fields = fieldsText == null ? null
+                : aiMetrics.time(AiMetrics.STAGE_PARSE, model, endpoint, () -> parseFieldsFromAIResponse(fieldsText));
+        if (fields == null || !fields.hasAnyField()) {
+            log.warn("回复中没有可用的字段块，使用正则表达式提取");
+            fields = timedRegexFields(userMessage, endpoint);
+        }
+        return new CombinedReply(fields, plan.trim().isEmpty() ? "AI生成的内容为空" : plan);
+    }
+    
+    private ExtractedFields timedRegexFields(String userMessage, String endpoint) {
+        return aiMetrics.time(AiMetrics.STAGE_EXTRACT_REGEX, AiMetrics.NO_MODEL, endpoint,
+                () -> extractFieldsWithRegex(userMessage));
     }
     
     /**
      * 构建预算优化提示词
      */
-    private String buildBudgetOptimizationPrompt(BigDecimal currentBudget, BigDecimal targetSavings) {
-        StringBuilder prompt = new StringBuilder();
-        prompt.append("你是一个专业的旅游预算优化专家。\n\n");
-        
-        prompt.append("当前预算：").append(currentBudget).append("元\n");
-        prompt.append("目标节省：").append(targetSavings).append("元\n");
-        prompt.append("优化后预算：").append(currentBudget.subtract(targetSavings)).append("元\n\n");
-        
-        prompt.append("请提供以下优化建议：\n");
-        prompt.append("1. 交通费用优化（航班、火车、租车等选择）\n");
-        prompt.append("2. 住宿费用优化（酒店档次、位置选择）\n");
-        prompt.append("3. 餐饮费用优化（餐厅选择、用餐方式）\n");
-        prompt.append("4. 活动费用优化（景点门票、娱乐活动）\n");
-        prompt.append("5. 购物预算优化（纪念品、特产购买）\n");
-        prompt.append("6. 时间安排优化（淡旺季、提前预订等）\n\n");
-        prompt.append("请用中文回答，建议要具体、实用、可执行。");
-        
-        return prompt.toString();
+    PromptTemplate.Rendered buildBudgetOptimizationPrompt(BigDecimal currentBudget, BigDecimal targetSavings) {
+        Map<String, Object> values = new HashMap<>(4);
+        values.put("currentBudget", currentBudget);
+        values.put("targetSavings", targetSavings);
+        values.put("optimizedBudget", currentBudget.subtract(targetSavings));
+        return promptTemplates.get(PromptTemplateRegistry.BUDGET_OPTIMIZATION).render(values);
     }
     
     /**
@@ -1419,139 +1717,14 @@ public class AiService {
      * @return 模拟的旅游计划
      */
     private String generateMockTravelPlan(String userMessage, String planContext) {
+        Timer.Sample sample = aiMetrics.start();
+        String endpoint = aiMetrics.currentEndpoint();
         try {
             // 模拟网络延迟
-            Thread.sleep(2000);
-            
-            StringBuilder mockResponse = new StringBuilder();
-            mockResponse.append("🎯 **智能旅游计划生成**\n\n");
-            
-            // 根据用户消息生成不同的模拟回复
-            if (userMessage.contains("北京") || userMessage.contains("beijing")) {
-                mockResponse.append("## 🏛️ 北京3日游计划\n\n");
-                mockResponse.append("### 📅 第一天：故宫与天安门\n");
-                mockResponse.append("- **上午**：天安门广场 → 故宫博物院（3-4小时）\n");
-                mockResponse.append("- **下午**：景山公园 → 北海公园\n");
-                mockResponse.append("- **晚上**：王府井步行街\n\n");
-                
-                mockResponse.append("### 📅 第二天：长城与颐和园\n");
-                mockResponse.append("- **上午**：八达岭长城（4-5小时）\n");
-                mockResponse.append("- **下午**：颐和园（2-3小时）\n");
-                mockResponse.append("- **晚上**：三里屯或后海\n\n");
-                
-                mockResponse.append("### 📅 第三天：天坛与胡同游\n");
-                mockResponse.append("- **上午**：天坛公园（2小时）\n");
-                mockResponse.append("- **下午**：南锣鼓巷 → 什刹海\n");
-                mockResponse.append("- **晚上**：前门大街\n\n");
-                
-                mockResponse.append("### 🏨 住宿建议\n");
-                mockResponse.append("- **经济型**：如家、汉庭（200-300元/晚）\n");
-                mockResponse.append("- **舒适型**：全季、桔子酒店（400-600元/晚）\n");
-                mockResponse.append("- **豪华型**：北京饭店、王府井希尔顿（800-1500元/晚）\n\n");
-                
-                mockResponse.append("### 🍜 美食推荐\n");
-                mockResponse.append("- **烤鸭**：全聚德、便宜坊\n");
-                mockResponse.append("- **涮羊肉**：东来顺、聚宝源\n");
-                mockResponse.append("- **炸酱面**：海碗居、老北京炸酱面\n");
-                mockResponse.append("- **豆汁**：护国寺小吃\n\n");
-                
-                mockResponse.append("### 💰 预算估算\n");
-                mockResponse.append("- **交通**：地铁日票20元/人，出租车约200元/天\n");
-                mockResponse.append("- **门票**：故宫60元，长城40元，颐和园30元\n");
-                mockResponse.append("- **餐饮**：150-300元/人/天\n");
-                mockResponse.append("- **住宿**：200-1500元/晚\n");
-                mockResponse.append("- **总计**：约2000-5000元/人（3天）\n\n");
-                
-            } else if (userMessage.contains("上海") || userMessage.contains("shanghai")) {
-                mockResponse.append("## 🌆 上海3日游计划\n\n");
-                mockResponse.append("### 📅 第一天：外滩与南京路\n");
-                mockResponse.append("- **上午**：外滩观景台 → 黄浦江游船\n");
-                mockResponse.append("- **下午**：南京路步行街 → 人民广场\n");
-                mockResponse.append("- **晚上**：豫园 → 城隍庙\n\n");
-                
-                mockResponse.append("### 📅 第二天：迪士尼乐园\n");
-                mockResponse.append("- **全天**：上海迪士尼乐园\n");
-                mockResponse.append("- **推荐项目**：飞跃地平线、创极速光轮、加勒比海盗\n");
-                mockResponse.append("- **晚上**：迪士尼小镇\n\n");
-                
-                mockResponse.append("### 📅 第三天：新天地与田子坊\n");
-                mockResponse.append("- **上午**：新天地（石库门建筑）\n");
-                mockResponse.append("- **下午**：田子坊（文艺小资）\n");
-                mockResponse.append("- **晚上**：陆家嘴夜景\n\n");
-                
-                mockResponse.append("### 🏨 住宿建议\n");
-                mockResponse.append("- **经济型**：如家、汉庭（250-350元/晚）\n");
-                mockResponse.append("- **舒适型**：全季、桔子酒店（500-800元/晚）\n");
-                mockResponse.append("- **豪华型**：外滩茂悦、浦东香格里拉（1000-2000元/晚）\n\n");
-                
-                mockResponse.append("### 🍜 美食推荐\n");
-                mockResponse.append("- **小笼包**：南翔小笼、鼎泰丰\n");
-                mockResponse.append("- **生煎包**：大壶春、小杨生煎\n");
-                mockResponse.append("- **本帮菜**：老正兴、德兴馆\n");
-                mockResponse.append("- **海派西餐**：红房子西菜馆\n\n");
-                
-            } else if (userMessage.contains("杭州") || userMessage.contains("hangzhou")) {
-                mockResponse.append("## 🏞️ 杭州2日游计划\n\n");
-                mockResponse.append("### 📅 第一天：西湖经典游\n");
-                mockResponse.append("- **上午**：断桥残雪 → 白堤 → 苏堤\n");
-                mockResponse.append("- **下午**：三潭印月 → 雷峰塔\n");
-                mockResponse.append("- **晚上**：河坊街 → 南宋御街\n\n");
-                
-                mockResponse.append("### 📅 第二天：灵隐寺与龙井村\n");
-                mockResponse.append("- **上午**：灵隐寺 → 飞来峰\n");
-                mockResponse.append("- **下午**：龙井村 → 九溪十八涧\n");
-                mockResponse.append("- **晚上**：西湖音乐喷泉\n\n");
-                
-                mockResponse.append("### 🏨 住宿建议\n");
-                mockResponse.append("- **西湖边**：杭州西湖国宾馆、西子宾馆\n");
-                mockResponse.append("- **市区**：如家、汉庭（200-400元/晚）\n");
-                mockResponse.append("- **民宿**：西湖边特色民宿（300-800元/晚）\n\n");
-                
-                mockResponse.append("### 🍜 美食推荐\n");
-                mockResponse.append("- **杭帮菜**：楼外楼、知味观\n");
-                mockResponse.append("- **西湖醋鱼**：楼外楼、天外天\n");
-                mockResponse.append("- **龙井虾仁**：知味观、奎元馆\n");
-                mockResponse.append("- **片儿川**：奎元馆、知味观\n\n");
-                
-            } else {
-                // 通用旅游计划
-                mockResponse.append("## 🌍 个性化旅游计划\n\n");
-                mockResponse.append("### 📅 行程安排\n");
-                mockResponse.append("- **第1天**：抵达目的地 → 酒店入住 → 市区观光\n");
-                mockResponse.append("- **第2天**：主要景点游览 → 当地美食体验\n");
-                mockResponse.append("- **第3天**：深度游 → 购物 → 返程\n\n");
-                
-                mockResponse.append("### 🏨 住宿建议\n");
-                mockResponse.append("- **经济型**：连锁酒店（200-400元/晚）\n");
-                mockResponse.append("- **舒适型**：精品酒店（500-800元/晚）\n");
-                mockResponse.append("- **豪华型**：五星级酒店（1000-2000元/晚）\n\n");
-                
-                mockResponse.append("### 🍜 美食推荐\n");
-                mockResponse.append("- **当地特色菜**：体验地道风味\n");
-                mockResponse.append("- **网红餐厅**：打卡热门美食\n");
-                mockResponse.append("- **街头小吃**：感受市井文化\n\n");
-            }
-            
-            mockResponse.append("### 🚗 交通建议\n");
-            mockResponse.append("- **市内交通**：地铁、公交、出租车\n");
-            mockResponse.append("- **城际交通**：高铁、飞机、大巴\n");
-            mockResponse.append("- **租车服务**：适合自由行\n\n");
-            
-            mockResponse.append("### ⚠️ 注意事项\n");
-            mockResponse.append("- **天气**：关注天气预报，准备合适衣物\n");
-            mockResponse.append("- **门票**：提前预订热门景点门票\n");
-            mockResponse.append("- **安全**：保管好贵重物品，注意人身安全\n");
-            mockResponse.append("- **文化**：尊重当地文化习俗\n\n");
-            
-            mockResponse.append("### 💡 贴心提示\n");
-            mockResponse.append("- 建议下载当地地图APP\n");
-            mockResponse.append("- 准备充电宝和移动电源\n");
-            mockResponse.append("- 学习基本当地语言\n");
-            mockResponse.append("- 购买旅游保险\n\n");
-            
-            mockResponse.append("🎉 **祝您旅途愉快！如有其他需求，请随时告诉我！**");
-            
-            return mockResponse.toString();
+            Thread.sleep(MOCK_LATENCY_MS);
+            String plan = buildMockTravelPlan(userMessage, planContext);
+            aiMetrics.stop(sample, AiMetrics.STAGE_GENERATE, AiMetrics.MOCK_MODEL, endpoint, AiMetrics.OUTCOME_SUCCESS);
+            return plan;
             
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
@@ -1562,5 +1735,144 @@ public class AiService {
             return "抱歉，生成旅游计划时发生错误，请稍后再试。";
         }
     }
+
+    /**
+     * 构建模拟旅游计划内容（不含模拟延迟）
+     * 
+     * @param userMessage 用户消息
+     * @param planContext 计划上下文
+     * @return 模拟的旅游计划
+     */
+    String buildMockTravelPlan(String userMessage, String planContext) {
+        StringBuilder mockResponse = new StringBuilder();
+        mockResponse.append("🎯 **智能旅游计划生成**\n\n");
+        
+        // 根据用户消息生成不同的模拟回复
+        if (userMessage.contains("北京") || userMessage.contains("beijing")) {
+            mockResponse.append("## 🏛️ 北京3日游计划\n\n");
+            mockResponse.append("### 📅 第一天：故宫与天安门\n");
+            mockResponse.append("- **上午**：天安门广场 → 故宫博物院（3-4小时）\n");
+            mockResponse.append("- **下午**：景山公园 → 北海公园\n");
+            mockResponse.append("- **晚上**：王府井步行街\n\n");
+            
+            mockResponse.append("### 📅 第二天：长城与颐和园\n");
+            mockResponse.append("- **上午**：八达岭长城（4-5小时）\n");
+            mockResponse.append("- **下午**：颐和园（2-3小时）\n");
+            mockResponse.append("- **晚上**：三里屯或后海\n\n");
+            
+            mockResponse.append("### 📅 第三天：天坛与胡同游\n");
+            mockResponse.append("- **上午**：天坛公园（2小时）\n");
+            mockResponse.append("- **下午**：南锣鼓巷 → 什刹海\n");
+            mockResponse.append("- **晚上**：前门大街\n\n");
+            
+            mockResponse.append("### 🏨 住宿建议\n");
+            mockResponse.append("- **经济型**：如家、汉庭（200-300元/晚）\n");
+            mockResponse.append("- **舒适型**：全季、桔子酒店（400-600元/晚）\n");
+            mockResponse.append("- **豪华型**：北京饭店、王府井希尔顿（800-1500元/晚）\n\n");
+            
+            mockResponse.append("### 🍜 美食推荐\n");
+            mockResponse.append("- **烤鸭**：全聚德、便宜坊\n");
+            mockResponse.append("- **涮羊肉**：东来顺、聚宝源\n");
+            mockResponse.append("- **炸酱面**：海碗居、老北京炸酱面\n");
+            mockResponse.append("- **豆汁**：护国寺小吃\n\n");
+            
+            mockResponse.append("### 💰 预算估算\n");
+            mockResponse.append("- **交通**：地铁日票20元/人，出租车约200元/天\n");
+            mockResponse.append("- **门票**：故宫60元，长城40元，颐和园30元\n");
+            mockResponse.append("- **餐饮**：150-300元/人/天\n");
+            mockResponse.append("- **住宿**：200-1500元/晚\n");
+            mockResponse.append("- **总计**：约2000-5000元/人（3天）\n\n");
+            
+        } else if (userMessage.contains("上海") || userMessage.contains("shanghai")) {
+            mockResponse.append("## 🌆 上海3日游计划\n\n");
+            mockResponse.append("### 📅 第一天：外滩与南京路\n");
+            mockResponse.append("- **上午**：外滩观景台 → 黄浦江游船\n");
+            mockResponse.append("- **下午**：南京路步行街 → 人民广场\n");
+            mockResponse.append("- **晚上**：豫园 → 城隍庙\n\n");
+            
+            mockResponse.append("### 📅 第二天：迪士尼乐园\n");
+            mockResponse.append("- **全天**：上海迪士尼乐园\n");
+            mockResponse.append("- **推荐项目**：飞跃地平线、创极速光轮、加勒比海盗\n");
+            mockResponse.append("- **晚上**：迪士尼小镇\n\n");
+            
+            mockResponse.append("### 📅 第三天：新天地与田子坊\n");
+            mockResponse.append("- **上午**：新天地（石库门建筑）\n");
+            mockResponse.append("- **下午**：田子坊（文艺小资）\n");
+            mockResponse.append("- **晚上**：陆家嘴夜景\n\n");
+            
+            mockResponse.append("### 🏨 住宿建议\n");
+            mockResponse.append("- **经济型**：如家、汉庭（250-350元/晚）\n");
+            mockResponse.append("- **舒适型**：全季、桔子酒店（500-800元/晚）\n");
+            mockResponse.append("- **豪华型**：外滩茂悦、浦东香格里拉（1000-2000元/晚）\n\n");
+            
+            mockResponse.append("### 🍜 美食推荐\n");
+            mockResponse.append("- **小笼包**：南翔小笼、鼎泰丰\n");
+            mockResponse.append("- **生煎包**：大壶春、小杨生煎\n");
+            mockResponse.append("- **本帮菜**：老正兴、德兴馆\n");
+            mockResponse.append("- **海派西餐**：红房子西菜馆\n\n");
+            
+        } else if (userMessage.contains("杭州") || userMessage.contains("hangzhou")) {
+            mockResponse.append("## 🏞️ 杭州2日游计划\n\n");
+            mockResponse.append("### 📅 第一天：西湖经典游\n");
+            mockResponse.append("- **上午**：断桥残雪 → 白堤 → 苏堤\n");
+            mockResponse.append("- **下午**：三潭印月 → 雷峰塔\n");
+            mockResponse.append("- **晚上**：河坊街 → 南宋御街\n\n");
+            
+            mockResponse.append("### 📅 第二天：灵隐寺与龙井村\n");
+            mockResponse.append("- **上午**：灵隐寺 → 飞来峰\n");
+            mockResponse.append("- **下午**：龙井村 → 九溪十八涧\n");
+            mockResponse.append("- **晚上**：西湖音乐喷泉\n\n");
+            
+            mockResponse.append("### 🏨 住宿建议\n");
+            mockResponse.append("- **西湖边**：杭州西湖国宾馆、西子宾馆\n");
+            mockResponse.append("- **市区**：如家、汉庭（200-400元/晚）\n");
+            mockResponse.append("- **民宿**：西湖边特色民宿（300-800元/晚）\n\n");
+            
+            mockResponse.append("### 🍜 美食推荐\n");
+            mockResponse.append("- **杭帮菜**：楼外楼、知味观\n");
+            mockResponse.append("- **西湖醋鱼**：楼外楼、天外天\n");
+            mockResponse.append("- **龙井虾仁**：知味观、奎元馆\n");
+            mockResponse.append("- **片儿川**：奎元馆、知味观\n\n");
+            
+        } else {
+            // 通用旅游计划
+            mockResponse.append("## 🌍 个性化旅游计划\n\n");
+            mockResponse.append("### 📅 行程安排\n");
+            mockResponse.append("- **第1天**：抵达目的地 → 酒店入住 → 市区观光\n");
+            mockResponse.append("- **第2天**：主要景点游览 → 当地美食体验\n");
+            mockResponse.append("- **第3天**：深度游 → 购物 → 返程\n\n");
+            
+            mockResponse.append("### 🏨 住宿建议\n");
+            mockResponse.append("- **经济型**：连锁酒店（200-400元/晚）\n");
+            mockResponse.append("- **舒适型**：精品酒店（500-800元/晚）\n");
+            mockResponse.append("- **豪华型**：五星级酒店（1000-2000元/晚）\n\n");
+            
+            mockResponse.append("### 🍜 美食推荐\n");
+            mockResponse.append("- **当地特色菜**：体验地道风味\n");
+            mockResponse.append("- **网红餐厅**：打卡热门美食\n");
+            mockResponse.append("- **街头小吃**：感受市井文化\n\n");
+        }
+        
+        mockResponse.append("### 🚗 交通建议\n");
+        mockResponse.append("- **市内交通**：地铁、公交、出租车\n");
+        mockResponse.append("- **城际交通**：高铁、飞机、大巴\n");
+        mockResponse.append("- **租车服务**：适合自由行\n\n");
+        
+        mockResponse.append("### ⚠️ 注意事项\n");
+        mockResponse.append("- **天气**：关注天气预报，准备合适衣物\n");
+        mockResponse.append("- **门票**：提前预订热门景点门票\n");
+        mockResponse.append("- **安全**：保管好贵重物品，注意人身安全\n");
+        mockResponse.append("- **文化**：尊重当地文化习俗\n\n");
+        
+        mockResponse.append("### 💡 贴心提示\n");
+        mockResponse.append("- 建议下载当地地图APP\n");
+        mockResponse.append("- 准备充电宝和移动电源\n");
+        mockResponse.append("- 学习基本当地语言\n");
+        mockResponse.append("- 购买旅游保险\n\n");
+        
+        mockResponse.append("🎉 **祝您旅途愉快！如有其他需求，请随时告诉我！**");
+        
+        return mockResponse.toString();
+    }
 }
 
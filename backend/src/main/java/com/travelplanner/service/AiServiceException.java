@@ -0,0 +1,22 @@
+package com.travelplanner.service;
+
+/**
+ * AI服务调用失败
+ * 消息为可直接展示给用户的说明；retryable 表示稍后重试是否可能成功（如限流、服务暂时不可用）
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+public class AiServiceException extends RuntimeException {
+
+    private final boolean retryable;
+
+    public AiServiceException(String message, boolean retryable) {
+        super(message);
+        this.retryable = retryable;
+    }
+
+    public boolean isRetryable() {
+        return retryable;
+    }
+}
@@ -0,0 +1,117 @@
+package com.travelplanner.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * AI预算分析缓存
+ * 按计划缓存AI分析结果，并以预算/支出汇总数据的版本号作为有效性校验，
+ * 汇总数据不变时直接复用上一次的AI分析，避免重复调用大模型
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+@Component
+@Slf4j
+public class BudgetAnalysisCache {
+
+    private final Map<Long, CachedAnalysis> cache = new ConcurrentHashMap<>();
+
+    @Value("${app.budget-analysis.cache-ttl-minutes:30}")
+    private long ttlMinutes;
+
+    /**
+     * 获取缓存的AI分析结果
+     *
+     * @param planId 计划ID
+     * @param version 当前汇总数据版本号
+     * @return 版本一致且未过期时返回分析结果，否则返回null
+     */
+    public String get(Long planId, String version) {
+        CachedAnalysis cached = cache.get(planId);
+        if (cached == null) {
+            return null;
+        }
+        if (!cached.version.equals(version) || cached.isExpired(ttlMinutes)) {
+            cache.remove(planId, cached);
+            return null;
+        }
+        return cached.aiAnalysis;
+    }
+
+    /**
+     * 写入AI分析结果
+     *
+     * @param planId 计划ID
+     * @param version 汇总数据版本号
+     * @param aiAnalysis AI分析结果
+     */
+    public void put(Long planId, String version, String aiAnalysis) {
+        cache.put(planId, new CachedAnalysis(version, aiAnalysis));
+        log.debug("AI预算分析已缓存: planId={}, version={}", planId, version);
+    }
+
+    /**
+     * 使指定计划的缓存失效
+     *
+     * @param planId 计划ID
+     */
+    public void invalidate(Long planId) {
+        if (cache.remove(planId) != null) {
+            log.debug("AI预算分析缓存已失效: planId={}", planId);
+        }
+    }
+
+    /**
+     * 根据预算分析的输入数据计算版本号
+     * 数值统一去除尾随零，类别按名称排序，保证相同输入得到相同版本号
+     *
+     * @param totalBudget 总预算
+     * @param totalExpense 总支出
+     * @param categoryBreakdown 类别支出
+     * @return 版本号
+     */
+    public static String buildVersion(BigDecimal totalBudget, BigDecimal totalExpense, Map<String, ?> categoryBreakdown) {
+        StringBuilder source = new StringBuilder();
+        source.append(normalize(totalBudget)).append('|').append(normalize(totalExpense));
+        if (categoryBreakdown != null) {
+            for (Map.Entry<String, ?> entry : new TreeMap<>(categoryBreakdown).entrySet()) {
+                source.append('|').append(entry.getKey()).append('=').append(normalize(entry.getValue()));
+            }
+        }
+        return DigestUtils.md5DigestAsHex(source.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String normalize(Object value) {
+        if (value instanceof BigDecimal) {
+            return ((BigDecimal) value).stripTrailingZeros().toPlainString();
+        }
+        return String.valueOf(value);
+    }
+
+    /**
+     * 缓存条目
+     */
+    private static final class CachedAnalysis {
+        private final String version;
+        private final String aiAnalysis;
+        private final long createdAt = System.currentTimeMillis();
+
+        private CachedAnalysis(String version, String aiAnalysis) {
+            this.version = version;
+            this.aiAnalysis = aiAnalysis;
+        }
+
+        private boolean isExpired(long ttlMinutes) {
+            return ttlMinutes > 0 && System.currentTimeMillis() - createdAt > ttlMinutes * 60_000L;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.travelplanner.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * 预算分析后台刷新监听器
+ * 费用变更事务提交后预先计算AI预算分析并写入缓存，使预算分析页面加载时无需同步等待大模型。
+ * 监听器本身同步执行，只读取汇总版本并提交任务；大模型调用由 {@link BudgetAnalysisService}
+ * 在 aiTaskExecutor 上异步执行，每次费用变更只占用一个线程池位置
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class BudgetAnalysisRefreshListener {
+
+    private final BudgetAnalysisService budgetAnalysisService;
+
+    @Value("${app.budget-analysis.async-refresh:true}")
+    private boolean asyncRefresh;
+
+    /**
+     * 处理费用变更事件
+     *
+     * @param event 费用变更事件
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onExpenseChanged(ExpenseChangedEvent event) {
+        if (!asyncRefresh || event.getPlanId() == null || event.getUserId() == null) {
+            return;
+        }
+
+        try {
+            log.info("后台刷新AI预算分析: planId={}, userId={}", event.getPlanId(), event.getUserId());
+            budgetAnalysisService.refreshAiAnalysis(event.getPlanId(), event.getUserId());
+        } catch (Exception e) {
+            log.warn("后台刷新AI预算分析失败: planId={}, error={}", event.getPlanId(), e.getMessage());
+        }
+    }
+}
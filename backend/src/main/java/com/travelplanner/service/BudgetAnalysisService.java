@@ -0,0 +1,352 @@
+package com.travelplanner.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 预算分析编排服务
+ * 预算数值与规则化建议在短事务内计算后立即返回；AI分析在事务之外异步生成，
+ * 客户端通过轮询或SSE获取，数据库连接不会在调用大模型期间被占用。
+ * 只缓存成功的分析结果；生成失败后在 failure-ttl-ms 内对同一版本直接返回FAILED，不再重复调用大模型
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+@Service
+@Slf4j
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class BudgetAnalysisService {
+
+    public static final String AI_STATUS_READY = "READY";
+    public static final String AI_STATUS_PENDING = "PENDING";
+    public static final String AI_STATUS_FAILED = "FAILED";
+
+    private final ExpenseService expenseService;
+    private final AiService aiService;
+    private final BudgetAnalysisCache budgetAnalysisCache;
+    private final Executor aiTaskExecutor;
+
+    /**
+     * 正在生成中的AI分析，按计划ID去重，避免并发请求重复调用大模型
+     */
+    private final Map<Long, InFlightAnalysis> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * 最近一次生成失败的记录，按计划ID保存，过期或版本变化后失效
+     */
+    private final Map<Long, FailedAnalysis> failures = new ConcurrentHashMap<>();
+
+    @Value("${app.budget-analysis.sse-timeout-ms:120000}")
+    private long sseTimeoutMs;
+
+    @Value("${app.budget-analysis.failure-ttl-ms:60000}")
+    private long failureTtlMs = 60000;
+
+    public BudgetAnalysisService(ExpenseService expenseService, AiService aiService,
+                                 BudgetAnalysisCache budgetAnalysisCache,
+                                 @Qualifier("aiTaskExecutor") Executor aiTaskExecutor) {
+        this.expenseService = expenseService;
+        this.aiService = aiService;
+        this.budgetAnalysisCache = budgetAnalysisCache;
+        this.aiTaskExecutor = aiTaskExecutor;
+    }
+
+    /**
+     * 获取预算分析
+     * 数值部分立即返回；AI分析命中缓存时一并返回，最近生成失败时标记为FAILED，否则在后台生成并标记为PENDING
+     *
+     * @param planId 计划ID
+     * @param userId 用户ID
+     * @return 预算分析结果
+     */
+    public Map<String, Object> getBudgetAnalysis(Long planId, Long userId) {
+        Map<String, Object> analysis = expenseService.getBudgetAnalysis(planId);
+        resolveAiResult(planId, userId, analysis, analysis);
+        return analysis;
+    }
+
+    /**
+     * 获取AI分析部分（供客户端轮询）
+     *
+     * @param planId 计划ID
+     * @param userId 用户ID
+     * @return AI分析状态与内容
+     */
+    public Map<String, Object> getAiAnalysis(Long planId, Long userId) {
+        Map<String, Object> analysis = expenseService.getBudgetAnalysis(planId);
+        String version = (String) analysis.get("analysisVersion");
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("planId", planId);
+        result.put("analysisVersion", version);
+        resolveAiResult(planId, userId, analysis, result);
+        return result;
+    }
+
+    /**
+     * 订阅AI分析结果（SSE）
+     * 结果就绪后推送一次 ai-analysis 事件并关闭连接
+     *
+     * @param planId 计划ID
+     * @param userId 用户ID
+     * @return SSE发射器
+     */
+    public SseEmitter subscribeAiAnalysis(Long planId, Long userId) {
+        SseEmitter emitter = new SseEmitter(sseTimeoutMs);
+        Map<String, Object> analysis = expenseService.getBudgetAnalysis(planId);
+        String version = (String) analysis.get("analysisVersion");
+
+        String cached = budgetAnalysisCache.get(planId, version);
+        if (cached != null) {
+            Map<String, Object> result = new HashMap<>();
+            result.put("planId", planId);
+            applyAiResult(result, AI_STATUS_READY, cached);
+            sendAndComplete(emitter, result);
+            return emitter;
+        }
+        FailedAnalysis failure = recentFailure(planId, version);
+        if (failure != null) {
+            Map<String, Object> result = new HashMap<>();
+            result.put("planId", planId);
+            applyAiResult(result, AI_STATUS_FAILED, failure.message);
+            sendAndComplete(emitter, result);
+            return emitter;
+        }
+
+        requestAiAnalysis(planId, userId, analysis).whenComplete((aiAnalysis, error) -> {
+            Map<String, Object> result = new HashMap<>();
+            result.put("planId", planId);
+            if (error != null) {
+                applyAiResult(result, AI_STATUS_FAILED, failureMessage(error));
+            } else {
+                applyAiResult(result, AI_STATUS_READY, aiAnalysis);
+            }
+            sendAndComplete(emitter, result);
+        });
+        return emitter;
+    }
+
+    /**
+     * 重新计算并缓存计划的AI预算分析（费用变更后由后台任务调用）
+     *
+     * @param planId 计划ID
+     * @param userId 用户ID
+     */
+    public void refreshAiAnalysis(Long planId, Long userId) {
+        Map<String, Object> analysis;
+        try {
+            analysis = expenseService.getBudgetAnalysis(planId);
+        } catch (IllegalArgumentException e) {
+            log.debug("计划不存在，跳过AI预算分析预计算: planId={}", planId);
+            return;
+        }
+        String version = (String) analysis.get("analysisVersion");
+        if (budgetAnalysisCache.get(planId, version) == null && recentFailure(planId, version) == null) {
+            requestAiAnalysis(planId, userId, analysis);
+        }
+    }
+
+    /**
+     * 获取AI预算优化建议
+     * 预算读取在短事务内完成，AI调用在事务之外执行
+     *
+     * @param planId 计划ID
+     * @param targetSavings 目标节省金额
+     * @return AI优化建议
+     */
+    public Map<String, Object> getBudgetOptimization(Long planId, BigDecimal targetSavings) {
+        BigDecimal currentBudget = expenseService.getPlanBudget(planId);
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("planId", planId);
+        result.put("currentBudget", currentBudget);
+        result.put("targetSavings", targetSavings);
+        result.put("optimizedBudget", currentBudget.subtract(targetSavings));
+
+        try {
+            assertNoTransaction();
+            String aiOptimization = aiService.optimizeBudgetWithAI(planId, currentBudget, targetSavings);
+            result.put("aiOptimization", aiOptimization);
+            result.put("hasAiOptimization", true);
+
+        } catch (Exception e) {
+            log.warn("AI预算优化失败: {}", e.getMessage());
+            result.put("aiOptimization", "AI优化建议暂时不可用，请稍后再试");
+            result.put("hasAiOptimization", false);
+        }
+
+        return result;
+    }
+
+    /**
+     * 按缓存与失败记录设置AI分析状态，都没有时发起生成
+     *
+     * @param analysis 数值分析结果（含 analysisVersion）
+     * @param target 写入AI分析状态的结果
+     */
+    private void resolveAiResult(Long planId, Long userId, Map<String, Object> analysis, Map<String, Object> target) {
+        String version = (String) analysis.get("analysisVersion");
+        String cached = budgetAnalysisCache.get(planId, version);
+        if (cached != null) {
+            applyAiResult(target, AI_STATUS_READY, cached);
+            return;
+        }
+        FailedAnalysis failure = recentFailure(planId, version);
+        if (failure != null) {
+            applyAiResult(target, AI_STATUS_FAILED, failure.message);
+            return;
+        }
+        requestAiAnalysis(planId, userId, analysis);
+        applyAiResult(target, AI_STATUS_PENDING, null);
+    }
+
+    /**
+     * 该版本在 failure-ttl-ms 内的失败记录，没有时为null
+     */
+    private FailedAnalysis recentFailure(Long planId, String version) {
+        FailedAnalysis failure = failures.get(planId);
+        if (failure == null) {
+            return null;
+        }
+        if (!failure.version.equals(version) || failure.expiresAt <= System.currentTimeMillis()) {
+            failures.remove(planId, failure);
+            return null;
+        }
+        return failure;
+    }
+
+    private void recordFailure(Long planId, String version, Throwable error) {
+        failures.put(planId, new FailedAnalysis(version, failureMessage(error), System.currentTimeMillis() + failureTtlMs));
+    }
+
+    /**
+     * 面向用户的失败说明：AiServiceException 的消息可直接展示，其他异常使用默认说明
+     */
+    private static String failureMessage(Throwable error) {
+        return error instanceof AiServiceException ? error.getMessage() : null;
+    }
+
+    /**
+     * 发起（或复用进行中的）AI分析任务
+     */
+    private CompletableFuture<String> requestAiAnalysis(Long planId, Long userId, Map<String, Object> analysis) {
+        String version = (String) analysis.get("analysisVersion");
+        Map<String, Object> budgetData = new HashMap<>();
+        budgetData.put("totalBudget", analysis.get("totalBudget"));
+        budgetData.put("remainingBudget", analysis.get("remainingBudget"));
+
+        Map<String, Object> expenseData = new HashMap<>();
+        expenseData.put("totalExpense", analysis.get("totalExpense"));
+        expenseData.put("budgetUtilization", analysis.get("budgetUtilization"));
+        expenseData.put("categoryBreakdown", analysis.get("categoryBreakdown"));
+
+        InFlightAnalysis task = inFlight.compute(planId, (id, current) ->
+                current != null && current.version.equals(version) ? current : new InFlightAnalysis(version));
+        if (!task.started.compareAndSet(false, true)) {
+            return task.future;
+        }
+        CompletableFuture<String> future = task.future;
+        
+        try {
+            aiTaskExecutor.execute(() -> {
+                try {
+                    assertNoTransaction();
+                    log.info("开始生成AI预算分析: planId={}, version={}", planId, version);
+                    String aiAnalysis = aiService.requestBudgetAnalysis(planId, userId, budgetData, expenseData);
+                    budgetAnalysisCache.put(planId, version, aiAnalysis);
+                    failures.remove(planId);
+                    future.complete(aiAnalysis);
+                } catch (Exception e) {
+                    log.warn("AI预算分析失败: planId={}, error={}", planId, e.getMessage());
+                    recordFailure(planId, version, e);
+                    future.completeExceptionally(e);
+                } finally {
+                    inFlight.remove(planId, task);
+                }
+            });
+        } catch (Exception e) {
+            // 线程池已满时不阻塞请求，在失败记录过期后再重试
+            log.warn("AI预算分析任务提交失败: planId={}, error={}", planId, e.getMessage());
+            recordFailure(planId, version, e);
+            inFlight.remove(planId, task);
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private void applyAiResult(Map<String, Object> target, String status, String aiAnalysis) {
+        target.put("aiStatus", status);
+        if (AI_STATUS_PENDING.equals(status)) {
+            target.put("aiAnalysis", "AI分析正在生成中，请稍候...");
+            target.put("hasAiAnalysis", false);
+        } else if (AI_STATUS_READY.equals(status)) {
+            target.put("aiAnalysis", aiAnalysis);
+            target.put("hasAiAnalysis", true);
+        } else {
+            target.put("aiAnalysis", aiAnalysis != null ? aiAnalysis : "AI分析暂时不可用，请稍后再试");
+            target.put("hasAiAnalysis", false);
+        }
+    }
+
+    private void sendAndComplete(SseEmitter emitter, Map<String, Object> result) {
+        try {
+            emitter.send(SseEmitter.event().name("ai-analysis").data(result));
+            emitter.complete();
+        } catch (IOException | IllegalStateException e) {
+            log.debug("推送AI分析结果失败（客户端可能已断开）: {}", e.getMessage());
+            emitter.completeWithError(e);
+        }
+    }
+
+    /**
+     * 确认当前线程未持有事务（及其数据库连接）
+     */
+    private void assertNoTransaction() {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("AI调用不允许在数据库事务内执行");
+        }
+    }
+
+    /**
+     * 进行中的AI分析任务
+     */
+    private static final class InFlightAnalysis {
+        private final String version;
+        private final CompletableFuture<String> future = new CompletableFuture<>();
+        private final AtomicBoolean started = new AtomicBoolean();
+
+        private InFlightAnalysis(String version) {
+            this.version = version;
+        }
+    }
+
+    /**
+     * 生成失败的记录
+     */
+    private static final class FailedAnalysis {
+        private final String version;
+        private final String message;
+        private final long expiresAt;
+
+        private FailedAnalysis(String version, String message, long expiresAt) {
+            this.version = version;
+            this.message = message;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package com.travelplanner.service;
+
+import com.travelplanner.entity.Conversation;
+import com.travelplanner.entity.ConversationSummary;
+import com.travelplanner.repository.ConversationRepository;
+import com.travelplanner.repository.ConversationSummaryRepository;
+import com.travelplanner.util.TokenEstimator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 多轮对话上下文管理
+ * 生成回复时附带计划的对话上下文：最近若干轮对话原文 + 更早对话的滚动摘要。
+ * 摘要在对话保存后由后台增量更新，每次只把滑出最近窗口、尚未摘要的对话折叠进已有摘要；
+ * 上下文整体受token预算约束，提示词长度不随对话轮数增长
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+@Service
+@Slf4j
+public class ConversationContextService {
+
+    private final ConversationRepository conversationRepository;
+    private final ConversationSummaryRepository summaryRepository;
+    private final AiService aiService;
+    private final TaskExecutor aiTaskExecutor;
+
+    /**
+     * 已排队等待更新摘要的计划，同一计划同时最多排队一次
+     */
+    private final Set<Long> pendingRefresh = ConcurrentHashMap.newKeySet();
+
+    @Value("${app.conversation-context.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${app.conversation-context.recent-turns:4}")
+    private int recentTurns = 4;
+
+    @Value("${app.conversation-context.max-tokens:1500}")
+    private int maxTokens = 1500;
+
+    @Value("${app.conversation-context.reply-max-tokens:300}")
+    private int replyMaxTokens = 300;
+
+    @Value("${app.conversation-context.summary-max-tokens:300}")
+    private int summaryMaxTokens = 300;
+
+    @Value("${app.conversation-context.summarize-batch:10}")
+    private int summarizeBatch = 10;
+
+    public ConversationContextService(ConversationRepository conversationRepository,
+                                      ConversationSummaryRepository summaryRepository,
+                                      AiService aiService,
+                                      @Qualifier("aiTaskExecutor") TaskExecutor aiTaskExecutor) {
+        this.conversationRepository = conversationRepository;
+        this.summaryRepository = summaryRepository;
+        this.aiService = aiService;
+        this.aiTaskExecutor = aiTaskExecutor;
+    }
+
+    /**
+     * 在计划上下文后附加对话上下文
+     *
+     * @param planId 计划ID，为空时原样返回
+     * @param planContext 计划信息
+     * @return 计划信息 + 对话摘要 + 最近对话
+     */
+    public String withHistory(Long planId, String planContext) {
+        String history = buildHistory(planId);
+        if (history.isEmpty()) {
+            return planContext;
+        }
+        return planContext == null || planContext.isEmpty() ? history : planContext + "\n\n" + history;
+    }
+
+    /**
+     * 构建对话上下文，估算token数不超过 app.conversation-context.max-tokens
+     * 先放入摘要，剩余预算由新到旧放入最近对话，放不下的更早对话直接舍弃；
+     * 每轮的AI回复截断到 reply-max-tokens（完整的旅游计划通常有上千token，原文放入会挤掉其他轮次）
+     *
+     * @param planId 计划ID
+     * @return 对话上下文，没有历史对话时为空字符串
+     */
+    public String buildHistory(Long planId) {
+        if (!enabled || planId == null) {
+            return "";
+        }
+        int remaining = maxTokens;
+        StringBuilder context = new StringBuilder();
+
+        ConversationSummary summary = summaryRepository.findById(planId).orElse(null);
+        if (summary != null) {
+            String text = TokenEstimator.truncate(summary.getSummary(), Math.min(summaryMaxTokens, remaining / 2));
+            context.append("此前对话摘要：\n").append(text).append("\n\n");
+            remaining -= TokenEstimator.estimate(context);
+        }
+
+        List<Conversation> recent = conversationRepository.findByPlanIdOrderByCreatedAtDesc(planId,
+                PageRequest.of(0, recentTurns));
+        LinkedList<String> turns = new LinkedList<>();
+        for (Conversation conversation : recent) {
+            String turn = formatTurn(conversation);
+            int tokens = TokenEstimator.estimate(turn);
+            if (tokens > remaining) {
+                if (turns.isEmpty()) {
+                    // 最近一轮总是保留，超出部分截断
+                    turns.addFirst(TokenEstimator.truncate(turn, remaining));
+                }
+                break;
+            }
+            turns.addFirst(turn);
+            remaining -= tokens;
+        }
+        if (!turns.isEmpty()) {
+            context.append("最近对话（由早到晚）：\n");
+            for (String turn : turns) {
+                context.append(turn).append('\n');
+            }
+        }
+        return context.toString().trim();
+    }
+
+    /**
+     * 安排后台更新计划的对话摘要，同一计划已在排队时合并为一次
+     */
+    public void scheduleRefresh(Long planId, Long userId) {
+        if (!enabled || planId == null || !pendingRefresh.add(planId)) {
+            return;
+        }
+        try {
+            aiTaskExecutor.execute(() -> {
+                pendingRefresh.remove(planId);
+                try {
+                    refreshSummary(planId, userId);
+                } catch (ObjectOptimisticLockingFailureException e) {
+                    log.debug("对话摘要已被其他实例更新: planId={}", planId);
+                } catch (Exception e) {
+                    log.warn("更新对话摘要失败: planId={}, error={}", planId, e.getMessage());
+                }
+            });
+        } catch (TaskRejectedException e) {
+            // 后台队列已满：本次跳过，下一次保存对话时重新安排，未折叠的对话不会丢失
+            pendingRefresh.remove(planId);
+            log.debug("后台任务队列已满，跳过对话摘要更新: planId={}", planId);
+        }
+    }
+
+    /**
+     * 把滑出最近窗口且尚未摘要的对话折叠进摘要，每批最多 summarize-batch 轮
+     * 不在事务中执行：模型调用期间不占用数据库连接
+     *
+     * @return 本次折叠的对话轮数
+     */
+    public int refreshSummary(Long planId, Long userId) {
+        List<Conversation> recent = conversationRepository.findByPlanIdOrderByCreatedAtDesc(planId,
+                PageRequest.of(0, recentTurns));
+        if (recent.size() < recentTurns) {
+            return 0;
+        }
+        // 最近窗口内最早一轮的ID，小于它的对话才需要摘要
+        long windowStart = recent.get(recent.size() - 1).getId();
+
+        ConversationSummary summary = summaryRepository.findById(planId).orElse(null);
+        long lastId = summary != null ? summary.getLastConversationId() : 0L;
+        int folded = 0;
+        while (true) {
+            List<Conversation> batch = conversationRepository.findByPlanIdAndIdGreaterThanAndIdLessThanOrderByIdAsc(
+                    planId, lastId, windowStart, PageRequest.of(0, summarizeBatch));
+            if (batch.isEmpty()) {
+                return folded;
+            }
+            String previous = summary != null ? summary.getSummary() : null;
+            String text = aiService.summarizeConversation(userId, buildSummaryPrompt(previous, batch), summaryMaxTokens);
+            if (text == null || text.trim().isEmpty()) {
+                text = localSummary(previous, batch);
+            }
+
+            if (summary == null) {
+                summary = new ConversationSummary();
+                summary.setPlanId(planId);
+                summary.setUserId(userId != null ? userId : batch.get(0).getUserId());
+            }
+            lastId = batch.get(batch.size() - 1).getId();
+            summary.setSummary(TokenEstimator.truncate(text.trim(), summaryMaxTokens));
+            summary.setLastConversationId(lastId);
+            summary.setSummarizedTurns(summary.getSummarizedTurns() + batch.size());
+            summary = summaryRepository.save(summary);
+            folded += batch.size();
+            log.debug("对话摘要已更新: planId={}, 折叠{}轮, 累计{}轮", planId, batch.size(), summary.getSummarizedTurns());
+        }
+    }
+
+    /**
+     * 构建增量摘要提示词：已有摘要 + 新滑出窗口的对话
+     */
+    String buildSummaryPrompt(String previousSummary, List<Conversation> turns) {
+        StringBuilder prompt = new StringBuilder();
+        prompt.append("请把以下旅行规划对话更新为一段简洁的摘要。保留用户已确定的目的地、日期、预算、人数、偏好和已做出的决定，")
+                .append("省略寒暄和行程细节，不超过").append(summaryMaxTokens).append("字，只输出摘要内容。\n\n");
+        if (previousSummary != null && !previousSummary.isEmpty()) {
+            prompt.append("已有摘要：\n").append(previousSummary).append("\n\n");
+        }
+        prompt.append("新增对话：\n");
+        for (Conversation turn : turns) {
+            prompt.append(formatTurn(turn)).append('\n');
+        }
+        return prompt.toString();
+    }
+
+    /**
+     * 模型不可用时的摘要：保留用户在各轮中的原话，超出长度时舍弃最早的内容
+     */
+    String localSummary(String previousSummary, List<Conversation> turns) {
+        List<String> parts = new ArrayList<>();
+        if (previousSummary != null && !previousSummary.isEmpty()) {
+            Collections.addAll(parts, previousSummary.split("\n"));
+        }
+        for (Conversation turn : turns) {
+            if (turn.getUserMessage() != null && !turn.getUserMessage().trim().isEmpty()) {
+                parts.add("用户：" + turn.getUserMessage().trim());
+            }
+        }
+        while (parts.size() > 1 && TokenEstimator.estimate(String.join("\n", parts)) > summaryMaxTokens) {
+            parts.remove(0);
+        }
+        return String.join("\n", parts);
+    }
+
+    private String formatTurn(Conversation conversation) {
+        StringBuilder turn = new StringBuilder();
+        turn.append("用户：").append(conversation.getUserMessage() != null ? conversation.getUserMessage().trim() : "");
+        if (conversation.getAiResponse() != null && !conversation.getAiResponse().trim().isEmpty()) {
+            turn.append("\n助手：").append(TokenEstimator.truncate(conversation.getAiResponse().trim(), replyMaxTokens));
+        }
+        return turn.toString();
+    }
+}
@@ -0,0 +1,28 @@
+package com.travelplanner.service;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+/**
+ * 对话保存事件
+ * 关联计划的对话记录保存后发布，用于在后台更新该计划的对话滚动摘要
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+@Getter
+@ToString
+@RequiredArgsConstructor
+public class ConversationSavedEvent {
+
+    /**
+     * 计划ID
+     */
+    private final Long planId;
+
+    /**
+     * 用户ID
+     */
+    private final Long userId;
+}
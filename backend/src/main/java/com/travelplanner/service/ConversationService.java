@@ -2,8 +2,10 @@ package com.travelplanner.service;
 
 import com.travelplanner.entity.Conversation;
 import com.travelplanner.repository.ConversationRepository;
+import com.travelplanner.repository.ConversationSummaryRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -26,6 +28,8 @@ import java.util.Optional;
 public class ConversationService {
     
     private final ConversationRepository conversationRepository;
+    private final ConversationSummaryRepository conversationSummaryRepository;
+    private final ApplicationEventPublisher eventPublisher;
     
     /**
      * 保存对话记录
@@ -58,6 +62,10 @@ public class ConversationService {
         Conversation savedConversation = conversationRepository.save(conversation);
         log.info("对话记录保存成功: conversationId={}", savedConversation.getId());
         
+        if (planId != null) {
+            eventPublisher.publishEvent(new ConversationSavedEvent(planId, userId));
+        }
+        
         return savedConversation.getId();
     }
     
@@ -202,6 +210,7 @@ public class ConversationService {
     public void deleteByUserId(Long userId) {
         log.info("删除用户的所有对话记录: userId={}", userId);
         conversationRepository.deleteByUserId(userId);
+        conversationSummaryRepository.deleteByUserId(userId);
         log.info("用户对话记录删除成功");
     }
     
@@ -215,6 +224,9 @@ public class ConversationService {
     public void deleteByUserIdAndPlanId(Long userId, Long planId) {
         log.info("删除用户指定计划的对话记录: userId={}, planId={}", userId, planId);
         conversationRepository.deleteByUserIdAndPlanId(userId, planId);
+        conversationSummaryRepository.findById(planId)
+                .filter(summary -> summary.getUserId().equals(userId))
+                .ifPresent(conversationSummaryRepository::delete);
         log.info("用户计划对话记录删除成功");
     }
 }
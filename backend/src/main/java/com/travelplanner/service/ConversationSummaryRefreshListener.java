@@ -0,0 +1,30 @@
+package com.travelplanner.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * 对话摘要后台刷新监听器
+ * 对话记录事务提交后安排后台更新计划的滚动摘要；同一计划的多次保存合并为一次更新，
+ * 摘要生成在 aiTaskExecutor 中执行，不占用请求线程
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+@Component
+@RequiredArgsConstructor
+public class ConversationSummaryRefreshListener {
+
+    private final ConversationContextService conversationContextService;
+
+    /**
+     * 处理对话保存事件
+     *
+     * @param event 对话保存事件
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onConversationSaved(ConversationSavedEvent event) {
+        conversationContextService.scheduleRefresh(event.getPlanId(), event.getUserId());
+    }
+}
@@ -0,0 +1,177 @@
+package com.travelplanner.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.travelplanner.entity.Conversation;
+import com.travelplanner.entity.Expense;
+import com.travelplanner.repository.ConversationRepository;
+import com.travelplanner.repository.ExpenseRepository;
+import com.travelplanner.util.CsvUtils;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * 数据导出服务
+ * 通过只读事务内的数据库游标逐条读取记录并直接写入输出流，
+ * 每条记录写出后即从持久化上下文中分离，内存占用与历史数据量无关
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DataExportService {
+
+    public static final String FORMAT_CSV = "csv";
+    public static final String FORMAT_NDJSON = "ndjson";
+
+    private static final String EXPENSE_CSV_HEADER = "id,planId,expenseDate,category,amount,currency,description,"
+            + "location,paymentMethod,tags,isReimbursable,notes,createdAt";
+
+    private static final String CONVERSATION_CSV_HEADER = "id,planId,createdAt,messageType,userMessage,aiResponse,"
+            + "extractedFields,processingTime";
+
+    /**
+     * 每写出多少条记录刷新一次输出，使客户端尽早收到数据
+     */
+    private static final int FLUSH_INTERVAL = 500;
+
+    private final ExpenseRepository expenseRepository;
+    private final ConversationRepository conversationRepository;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * 校验并规范化导出格式
+     *
+     * @param format 导出格式
+     * @return csv 或 ndjson
+     */
+    public static String normalizeFormat(String format) {
+        String normalized = format == null ? FORMAT_CSV : format.trim().toLowerCase(Locale.ROOT);
+        if (!FORMAT_CSV.equals(normalized) && !FORMAT_NDJSON.equals(normalized)) {
+            throw new IllegalArgumentException("不支持的导出格式: " + format);
+        }
+        return normalized;
+    }
+
+    /**
+     * 导出用户的全部费用记录
+     * CSV表头与批量导入兼容，导出文件可直接重新导入
+     *
+     * @param userId 用户ID
+     * @param format 导出格式（csv/ndjson）
+     * @param outputStream 输出流
+     * @return 导出的记录数
+     * @throws IOException 写出失败时（如客户端断开）
+     */
+    @Transactional(readOnly = true)
+    public long exportExpenses(Long userId, String format, OutputStream outputStream) throws IOException {
+        boolean csv = FORMAT_CSV.equals(normalizeFormat(format));
+        Writer writer = openWriter(outputStream, csv, EXPENSE_CSV_HEADER);
+        long count = 0;
+
+        try (Stream<Expense> expenses = expenseRepository.streamByUserId(userId)) {
+            Iterator<Expense> iterator = expenses.iterator();
+            while (iterator.hasNext()) {
+                Expense expense = iterator.next();
+                if (csv) {
+                    writeCsvLine(writer,
+                            expense.getId(), expense.getPlanId(), expense.getExpenseDate(),
+                            expense.getCategory() != null ? expense.getCategory().name() : null,
+                            expense.getAmount() != null ? expense.getAmount().toPlainString() : null,
+                            expense.getCurrency(), expense.getDescription(), expense.getLocation(),
+                            expense.getPaymentMethod(), expense.getTags(), expense.getIsReimbursable(),
+                            expense.getNotes(), expense.getCreatedAt());
+                } else {
+                    writer.write(objectMapper.writeValueAsString(expense));
+                    writer.write('\n');
+                }
+                entityManager.detach(expense);
+                if (++count % FLUSH_INTERVAL == 0) {
+                    writer.flush();
+                }
+            }
+        }
+
+        writer.flush();
+        log.info("费用记录导出完成: userId={}, format={}, count={}", userId, format, count);
+        return count;
+    }
+
+    /**
+     * 导出用户的对话记录
+     *
+     * @param userId 用户ID
+     * @param planId 计划ID，为null时导出全部
+     * @param format 导出格式（csv/ndjson）
+     * @param outputStream 输出流
+     * @return 导出的记录数
+     * @throws IOException 写出失败时（如客户端断开）
+     */
+    @Transactional(readOnly = true)
+    public long exportConversations(Long userId, Long planId, String format, OutputStream outputStream) throws IOException {
+        boolean csv = FORMAT_CSV.equals(normalizeFormat(format));
+        Writer writer = openWriter(outputStream, csv, CONVERSATION_CSV_HEADER);
+        long count = 0;
+
+        try (Stream<Conversation> conversations = conversationRepository.streamByUserIdAndPlanId(userId, planId)) {
+            Iterator<Conversation> iterator = conversations.iterator();
+            while (iterator.hasNext()) {
+                Conversation conversation = iterator.next();
+                if (csv) {
+                    writeCsvLine(writer,
+                            conversation.getId(), conversation.getPlanId(), conversation.getCreatedAt(),
+                            conversation.getMessageType(), conversation.getUserMessage(),
+                            conversation.getAiResponse(), conversation.getExtractedFields(),
+                            conversation.getProcessingTime());
+                } else {
+                    writer.write(objectMapper.writeValueAsString(conversation));
+                    writer.write('\n');
+                }
+                entityManager.detach(conversation);
+                if (++count % FLUSH_INTERVAL == 0) {
+                    writer.flush();
+                }
+            }
+        }
+
+        writer.flush();
+        log.info("对话记录导出完成: userId={}, planId={}, format={}, count={}", userId, planId, format, count);
+        return count;
+    }
+
+    private Writer openWriter(OutputStream outputStream, boolean csv, String csvHeader) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        if (csv) {
+            // 写入BOM，便于Excel正确识别UTF-8中文
+            writer.write('\uFEFF');
+            writer.write(csvHeader);
+            writer.write('\n');
+        }
+        return writer;
+    }
+
+    private void writeCsvLine(Writer writer, Object... values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(CsvUtils.escape(values[i] == null ? null : values[i].toString()));
+        }
+        writer.write('\n');
+    }
+}
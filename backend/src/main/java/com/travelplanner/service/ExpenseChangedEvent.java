@@ -0,0 +1,28 @@
+package com.travelplanner.service;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+/**
+ * 费用变更事件
+ * 在费用记录创建、更新或删除后发布，用于刷新依赖费用数据的缓存
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+@Getter
+@ToString
+@RequiredArgsConstructor
+public class ExpenseChangedEvent {
+
+    /**
+     * 计划ID
+     */
+    private final Long planId;
+
+    /**
+     * 发生变更的用户ID
+     */
+    private final Long userId;
+}
@@ -0,0 +1,70 @@
+package com.travelplanner.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 费用批量导入结果
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+@Data
+public class ExpenseImportResult {
+
+    /**
+     * 文件格式（csv/json）
+     */
+    private String format;
+
+    /**
+     * 读取到的数据行数
+     */
+    private int totalRows;
+
+    /**
+     * 成功导入的行数
+     */
+    private int importedRows;
+
+    /**
+     * 失败的行数
+     */
+    private int failedRows;
+
+    /**
+     * 行错误明细（超过上限时截断）
+     */
+    private List<RowError> errors = new ArrayList<>();
+
+    /**
+     * 错误明细是否被截断
+     */
+    private boolean errorsTruncated;
+
+    /**
+     * 耗时（毫秒）
+     */
+    private long elapsedMillis;
+
+    /**
+     * 单行导入错误
+     */
+    @Data
+    @AllArgsConstructor
+    public static class RowError {
+
+        /**
+         * 数据行号（从1开始，不含表头）
+         */
+        private int row;
+
+        /**
+         * 错误信息
+         */
+        private String message;
+    }
+}
@@ -0,0 +1,461 @@
+package com.travelplanner.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.travelplanner.entity.Expense;
+import com.travelplanner.entity.TravelPlan;
+import com.travelplanner.repository.TravelPlanRepository;
+import com.travelplanner.util.CsvUtils;
+import com.travelplanner.util.Money;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 费用批量导入服务
+ * 以流式方式逐行解析上传的CSV/JSON文件，不在内存中缓存整个文件；
+ * 计划只校验一次，合法行按批次通过JDBC批量插入，每个批次独立提交，
+ * 非法行记录行号与错误原因后跳过；文件中途无法解析（JSON语法错误、CSV引号未闭合、读取中断）时
+ * 记录为当前行的错误并停止导入，已解析的行仍然写入并返回部分结果
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+@Service
+@Slf4j
+public class ExpenseImportService {
+
+    public static final String FORMAT_CSV = "csv";
+    public static final String FORMAT_JSON = "json";
+
+    private static final String INSERT_SQL = "INSERT INTO expenses (plan_id, user_id, category, amount, currency, "
+            + "description, location, expense_date, payment_method, tags, is_reimbursable, notes, created_at, updated_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final DateTimeFormatter SLASH_DATE = DateTimeFormatter.ofPattern("yyyy/M/d");
+
+    /**
+     * 列名别名（已转小写并去除下划线）到字段名的映射
+     */
+    private static final Map<String, String> COLUMN_ALIASES = new HashMap<>();
+
+    static {
+        alias("expenseDate", "expensedate", "date", "日期");
+        alias("amount", "amount", "金额");
+        alias("category", "category", "类别");
+        alias("currency", "currency", "币种");
+        alias("description", "description", "描述", "说明");
+        alias("location", "location", "地点");
+        alias("paymentMethod", "paymentmethod", "支付方式");
+        alias("tags", "tags", "标签");
+        alias("isReimbursable", "isreimbursable", "reimbursable", "可报销");
+        alias("notes", "notes", "备注");
+    }
+
+    private final TravelPlanRepository travelPlanRepository;
+    private final ExpenseService expenseService;
+    private final FxRateService fxRateService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.expense-import.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.expense-import.max-rows:50000}")
+    private int maxRows;
+
+    @Value("${app.expense-import.max-reported-errors:100}")
+    private int maxReportedErrors;
+
+    public ExpenseImportService(TravelPlanRepository travelPlanRepository, ExpenseService expenseService,
+                                FxRateService fxRateService, JdbcTemplate jdbcTemplate,
+                                PlatformTransactionManager transactionManager, ObjectMapper objectMapper) {
+        this.travelPlanRepository = travelPlanRepository;
+        this.expenseService = expenseService;
+        this.fxRateService = fxRateService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * 导入费用记录
+     *
+     * @param planId 计划ID
+     * @param userId 用户ID
+     * @param file 上传的文件
+     * @param format 文件格式（csv/json），为空时根据文件名和类型判断
+     * @return 导入结果，文件中途解析失败时为已导入部分的结果
+     * @throws IOException 无法打开文件时
+     */
+    public ExpenseImportResult importExpenses(Long planId, Long userId, MultipartFile file, String format) throws IOException {
+        if (file == null || file.isEmpty()) {
+            throw new IllegalArgumentException("导入文件不能为空");
+        }
+
+        // 计划只校验一次
+        TravelPlan plan = travelPlanRepository.findById(planId)
+                .orElseThrow(() -> new IllegalArgumentException("旅游计划不存在"));
+        if (!userId.equals(plan.getUserId())) {
+            throw new IllegalArgumentException("无权向该计划导入费用");
+        }
+
+        String resolvedFormat = resolveFormat(file, format);
+        long start = System.currentTimeMillis();
+        ExpenseImportResult result = new ExpenseImportResult();
+        result.setFormat(resolvedFormat);
+
+        try (InputStream inputStream = file.getInputStream()) {
+            RowSource source = FORMAT_JSON.equals(resolvedFormat)
+                    ? new JsonRowSource(objectMapper.getFactory().createParser(inputStream))
+                    : new CsvRowSource(new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8)));
+            importRows(planId, userId, source, result);
+        } finally {
+            // 已提交的批次无论后续是否出错都要让汇总与分析缓存失效
+            if (result.getImportedRows() > 0) {
+                expenseService.publishExpenseChanged(planId, userId);
+            }
+        }
+
+        result.setElapsedMillis(System.currentTimeMillis() - start);
+        log.info("费用导入完成: planId={}, format={}, total={}, imported={}, failed={}, elapsed={}ms",
+                planId, resolvedFormat, result.getTotalRows(), result.getImportedRows(),
+                result.getFailedRows(), result.getElapsedMillis());
+        return result;
+    }
+
+    private void importRows(Long planId, Long userId, RowSource source, ExpenseImportResult result) {
+        FxRateSnapshot rates = fxRateService.getSnapshot();
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> batch = new ArrayList<>(batchSize);
+        List<Integer> batchRows = new ArrayList<>(batchSize);
+
+        while (true) {
+            Map<String, String> fields;
+            try {
+                fields = source.next();
+            } catch (IOException e) {
+                int row = source.rowNumber() + 1;
+                log.warn("费用导入文件解析失败: planId={}, row={}, error={}", planId, row, e.getMessage());
+                result.setTotalRows(row);
+                addError(result, row, "文件解析失败，其余行未导入: " + e.getMessage());
+                break;
+            }
+            if (fields == null) {
+                break;
+            }
+            int row = source.rowNumber();
+            if (row > maxRows) {
+                addError(result, row, "超过单次导入最大行数 " + maxRows + "，其余行未导入");
+                break;
+            }
+            result.setTotalRows(row);
+            try {
+                batch.add(toInsertParams(planId, userId, fields, rates, now));
+                batchRows.add(row);
+            } catch (IllegalArgumentException e) {
+                addError(result, row, e.getMessage());
+            }
+            if (batch.size() >= batchSize) {
+                flush(batch, batchRows, result);
+            }
+        }
+        flush(batch, batchRows, result);
+    }
+
+    /**
+     * 在独立事务中批量写入一个批次
+     */
+    private void flush(List<Object[]> batch, List<Integer> batchRows, ExpenseImportResult result) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT_SQL, batch));
+            result.setImportedRows(result.getImportedRows() + batch.size());
+        } catch (RuntimeException e) {
+            log.error("费用导入批次写入失败: rows={}-{}, error={}",
+                    batchRows.get(0), batchRows.get(batchRows.size() - 1), e.getMessage());
+            for (Integer row : batchRows) {
+                addError(result, row, "写入数据库失败");
+            }
+        }
+        batch.clear();
+        batchRows.clear();
+    }
+
+    private void addError(ExpenseImportResult result, int row, String message) {
+        result.setFailedRows(result.getFailedRows() + 1);
+        if (result.getErrors().size() < maxReportedErrors) {
+            result.getErrors().add(new ExpenseImportResult.RowError(row, message));
+        } else {
+            result.setErrorsTruncated(true);
+        }
+    }
+
+    /**
+     * 校验单行数据并转换为插入参数
+     *
+     * @throws IllegalArgumentException 数据不合法时
+     */
+    private Object[] toInsertParams(Long planId, Long userId, Map<String, String> fields,
+                                    FxRateSnapshot rates, Timestamp now) {
+        LocalDate expenseDate = parseDate(fields.get("expenseDate"));
+        BigDecimal amount = parseAmount(fields.get("amount"));
+        Expense.ExpenseCategory category = parseCategory(fields.get("category"));
+
+        String currency = StringUtils.hasText(fields.get("currency"))
+                ? fields.get("currency").trim().toUpperCase(Locale.ROOT) : Money.DEFAULT_CURRENCY;
+        if (!rates.supports(currency)) {
+            throw new IllegalArgumentException("不支持的币种: " + currency);
+        }
+
+        return new Object[]{
+                planId,
+                userId,
+                category.name(),
+                amount,
+                currency,
+                limit(fields.get("description"), 500, "描述"),
+                limit(fields.get("location"), 200, "地点"),
+                Date.valueOf(expenseDate),
+                limit(fields.get("paymentMethod"), 50, "支付方式"),
+                limit(fields.get("tags"), 200, "标签"),
+                parseBoolean(fields.get("isReimbursable")),
+                limit(fields.get("notes"), 1000, "备注"),
+                now,
+                now
+        };
+    }
+
+    private LocalDate parseDate(String value) {
+        if (!StringUtils.hasText(value)) {
+            throw new IllegalArgumentException("日期不能为空");
+        }
+        String text = value.trim();
+        try {
+            return text.indexOf('/') >= 0 ? LocalDate.parse(text, SLASH_DATE) : LocalDate.parse(text);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("日期格式错误: " + text);
+        }
+    }
+
+    private BigDecimal parseAmount(String value) {
+        if (!StringUtils.hasText(value)) {
+            throw new IllegalArgumentException("金额不能为空");
+        }
+        BigDecimal amount;
+        try {
+            amount = new BigDecimal(value.trim().replace(",", ""));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("金额格式错误: " + value.trim());
+        }
+        if (amount.signum() <= 0) {
+            throw new IllegalArgumentException("金额必须大于0");
+        }
+        if (amount.scale() > 2 || amount.precision() - amount.scale() > 8) {
+            throw new IllegalArgumentException("金额超出范围或小数位数超过2位: " + value.trim());
+        }
+        return amount;
+    }
+
+    private Expense.ExpenseCategory parseCategory(String value) {
+        if (!StringUtils.hasText(value)) {
+            return Expense.ExpenseCategory.OTHER;
+        }
+        String text = value.trim();
+        for (Expense.ExpenseCategory category : Expense.ExpenseCategory.values()) {
+            if (category.name().equalsIgnoreCase(text) || category.getDisplayName().equals(text)) {
+                return category;
+            }
+        }
+        throw new IllegalArgumentException("未知的费用类别: " + text);
+    }
+
+    private Boolean parseBoolean(String value) {
+        if (!StringUtils.hasText(value)) {
+            return Boolean.FALSE;
+        }
+        String text = value.trim().toLowerCase(Locale.ROOT);
+        return "true".equals(text) || "1".equals(text) || "yes".equals(text) || "是".equals(text);
+    }
+
+    private String limit(String value, int maxLength, String fieldName) {
+        if (value == null) {
+            return null;
+        }
+        if (value.length() > maxLength) {
+            throw new IllegalArgumentException(fieldName + "长度不能超过" + maxLength);
+        }
+        return value;
+    }
+
+    private String resolveFormat(MultipartFile file, String format) {
+        if (StringUtils.hasText(format)) {
+            String normalized = format.trim().toLowerCase(Locale.ROOT);
+            if (!FORMAT_CSV.equals(normalized) && !FORMAT_JSON.equals(normalized)) {
+                throw new IllegalArgumentException("不支持的导入格式: " + format);
+            }
+            return normalized;
+        }
+        String filename = file.getOriginalFilename();
+        String contentType = file.getContentType();
+        if ((filename != null && filename.toLowerCase(Locale.ROOT).endsWith(".json"))
+                || (contentType != null && contentType.contains("json"))) {
+            return FORMAT_JSON;
+        }
+        return FORMAT_CSV;
+    }
+
+    private static void alias(String field, String... names) {
+        for (String name : names) {
+            COLUMN_ALIASES.put(name, field);
+        }
+    }
+
+    private static String resolveColumn(String name) {
+        return name == null ? null : COLUMN_ALIASES.get(name.trim().toLowerCase(Locale.ROOT).replace("_", ""));
+    }
+
+    /**
+     * 逐行读取的数据源
+     */
+    private interface RowSource {
+
+        /**
+         * 读取下一行
+         *
+         * @return 字段名到值的映射，已到末尾时返回null
+         */
+        Map<String, String> next() throws IOException;
+
+        /**
+         * 最近一次读取的行号（从1开始）
+         */
+        int rowNumber();
+    }
+
+    /**
+     * CSV数据源，第一行为表头
+     */
+    private static final class CsvRowSource implements RowSource {
+        private final BufferedReader reader;
+        private String[] columns;
+        private int row;
+
+        private CsvRowSource(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public Map<String, String> next() throws IOException {
+            if (columns == null) {
+                List<String> header = CsvUtils.readRecord(reader);
+                if (header == null) {
+                    return null;
+                }
+                columns = new String[header.size()];
+                for (int i = 0; i < header.size(); i++) {
+                    columns[i] = resolveColumn(header.get(i));
+                }
+            }
+
+            List<String> record;
+            do {
+                record = CsvUtils.readRecord(reader);
+            } while (record != null && record.size() == 1 && record.get(0).trim().isEmpty());
+            if (record == null) {
+                return null;
+            }
+
+            row++;
+            Map<String, String> fields = new HashMap<>();
+            for (int i = 0; i < columns.length && i < record.size(); i++) {
+                if (columns[i] != null && !record.get(i).isEmpty()) {
+                    fields.put(columns[i], record.get(i));
+                }
+            }
+            return fields;
+        }
+
+        @Override
+        public int rowNumber() {
+            return row;
+        }
+    }
+
+    /**
+     * JSON数据源，内容为费用对象数组
+     */
+    private final class JsonRowSource implements RowSource {
+        private final JsonParser parser;
+        private boolean started;
+        private int row;
+
+        private JsonRowSource(JsonParser parser) {
+            this.parser = parser;
+        }
+
+        @Override
+        public Map<String, String> next() throws IOException {
+            if (!started) {
+                started = true;
+                if (parser.nextToken() != JsonToken.START_ARRAY) {
+                    throw new IllegalArgumentException("JSON导入文件必须为费用对象数组");
+                }
+            }
+
+            JsonToken token = parser.nextToken();
+            if (token == null || token == JsonToken.END_ARRAY) {
+                return null;
+            }
+
+            JsonNode node = objectMapper.readTree(parser);
+            row++;
+            Map<String, String> fields = new HashMap<>();
+            if (node != null && node.isObject()) {
+                Iterator<Map.Entry<String, JsonNode>> iterator = node.fields();
+                while (iterator.hasNext()) {
+                    Map.Entry<String, JsonNode> entry = iterator.next();
+                    String field = resolveColumn(entry.getKey());
+                    if (field != null && !entry.getValue().isNull()) {
+                        fields.put(field, entry.getValue().asText());
+                    }
+                }
+            }
+            return fields;
+        }
+
+        @Override
+        public int rowNumber() {
+            return row;
+        }
+    }
+}
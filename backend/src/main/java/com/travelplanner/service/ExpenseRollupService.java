@@ -0,0 +1,398 @@
+package com.travelplanner.service;
+
+import com.travelplanner.entity.TravelPlan;
+import com.travelplanner.repository.ExpenseRepository;
+import com.travelplanner.repository.TravelPlanRepository;
+import com.travelplanner.util.Money;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 费用时间序列汇总服务
+ * 按计划和按用户在内存中保存按日汇总（已按汇率折算）的费用，费用变更提交后失效；
+ * 区间查询在一次遍历中生成按日/周/月的连续有序序列、累计费用与剩余预算
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+@Service
+@Slf4j
+public class ExpenseRollupService {
+
+    public static final String GRANULARITY_DAY = "day";
+    public static final String GRANULARITY_WEEK = "week";
+    public static final String GRANULARITY_MONTH = "month";
+
+    private final ExpenseRepository expenseRepository;
+    private final TravelPlanRepository travelPlanRepository;
+    private final FxRateService fxRateService;
+
+    /**
+     * 按日汇总缓存（LRU）
+     */
+    private final Map<RollupKey, DailyRollup> rollups;
+
+    /**
+     * 失效计数，构建期间发生失效时不缓存构建结果，避免写入过期数据
+     */
+    private final AtomicLong invalidations = new AtomicLong();
+
+    @Value("${app.expense-rollup.max-range-days:3660}")
+    private int maxRangeDays;
+
+    public ExpenseRollupService(ExpenseRepository expenseRepository, TravelPlanRepository travelPlanRepository,
+                                FxRateService fxRateService,
+                                @Value("${app.expense-rollup.max-entries:10000}") int maxEntries) {
+        this.expenseRepository = expenseRepository;
+        this.travelPlanRepository = travelPlanRepository;
+        this.fxRateService = fxRateService;
+        this.rollups = Collections.synchronizedMap(new LinkedHashMap<RollupKey, DailyRollup>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<RollupKey, DailyRollup> eldest) {
+                return size() > maxEntries;
+            }
+        });
+    }
+
+    /**
+     * 获取计划的费用时间序列
+     *
+     * @param planId 计划ID
+     * @param granularity 时间粒度（day/week/month）
+     * @param from 起始日期，为空时使用计划开始日期或最早费用日期
+     * @param to 结束日期，为空时使用计划结束日期或最晚费用日期
+     * @return 时间序列（包含累计费用与剩余预算）
+     */
+    @Transactional(readOnly = true)
+    public ExpenseTimeSeries getPlanSeries(Long planId, String granularity, LocalDate from, LocalDate to) {
+        TravelPlan plan = travelPlanRepository.findById(planId)
+                .orElseThrow(() -> new IllegalArgumentException("旅游计划不存在"));
+        DailyRollup rollup = getRollup(RollupKey.plan(planId));
+
+        LocalDate start = from != null ? from
+                : plan.getStartDate() != null ? plan.getStartDate().toLocalDate() : rollup.firstDate();
+        LocalDate end = to != null ? to
+                : plan.getEndDate() != null ? plan.getEndDate().toLocalDate() : rollup.lastDate();
+        Money budget = Money.of(plan.getBudget(), rollup.currency);
+
+        ExpenseTimeSeries series = buildSeries(rollup, granularity, start, end, budget);
+        series.setPlanId(planId);
+        return series;
+    }
+
+    /**
+     * 获取用户的费用时间序列（所有计划合计）
+     *
+     * @param userId 用户ID
+     * @param granularity 时间粒度（day/week/month）
+     * @param from 起始日期，为空时使用最早费用日期
+     * @param to 结束日期，为空时使用最晚费用日期
+     * @return 时间序列
+     */
+    @Transactional(readOnly = true)
+    public ExpenseTimeSeries getUserSeries(Long userId, String granularity, LocalDate from, LocalDate to) {
+        DailyRollup rollup = getRollup(RollupKey.user(userId));
+
+        ExpenseTimeSeries series = buildSeries(rollup, granularity,
+                from != null ? from : rollup.firstDate(), to != null ? to : rollup.lastDate(), null);
+        series.setUserId(userId);
+        return series;
+    }
+
+    /**
+     * 获取计划有费用的日期及当日费用，按日期升序
+     *
+     * @param planId 计划ID
+     * @return 有序的日期费用Map
+     */
+    @Transactional(readOnly = true)
+    public Map<LocalDate, BigDecimal> getDailyAmounts(Long planId) {
+        DailyRollup rollup = getRollup(RollupKey.plan(planId));
+        Map<LocalDate, BigDecimal> dailyAmounts = new LinkedHashMap<>();
+        for (int i = 0; i < rollup.days.length; i++) {
+            dailyAmounts.put(LocalDate.ofEpochDay(rollup.days[i]), toAmount(rollup.amounts[i], rollup.scale));
+        }
+        return dailyAmounts;
+    }
+
+    /**
+     * 费用变更提交后使相关汇总失效
+     *
+     * @param event 费用变更事件
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onExpenseChanged(ExpenseChangedEvent event) {
+        invalidations.incrementAndGet();
+        if (event.getPlanId() != null) {
+            rollups.remove(RollupKey.plan(event.getPlanId()));
+        }
+        if (event.getUserId() != null) {
+            rollups.remove(RollupKey.user(event.getUserId()));
+        }
+    }
+
+    private DailyRollup getRollup(RollupKey key) {
+        FxRateSnapshot rates = fxRateService.getSnapshot();
+        DailyRollup cached = rollups.get(key);
+        if (cached != null && cached.rates == rates) {
+            return cached;
+        }
+
+        long invalidationsBefore = invalidations.get();
+        List<Object[]> rows = key.plan
+                ? expenseRepository.getAmountByDateAndCurrencyAndPlanId(key.id)
+                : expenseRepository.getAmountByDateAndCurrencyAndUserId(key.id);
+        DailyRollup rollup = DailyRollup.fromGroupedRows(rows, rates);
+        if (!rollup.unconvertedCurrencies.isEmpty()) {
+            log.warn("费用汇总存在无法折算的币种，已排除: key={}, currencies={}", key, rollup.unconvertedCurrencies);
+        }
+
+        if (invalidations.get() == invalidationsBefore) {
+            rollups.put(key, rollup);
+        }
+        return rollup;
+    }
+
+    /**
+     * 一次遍历生成连续的分段序列、累计费用与剩余预算
+     */
+    private ExpenseTimeSeries buildSeries(DailyRollup rollup, String granularity, LocalDate from, LocalDate to, Money budget) {
+        String unit = normalizeGranularity(granularity);
+        LocalDate start = from != null ? from : LocalDate.now();
+        LocalDate end = to != null ? to : start;
+        if (end.isBefore(start)) {
+            throw new IllegalArgumentException("结束日期不能早于起始日期");
+        }
+        if (end.toEpochDay() - start.toEpochDay() >= maxRangeDays) {
+            throw new IllegalArgumentException("查询区间不能超过" + maxRangeDays + "天");
+        }
+
+        List<LocalDate> buckets = new ArrayList<>();
+        List<BigDecimal> amounts = new ArrayList<>();
+        List<BigDecimal> cumulativeAmounts = new ArrayList<>();
+        List<BigDecimal> remaining = budget != null ? new ArrayList<BigDecimal>() : null;
+
+        long startDay = start.toEpochDay();
+        long endDay = end.toEpochDay();
+        int index = rollup.indexFrom(startDay);
+        long cumulative = rollup.sumBefore(startDay);
+        long total = 0L;
+        LocalDate bucketStart = null;
+        long bucketAmount = 0L;
+
+        for (long day = startDay; day <= endDay; day++) {
+            LocalDate date = LocalDate.ofEpochDay(day);
+            LocalDate aligned = align(date, unit);
+            if (!aligned.equals(bucketStart)) {
+                if (bucketStart != null) {
+                    appendBucket(buckets, amounts, cumulativeAmounts, remaining, bucketStart, bucketAmount, cumulative, budget, rollup.scale);
+                }
+                bucketStart = aligned;
+                bucketAmount = 0L;
+            }
+            if (index < rollup.days.length && rollup.days[index] == day) {
+                long amount = rollup.amounts[index++];
+                bucketAmount += amount;
+                cumulative += amount;
+                total += amount;
+            }
+        }
+        appendBucket(buckets, amounts, cumulativeAmounts, remaining, bucketStart, bucketAmount, cumulative, budget, rollup.scale);
+
+        ExpenseTimeSeries series = new ExpenseTimeSeries();
+        series.setGranularity(unit);
+        series.setCurrency(rollup.currency);
+        series.setFrom(start);
+        series.setTo(end);
+        series.setBuckets(buckets);
+        series.setAmounts(amounts);
+        series.setCumulative(cumulativeAmounts);
+        series.setTotal(toAmount(total, rollup.scale));
+        series.setUnconvertedCurrencies(rollup.unconvertedCurrencies);
+        if (budget != null) {
+            series.setBudget(budget.toBigDecimal());
+            series.setRemaining(remaining);
+        }
+        return series;
+    }
+
+    private void appendBucket(List<LocalDate> buckets, List<BigDecimal> amounts, List<BigDecimal> cumulativeAmounts,
+                              List<BigDecimal> remaining, LocalDate bucketStart, long bucketAmount, long cumulative,
+                              Money budget, int scale) {
+        buckets.add(bucketStart);
+        amounts.add(toAmount(bucketAmount, scale));
+        cumulativeAmounts.add(toAmount(cumulative, scale));
+        if (remaining != null) {
+            remaining.add(toAmount(budget.getMinorUnits() - cumulative, scale));
+        }
+    }
+
+    private static BigDecimal toAmount(long minorUnits, int scale) {
+        return BigDecimal.valueOf(minorUnits, scale);
+    }
+
+    private static LocalDate align(LocalDate date, String granularity) {
+        if (GRANULARITY_WEEK.equals(granularity)) {
+            return date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        }
+        if (GRANULARITY_MONTH.equals(granularity)) {
+            return date.withDayOfMonth(1);
+        }
+        return date;
+    }
+
+    private static String normalizeGranularity(String granularity) {
+        String normalized = granularity == null ? GRANULARITY_DAY : granularity.trim().toLowerCase(Locale.ROOT);
+        if (!GRANULARITY_DAY.equals(normalized) && !GRANULARITY_WEEK.equals(normalized)
+                && !GRANULARITY_MONTH.equals(normalized)) {
+            throw new IllegalArgumentException("不支持的时间粒度: " + granularity);
+        }
+        return normalized;
+    }
+
+    /**
+     * 汇总键（计划或用户）
+     */
+    private static final class RollupKey {
+        private final boolean plan;
+        private final Long id;
+
+        private RollupKey(boolean plan, Long id) {
+            this.plan = plan;
+            this.id = id;
+        }
+
+        private static RollupKey plan(Long planId) {
+            return new RollupKey(true, planId);
+        }
+
+        private static RollupKey user(Long userId) {
+            return new RollupKey(false, userId);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof RollupKey)) {
+                return false;
+            }
+            RollupKey other = (RollupKey) o;
+            return plan == other.plan && id.equals(other.id);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(plan, id);
+        }
+
+        @Override
+        public String toString() {
+            return (plan ? "plan:" : "user:") + id;
+        }
+    }
+
+    /**
+     * 按日汇总（不可变），仅保存有费用的日期，按日期升序排列
+     */
+    static final class DailyRollup {
+        private final FxRateSnapshot rates;
+        private final String currency;
+        private final int scale;
+        private final long[] days;
+        private final long[] amounts;
+        private final long[] prefixSums;
+        private final Set<String> unconvertedCurrencies;
+
+        private DailyRollup(FxRateSnapshot rates, long[] days, long[] amounts, Set<String> unconvertedCurrencies) {
+            this.rates = rates;
+            this.currency = rates.getBaseCurrency();
+            this.scale = Money.zero(currency).getScale();
+            this.days = days;
+            this.amounts = amounts;
+            this.prefixSums = new long[amounts.length];
+            long sum = 0L;
+            for (int i = 0; i < amounts.length; i++) {
+                sum += amounts[i];
+                prefixSums[i] = sum;
+            }
+            this.unconvertedCurrencies = Collections.unmodifiableSet(unconvertedCurrencies);
+        }
+
+        /**
+         * 由分组统计行构建
+         *
+         * @param rows 分组统计行：[日期, 币种, 金额]
+         * @param rates 汇率快照
+         * @return 按日汇总
+         */
+        static DailyRollup fromGroupedRows(Iterable<Object[]> rows, FxRateSnapshot rates) {
+            TreeMap<Long, Long> byDay = new TreeMap<>();
+            Set<String> unconverted = new TreeSet<>();
+            for (Object[] row : rows) {
+                LocalDate date = (LocalDate) row[0];
+                String currency = (String) row[1];
+                Money converted = rates.toBase((BigDecimal) row[2], currency, date);
+                if (converted == null) {
+                    unconverted.add(currency);
+                    continue;
+                }
+                byDay.merge(date.toEpochDay(), converted.getMinorUnits(), Math::addExact);
+            }
+
+            long[] days = new long[byDay.size()];
+            long[] amounts = new long[byDay.size()];
+            int i = 0;
+            for (Map.Entry<Long, Long> entry : byDay.entrySet()) {
+                days[i] = entry.getKey();
+                amounts[i++] = entry.getValue();
+            }
+            return new DailyRollup(rates, days, amounts, unconverted);
+        }
+
+        /**
+         * 第一个不早于指定日期的下标
+         */
+        int indexFrom(long epochDay) {
+            int index = Arrays.binarySearch(days, epochDay);
+            return index >= 0 ? index : -index - 1;
+        }
+
+        /**
+         * 指定日期之前（不含）的费用合计
+         */
+        long sumBefore(long epochDay) {
+            int index = indexFrom(epochDay);
+            return index == 0 ? 0L : prefixSums[index - 1];
+        }
+
+        LocalDate firstDate() {
+            return days.length == 0 ? null : LocalDate.ofEpochDay(days[0]);
+        }
+
+        LocalDate lastDate() {
+            return days.length == 0 ? null : LocalDate.ofEpochDay(days[days.length - 1]);
+        }
+    }
+}
@@ -4,8 +4,10 @@ import com.travelplanner.entity.Expense;
 import com.travelplanner.entity.TravelPlan;
 import com.travelplanner.repository.ExpenseRepository;
 import com.travelplanner.repository.TravelPlanRepository;
+import com.travelplanner.util.Money;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -29,7 +31,10 @@ public class ExpenseService {
     
     private final ExpenseRepository expenseRepository;
     private final TravelPlanRepository travelPlanRepository;
-    private final AiService aiService;
+    private final BudgetAnalysisCache budgetAnalysisCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final FxRateService fxRateService;
+    private final ExpenseRollupService expenseRollupService;
     
     /**
      * 创建费用记录
@@ -41,14 +46,15 @@ public class ExpenseService {
         log.info("创建费用记录: planId={}, amount={}, category={}", 
                 expense.getPlanId(), expense.getAmount(), expense.getCategory());
         
-        // 验证计划是否存在
-        if (!travelPlanRepository.existsById(expense.getPlanId())) {
+        // 验证计划是否存在（按ID加载可命中二级缓存，existsById 每次都会执行count查询）
+        if (!travelPlanRepository.findById(expense.getPlanId()).isPresent()) {
             throw new IllegalArgumentException("旅游计划不存在");
         }
         
         Expense savedExpense = expenseRepository.save(expense);
         log.info("费用记录创建成功: expenseId={}", savedExpense.getId());
         
+        publishExpenseChanged(savedExpense);
         return savedExpense;
     }
     
@@ -81,6 +87,7 @@ public class ExpenseService {
         Expense updatedExpense = expenseRepository.save(existingExpense);
         log.info("费用记录更新成功: expenseId={}", updatedExpense.getId());
         
+        publishExpenseChanged(updatedExpense);
         return updatedExpense;
     }
     
@@ -92,12 +99,28 @@ public class ExpenseService {
     public void deleteExpense(Long expenseId) {
         log.info("删除费用记录: expenseId={}", expenseId);
         
-        if (!expenseRepository.existsById(expenseId)) {
-            throw new IllegalArgumentException("费用记录不存在");
-        }
+        Expense existingExpense = expenseRepository.findById(expenseId)
+                .orElseThrow(() -> new IllegalArgumentException("费用记录不存在"));
         
-        expenseRepository.deleteById(expenseId);
+        expenseRepository.delete(existingExpense);
         log.info("费用记录删除成功: expenseId={}", expenseId);
+        
+        publishExpenseChanged(existingExpense);
+    }
+    
+    /**
+     * 使计划的AI预算分析缓存失效并发布费用变更事件
+     * 
+     * @param planId 计划ID
+     * @param userId 发生变更的用户ID
+     */
+    public void publishExpenseChanged(Long planId, Long userId) {
+        budgetAnalysisCache.invalidate(planId);
+        eventPublisher.publishEvent(new ExpenseChangedEvent(planId, userId));
+    }
+    
+    private void publishExpenseChanged(Expense expense) {
+        publishExpenseChanged(expense.getPlanId(), expense.getUserId());
     }
     
     /**
@@ -183,7 +206,24 @@ public class ExpenseService {
      */
     @Transactional(readOnly = true)
     public BigDecimal getTotalAmountByPlanId(Long planId) {
-        return expenseRepository.getTotalAmountByPlanId(planId);
+        return summarizePlanExpenses(planId).getTotal().toBigDecimal();
+    }
+    
+    /**
+     * 汇总计划费用（按汇率折算为基准币种）
+     * 按类别、币种和日期分组查询后一次遍历得到总额与类别金额
+     * 
+     * @param planId 计划ID
+     * @return 费用汇总
+     */
+    @Transactional(readOnly = true)
+    public ExpenseSummary summarizePlanExpenses(Long planId) {
+        List<Object[]> results = expenseRepository.getAmountByCategoryCurrencyAndDateAndPlanId(planId);
+        ExpenseSummary summary = ExpenseSummary.fromGroupedRows(results, fxRateService.getSnapshot());
+        if (!summary.getUnconvertedCurrencies().isEmpty()) {
+            log.warn("计划存在无法折算的币种，已从汇总中排除: planId={}, currencies={}", planId, summary.getUnconvertedCurrencies());
+        }
+        return summary;
     }
     
     /**
@@ -194,13 +234,10 @@ public class ExpenseService {
      */
     @Transactional(readOnly = true)
     public Map<Expense.ExpenseCategory, BigDecimal> getAmountByCategoryAndPlanId(Long planId) {
-        List<Object[]> results = expenseRepository.getAmountByCategoryAndPlanId(planId);
         Map<Expense.ExpenseCategory, BigDecimal> categoryAmounts = new HashMap<>();
         
-        for (Object[] result : results) {
-            Expense.ExpenseCategory category = (Expense.ExpenseCategory) result[0];
-            BigDecimal amount = (BigDecimal) result[1];
-            categoryAmounts.put(category, amount);
+        for (Map.Entry<Expense.ExpenseCategory, Money> entry : summarizePlanExpenses(planId).getByCategory().entrySet()) {
+            categoryAmounts.put(entry.getKey(), entry.getValue().toBigDecimal());
         }
         
         return categoryAmounts;
@@ -234,134 +271,84 @@ public class ExpenseService {
      */
     @Transactional(readOnly = true)
     public Map<LocalDate, BigDecimal> getAmountByDateAndPlanId(Long planId) {
-        List<Object[]> results = expenseRepository.getAmountByDateAndPlanId(planId);
-        Map<LocalDate, BigDecimal> dateAmounts = new HashMap<>();
-        
-        for (Object[] result : results) {
-            LocalDate date = (LocalDate) result[0];
-            BigDecimal amount = (BigDecimal) result[1];
-            dateAmounts.put(date, amount);
-        }
-        
-        return dateAmounts;
+        // 按日期升序，金额已按汇率折算
+        return expenseRollupService.getDailyAmounts(planId);
     }
     
     /**
-     * 获取计划的预算分析
+     * 获取计划的预算分析（数值与规则化建议）
+     * AI分析由 {@link BudgetAnalysisService} 在事务之外补充
      * 
      * @param planId 计划ID
-     * @param userId 用户ID
      * @return 预算分析结果
      */
     @Transactional(readOnly = true)
-    public Map<String, Object> getBudgetAnalysis(Long planId, Long userId) {
-        Optional<TravelPlan> planOpt = travelPlanRepository.findById(planId);
-        if (!planOpt.isPresent()) {
-            throw new IllegalArgumentException("旅游计划不存在");
-        }
-        
-        TravelPlan plan = planOpt.get();
-        log.info("获取预算分析 - 计划ID: {}, 计划预算: {}", planId, plan.getBudget());
-        BigDecimal totalBudget = plan.getBudget() != null ? BigDecimal.valueOf(plan.getBudget().doubleValue()) : BigDecimal.ZERO;
-        BigDecimal totalExpense = getTotalAmountByPlanId(planId);
-        log.info("预算分析 - 总预算: {}, 总支出: {}", totalBudget, totalExpense);
-        Map<Expense.ExpenseCategory, BigDecimal> categoryAmounts = getAmountByCategoryAndPlanId(planId);
+    public Map<String, Object> getBudgetAnalysis(Long planId) {
+        // 汇总计算统一使用最小货币单位（已折算为基准币种），仅在结果中转换为BigDecimal
+        ExpenseSummary summary = summarizePlanExpenses(planId);
+        Money totalExpense = summary.getTotal();
+        Money totalBudget = Money.of(getPlanBudget(planId), totalExpense.getCurrency());
+        log.info("预算分析 - 计划ID: {}, 总预算: {}, 总支出: {}", planId, totalBudget, totalExpense);
         
         // 将枚举键转换为字符串键，确保JSON序列化正确
         Map<String, Object> categoryBreakdown = new HashMap<>();
-        for (Map.Entry<Expense.ExpenseCategory, BigDecimal> entry : categoryAmounts.entrySet()) {
-            categoryBreakdown.put(entry.getKey().getDisplayName(), entry.getValue());
+        Map<Expense.ExpenseCategory, Money> categoryMoney = summary.getByCategory();
+        for (Map.Entry<Expense.ExpenseCategory, Money> entry : categoryMoney.entrySet()) {
+            categoryBreakdown.put(entry.getKey().getDisplayName(), entry.getValue().toBigDecimal());
         }
         
+        long utilizationBasisPoints = totalExpense.basisPointsOf(totalBudget);
+        
         Map<String, Object> analysis = new HashMap<>();
         analysis.put("planId", planId);
-        analysis.put("totalBudget", totalBudget);
-        analysis.put("totalExpense", totalExpense);
-        analysis.put("remainingBudget", totalBudget.subtract(totalExpense));
-        analysis.put("budgetUtilization", totalBudget.compareTo(BigDecimal.ZERO) > 0 ? 
-                totalExpense.divide(totalBudget, 4, BigDecimal.ROUND_HALF_UP).multiply(new BigDecimal("100")) : BigDecimal.ZERO);
+        analysis.put("currency", totalExpense.getCurrency());
+        analysis.put("unconvertedCurrencies", summary.getUnconvertedCurrencies());
+        analysis.put("totalBudget", totalBudget.toBigDecimal());
+        analysis.put("totalExpense", totalExpense.toBigDecimal());
+        analysis.put("remainingBudget", totalBudget.minus(totalExpense).toBigDecimal());
+        analysis.put("budgetUtilization", Money.toPercent(utilizationBasisPoints));
         analysis.put("categoryBreakdown", categoryBreakdown);
+        analysis.put("analysisVersion", BudgetAnalysisCache.buildVersion(
+                totalBudget.toBigDecimal(), totalExpense.toBigDecimal(), categoryBreakdown));
         
         // 基础预算建议（规则化）
         List<String> basicSuggestions = new ArrayList<>();
         if (totalExpense.compareTo(totalBudget) > 0) {
             basicSuggestions.add("当前支出已超过预算，建议控制后续支出");
-        } else if (totalExpense.divide(totalBudget, 4, BigDecimal.ROUND_HALF_UP).multiply(new BigDecimal("100")).compareTo(new BigDecimal("80")) > 0) {
+        } else if (utilizationBasisPoints > 8000) {
             basicSuggestions.add("当前支出已超过预算的80%，建议谨慎控制支出");
         }
         
         // 按类别分析
-        for (Map.Entry<Expense.ExpenseCategory, BigDecimal> entry : categoryAmounts.entrySet()) {
-            BigDecimal categoryAmount = entry.getValue();
-            BigDecimal categoryPercentage = totalExpense.compareTo(BigDecimal.ZERO) > 0 ? 
-                    categoryAmount.divide(totalExpense, 4, BigDecimal.ROUND_HALF_UP).multiply(new BigDecimal("100")) : BigDecimal.ZERO;
-            
-            if (categoryPercentage.compareTo(new BigDecimal("50")) > 0) {
+        for (Map.Entry<Expense.ExpenseCategory, Money> entry : categoryMoney.entrySet()) {
+            if (entry.getValue().basisPointsOf(totalExpense) > 5000) {
                 basicSuggestions.add(entry.getKey().getDisplayName() + "支出占比过高，建议适当控制");
             }
         }
         
-        analysis.put("basicSuggestions", basicSuggestions);
-        
-        // AI智能分析
-        try {
-            Map<String, Object> budgetData = new HashMap<>();
-            budgetData.put("totalBudget", totalBudget);
-            budgetData.put("remainingBudget", totalBudget.subtract(totalExpense));
-            
-            Map<String, Object> expenseData = new HashMap<>();
-            expenseData.put("totalExpense", totalExpense);
-            expenseData.put("budgetUtilization", totalBudget.compareTo(BigDecimal.ZERO) > 0 ? 
-                    totalExpense.divide(totalBudget, 4, BigDecimal.ROUND_HALF_UP).multiply(new BigDecimal("100")) : BigDecimal.ZERO);
-            expenseData.put("categoryBreakdown", categoryBreakdown);
-            
-            String aiAnalysis = aiService.analyzeBudgetWithAI(planId, userId, budgetData, expenseData);
-            analysis.put("aiAnalysis", aiAnalysis);
-            analysis.put("hasAiAnalysis", true);
-            
-        } catch (Exception e) {
-            log.warn("AI预算分析失败，使用基础分析: {}", e.getMessage());
-            analysis.put("aiAnalysis", "AI分析暂时不可用，请稍后再试");
-            analysis.put("hasAiAnalysis", false);
+        if (!summary.getUnconvertedCurrencies().isEmpty()) {
+            basicSuggestions.add("部分费用的币种（" + String.join("、", summary.getUnconvertedCurrencies()) + "）暂不支持汇率折算，未计入统计");
         }
         
+        analysis.put("basicSuggestions", basicSuggestions);
+        
         return analysis;
     }
     
     /**
-     * 获取AI预算优化建议
+     * 获取计划预算
      * 
      * @param planId 计划ID
-     * @param targetSavings 目标节省金额
-     * @return AI优化建议
+     * @return 计划预算，未设置时为0
      */
     @Transactional(readOnly = true)
-    public Map<String, Object> getBudgetOptimization(Long planId, BigDecimal targetSavings) {
+    public BigDecimal getPlanBudget(Long planId) {
         Optional<TravelPlan> planOpt = travelPlanRepository.findById(planId);
         if (!planOpt.isPresent()) {
             throw new IllegalArgumentException("旅游计划不存在");
         }
         
         TravelPlan plan = planOpt.get();
-        BigDecimal currentBudget = plan.getBudget() != null ? BigDecimal.valueOf(plan.getBudget().doubleValue()) : BigDecimal.ZERO;
-        
-        Map<String, Object> result = new HashMap<>();
-        result.put("planId", planId);
-        result.put("currentBudget", currentBudget);
-        result.put("targetSavings", targetSavings);
-        result.put("optimizedBudget", currentBudget.subtract(targetSavings));
-        
-        try {
-            String aiOptimization = aiService.optimizeBudgetWithAI(planId, currentBudget, targetSavings);
-            result.put("aiOptimization", aiOptimization);
-            result.put("hasAiOptimization", true);
-            
-        } catch (Exception e) {
-            log.warn("AI预算优化失败: {}", e.getMessage());
-            result.put("aiOptimization", "AI优化建议暂时不可用，请稍后再试");
-            result.put("hasAiOptimization", false);
-        }
-        
-        return result;
+        return Money.of(plan.getBudget(), Money.DEFAULT_CURRENCY).toBigDecimal();
     }
 }
@@ -0,0 +1,81 @@
+package com.travelplanner.service;
+
+import com.travelplanner.entity.Expense;
+import com.travelplanner.util.Money;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * 费用汇总结果
+ * 总额与各类别金额均已按汇率折算为基准币种；无法折算的币种不计入汇总并单独列出
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+public final class ExpenseSummary {
+
+    private final Money total;
+    private final Map<Expense.ExpenseCategory, Money> byCategory;
+    private final Set<String> unconvertedCurrencies;
+
+    private ExpenseSummary(Money total, Map<Expense.ExpenseCategory, Money> byCategory, Set<String> unconvertedCurrencies) {
+        this.total = total;
+        this.byCategory = Collections.unmodifiableMap(byCategory);
+        this.unconvertedCurrencies = Collections.unmodifiableSet(unconvertedCurrencies);
+    }
+
+    /**
+     * 由分组统计行一次遍历计算汇总
+     *
+     * @param rows 分组统计行：[类别, 币种, 日期, 金额]
+     * @param rates 汇率快照
+     * @return 汇总结果
+     */
+    static ExpenseSummary fromGroupedRows(Iterable<Object[]> rows, FxRateSnapshot rates) {
+        String base = rates.getBaseCurrency();
+        long[] categoryMinorUnits = new long[Expense.ExpenseCategory.values().length];
+        boolean[] present = new boolean[categoryMinorUnits.length];
+        long totalMinorUnits = 0L;
+        Set<String> unconverted = new TreeSet<>();
+
+        for (Object[] row : rows) {
+            Expense.ExpenseCategory category = (Expense.ExpenseCategory) row[0];
+            String currency = (String) row[1];
+            LocalDate date = (LocalDate) row[2];
+            Money converted = rates.toBase((BigDecimal) row[3], currency, date);
+            if (converted == null) {
+                unconverted.add(currency);
+                continue;
+            }
+            totalMinorUnits = Math.addExact(totalMinorUnits, converted.getMinorUnits());
+            categoryMinorUnits[category.ordinal()] = Math.addExact(categoryMinorUnits[category.ordinal()], converted.getMinorUnits());
+            present[category.ordinal()] = true;
+        }
+
+        Map<Expense.ExpenseCategory, Money> byCategory = new EnumMap<>(Expense.ExpenseCategory.class);
+        for (Expense.ExpenseCategory category : Expense.ExpenseCategory.values()) {
+            if (present[category.ordinal()]) {
+                byCategory.put(category, Money.ofMinor(categoryMinorUnits[category.ordinal()], base));
+            }
+        }
+        return new ExpenseSummary(Money.ofMinor(totalMinorUnits, base), byCategory, unconverted);
+    }
+
+    public Money getTotal() {
+        return total;
+    }
+
+    public Map<Expense.ExpenseCategory, Money> getByCategory() {
+        return byCategory;
+    }
+
+    public Set<String> getUnconvertedCurrencies() {
+        return unconvertedCurrencies;
+    }
+}
@@ -0,0 +1,84 @@
+package com.travelplanner.service;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 费用时间序列
+ * 各列表按时间升序排列且等长，无费用的时间段金额为0
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+@Data
+public class ExpenseTimeSeries {
+
+    /**
+     * 计划ID（按计划汇总时）
+     */
+    private Long planId;
+
+    /**
+     * 用户ID（按用户汇总时）
+     */
+    private Long userId;
+
+    /**
+     * 时间粒度（day/week/month）
+     */
+    private String granularity;
+
+    /**
+     * 金额币种（已按汇率折算）
+     */
+    private String currency;
+
+    /**
+     * 起始日期（含）
+     */
+    private LocalDate from;
+
+    /**
+     * 结束日期（含）
+     */
+    private LocalDate to;
+
+    /**
+     * 各时间段的起始日期
+     */
+    private List<LocalDate> buckets;
+
+    /**
+     * 各时间段的费用
+     */
+    private List<BigDecimal> amounts;
+
+    /**
+     * 截至各时间段末的累计费用（包含起始日期之前的费用）
+     */
+    private List<BigDecimal> cumulative;
+
+    /**
+     * 区间内费用合计
+     */
+    private BigDecimal total;
+
+    /**
+     * 无法按汇率折算、未计入统计的币种
+     */
+    private Set<String> unconvertedCurrencies;
+
+    /**
+     * 计划预算（仅按计划汇总时）
+     */
+    private BigDecimal budget;
+
+    /**
+     * 截至各时间段末的剩余预算（仅按计划汇总时）
+     */
+    private List<BigDecimal> remaining;
+}
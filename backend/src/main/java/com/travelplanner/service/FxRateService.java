@@ -0,0 +1,81 @@
+package com.travelplanner.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 汇率服务
+ * 从本地汇率表（classpath或文件）加载汇率，生成不可变快照并原子替换；
+ * 加载失败时保留上一份快照
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class FxRateService {
+
+    private final ResourceLoader resourceLoader;
+
+    private final AtomicReference<FxRateSnapshot> snapshot = new AtomicReference<>();
+
+    @Value("${app.fx.rates-location:classpath:fx/rates.csv}")
+    private String ratesLocation;
+
+    @Value("${app.fx.base-currency:CNY}")
+    private String baseCurrency;
+
+    @PostConstruct
+    public void init() {
+        snapshot.set(FxRateSnapshot.empty(baseCurrency));
+        refresh();
+    }
+
+    /**
+     * 重新加载汇率表
+     *
+     * @return 是否加载成功
+     */
+    @Scheduled(fixedDelayString = "${app.fx.refresh-interval-ms:3600000}",
+               initialDelayString = "${app.fx.refresh-interval-ms:3600000}")
+    public boolean refresh() {
+        Resource resource = resourceLoader.getResource(ratesLocation);
+        if (!resource.exists()) {
+            log.warn("汇率表不存在: {}，仅支持基准币种 {}", ratesLocation, baseCurrency);
+            return false;
+        }
+
+        try (Reader reader = new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8)) {
+            FxRateSnapshot loaded = FxRateSnapshot.parse(reader, baseCurrency);
+            snapshot.set(loaded);
+            log.info("汇率表已加载: location={}, 币种数={}, 最新生效日期={}",
+                    ratesLocation, loaded.getCurrencies().size(), loaded.getLatestEffectiveDate());
+            return true;
+        } catch (Exception e) {
+            log.error("加载汇率表失败，继续使用上一份汇率: location={}, error={}", ratesLocation, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 获取当前汇率快照
+     * 同一次计算中应只获取一次，保证使用同一份汇率
+     *
+     * @return 汇率快照
+     */
+    public FxRateSnapshot getSnapshot() {
+        return snapshot.get();
+    }
+}
@@ -0,0 +1,200 @@
+package com.travelplanner.service;
+
+import com.travelplanner.util.Money;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * 汇率表快照（不可变）
+ * 每个币种按生效日期保存一组兑基准币种的汇率，查询时取不晚于指定日期的最近一条；
+ * 刷新汇率时整体替换快照，读取方无需加锁
+ *
+ * 汇率文件为CSV格式：effective_date,currency,rate，rate表示1单位该币种折合多少基准币种，
+ * 空行与以#开头的行会被忽略
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+public final class FxRateSnapshot {
+
+    private final String baseCurrency;
+    private final Map<String, RateHistory> rates;
+    private final LocalDate latestEffectiveDate;
+
+    private FxRateSnapshot(String baseCurrency, Map<String, RateHistory> rates, LocalDate latestEffectiveDate) {
+        this.baseCurrency = baseCurrency;
+        this.rates = rates;
+        this.latestEffectiveDate = latestEffectiveDate;
+    }
+
+    /**
+     * 创建仅支持基准币种的空快照
+     *
+     * @param baseCurrency 基准币种
+     * @return 空快照
+     */
+    public static FxRateSnapshot empty(String baseCurrency) {
+        return new FxRateSnapshot(baseCurrency.toUpperCase(), Collections.<String, RateHistory>emptyMap(), null);
+    }
+
+    /**
+     * 解析CSV汇率表
+     *
+     * @param reader CSV内容
+     * @param baseCurrency 基准币种
+     * @return 汇率快照
+     * @throws IOException 读取失败时
+     * @throws IllegalArgumentException 内容格式错误时
+     */
+    public static FxRateSnapshot parse(Reader reader, String baseCurrency) throws IOException {
+        String base = baseCurrency.toUpperCase();
+        Map<String, TreeMap<LocalDate, BigDecimal>> byCurrency = new HashMap<>();
+        LocalDate latest = null;
+
+        BufferedReader lines = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        String line;
+        int lineNumber = 0;
+        while ((line = lines.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#") || line.startsWith("effective_date")) {
+                continue;
+            }
+            String[] columns = line.split(",");
+            if (columns.length != 3) {
+                throw new IllegalArgumentException("汇率表第" + lineNumber + "行格式错误: " + line);
+            }
+            try {
+                LocalDate effectiveDate = LocalDate.parse(columns[0].trim());
+                String currency = columns[1].trim().toUpperCase();
+                BigDecimal rate = new BigDecimal(columns[2].trim());
+                if (rate.signum() <= 0) {
+                    throw new IllegalArgumentException("汇率表第" + lineNumber + "行汇率必须为正数: " + line);
+                }
+                byCurrency.computeIfAbsent(currency, key -> new TreeMap<>()).put(effectiveDate, rate);
+                if (latest == null || effectiveDate.isAfter(latest)) {
+                    latest = effectiveDate;
+                }
+            } catch (DateTimeParseException | NumberFormatException e) {
+                throw new IllegalArgumentException("汇率表第" + lineNumber + "行格式错误: " + line, e);
+            }
+        }
+
+        Map<String, RateHistory> rates = new HashMap<>();
+        for (Map.Entry<String, TreeMap<LocalDate, BigDecimal>> entry : byCurrency.entrySet()) {
+            if (!entry.getKey().equals(base)) {
+                rates.put(entry.getKey(), new RateHistory(entry.getValue()));
+            }
+        }
+        return new FxRateSnapshot(base, Collections.unmodifiableMap(rates), latest);
+    }
+
+    /**
+     * 获取指定日期适用的汇率
+     *
+     * @param currency 币种
+     * @param date 日期，null表示使用最新汇率
+     * @return 1单位该币种折合的基准币种数量，不支持的币种返回null
+     */
+    public BigDecimal rateOn(String currency, LocalDate date) {
+        String code = currency == null || currency.isEmpty() ? Money.DEFAULT_CURRENCY : currency.toUpperCase();
+        if (code.equals(baseCurrency)) {
+            return BigDecimal.ONE;
+        }
+        RateHistory history = rates.get(code);
+        return history == null ? null : history.rateOn(date);
+    }
+
+    /**
+     * 将金额折算为基准币种
+     *
+     * @param amount 原币种金额
+     * @param currency 原币种
+     * @param date 发生日期，null表示使用最新汇率
+     * @return 基准币种金额，不支持的币种返回null
+     */
+    public Money toBase(BigDecimal amount, String currency, LocalDate date) {
+        BigDecimal rate = rateOn(currency, date);
+        if (rate == null) {
+            return null;
+        }
+        if (rate.compareTo(BigDecimal.ONE) == 0) {
+            return Money.of(amount, baseCurrency);
+        }
+        return Money.of(amount.multiply(rate).setScale(Money.zero(baseCurrency).getScale(), RoundingMode.HALF_UP), baseCurrency);
+    }
+
+    /**
+     * 判断是否支持该币种
+     *
+     * @param currency 币种
+     * @return 是否支持
+     */
+    public boolean supports(String currency) {
+        return rateOn(currency, null) != null;
+    }
+
+    public String getBaseCurrency() {
+        return baseCurrency;
+    }
+
+    public Set<String> getCurrencies() {
+        return rates.keySet();
+    }
+
+    public LocalDate getLatestEffectiveDate() {
+        return latestEffectiveDate;
+    }
+
+    /**
+     * 单个币种的汇率历史，按生效日期升序排列
+     */
+    private static final class RateHistory {
+        private final long[] effectiveDays;
+        private final BigDecimal[] rates;
+
+        private RateHistory(TreeMap<LocalDate, BigDecimal> source) {
+            List<Map.Entry<LocalDate, BigDecimal>> entries = new ArrayList<>(source.entrySet());
+            effectiveDays = new long[entries.size()];
+            rates = new BigDecimal[entries.size()];
+            for (int i = 0; i < entries.size(); i++) {
+                effectiveDays[i] = entries.get(i).getKey().toEpochDay();
+                rates[i] = entries.get(i).getValue();
+            }
+        }
+
+        private BigDecimal rateOn(LocalDate date) {
+            if (date == null) {
+                return rates[rates.length - 1];
+            }
+            long day = date.toEpochDay();
+            int low = 0;
+            int high = effectiveDays.length - 1;
+            int found = 0;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (effectiveDays[mid] <= day) {
+                    found = mid;
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            // 早于最早生效日期时使用最早的汇率
+            return rates[found];
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.travelplanner.service;
+
+import com.travelplanner.entity.User;
+import com.travelplanner.util.TokenEstimator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 模型路由
+ * 按任务阶段选择通义千问模型：字段提取、摘要等短输出任务使用小模型，计划生成和预算分析使用大模型；
+ * 用户等级（角色）可覆盖阶段模型；某个模型的在途调用数达到上限时，新请求降级到快速模型，
+ * 在途调用回落后自动恢复。每次路由按 stage/model/reason 计数，并按模型单价累计调用费用。
+ * 未配置的阶段使用 app.qwen.model
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+@Component
+@Slf4j
+public class ModelRouter {
+
+    /**
+     * 使用 app.qwen.model
+     */
+    public static final String REASON_DEFAULT = "default";
+    /**
+     * 使用阶段配置的模型
+     */
+    public static final String REASON_STAGE = "stage";
+    /**
+     * 使用用户等级配置的模型
+     */
+    public static final String REASON_TIER = "tier";
+    /**
+     * 在途调用过多，降级到快速模型
+     */
+    public static final String REASON_DEGRADED = "degraded";
+
+    private final AiMetrics aiMetrics;
+    private final UserService userService;
+
+    @Value("${app.qwen.model:qwen-turbo}")
+    private String defaultModel = "qwen-turbo";
+
+    /**
+     * 阶段模型，如 extract_llm=qwen-turbo,generate=qwen-plus
+     */
+    @Value("${app.ai.routing.stage-models:}")
+    private String stageModelsConfig = "";
+
+    /**
+     * 用户等级模型，如 ADMIN.generate=qwen-max；阶段写作 * 时对该等级的所有阶段生效
+     */
+    @Value("${app.ai.routing.tier-models:}")
+    private String tierModelsConfig = "";
+
+    /**
+     * 模型单价（元/千token，输入/输出），如 qwen-turbo=0.0003/0.0006
+     */
+    @Value("${app.ai.routing.prices:}")
+    private String pricesConfig = "";
+
+    @Value("${app.ai.routing.degrade.fast-model:qwen-turbo}")
+    private String fastModel = "qwen-turbo";
+
+    /**
+     * 单个模型的在途调用数上限，0表示不降级
+     */
+    @Value("${app.ai.routing.degrade.max-in-flight:0}")
+    private int maxInFlight;
+
+    private Map<String, String> stageModels = Collections.emptyMap();
+    private Map<String, String> tierModels = Collections.emptyMap();
+    private Map<String, double[]> prices = Collections.emptyMap();
+
+    /**
+     * 配置了等级模型的用户的等级，在查询API Key时刷新；不在表中的用户按普通用户路由
+     */
+    private final ConcurrentHashMap<Long, String> userTiers = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, AtomicInteger> inFlight = new ConcurrentHashMap<>();
+
+    public ModelRouter(AiMetrics aiMetrics, UserService userService) {
+        this.aiMetrics = aiMetrics;
+        this.userService = userService;
+    }
+
+    @PostConstruct
+    public void init() {
+        stageModels = parse(stageModelsConfig);
+        tierModels = parse(tierModelsConfig);
+        Map<String, double[]> parsedPrices = new HashMap<>();
+        for (Map.Entry<String, String> entry : parse(pricesConfig).entrySet()) {
+            String[] pair = entry.getValue().split("/");
+            double input = Double.parseDouble(pair[0].trim());
+            double output = pair.length > 1 ? Double.parseDouble(pair[1].trim()) : input;
+            parsedPrices.put(entry.getKey(), new double[]{input, output});
+        }
+        prices = parsedPrices;
+        log.info("模型路由: 默认={}, 阶段={}, 等级={}, 降级模型={}, 在途上限={}",
+                defaultModel, stageModels, tierModels, fastModel, maxInFlight);
+    }
+
+    /**
+     * 选择本次调用使用的模型，并记录路由计数
+     *
+     * @param stage 任务阶段（AiMetrics.STAGE_*）
+     * @param userId 发起调用的用户，可为空
+     * @return 模型名称
+     */
+    public String route(String stage, Long userId) {
+        String model = defaultModel;
+        String reason = REASON_DEFAULT;
+        String tier = userId != null ? userTiers.get(userId) : null;
+        String tierModel = tier != null ? tierModel(tier, stage) : null;
+        if (tierModel != null) {
+            model = tierModel;
+            reason = REASON_TIER;
+        } else if (stageModels.containsKey(stage)) {
+            model = stageModels.get(stage);
+            reason = REASON_STAGE;
+        }
+        if (maxInFlight > 0 && !model.equals(fastModel) && inFlight(model) >= maxInFlight) {
+            log.debug("模型 {} 在途调用达到上限，阶段 {} 降级到 {}", model, stage, fastModel);
+            model = fastModel;
+            reason = REASON_DEGRADED;
+        }
+        aiMetrics.recordRoute(stage, model, reason);
+        return model;
+    }
+
+    /**
+     * 刷新用户等级（查询数据库，需在可阻塞的线程上调用）
+     * 未配置等级模型时不查询
+     */
+    public void refreshTier(Long userId) {
+        if (userId == null || tierModels.isEmpty()) {
+            return;
+        }
+        String tier = userService.findById(userId).map(User::getRole).map(Enum::name).orElse(null);
+        if (tier != null && hasTierModels(tier)) {
+            userTiers.put(userId, tier);
+        } else {
+            userTiers.remove(userId);
+        }
+    }
+
+    /**
+     * 模型调用开始，与 {@link #finish(String)} 成对调用
+     */
+    public void begin(String model) {
+        inFlight.computeIfAbsent(model, key -> new AtomicInteger()).incrementAndGet();
+    }
+
+    /**
+     * 模型调用结束（成功、失败或取消）
+     */
+    public void finish(String model) {
+        AtomicInteger count = inFlight.get(model);
+        if (count != null) {
+            count.decrementAndGet();
+        }
+    }
+
+    /**
+     * 模型当前的在途调用数
+     */
+    public int inFlight(String model) {
+        AtomicInteger count = inFlight.get(model);
+        return count != null ? count.get() : 0;
+    }
+
+    /**
+     * 按模型单价累计一次调用的费用；响应没有 usage 时使用估算的token数，未配置单价的模型不记录
+     *
+     * @param stage 任务阶段
+     * @param model 模型
+     * @param promptTokens 提示词的估算token数
+     * @param responseBody 响应体，可为空
+     */
+    public void recordCost(String stage, String model, int promptTokens, Map<String, Object> responseBody) {
+        double[] price = prices.get(model);
+        if (price == null || responseBody == null) {
+            return;
+        }
+        long inputTokens = promptTokens;
+        long outputTokens = -1;
+        if (responseBody.get("usage") instanceof Map) {
+            Map<?, ?> usage = (Map<?, ?>) responseBody.get("usage");
+            if (usage.get("input_tokens") instanceof Number) {
+                inputTokens = ((Number) usage.get("input_tokens")).longValue();
+            }
+            if (usage.get("output_tokens") instanceof Number) {
+                outputTokens = ((Number) usage.get("output_tokens")).longValue();
+            }
+        }
+        if (outputTokens < 0) {
+            outputTokens = TokenEstimator.estimate(ReactiveAiService.extractText(responseBody));
+        }
+        aiMetrics.recordCost(stage, model, (inputTokens * price[0] + outputTokens * price[1]) / 1000);
+    }
+
+    private String tierModel(String tier, String stage) {
+        String model = tierModels.get(tier + "." + stage);
+        return model != null ? model : tierModels.get(tier + ".*");
+    }
+
+    private boolean hasTierModels(String tier) {
+        for (String key : tierModels.keySet()) {
+            if (key.startsWith(tier + ".")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Map<String, String> parse(String config) {
+        Map<String, String> entries = new HashMap<>();
+        if (config == null || config.trim().isEmpty()) {
+            return entries;
+        }
+        for (String entry : config.split(",")) {
+            String[] pair = entry.split("=");
+            if (pair.length == 2) {
+                entries.put(pair[0].trim(), pair[1].trim());
+            }
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,312 @@
+package com.travelplanner.service;
+
+import com.travelplanner.entity.PlanGenerationJob;
+import com.travelplanner.entity.PlanGenerationJob.JobStatus;
+import com.travelplanner.entity.TravelPlan;
+import com.travelplanner.repository.PlanGenerationJobRepository;
+import com.travelplanner.repository.TravelPlanRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 旅游计划生成任务服务
+ * 请求线程只负责入队；任务由 {@link PlanGenerationWorker} 认领执行，计划状态依次变为
+ * DRAFT → GENERATING → COMPLETED。所有状态变更都是短事务，AI调用期间不持有数据库连接
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@Transactional
+public class PlanGenerationJobService {
+
+    private static final Set<JobStatus> ACTIVE_STATUSES = EnumSet.of(JobStatus.QUEUED, JobStatus.RUNNING);
+
+    /**
+     * 与 travel_plans.ai_generated、plan_generation_jobs.last_error 列长度一致
+     */
+    private static final int AI_GENERATED_MAX_LENGTH = 5000;
+    private static final int ERROR_MAX_LENGTH = 1000;
+
+    private final PlanGenerationJobRepository jobRepository;
+    private final TravelPlanRepository travelPlanRepository;
+
+    /**
+     * 等待任务结束的SSE订阅，按任务ID分组
+     */
+    private final Map<Long, List<SseEmitter>> subscribers = new ConcurrentHashMap<>();
+
+    @Value("${app.plan-generation.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${app.plan-generation.visibility-timeout-ms:300000}")
+    private long visibilityTimeoutMs;
+
+    @Value("${app.plan-generation.retry-backoff-ms:10000}")
+    private long retryBackoffMs;
+
+    @Value("${app.plan-generation.max-backoff-ms:300000}")
+    private long maxBackoffMs;
+
+    @Value("${app.plan-generation.sse-timeout-ms:300000}")
+    private long sseTimeoutMs;
+
+    /**
+     * 提交计划生成任务
+     * 计划已有排队或执行中的任务时直接返回该任务，重复提交不会重复调用大模型；
+     * 检查前锁住计划行，同一计划的并发提交依次执行，后提交的请求看到先提交的任务
+     *
+     * @param planId 计划ID
+     * @param userMessage 生成要求，可为空
+     * @return 任务
+     */
+    public PlanGenerationJob enqueue(Long planId, String userMessage) {
+        TravelPlan plan = travelPlanRepository.findByIdForUpdate(planId)
+                .orElseThrow(() -> new IllegalArgumentException("旅游计划不存在"));
+
+        Optional<PlanGenerationJob> active = jobRepository.findFirstByPlanIdAndStatusInOrderByIdDesc(planId, ACTIVE_STATUSES);
+        if (active.isPresent()) {
+            log.info("计划已有进行中的生成任务: planId={}, jobId={}", planId, active.get().getId());
+            return active.get();
+        }
+
+        PlanGenerationJob job = new PlanGenerationJob();
+        job.setPlanId(planId);
+        job.setUserId(plan.getUserId());
+        job.setUserMessage(userMessage != null && !userMessage.trim().isEmpty() ? userMessage.trim() : null);
+        job.setStatus(JobStatus.QUEUED);
+        job.setAttempts(0);
+        job.setMaxAttempts(maxAttempts);
+        job.setAvailableAt(LocalDateTime.now());
+        PlanGenerationJob saved = jobRepository.save(job);
+        log.info("计划生成任务已入队: planId={}, jobId={}", planId, saved.getId());
+        return saved;
+    }
+
+    /**
+     * 查询计划最近的生成任务
+     */
+    @Transactional(readOnly = true)
+    public Optional<PlanGenerationJob> findLatest(Long planId) {
+        return jobRepository.findFirstByPlanIdOrderByIdDesc(planId);
+    }
+
+    /**
+     * 认领最多 limit 个任务，并将对应计划标记为GENERATING
+     * 可见性超时后被重新认领且已用尽重试次数的任务直接标记为失败
+     *
+     * @param worker worker标识
+     * @param limit 最大认领数量
+     * @return 认领成功的任务
+     */
+    public List<PlanGenerationJob> claim(String worker, int limit) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> candidates = jobRepository.findClaimableIds(now, PageRequest.of(0, limit));
+        if (candidates.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        LocalDateTime lockedUntil = now.plusNanos(visibilityTimeoutMs * 1_000_000L);
+        List<PlanGenerationJob> claimed = new ArrayList<>();
+        for (Long id : candidates) {
+            if (jobRepository.claim(id, worker, now, lockedUntil) == 0) {
+                continue;
+            }
+            PlanGenerationJob job = jobRepository.findById(id).orElse(null);
+            if (job == null) {
+                continue;
+            }
+            if (job.getAttempts() > job.getMaxAttempts()) {
+                log.warn("计划生成任务处理超时且已用尽重试次数: jobId={}, planId={}", id, job.getPlanId());
+                jobRepository.markFailed(id, worker, now, "处理超时，已达到最大重试次数");
+                restorePlanStatus(job.getPlanId());
+                continue;
+            }
+            travelPlanRepository.findById(job.getPlanId()).ifPresent(plan -> {
+                plan.setStatus(TravelPlan.PlanStatus.GENERATING);
+                travelPlanRepository.save(plan);
+            });
+            claimed.add(job);
+        }
+        return claimed;
+    }
+
+    /**
+     * 任务成功：写入生成内容并将计划标记为COMPLETED
+     * 任务已因可见性超时被其他worker重新认领时，本次结果被丢弃
+     *
+     * @return 是否由本worker完成
+     */
+    public boolean complete(PlanGenerationJob job, String worker, String content) {
+        if (jobRepository.markSucceeded(job.getId(), worker, LocalDateTime.now()) == 0) {
+            log.warn("计划生成任务已不属于当前worker，丢弃结果: jobId={}, worker={}", job.getId(), worker);
+            return false;
+        }
+        travelPlanRepository.findById(job.getPlanId()).ifPresent(plan -> {
+            String aiGenerated = content;
+            if (aiGenerated != null && aiGenerated.length() > AI_GENERATED_MAX_LENGTH) {
+                log.warn("生成内容超过{}字符，已截断: planId={}, length={}",
+                        AI_GENERATED_MAX_LENGTH, plan.getId(), aiGenerated.length());
+                aiGenerated = aiGenerated.substring(0, AI_GENERATED_MAX_LENGTH);
+            }
+            plan.setAiGenerated(aiGenerated);
+            plan.setStatus(TravelPlan.PlanStatus.COMPLETED);
+            travelPlanRepository.save(plan);
+        });
+        log.info("计划生成任务完成: jobId={}, planId={}, attempts={}", job.getId(), job.getPlanId(), job.getAttempts());
+        return true;
+    }
+
+    /**
+     * 任务失败：可重试且未用尽次数时按指数退避放回队列，否则标记为FAILED并恢复计划状态
+     *
+     * @return 是否已放回队列等待重试
+     */
+    public boolean fail(PlanGenerationJob job, String worker, String error, boolean retryable) {
+        LocalDateTime now = LocalDateTime.now();
+        String message = truncate(error != null ? error : "未知错误", ERROR_MAX_LENGTH);
+        if (retryable && job.getAttempts() < job.getMaxAttempts()) {
+            long backoff = Math.min(maxBackoffMs, retryBackoffMs << Math.min(job.getAttempts() - 1, 20));
+            if (jobRepository.markForRetry(job.getId(), worker, now, now.plusNanos(backoff * 1_000_000L), message) > 0) {
+                log.warn("计划生成任务失败，{}ms后重试: jobId={}, attempts={}/{}, error={}",
+                        backoff, job.getId(), job.getAttempts(), job.getMaxAttempts(), message);
+                return true;
+            }
+            return false;
+        }
+        if (jobRepository.markFailed(job.getId(), worker, now, message) > 0) {
+            log.error("计划生成任务失败: jobId={}, planId={}, attempts={}, error={}",
+                    job.getId(), job.getPlanId(), job.getAttempts(), message);
+            restorePlanStatus(job.getPlanId());
+        }
+        return false;
+    }
+
+    /**
+     * 任务状态视图
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Object> describe(PlanGenerationJob job) {
+        Map<String, Object> view = new LinkedHashMap<>();
+        view.put("jobId", job.getId());
+        view.put("planId", job.getPlanId());
+        view.put("status", job.getStatus());
+        view.put("planStatus", travelPlanRepository.findById(job.getPlanId()).map(TravelPlan::getStatus).orElse(null));
+        view.put("attempts", job.getAttempts());
+        view.put("maxAttempts", job.getMaxAttempts());
+        view.put("lastError", job.getLastError());
+        view.put("createdAt", job.getCreatedAt());
+        view.put("completedAt", job.getCompletedAt());
+        return view;
+    }
+
+    /**
+     * 订阅计划最近一个生成任务的结果（SSE）
+     * 任务结束后推送一次 plan-generation 事件并关闭连接
+     *
+     * @param planId 计划ID
+     * @return SSE发射器
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public SseEmitter subscribe(Long planId) {
+        PlanGenerationJob job = jobRepository.findFirstByPlanIdOrderByIdDesc(planId)
+                .orElseThrow(() -> new IllegalArgumentException("计划没有生成任务"));
+        SseEmitter emitter = new SseEmitter(sseTimeoutMs);
+        if (!ACTIVE_STATUSES.contains(job.getStatus())) {
+            send(emitter, describe(job));
+            return emitter;
+        }
+
+        List<SseEmitter> emitters = subscribers.computeIfAbsent(job.getId(), id -> new CopyOnWriteArrayList<>());
+        emitters.add(emitter);
+        Runnable remove = () -> emitters.remove(emitter);
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(error -> remove.run());
+        // 注册期间任务可能已结束
+        notifySubscribers(job.getId());
+        return emitter;
+    }
+
+    /**
+     * 任务结束后通知订阅者
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void notifySubscribers(Long jobId) {
+        List<SseEmitter> emitters = subscribers.get(jobId);
+        if (emitters == null || emitters.isEmpty()) {
+            return;
+        }
+        jobRepository.findById(jobId)
+                .filter(job -> !ACTIVE_STATUSES.contains(job.getStatus()))
+                .ifPresent(job -> {
+                    subscribers.remove(jobId);
+                    Map<String, Object> view = describe(job);
+                    emitters.forEach(emitter -> send(emitter, view));
+                });
+    }
+
+    /**
+     * 检查所有订阅中的任务（任务可能由其他实例的worker完成）
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void notifyAllSubscribers() {
+        new ArrayList<>(subscribers.keySet()).forEach(this::notifySubscribers);
+    }
+
+    /**
+     * 按状态统计任务数量
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Long> countByStatus() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (JobStatus status : JobStatus.values()) {
+            counts.put(status.name(), jobRepository.countByStatus(status));
+        }
+        return counts;
+    }
+
+    private void restorePlanStatus(Long planId) {
+        travelPlanRepository.findById(planId)
+                .filter(plan -> plan.getStatus() == TravelPlan.PlanStatus.GENERATING)
+                .ifPresent(plan -> {
+                    plan.setStatus(plan.getAiGenerated() != null ? TravelPlan.PlanStatus.COMPLETED : TravelPlan.PlanStatus.DRAFT);
+                    travelPlanRepository.save(plan);
+                });
+    }
+
+    private void send(SseEmitter emitter, Map<String, Object> view) {
+        try {
+            emitter.send(SseEmitter.event().name("plan-generation").data(view));
+            emitter.complete();
+        } catch (IOException | IllegalStateException e) {
+            log.debug("推送计划生成结果失败（客户端可能已断开）: {}", e.getMessage());
+            emitter.completeWithError(e);
+        }
+    }
+
+    private static String truncate(String value, int maxLength) {
+        return value.length() > maxLength ? value.substring(0, maxLength) : value;
+    }
+}
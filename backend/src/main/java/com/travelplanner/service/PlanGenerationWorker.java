@@ -0,0 +1,141 @@
+package com.travelplanner.service;
+
+import com.travelplanner.entity.PlanGenerationJob;
+import com.travelplanner.entity.TravelPlan;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
+
+import java.net.InetAddress;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 旅游计划生成worker
+ * 定时从任务表认领任务并提交到本地线程池执行；同时执行的任务数不超过线程池大小，
+ * 多个实例可以共享同一张任务表
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+@Component
+@ConditionalOnProperty(name = "app.plan-generation.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class PlanGenerationWorker {
+
+    private final PlanGenerationJobService jobService;
+    private final TravelPlanService travelPlanService;
+    private final AiService aiService;
+    private final ThreadPoolTaskExecutor executor;
+    private final String workerId;
+    private final AtomicInteger busy = new AtomicInteger();
+
+    @Value("${app.plan-generation.workers:2}")
+    private int workers;
+
+    public PlanGenerationWorker(PlanGenerationJobService jobService,
+                                TravelPlanService travelPlanService,
+                                AiService aiService,
+                                @Qualifier("planGenerationExecutor") ThreadPoolTaskExecutor executor) {
+        this.jobService = jobService;
+        this.travelPlanService = travelPlanService;
+        this.aiService = aiService;
+        this.executor = executor;
+        this.workerId = resolveHostName() + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    /**
+     * 按空闲worker数量认领任务
+     */
+    @Scheduled(fixedDelayString = "${app.plan-generation.poll-interval-ms:1000}",
+            initialDelayString = "${app.plan-generation.poll-interval-ms:1000}")
+    public void poll() {
+        jobService.notifyAllSubscribers();
+
+        int idle = workers - busy.get();
+        if (idle <= 0) {
+            return;
+        }
+        List<PlanGenerationJob> jobs;
+        try {
+            jobs = jobService.claim(workerId, idle);
+        } catch (Exception e) {
+            log.warn("认领计划生成任务失败: {}", e.getMessage());
+            return;
+        }
+        for (PlanGenerationJob job : jobs) {
+            busy.incrementAndGet();
+            try {
+                executor.execute(() -> {
+                    try {
+                        process(job);
+                    } finally {
+                        busy.decrementAndGet();
+                    }
+                });
+            } catch (TaskRejectedException e) {
+                // 任务仍由本worker持有，可见性超时后会被重新认领
+                busy.decrementAndGet();
+                log.warn("计划生成线程池已满，任务等待超时后重新认领: jobId={}", job.getId());
+            }
+        }
+    }
+
+    /**
+     * 执行单个任务；AI调用在事务之外进行
+     */
+    void process(PlanGenerationJob job) {
+        long startTime = System.currentTimeMillis();
+        try {
+            TravelPlan plan = travelPlanService.findById(job.getPlanId())
+                    .orElseThrow(() -> new AiServiceException("旅游计划不存在", false));
+            String userMessage = job.getUserMessage() != null
+                    ? job.getUserMessage()
+                    : "请为我生成前往" + plan.getDestination() + "的旅游计划";
+            String planContext = String.format("计划名称: %s, 目的地: %s, 预算: %s, 人数: %s",
+                    plan.getPlanName(), plan.getDestination(), plan.getBudget(), plan.getGroupSize());
+
+            String content = aiService.requestTravelPlan(job.getUserId(), userMessage, planContext);
+            jobService.complete(job, workerId, content);
+            log.info("计划生成任务执行完成: jobId={}, 耗时={}ms", job.getId(), System.currentTimeMillis() - startTime);
+        } catch (Exception e) {
+            log.warn("计划生成任务执行失败: jobId={}, attempts={}, error={}", job.getId(), job.getAttempts(), e.getMessage());
+            jobService.fail(job, workerId, e.getMessage(), isRetryable(e));
+        } finally {
+            jobService.notifySubscribers(job.getId());
+        }
+    }
+
+    /**
+     * 限流和网络类错误可以重试；认证失败、配置缺失等重试也不会成功
+     */
+    static boolean isRetryable(Exception e) {
+        if (e instanceof AiServiceException) {
+            return ((AiServiceException) e).isRetryable();
+        }
+        if (e instanceof HttpClientErrorException) {
+            return ((HttpClientErrorException) e).getRawStatusCode() == 429;
+        }
+        return e instanceof RestClientException;
+    }
+
+    String getWorkerId() {
+        return workerId;
+    }
+
+    private static String resolveHostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            return "worker";
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.travelplanner.service;
+
+import com.travelplanner.util.PromptTemplate;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 提示词模板注册表
+ * 从 app.ai.prompts.location 加载 {name}.v{version}.txt 形式的模板并预编译，同名模板默认使用最高版本，
+ * 可通过 app.ai.prompts.versions（如 travel-plan=1,field-extraction=2）固定版本。
+ * 开启热加载时定期检查模板文件，内容变化后重新编译并整体替换；新模板编译失败时继续使用旧模板
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+@Component
+@Slf4j
+public class PromptTemplateRegistry {
+
+    public static final String TRAVEL_PLAN = "travel-plan";
+    public static final String FIELD_EXTRACTION = "field-extraction";
+    public static final String BUDGET_ANALYSIS = "budget-analysis";
+    public static final String BUDGET_OPTIMIZATION = "budget-optimization";
+    public static final String CHAT_COMBINED = "chat-combined";
+
+    private static final Pattern FILE_NAME = Pattern.compile("(.+)\\.v(\\d+)\\.txt");
+
+    private final ResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
+
+    @Value("${app.ai.prompts.location:classpath:prompts/}")
+    private String location = "classpath:prompts/";
+
+    @Value("${app.ai.prompts.versions:}")
+    private String pinnedVersions = "";
+
+    @Value("${app.ai.prompts.hot-reload:false}")
+    private boolean hotReload;
+
+    private volatile Map<String, PromptTemplate> templates;
+    private volatile Map<String, String> sources = Collections.emptyMap();
+
+    /**
+     * 启动时加载模板，模板缺失或有语法错误时启动失败
+     */
+    @PostConstruct
+    public void init() {
+        reload();
+        log.info("提示词模板已加载: {}", templates.values());
+    }
+
+    /**
+     * 获取模板
+     *
+     * @param name 模板名称
+     * @throws IllegalStateException 模板不存在时
+     */
+    public PromptTemplate get(String name) {
+        Map<String, PromptTemplate> current = templates;
+        if (current == null) {
+            reload();
+            current = templates;
+        }
+        PromptTemplate template = current.get(name);
+        if (template == null) {
+            throw new IllegalStateException("提示词模板不存在: " + name);
+        }
+        return template;
+    }
+
+    /**
+     * 检查模板文件，内容有变化时重新加载
+     */
+    @Scheduled(fixedDelayString = "${app.ai.prompts.reload-interval-ms:10000}",
+            initialDelayString = "${app.ai.prompts.reload-interval-ms:10000}")
+    public synchronized void reloadIfChanged() {
+        if (!hotReload) {
+            return;
+        }
+        try {
+            Map<String, String> latest = readSources();
+            if (!latest.equals(sources)) {
+                Map<String, PromptTemplate> compiled = compile(latest);
+                templates = compiled;
+                sources = latest;
+                log.info("提示词模板已重新加载: {}", compiled.values());
+            }
+        } catch (Exception e) {
+            log.warn("重新加载提示词模板失败，继续使用当前模板: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 重新加载全部模板
+     *
+     * @throws IllegalStateException 读取或编译失败时
+     */
+    public synchronized void reload() {
+        try {
+            Map<String, String> latest = readSources();
+            templates = compile(latest);
+            sources = latest;
+        } catch (IOException e) {
+            throw new IllegalStateException("读取提示词模板失败: " + location, e);
+        }
+    }
+
+    private Map<String, String> readSources() throws IOException {
+        Map<String, String> result = new HashMap<>();
+        String base = location.endsWith("/") ? location : location + "/";
+        for (Resource resource : resolver.getResources(base + "*.txt")) {
+            String fileName = resource.getFilename();
+            if (fileName == null || !FILE_NAME.matcher(fileName).matches()) {
+                continue;
+            }
+            try (InputStream in = resource.getInputStream()) {
+                result.put(fileName, StreamUtils.copyToString(in, StandardCharsets.UTF_8).replace("\r\n", "\n"));
+            }
+        }
+        return result;
+    }
+
+    private Map<String, PromptTemplate> compile(Map<String, String> files) {
+        Map<String, Integer> pinned = parsePinnedVersions();
+        Map<String, PromptTemplate> result = new HashMap<>();
+        for (Map.Entry<String, String> file : files.entrySet()) {
+            Matcher matcher = FILE_NAME.matcher(file.getKey());
+            if (!matcher.matches()) {
+                continue;
+            }
+            String name = matcher.group(1);
+            int version = Integer.parseInt(matcher.group(2));
+            Integer wanted = pinned.get(name);
+            PromptTemplate existing = result.get(name);
+            if (wanted != null ? version != wanted : existing != null && existing.getVersion() > version) {
+                continue;
+            }
+            result.put(name, PromptTemplate.compile(name, version, stripTrailingNewline(file.getValue())));
+        }
+        for (Map.Entry<String, Integer> entry : pinned.entrySet()) {
+            if (!result.containsKey(entry.getKey())) {
+                throw new IllegalStateException("提示词模板不存在: " + entry.getKey() + ".v" + entry.getValue());
+            }
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    private Map<String, Integer> parsePinnedVersions() {
+        Map<String, Integer> pinned = new HashMap<>();
+        if (pinnedVersions == null || pinnedVersions.trim().isEmpty()) {
+            return pinned;
+        }
+        for (String entry : pinnedVersions.split(",")) {
+            String[] pair = entry.split("=");
+            if (pair.length == 2) {
+                pinned.put(pair[0].trim(), Integer.parseInt(pair[1].trim()));
+            }
+        }
+        return pinned;
+    }
+
+    /**
+     * 模板文件末尾的换行不属于提示词
+     */
+    private static String stripTrailingNewline(String source) {
+        return source.endsWith("\n") ? source.substring(0, source.length() - 1) : source;
+    }
+}
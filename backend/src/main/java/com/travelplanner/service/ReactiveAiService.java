@@ -0,0 +1,435 @@
+package com.travelplanner.service;
+
+import com.travelplanner.util.FieldsBlockSplitter;
+import com.travelplanner.util.PromptTemplate;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 非阻塞AI服务
+ * 与 {@link AiService} 的字段提取和计划生成逻辑一致（提示词、解析与回退规则复用同一实现），
+ * 但通过WebClient调用通义千问，请求在等待模型响应期间不占用线程；
+ * 用户API Key的查询经 {@link ReactiveConversationStore} 在数据库调度器上完成；
+ * 模型在订阅时由 {@link ModelRouter} 选择
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+@Service
+@Slf4j
+public class ReactiveAiService {
+
+    private static final String GENERATION_PATH = "/services/aigc/text-generation/generation";
+
+    private static final ParameterizedTypeReference<Map<String, Object>> RESPONSE_TYPE =
+            new ParameterizedTypeReference<Map<String, Object>>() {};
+    private static final ParameterizedTypeReference<ServerSentEvent<Map<String, Object>>> EVENT_TYPE =
+            new ParameterizedTypeReference<ServerSentEvent<Map<String, Object>>>() {};
+
+    private final WebClient webClient;
+    private final AiService aiService;
+    private final ReactiveConversationStore conversationStore;
+    private final AiMetrics aiMetrics;
+    private final TokenBudget tokenBudget;
+    private final TokenUsageService tokenUsageService;
+    private final ModelRouter modelRouter;
+
+    @Value("${app.qwen.api-key:}")
+    private String qwenApiKey;
+
+    public ReactiveAiService(@Qualifier("dashScopeWebClient") WebClient webClient,
+                             AiService aiService,
+                             ReactiveConversationStore conversationStore,
+                             AiMetrics aiMetrics,
+                             TokenBudget tokenBudget,
+                             TokenUsageService tokenUsageService,
+                             ModelRouter modelRouter) {
+        this.webClient = webClient;
+        this.aiService = aiService;
+        this.conversationStore = conversationStore;
+        this.aiMetrics = aiMetrics;
+        this.tokenBudget = tokenBudget;
+        this.tokenUsageService = tokenUsageService;
+        this.modelRouter = modelRouter;
+    }
+
+    /**
+     * 提取旅行字段（使用用户特定的API Key，未配置时使用默认API Key）
+     *
+     * @param userId 用户ID
+     * @param userMessage 用户消息
+     * @return 提取的字段，AI提取失败时为空对象
+     */
+    public Mono<AiService.ExtractedFields> extractTravelFields(Long userId, String userMessage) {
+        String endpoint = aiMetrics.currentEndpoint();
+        return findUserApiKey(userId, endpoint)
+                .flatMap(apiKey -> extractFieldsWithCustomKey(apiKey, userId, userMessage, endpoint))
+                .switchIfEmpty(Mono.defer(() -> extractTravelFields(userMessage, endpoint)))
+                .onErrorResume(e -> {
+                    log.error("使用用户API Key提取字段失败: {}", e.getMessage());
+                    return extractTravelFields(userMessage, endpoint);
+                });
+    }
+
+    /**
+     * 使用默认API Key提取旅行字段，AI提取失败时回退到正则表达式
+     */
+    public Mono<AiService.ExtractedFields> extractTravelFields(String userMessage) {
+        return extractTravelFields(userMessage, aiMetrics.currentEndpoint());
+    }
+
+    /**
+     * 使用自定义API Key提取旅行字段
+     */
+    public Mono<AiService.ExtractedFields> extractFieldsWithCustomKey(String apiKey, String userMessage) {
+        return extractFieldsWithCustomKey(apiKey, null, userMessage, aiMetrics.currentEndpoint());
+    }
+
+    /**
+     * 使用用户特定的API Key生成旅游计划
+     *
+     * @param userId 用户ID
+     * @param userMessage 用户消息
+     * @param planContext 计划上下文
+     * @return AI生成的回复，失败时为面向用户的错误说明
+     */
+    public Mono<String> generateTravelPlan(Long userId, String userMessage, String planContext) {
+        String endpoint = aiMetrics.currentEndpoint();
+        return findUserApiKey(userId, endpoint)
+                .flatMap(apiKey -> {
+                    if (AiService.isDemoApiKey(apiKey)) {
+                        log.warn("用户 {} 使用的是演示API Key", userId);
+                        return Mono.just("检测到您使用的是演示API Key，请配置真实的通义千问API Key以使用AI功能。");
+                    }
+                    return generateTravelPlanWithCustomKey(apiKey, userId, userMessage, planContext, endpoint);
+                })
+                .switchIfEmpty(Mono.fromSupplier(() -> {
+                    log.warn("用户 {} 未配置API Key", userId);
+                    return "抱歉，您还没有配置通义千问API Key。请在个人设置中添加您的API Key以使用AI功能。";
+                }))
+                .onErrorResume(e -> {
+                    log.error("使用用户API Key生成旅游计划失败: {}", e.getMessage());
+                    return Mono.just("AI服务暂时不可用，请稍后重试。错误信息：" + e.getMessage());
+                });
+    }
+
+    /**
+     * 使用自定义API Key生成旅游计划
+     */
+    public Mono<String> generateTravelPlanWithCustomKey(String apiKey, String userMessage, String planContext) {
+        return generateTravelPlanWithCustomKey(apiKey, null, userMessage, planContext, aiMetrics.currentEndpoint());
+    }
+
+    /**
+     * 对话是否使用单次调用模式
+     */
+    public boolean isCombinedChat() {
+        return aiService.isCombinedChat();
+    }
+
+    /**
+     * 单次调用完成字段提取和计划生成（使用用户特定的API Key）
+     * 用户未配置API Key时与分开调用一致：字段使用默认配置提取，回复为配置提示
+     *
+     * @param userId 用户ID
+     * @param userMessage 用户消息
+     * @param planContext 计划上下文
+     * @return 提取的字段与AI回复
+     */
+    public Mono<AiService.CombinedReply> chat(Long userId, String userMessage, String planContext) {
+        String endpoint = aiMetrics.currentEndpoint();
+        return findUserApiKey(userId, endpoint)
+                .flatMap(apiKey -> {
+                    if (AiService.isDemoApiKey(apiKey)) {
+                        log.warn("用户 {} 使用的是演示API Key", userId);
+                        return withFields(userMessage, endpoint,
+                                "检测到您使用的是演示API Key，请配置真实的通义千问API Key以使用AI功能。");
+                    }
+                    return chatWithCustomKey(apiKey, userId, userMessage, planContext, endpoint);
+                })
+                .switchIfEmpty(Mono.defer(() -> {
+                    log.warn("用户 {} 未配置API Key", userId);
+                    return withFields(userMessage, endpoint,
+                            "抱歉，您还没有配置通义千问API Key。请在个人设置中添加您的API Key以使用AI功能。");
+                }))
+                .onErrorResume(e -> {
+                    log.error("使用用户API Key单次调用失败: {}", e.getMessage());
+                    return withFields(userMessage, endpoint, "AI服务暂时不可用，请稍后重试。错误信息：" + e.getMessage());
+                });
+    }
+
+    /**
+     * 使用自定义API Key单次调用完成字段提取和计划生成
+     */
+    public Mono<AiService.CombinedReply> chatWithCustomKey(String apiKey, String userMessage, String planContext) {
+        return chatWithCustomKey(apiKey, null, userMessage, planContext, aiMetrics.currentEndpoint());
+    }
+
+    // 以下方法在回调线程上执行，接口标签由调用方在请求线程上取得后传入
+
+    private Mono<String> findUserApiKey(Long userId, String endpoint) {
+        return aiMetrics.time(conversationStore.findUserApiKey(userId),
+                AiMetrics.STAGE_KEY_LOOKUP, AiMetrics.NO_MODEL, endpoint);
+    }
+
+    private Mono<AiService.ExtractedFields> extractTravelFields(String userMessage, String endpoint) {
+        Mono<AiService.ExtractedFields> aiFields = isBlank(qwenApiKey)
+                ? Mono.empty()
+                : Mono.defer(() -> {
+                            String model = modelRouter.route(AiMetrics.STAGE_EXTRACT_LLM, null);
+                            return callQwen(qwenApiKey, null, model, aiService.buildFieldExtractionPrompt(userMessage),
+                                    0.3, AiMetrics.STAGE_EXTRACT_LLM, endpoint)
+                                    .map(text -> parseFields(text, model, endpoint));
+                        })
+                        .filter(AiService.ExtractedFields::hasAnyField)
+                        .onErrorResume(e -> {
+                            log.error("AI字段提取失败: {}", e.getMessage());
+                            return Mono.empty();
+                        });
+        return aiFields.switchIfEmpty(Mono.fromCallable(() -> {
+            log.warn("AI字段提取失败，使用正则表达式提取");
+            return aiMetrics.time(AiMetrics.STAGE_EXTRACT_REGEX, AiMetrics.NO_MODEL, endpoint,
+                    () -> aiService.extractFieldsWithRegex(userMessage));
+        }));
+    }
+
+    private Mono<AiService.ExtractedFields> extractFieldsWithCustomKey(String apiKey, Long userId, String userMessage,
+                                                                      String endpoint) {
+        return Mono.defer(() -> {
+                    String model = modelRouter.route(AiMetrics.STAGE_EXTRACT_LLM, userId);
+                    return callQwen(apiKey, userId, model, aiService.buildFieldExtractionPrompt(userMessage), 0.3,
+                            AiMetrics.STAGE_EXTRACT_LLM, endpoint)
+                            .map(text -> parseFields(text, model, endpoint));
+                })
+                .defaultIfEmpty(new AiService.ExtractedFields())
+                .onErrorResume(e -> {
+                    log.error("自定义API Key字段提取失败: {}", e.getMessage());
+                    return Mono.just(new AiService.ExtractedFields());
+                });
+    }
+
+    private Mono<String> generateTravelPlanWithCustomKey(String apiKey, Long userId, String userMessage,
+                                                         String planContext, String endpoint) {
+        if (aiService.isMockMode()) {
+            // 以定时器模拟模型延迟，不阻塞线程
+            return aiMetrics.time(Mono.fromCallable(() -> aiService.buildMockTravelPlan(userMessage, planContext))
+                            .delaySubscription(Duration.ofMillis(AiService.MOCK_LATENCY_MS)),
+                    AiMetrics.STAGE_GENERATE, AiMetrics.MOCK_MODEL, endpoint);
+        }
+        return Mono.defer(() -> callQwen(apiKey, userId, modelRouter.route(AiMetrics.STAGE_GENERATE, userId),
+                        aiService.buildPrompt(userMessage, planContext), 0.7, AiMetrics.STAGE_GENERATE, endpoint))
+                .defaultIfEmpty("抱歉，AI服务响应格式异常，请稍后再试。")
+                .onErrorResume(e -> {
+                    log.error("自定义API Key生成失败: {}", e.getMessage());
+                    return Mono.just("抱歉，生成旅游计划时发生错误，请稍后再试。错误信息: " + e.getMessage());
+                });
+    }
+
+    /**
+     * 模型输出以流式增量返回，边接收边拆分：字段块结束后其余增量直接追加到计划正文
+     */
+    private Mono<AiService.CombinedReply> chatWithCustomKey(String apiKey, Long userId, String userMessage,
+                                                            String planContext, String endpoint) {
+        if (aiService.isMockMode()) {
+            return aiMetrics.time(Mono.fromCallable(() -> aiService.buildMockTravelPlan(userMessage, planContext))
+                            .delaySubscription(Duration.ofMillis(AiService.MOCK_LATENCY_MS)),
+                    AiMetrics.STAGE_CHAT_COMBINED, AiMetrics.MOCK_MODEL, endpoint)
+                    .map(plan -> new AiService.CombinedReply(regexFields(userMessage, endpoint), plan));
+        }
+        return Mono.defer(() -> {
+            FieldsBlockSplitter splitter = new FieldsBlockSplitter();
+            StringBuilder plan = new StringBuilder();
+            String model = modelRouter.route(AiMetrics.STAGE_CHAT_COMBINED, userId);
+            return streamQwen(apiKey, userId, model, aiService.buildCombinedPrompt(userMessage, planContext), 0.7,
+                            AiMetrics.STAGE_CHAT_COMBINED, endpoint)
+                    .doOnNext(delta -> plan.append(splitter.feed(delta)))
+                    .then(Mono.fromCallable(() -> {
+                        plan.append(splitter.finish());
+                        return aiService.toCombinedReply(splitter.getFields(), plan.toString(), userMessage, model,
+                                endpoint);
+                    }));
+        }).onErrorResume(e -> {
+            log.error("单次调用生成失败: {}", e.getMessage());
+            return Mono.just(new AiService.CombinedReply(regexFields(userMessage, endpoint),
+                    "抱歉，生成旅游计划时发生错误，请稍后再试。错误信息: " + e.getMessage()));
+        });
+    }
+
+    private Mono<AiService.CombinedReply> withFields(String userMessage, String endpoint, String message) {
+        return extractTravelFields(userMessage, endpoint).map(fields -> new AiService.CombinedReply(fields, message));
+    }
+
+    private AiService.ExtractedFields regexFields(String userMessage, String endpoint) {
+        return aiMetrics.time(AiMetrics.STAGE_EXTRACT_REGEX, AiMetrics.NO_MODEL, endpoint,
+                () -> aiService.extractFieldsWithRegex(userMessage));
+    }
+
+    private AiService.ExtractedFields parseFields(String text, String model, String endpoint) {
+        return aiMetrics.time(AiMetrics.STAGE_PARSE, model, endpoint,
+                () -> aiService.parseFieldsFromAIResponse(text));
+    }
+
+    /**
+     * 调用通义千问文本生成接口，记录调用耗时与token用量；max_tokens 由 {@link TokenBudget} 按任务类型确定
+     *
+     * @param userId 发起调用的用户，用于记录该用户的token用量，可为空
+     * @return 生成的文本；接口返回错误码时以异常结束，响应中没有文本时为空
+     */
+    private Mono<String> callQwen(String apiKey, Long userId, String model, PromptTemplate.Rendered prompt,
+                                  double temperature, String stage, String endpoint) {
+        Map<String, Object> request = buildRequest(model, prompt, temperature, stage, false);
+        return Mono.defer(() -> {
+            aiMetrics.recordPromptTokens(stage, prompt.tokens());
+            modelRouter.begin(model);
+            Timer.Sample sample = aiMetrics.start();
+            return webClient.post()
+                    .uri(GENERATION_PATH)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .header("Authorization", "Bearer " + apiKey)
+                    .header("X-DashScope-Async", "disable")
+                    .bodyValue(request)
+                    .retrieve()
+                    .bodyToMono(RESPONSE_TYPE)
+                    .doOnError(e -> aiMetrics.stop(sample, stage, model, endpoint, AiMetrics.OUTCOME_FAILURE))
+                    .flatMap(body -> {
+                        aiMetrics.recordUsage(model, endpoint, body);
+                        modelRouter.recordCost(stage, model, prompt.tokens(), body);
+                        tokenUsageService.record(userId, stage, prompt.tokens(), body);
+                        if (body.containsKey("code")) {
+                            aiMetrics.stop(sample, stage, model, endpoint, AiMetrics.OUTCOME_ERROR);
+                            return Mono.error(new IllegalStateException("AI服务返回错误: " + body.get("message")));
+                        }
+                        String text = extractText(body);
+                        aiMetrics.stop(sample, stage, model, endpoint,
+                                text != null ? AiMetrics.OUTCOME_SUCCESS : AiMetrics.OUTCOME_ERROR);
+                        return Mono.justOrEmpty(text);
+                    })
+                    .doFinally(signal -> modelRouter.finish(model));
+        });
+    }
+
+    /**
+     * 以SSE流式调用通义千问（incremental_output），逐个返回增量文本；
+     * 调用耗时与token用量在流结束时按最后一个事件的 usage 记录
+     *
+     * @param userId 发起调用的用户，用于记录该用户的token用量，可为空
+     * @return 增量文本；接口返回错误码时以异常结束
+     */
+    private Flux<String> streamQwen(String apiKey, Long userId, String model, PromptTemplate.Rendered prompt,
+                                    double temperature, String stage, String endpoint) {
+        Map<String, Object> request = buildRequest(model, prompt, temperature, stage, true);
+        return Flux.defer(() -> {
+            aiMetrics.recordPromptTokens(stage, prompt.tokens());
+            modelRouter.begin(model);
+            Timer.Sample sample = aiMetrics.start();
+            AtomicReference<Map<String, Object>> last = new AtomicReference<>();
+            AtomicReference<String> outcome = new AtomicReference<>(AiMetrics.OUTCOME_FAILURE);
+            // 在结束信号向下游传递之前记录，调用方拿到结果时指标已更新
+            Runnable finish = () -> {
+                Map<String, Object> body = last.get();
+                if (body != null) {
+                    aiMetrics.recordUsage(model, endpoint, body);
+                    modelRouter.recordCost(stage, model, prompt.tokens(), body);
+                    tokenUsageService.record(userId, stage, prompt.tokens(), body);
+                }
+                aiMetrics.stop(sample, stage, model, endpoint, outcome.get());
+                modelRouter.finish(model);
+            };
+            return webClient.post()
+                    .uri(GENERATION_PATH)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .accept(MediaType.TEXT_EVENT_STREAM)
+                    .header("Authorization", "Bearer " + apiKey)
+                    .header("X-DashScope-SSE", "enable")
+                    .bodyValue(request)
+                    .retrieve()
+                    .bodyToFlux(EVENT_TYPE)
+                    .<String>handle((event, sink) -> {
+                        Map<String, Object> body = event.data();
+                        if (body == null) {
+                            return;
+                        }
+                        last.set(body);
+                        if (body.containsKey("code")) {
+                            outcome.set(AiMetrics.OUTCOME_ERROR);
+                            sink.error(new IllegalStateException("AI服务返回错误: " + body.get("message")));
+                            return;
+                        }
+                        String text = extractText(body);
+                        if (text != null && !text.isEmpty()) {
+                            sink.next(text);
+                        }
+                    })
+                    .doOnComplete(() -> {
+                        outcome.set(last.get() != null ? AiMetrics.OUTCOME_SUCCESS : AiMetrics.OUTCOME_ERROR);
+                        finish.run();
+                    })
+                    .doOnError(e -> finish.run())
+                    .doOnCancel(finish);
+        });
+    }
+
+    private Map<String, Object> buildRequest(String model, PromptTemplate.Rendered prompt, double temperature,
+                                             String stage, boolean stream) {
+        Map<String, Object> message = new HashMap<>();
+        message.put("role", "user");
+        message.put("content", prompt);
+        List<Map<String, Object>> messages = new ArrayList<>();
+        messages.add(message);
+
+        Map<String, Object> input = new HashMap<>();
+        input.put("messages", messages);
+
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("temperature", temperature);
+        parameters.put("max_tokens", tokenBudget.maxOutputTokens(stage, prompt.tokens()));
+        if (stream) {
+            parameters.put("incremental_output", true);
+        }
+
+        Map<String, Object> request = new HashMap<>();
+        request.put("model", model);
+        request.put("input", input);
+        request.put("parameters", parameters);
+        return request;
+    }
+
+    /**
+     * 解析通义千问响应中的文本（output.text 或 choices[0].text）
+     */
+    @SuppressWarnings("unchecked")
+    static String extractText(Map<String, Object> body) {
+        Object output = body.get("output");
+        if (output instanceof Map && ((Map<String, Object>) output).get("text") instanceof String) {
+            return (String) ((Map<String, Object>) output).get("text");
+        }
+        Object choices = body.get("choices");
+        if (choices instanceof List && !((List<?>) choices).isEmpty()) {
+            Object first = ((List<?>) choices).get(0);
+            if (first instanceof Map && ((Map<String, Object>) first).get("text") instanceof String) {
+                return (String) ((Map<String, Object>) first).get("text");
+            }
+        }
+        return null;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+}
@@ -0,0 +1,97 @@
+package com.travelplanner.service;
+
+import com.travelplanner.entity.TravelPlan;
+import com.travelplanner.entity.User;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.util.Optional;
+
+/**
+ * 非阻塞对话接口的持久化边界
+ * 把阻塞的JPA调用包装为Mono并在jdbcScheduler上执行，调用方（事件循环线程）只负责编排，
+ * 数据库访问的并发度由调度器线程数限定，不会超过连接池容量
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+@Service
+public class ReactiveConversationStore {
+
+    private final ConversationService conversationService;
+    private final ConversationContextService conversationContextService;
+    private final TravelPlanService travelPlanService;
+    private final UserService userService;
+    private final ModelRouter modelRouter;
+    private final Scheduler jdbcScheduler;
+
+    public ReactiveConversationStore(ConversationService conversationService,
+                                     ConversationContextService conversationContextService,
+                                     TravelPlanService travelPlanService,
+                                     UserService userService,
+                                     ModelRouter modelRouter,
+                                     @Qualifier("jdbcScheduler") Scheduler jdbcScheduler) {
+        this.conversationService = conversationService;
+        this.conversationContextService = conversationContextService;
+        this.travelPlanService = travelPlanService;
+        this.userService = userService;
+        this.modelRouter = modelRouter;
+        this.jdbcScheduler = jdbcScheduler;
+    }
+
+    /**
+     * 查询计划，计划不存在时为空
+     */
+    public Mono<TravelPlan> findPlan(Long planId) {
+        return Mono.fromCallable(() -> travelPlanService.findById(planId))
+                .flatMap(Mono::justOrEmpty)
+                .subscribeOn(jdbcScheduler);
+    }
+
+    /**
+     * 按登录用户名查询用户ID，未登录或用户不存在时为空
+     */
+    public Mono<Long> findUserId(String username) {
+        if (username == null) {
+            return Mono.empty();
+        }
+        return Mono.fromCallable(() -> userService.findByUsername(username).map(User::getId))
+                .flatMap(Mono::justOrEmpty)
+                .subscribeOn(jdbcScheduler);
+    }
+
+    /**
+     * 在计划上下文后附加该计划的对话摘要与最近对话
+     */
+    public Mono<String> withHistory(Long planId, String planContext) {
+        return Mono.fromCallable(() -> conversationContextService.withHistory(planId, planContext))
+                .subscribeOn(jdbcScheduler);
+    }
+
+    /**
+     * 查询用户配置的API Key，未配置时为空；同时刷新用户等级供模型路由使用
+     */
+    public Mono<String> findUserApiKey(Long userId) {
+        return Mono.fromCallable(() -> {
+                    modelRouter.refreshTier(userId);
+                    return Optional.ofNullable(userService.getQwenApiKey(userId));
+                })
+                .flatMap(Mono::justOrEmpty)
+                .filter(apiKey -> !apiKey.trim().isEmpty())
+                .subscribeOn(jdbcScheduler);
+    }
+
+    /**
+     * 保存文本对话记录
+     *
+     * @return 保存的对话记录ID
+     */
+    public Mono<Long> saveConversation(Long userId, Long planId, String userMessage, String aiResponse,
+                                       Long processingTime, String extractedFields) {
+        return Mono.fromCallable(() -> conversationService.saveConversation(userId, planId, userMessage,
+                        aiResponse, "text", null, processingTime, extractedFields))
+                .subscribeOn(jdbcScheduler);
+    }
+}
@@ -0,0 +1,106 @@
+package com.travelplanner.service;
+
+import com.travelplanner.util.TokenEstimator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * 提示词token预算
+ * 调用模型前估算提示词的token数：超出输入上限时由各提示词构建方法按优先级裁剪上下文；
+ * max_tokens 取该类任务实际需要的输出长度，并且不超过上下文窗口扣除输入后的剩余部分
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+@Component
+public class TokenBudget {
+
+    @Value("${app.ai.token-budget.context-window:8000}")
+    private int contextWindow = 8000;
+
+    @Value("${app.ai.token-budget.max-input-tokens:6000}")
+    private int maxInputTokens = 6000;
+
+    @Value("${app.ai.token-budget.min-output-tokens:200}")
+    private int minOutputTokens = 200;
+
+    @Value("${app.ai.token-budget.output.generate:2000}")
+    private int generateOutputTokens = 2000;
+
+    @Value("${app.ai.token-budget.output.extract:200}")
+    private int extractOutputTokens = 200;
+
+    @Value("${app.ai.token-budget.output.budget-analysis:800}")
+    private int budgetAnalysisOutputTokens = 800;
+
+    @Value("${app.ai.token-budget.output.budget-optimize:1200}")
+    private int budgetOptimizeOutputTokens = 1200;
+
+    @Value("${app.ai.token-budget.output.chat-combined:2200}")
+    private int chatCombinedOutputTokens = 2200;
+
+    /**
+     * 单次请求提示词的估算token上限
+     */
+    public int getMaxInputTokens() {
+        return maxInputTokens;
+    }
+
+    /**
+     * 估算文本的token数
+     */
+    public int estimate(CharSequence text) {
+        return TokenEstimator.estimate(text);
+    }
+
+    /**
+     * 按任务类型计算本次请求的 max_tokens
+     *
+     * @param stage 任务阶段（AiMetrics.STAGE_*）
+     * @param prompt 提示词
+     * @return 任务所需输出长度，受上下文窗口剩余部分限制，不低于 min-output-tokens
+     */
+    public int maxOutputTokens(String stage, CharSequence prompt) {
+        return maxOutputTokens(stage, estimate(prompt));
+    }
+
+    /**
+     * 按任务类型计算本次请求的 max_tokens
+     *
+     * @param stage 任务阶段（AiMetrics.STAGE_*）
+     * @param promptTokens 提示词的估算token数
+     */
+    public int maxOutputTokens(String stage, int promptTokens) {
+        return maxOutputTokens(outputTokensFor(stage), promptTokens);
+    }
+
+    /**
+     * 在给定输出长度内计算本次请求的 max_tokens
+     *
+     * @param wanted 期望的最大输出长度
+     * @param prompt 提示词
+     */
+    public int maxOutputTokens(int wanted, CharSequence prompt) {
+        return maxOutputTokens(wanted, estimate(prompt));
+    }
+
+    private int maxOutputTokens(int wanted, int promptTokens) {
+        int available = contextWindow - promptTokens;
+        return Math.max(minOutputTokens, Math.min(wanted, available));
+    }
+
+    private int outputTokensFor(String stage) {
+        switch (stage) {
+            case AiMetrics.STAGE_EXTRACT_LLM:
+                return extractOutputTokens;
+            case AiMetrics.STAGE_BUDGET_ANALYSIS:
+                return budgetAnalysisOutputTokens;
+            case AiMetrics.STAGE_BUDGET_OPTIMIZE:
+                return budgetOptimizeOutputTokens;
+            case AiMetrics.STAGE_CHAT_COMBINED:
+                return chatCombinedOutputTokens;
+            default:
+                return generateOutputTokens;
+        }
+    }
+}
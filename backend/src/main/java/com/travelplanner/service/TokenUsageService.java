@@ -0,0 +1,187 @@
+package com.travelplanner.service;
+
+import com.travelplanner.entity.UserTokenUsage;
+import com.travelplanner.repository.UserTokenUsageRepository;
+import com.travelplanner.util.TokenEstimator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 用户token用量记录
+ * 每次模型调用后按用户/日期/阶段在内存中累加，定期批量写入 user_token_usage，
+ * 调用链路上不产生数据库写入。响应带 usage 时使用实际用量，否则使用本地估算值
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+@Service
+@Slf4j
+public class TokenUsageService {
+
+    private final UserTokenUsageRepository usageRepository;
+
+    private final ConcurrentHashMap<UsageKey, Pending> pending = new ConcurrentHashMap<>();
+
+    public TokenUsageService(UserTokenUsageRepository usageRepository) {
+        this.usageRepository = usageRepository;
+    }
+
+    /**
+     * 记录一次模型调用的用量
+     *
+     * @param userId 用户ID，为空时不记录（不归属具体用户的调用只计入全局指标）
+     * @param stage 任务阶段
+     * @param promptTokens 提示词的估算token数，响应没有 usage 时作为输入用量
+     * @param responseBody 响应体，可为空
+     */
+    public void record(Long userId, String stage, int promptTokens, Map<String, Object> responseBody) {
+        if (userId == null) {
+            return;
+        }
+        long inputTokens = -1;
+        long outputTokens = -1;
+        if (responseBody != null && responseBody.get("usage") instanceof Map) {
+            Map<?, ?> usage = (Map<?, ?>) responseBody.get("usage");
+            inputTokens = toLong(usage.get("input_tokens"));
+            outputTokens = toLong(usage.get("output_tokens"));
+        }
+        if (inputTokens < 0) {
+            inputTokens = promptTokens;
+        }
+        if (outputTokens < 0) {
+            outputTokens = responseBody != null ? TokenEstimator.estimate(ReactiveAiService.extractText(responseBody)) : 0;
+        }
+        long input = inputTokens;
+        long output = outputTokens;
+        pending.compute(new UsageKey(userId, LocalDate.now(), stage), (key, value) -> {
+            Pending usage = value != null ? value : new Pending();
+            usage.add(1, input, output);
+            return usage;
+        });
+    }
+
+    /**
+     * 把内存中累加的用量写入数据库；写入失败的部分放回内存，下次重试
+     */
+    @Scheduled(fixedDelayString = "${app.ai.token-usage.flush-interval-ms:60000}",
+            initialDelayString = "${app.ai.token-usage.flush-interval-ms:60000}")
+    public void flush() {
+        for (UsageKey key : new ArrayList<>(pending.keySet())) {
+            Pending usage = pending.remove(key);
+            if (usage == null) {
+                continue;
+            }
+            try {
+                write(key, usage);
+            } catch (Exception e) {
+                log.warn("写入token用量失败，稍后重试: userId={}, error={}", key.userId, e.getMessage());
+                pending.merge(key, usage, Pending::merge);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    /**
+     * 查询用户最近若干天的用量（包含尚未写入数据库的部分）
+     *
+     * @param userId 用户ID
+     * @param days 天数（含今天）
+     * @return 用量记录，按日期倒序
+     */
+    public List<UserTokenUsage> getUsage(Long userId, int days) {
+        flush();
+        return usageRepository.findByUserIdAndUsageDateGreaterThanEqualOrderByUsageDateDescStageAsc(
+                userId, LocalDate.now().minusDays(Math.max(days, 1) - 1L));
+    }
+
+    private void write(UsageKey key, Pending usage) {
+        LocalDateTime now = LocalDateTime.now();
+        if (usageRepository.addUsage(key.userId, key.date, key.stage, usage.requests,
+                usage.inputTokens, usage.outputTokens, now) > 0) {
+            return;
+        }
+        UserTokenUsage row = new UserTokenUsage();
+        row.setUserId(key.userId);
+        row.setUsageDate(key.date);
+        row.setStage(key.stage);
+        row.setRequestCount(usage.requests);
+        row.setInputTokens(usage.inputTokens);
+        row.setOutputTokens(usage.outputTokens);
+        row.setUpdatedAt(now);
+        try {
+            usageRepository.saveAndFlush(row);
+        } catch (DataIntegrityViolationException e) {
+            // 其他实例已插入同一行，改为累加
+            usageRepository.addUsage(key.userId, key.date, key.stage, usage.requests,
+                    usage.inputTokens, usage.outputTokens, now);
+        }
+    }
+
+    private static long toLong(Object value) {
+        return value instanceof Number ? ((Number) value).longValue() : -1;
+    }
+
+    private static final class UsageKey {
+        private final Long userId;
+        private final LocalDate date;
+        private final String stage;
+
+        private UsageKey(Long userId, LocalDate date, String stage) {
+            this.userId = userId;
+            this.date = date;
+            this.stage = stage;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof UsageKey)) {
+                return false;
+            }
+            UsageKey other = (UsageKey) o;
+            return userId.equals(other.userId) && date.equals(other.date) && stage.equals(other.stage);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(userId, date, stage);
+        }
+    }
+
+    /**
+     * 待写入的用量，只在 ConcurrentHashMap.compute/merge 中修改
+     */
+    private static final class Pending {
+        private long requests;
+        private long inputTokens;
+        private long outputTokens;
+
+        private void add(long requests, long inputTokens, long outputTokens) {
+            this.requests += requests;
+            this.inputTokens += inputTokens;
+            this.outputTokens += outputTokens;
+        }
+
+        private Pending merge(Pending other) {
+            add(other.requests, other.inputTokens, other.outputTokens);
+            return this;
+        }
+    }
+}
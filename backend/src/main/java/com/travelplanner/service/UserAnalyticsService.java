@@ -0,0 +1,272 @@
+package com.travelplanner.service;
+
+import com.travelplanner.entity.Expense;
+import com.travelplanner.entity.TravelPlan;
+import com.travelplanner.repository.ExpenseRepository;
+import com.travelplanner.repository.TravelPlanRepository;
+import com.travelplanner.util.Money;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collector;
+
+/**
+ * 用户跨计划消费分析服务
+ * 用一次分组查询取出用户全部费用的 [计划, 类别, 币种, 日期] 汇总行，
+ * 在内存中一次遍历（行数较多时并行）折算并同时累加按计划、按类别、按月的合计；
+ * 聚合结果按用户缓存，费用变更提交后失效。计划预算每次实时读取，预算修改无需失效缓存
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+@Service
+@Slf4j
+public class UserAnalyticsService {
+
+    private final ExpenseRepository expenseRepository;
+    private final TravelPlanRepository travelPlanRepository;
+    private final FxRateService fxRateService;
+
+    /**
+     * 用户费用聚合缓存（LRU）
+     */
+    private final Map<Long, SpendingAggregate> aggregates;
+
+    /**
+     * 失效计数，构建期间发生失效时不缓存构建结果，避免写入过期数据
+     */
+    private final AtomicLong invalidations = new AtomicLong();
+
+    @Value("${app.user-analytics.parallel-threshold:5000}")
+    private int parallelThreshold;
+
+    public UserAnalyticsService(ExpenseRepository expenseRepository, TravelPlanRepository travelPlanRepository,
+                                FxRateService fxRateService,
+                                @Value("${app.user-analytics.max-entries:5000}") int maxEntries) {
+        this.expenseRepository = expenseRepository;
+        this.travelPlanRepository = travelPlanRepository;
+        this.fxRateService = fxRateService;
+        this.aggregates = Collections.synchronizedMap(new LinkedHashMap<Long, SpendingAggregate>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, SpendingAggregate> eldest) {
+                return size() > maxEntries;
+            }
+        });
+    }
+
+    /**
+     * 获取用户跨计划消费分析
+     *
+     * @param userId 用户ID
+     * @return 按计划、类别、月份的消费统计及各计划预算执行情况
+     */
+    @Transactional(readOnly = true)
+    public UserSpendingAnalytics getUserAnalytics(Long userId) {
+        SpendingAggregate aggregate = getAggregate(userId);
+        List<TravelPlan> plans = travelPlanRepository.findByUserId(userId);
+        String currency = aggregate.rates.getBaseCurrency();
+        int scale = Money.zero(currency).getScale();
+
+        long totalBudget = 0L;
+        long budgetedSpent = 0L;
+        int overBudget = 0;
+        List<UserSpendingAnalytics.PlanSpending> planSpendings = new ArrayList<>(plans.size());
+        for (TravelPlan plan : plans) {
+            long spent = aggregate.byPlan.getOrDefault(plan.getId(), 0L);
+            UserSpendingAnalytics.PlanSpending planSpending = new UserSpendingAnalytics.PlanSpending();
+            planSpending.setPlanId(plan.getId());
+            planSpending.setPlanName(plan.getPlanName());
+            planSpending.setDestination(plan.getDestination());
+            planSpending.setSpent(BigDecimal.valueOf(spent, scale));
+
+            if (plan.getBudget() != null) {
+                long budget = Money.of(plan.getBudget(), currency).getMinorUnits();
+                totalBudget += budget;
+                budgetedSpent += spent;
+                planSpending.setBudget(BigDecimal.valueOf(budget, scale));
+                planSpending.setRemaining(BigDecimal.valueOf(budget - spent, scale));
+                planSpending.setUtilization(Money.toPercent(Money.basisPoints(spent, budget)));
+                planSpending.setOverBudget(spent > budget);
+                if (spent > budget) {
+                    overBudget++;
+                }
+            }
+            planSpendings.add(planSpending);
+        }
+        planSpendings.sort((a, b) -> b.getSpent().compareTo(a.getSpent()));
+
+        Map<String, BigDecimal> byCategory = new LinkedHashMap<>();
+        for (Expense.ExpenseCategory category : Expense.ExpenseCategory.values()) {
+            long amount = aggregate.byCategory[category.ordinal()];
+            if (amount != 0L) {
+                byCategory.put(category.getDisplayName(), BigDecimal.valueOf(amount, scale));
+            }
+        }
+        Map<String, BigDecimal> byMonth = new LinkedHashMap<>();
+        for (Map.Entry<YearMonth, Long> entry : aggregate.byMonth.entrySet()) {
+            byMonth.put(entry.getKey().toString(), BigDecimal.valueOf(entry.getValue(), scale));
+        }
+
+        UserSpendingAnalytics analytics = new UserSpendingAnalytics();
+        analytics.setUserId(userId);
+        analytics.setCurrency(currency);
+        analytics.setPlanCount(plans.size());
+        analytics.setPlansOverBudget(overBudget);
+        analytics.setTotalBudget(BigDecimal.valueOf(totalBudget, scale));
+        analytics.setTotalExpense(BigDecimal.valueOf(aggregate.total, scale));
+        analytics.setBudgetUtilization(totalBudget > 0
+                ? Money.toPercent(Money.basisPoints(budgetedSpent, totalBudget)) : null);
+        analytics.setByCategory(byCategory);
+        analytics.setByMonth(byMonth);
+        analytics.setPlans(planSpendings);
+        analytics.setUnconvertedCurrencies(aggregate.unconvertedCurrencies);
+        analytics.setGeneratedAt(LocalDateTime.now());
+        return analytics;
+    }
+
+    /**
+     * 费用变更提交后使用户的聚合缓存失效
+     *
+     * @param event 费用变更事件
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onExpenseChanged(ExpenseChangedEvent event) {
+        invalidations.incrementAndGet();
+        if (event.getUserId() != null) {
+            aggregates.remove(event.getUserId());
+        }
+    }
+
+    private SpendingAggregate getAggregate(Long userId) {
+        FxRateSnapshot rates = fxRateService.getSnapshot();
+        SpendingAggregate cached = aggregates.get(userId);
+        if (cached != null && cached.rates == rates) {
+            return cached;
+        }
+
+        long invalidationsBefore = invalidations.get();
+        List<Object[]> rows = expenseRepository.getAmountByPlanCategoryCurrencyAndDateAndUserId(userId);
+        SpendingAggregate aggregate = SpendingAggregate.fromGroupedRows(rows, rates, rows.size() >= parallelThreshold);
+        if (!aggregate.unconvertedCurrencies.isEmpty()) {
+            log.warn("用户消费分析存在无法折算的币种，已排除: userId={}, currencies={}",
+                    userId, aggregate.unconvertedCurrencies);
+        }
+
+        if (invalidations.get() == invalidationsBefore) {
+            aggregates.put(userId, aggregate);
+        }
+        return aggregate;
+    }
+
+    /**
+     * 用户费用聚合结果（不可变），金额为基准币种的最小货币单位
+     */
+    static final class SpendingAggregate {
+        private final FxRateSnapshot rates;
+        private final Map<Long, Long> byPlan;
+        private final long[] byCategory;
+        private final TreeMap<YearMonth, Long> byMonth;
+        private final long total;
+        private final Set<String> unconvertedCurrencies;
+
+        private SpendingAggregate(FxRateSnapshot rates, Accumulator accumulator) {
+            this.rates = rates;
+            this.byPlan = Collections.unmodifiableMap(accumulator.byPlan);
+            this.byCategory = accumulator.byCategory;
+            this.byMonth = accumulator.byMonth;
+            this.total = accumulator.total;
+            this.unconvertedCurrencies = Collections.unmodifiableSet(accumulator.unconverted);
+        }
+
+        /**
+         * 由分组统计行构建
+         *
+         * @param rows 分组统计行：[计划ID, 类别, 币种, 日期, 金额]
+         * @param rates 汇率快照
+         * @param parallel 是否并行折算与累加
+         * @return 聚合结果
+         */
+        static SpendingAggregate fromGroupedRows(List<Object[]> rows, FxRateSnapshot rates, boolean parallel) {
+            Collector<Object[], Accumulator, Accumulator> collector = Collector.of(
+                    Accumulator::new, (acc, row) -> acc.add(row, rates), Accumulator::merge);
+            Accumulator accumulator = (parallel ? rows.parallelStream() : rows.stream()).collect(collector);
+            return new SpendingAggregate(rates, accumulator);
+        }
+
+        long getTotal() {
+            return total;
+        }
+
+        Map<Long, Long> getByPlan() {
+            return byPlan;
+        }
+
+        long getCategory(Expense.ExpenseCategory category) {
+            return byCategory[category.ordinal()];
+        }
+
+        Map<YearMonth, Long> getByMonth() {
+            return Collections.unmodifiableMap(byMonth);
+        }
+
+        Set<String> getUnconvertedCurrencies() {
+            return unconvertedCurrencies;
+        }
+    }
+
+    /**
+     * 可合并的累加器，供顺序或并行归约使用
+     */
+    private static final class Accumulator {
+        private final Map<Long, Long> byPlan = new HashMap<>();
+        private final long[] byCategory = new long[Expense.ExpenseCategory.values().length];
+        private final TreeMap<YearMonth, Long> byMonth = new TreeMap<>();
+        private final Set<String> unconverted = new TreeSet<>();
+        private long total;
+
+        private void add(Object[] row, FxRateSnapshot rates) {
+            Long planId = (Long) row[0];
+            Expense.ExpenseCategory category = (Expense.ExpenseCategory) row[1];
+            String currency = (String) row[2];
+            LocalDate date = (LocalDate) row[3];
+            Money converted = rates.toBase((BigDecimal) row[4], currency, date);
+            if (converted == null) {
+                unconverted.add(currency);
+                return;
+            }
+            long amount = converted.getMinorUnits();
+            byPlan.merge(planId, amount, Math::addExact);
+            byCategory[category.ordinal()] = Math.addExact(byCategory[category.ordinal()], amount);
+            byMonth.merge(YearMonth.from(date), amount, Math::addExact);
+            total = Math.addExact(total, amount);
+        }
+
+        private Accumulator merge(Accumulator other) {
+            other.byPlan.forEach((planId, amount) -> byPlan.merge(planId, amount, Math::addExact));
+            for (int i = 0; i < byCategory.length; i++) {
+                byCategory[i] = Math.addExact(byCategory[i], other.byCategory[i]);
+            }
+            other.byMonth.forEach((month, amount) -> byMonth.merge(month, amount, Math::addExact));
+            unconverted.addAll(other.unconverted);
+            total = Math.addExact(total, other.total);
+            return this;
+        }
+    }
+}
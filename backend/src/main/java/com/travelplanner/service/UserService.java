@@ -64,14 +64,14 @@ public class UserService {
     }
     
     /**
-     * 根据用户名查找用户
+     * 根据用户名查找用户（经二级缓存）
      * 
      * @param username 用户名
      * @return 用户信息
      */
     @Transactional(readOnly = true)
     public Optional<User> findByUsername(String username) {
-        return userRepository.findByUsername(username);
+        return userRepository.findByNaturalUsername(username);
     }
     
     /**
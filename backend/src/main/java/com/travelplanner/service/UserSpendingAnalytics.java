@@ -0,0 +1,97 @@
+package com.travelplanner.service;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 用户跨计划消费分析
+ * 金额均已按汇率折算为同一币种
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+@Data
+public class UserSpendingAnalytics {
+
+    private Long userId;
+
+    /**
+     * 金额币种
+     */
+    private String currency;
+
+    /**
+     * 计划数量
+     */
+    private int planCount;
+
+    /**
+     * 超出预算的计划数量
+     */
+    private int plansOverBudget;
+
+    /**
+     * 所有计划预算合计
+     */
+    private BigDecimal totalBudget;
+
+    /**
+     * 所有计划费用合计
+     */
+    private BigDecimal totalExpense;
+
+    /**
+     * 整体预算使用率（百分比）
+     */
+    private BigDecimal budgetUtilization;
+
+    /**
+     * 按类别统计（类别显示名 -> 金额）
+     */
+    private Map<String, BigDecimal> byCategory;
+
+    /**
+     * 按月统计（yyyy-MM -> 金额），按月份升序
+     */
+    private Map<String, BigDecimal> byMonth;
+
+    /**
+     * 各计划的预算执行情况，按费用降序
+     */
+    private List<PlanSpending> plans;
+
+    /**
+     * 无法按汇率折算、未计入统计的币种
+     */
+    private Set<String> unconvertedCurrencies;
+
+    /**
+     * 统计生成时间
+     */
+    private LocalDateTime generatedAt;
+
+    /**
+     * 单个计划的预算执行情况
+     */
+    @Data
+    public static class PlanSpending {
+        private Long planId;
+        private String planName;
+        private String destination;
+        private BigDecimal budget;
+        private BigDecimal spent;
+        private BigDecimal remaining;
+
+        /**
+         * 预算使用率（百分比），未设置预算时为null
+         */
+        private BigDecimal utilization;
+
+        private boolean overBudget;
+    }
+}
@@ -0,0 +1,98 @@
+package com.travelplanner.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * CSV工具类 - 逐条读取与转义CSV记录（RFC 4180）
+ * 读取时每次只解析一条记录，支持引号包裹的字段中包含逗号、引号和换行
+ */
+public class CsvUtils {
+
+    private static final char BOM = '\uFEFF';
+
+    /**
+     * 读取下一条CSV记录
+     *
+     * @param reader 输入
+     * @return 字段列表，已到达末尾时返回null
+     * @throws IOException 读取失败或引号未闭合时
+     */
+    public static List<String> readRecord(BufferedReader reader) throws IOException {
+        String line = reader.readLine();
+        if (line == null) {
+            return null;
+        }
+        if (!line.isEmpty() && line.charAt(0) == BOM) {
+            line = line.substring(1);
+        }
+
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        int i = 0;
+        while (true) {
+            if (i >= line.length()) {
+                if (!quoted) {
+                    break;
+                }
+                // 引号内的换行属于字段内容
+                line = reader.readLine();
+                if (line == null) {
+                    throw new IOException("CSV引号未闭合");
+                }
+                field.append('\n');
+                i = 0;
+                continue;
+            }
+            char c = line.charAt(i++);
+            if (quoted) {
+                if (c == '"') {
+                    if (i < line.length() && line.charAt(i) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    /**
+     * 转义CSV字段，包含逗号、引号或换行时用引号包裹
+     *
+     * @param value 字段值，null输出为空
+     * @return 转义后的字段
+     */
+    public static String escape(String value) {
+        if (value == null) {
+            return "";
+        }
+        boolean needsQuote = false;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                needsQuote = true;
+                break;
+            }
+        }
+        if (!needsQuote) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,113 @@
+package com.travelplanner.util;
+
+/**
+ * 合并回复拆分器
+ * 单次调用模式下模型先输出 &lt;fields&gt;...&lt;/fields&gt; 字段块（JSON），再输出计划正文。
+ * 按到达顺序逐段输入模型输出（流式增量或一次性完整文本），字段块结束后其余内容原样作为计划正文返回，
+ * 标记跨分段时也能正确识别。非线程安全，每次回复使用一个实例
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+public final class FieldsBlockSplitter {
+
+    public static final String OPEN_TAG = "<fields>";
+    public static final String CLOSE_TAG = "</fields>";
+
+    private enum State { START, FIELDS, PLAN }
+
+    private final StringBuilder buffer = new StringBuilder();
+    private State state = State.START;
+    private boolean trimLeading;
+    private String fields;
+
+    /**
+     * 输入一段模型输出
+     *
+     * @param chunk 增量文本
+     * @return 本段中属于计划正文的部分，可能为空字符串
+     */
+    public String feed(CharSequence chunk) {
+        if (state == State.PLAN) {
+            return plan(chunk);
+        }
+        int searchFrom = Math.max(0, buffer.length() - CLOSE_TAG.length() + 1);
+        buffer.append(chunk);
+        if (state == State.START) {
+            int start = 0;
+            while (start < buffer.length() && Character.isWhitespace(buffer.charAt(start))) {
+                start++;
+            }
+            int length = Math.min(buffer.length() - start, OPEN_TAG.length());
+            if (!buffer.substring(start, start + length).equals(OPEN_TAG.substring(0, length))) {
+                // 回复不以字段块开头，全部作为计划正文
+                state = State.PLAN;
+                return drain(0);
+            }
+            if (length < OPEN_TAG.length()) {
+                return "";
+            }
+            buffer.delete(0, start + OPEN_TAG.length());
+            state = State.FIELDS;
+            searchFrom = 0;
+        }
+        int close = buffer.indexOf(CLOSE_TAG, searchFrom);
+        if (close < 0) {
+            return "";
+        }
+        fields = buffer.substring(0, close).trim();
+        state = State.PLAN;
+        trimLeading = true;
+        return plan(drain(close + CLOSE_TAG.length()));
+    }
+
+    /**
+     * 输出结束，返回尚未返回的计划正文
+     * 字段块未闭合时，以第一个完整的JSON对象作为字段，其后的内容作为计划正文
+     */
+    public String finish() {
+        State last = state;
+        state = State.PLAN;
+        if (last == State.START) {
+            return drain(0);
+        }
+        if (last == State.FIELDS) {
+            int end = buffer.indexOf("}");
+            if (end < 0) {
+                fields = drain(0).trim();
+                return "";
+            }
+            fields = buffer.substring(0, end + 1).trim();
+            trimLeading = true;
+            return plan(drain(end + 1));
+        }
+        return "";
+    }
+
+    /**
+     * 字段块内容，回复中没有字段块时为null
+     */
+    public String getFields() {
+        return fields;
+    }
+
+    private String plan(CharSequence chunk) {
+        if (!trimLeading) {
+            return chunk.toString();
+        }
+        int start = 0;
+        while (start < chunk.length() && Character.isWhitespace(chunk.charAt(start))) {
+            start++;
+        }
+        if (start < chunk.length()) {
+            trimLeading = false;
+        }
+        return chunk.subSequence(start, chunk.length()).toString();
+    }
+
+    private String drain(int from) {
+        String text = buffer.substring(from);
+        buffer.setLength(0);
+        return text;
+    }
+}
@@ -0,0 +1,238 @@
+package com.travelplanner.util;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Currency;
+import java.util.Objects;
+
+/**
+ * 金额值类型 - 以最小货币单位（如分）的long值加币种表示金额
+ * 用于费用汇总与预算分析等热点计算，避免BigDecimal运算产生的大量临时对象；
+ * 仅在API边界与BigDecimal/Double相互转换
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+public final class Money implements Comparable<Money>, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 默认币种
+     */
+    public static final String DEFAULT_CURRENCY = "CNY";
+
+    /**
+     * 百分比的基点精度（1% = 100基点）
+     */
+    private static final long BASIS_POINTS = 10_000L;
+
+    private final long minorUnits;
+    private final String currency;
+    private final int scale;
+
+    private Money(long minorUnits, String currency, int scale) {
+        this.minorUnits = minorUnits;
+        this.currency = currency;
+        this.scale = scale;
+    }
+
+    /**
+     * 以最小货币单位创建金额
+     *
+     * @param minorUnits 最小货币单位数量（如分）
+     * @param currency 币种代码
+     * @return 金额
+     */
+    public static Money ofMinor(long minorUnits, String currency) {
+        String code = normalizeCurrency(currency);
+        return new Money(minorUnits, code, scaleOf(code));
+    }
+
+    /**
+     * 由BigDecimal创建金额，按币种精度四舍五入
+     *
+     * @param amount 金额，null视为0
+     * @param currency 币种代码
+     * @return 金额
+     */
+    public static Money of(BigDecimal amount, String currency) {
+        String code = normalizeCurrency(currency);
+        int scale = scaleOf(code);
+        return new Money(amount == null ? 0L : toMinorUnits(amount, scale), code, scale);
+    }
+
+    /**
+     * 由Double创建金额（如旅游计划预算），按币种精度四舍五入
+     *
+     * @param amount 金额，null视为0
+     * @param currency 币种代码
+     * @return 金额
+     */
+    public static Money of(Double amount, String currency) {
+        return of(amount == null ? null : BigDecimal.valueOf(amount), currency);
+    }
+
+    /**
+     * 创建零金额
+     *
+     * @param currency 币种代码
+     * @return 零金额
+     */
+    public static Money zero(String currency) {
+        return ofMinor(0L, currency);
+    }
+
+    /**
+     * 将BigDecimal金额转换为最小货币单位
+     *
+     * @param amount 金额
+     * @param scale 币种小数位数
+     * @return 最小货币单位数量
+     * @throws ArithmeticException 超出long范围时
+     */
+    public static long toMinorUnits(BigDecimal amount, int scale) {
+        return amount.setScale(scale, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /**
+     * 计算部分占整体的百分比，以基点表示（四舍五入，12.05% = 1205）
+     *
+     * @param part 部分
+     * @param whole 整体
+     * @return 基点数，整体不为正时返回0
+     */
+    public static long basisPoints(long part, long whole) {
+        if (whole <= 0) {
+            return 0L;
+        }
+        try {
+            long scaled = Math.multiplyExact(Math.multiplyExact(part, BASIS_POINTS), 2L);
+            long rounded = Math.addExact(scaled, part >= 0 ? whole : -whole);
+            return rounded / Math.multiplyExact(whole, 2L);
+        } catch (ArithmeticException e) {
+            // 极大金额时退回BigDecimal计算
+            return BigDecimal.valueOf(part).multiply(BigDecimal.valueOf(BASIS_POINTS))
+                    .divide(BigDecimal.valueOf(whole), 0, RoundingMode.HALF_UP).longValueExact();
+        }
+    }
+
+    /**
+     * 将基点转换为百分比数值（1205 -> 12.05）
+     *
+     * @param basisPoints 基点数
+     * @return 百分比
+     */
+    public static BigDecimal toPercent(long basisPoints) {
+        return BigDecimal.valueOf(basisPoints, 2);
+    }
+
+    /**
+     * 加法
+     *
+     * @param other 另一金额，币种必须一致
+     * @return 和
+     */
+    public Money plus(Money other) {
+        checkSameCurrency(other);
+        return new Money(Math.addExact(minorUnits, other.minorUnits), currency, scale);
+    }
+
+    /**
+     * 减法
+     *
+     * @param other 另一金额，币种必须一致
+     * @return 差
+     */
+    public Money minus(Money other) {
+        checkSameCurrency(other);
+        return new Money(Math.subtractExact(minorUnits, other.minorUnits), currency, scale);
+    }
+
+    /**
+     * 计算当前金额占另一金额的百分比（基点）
+     *
+     * @param whole 整体金额，币种必须一致
+     * @return 基点数，整体不为正时返回0
+     */
+    public long basisPointsOf(Money whole) {
+        checkSameCurrency(whole);
+        return basisPoints(minorUnits, whole.minorUnits);
+    }
+
+    /**
+     * 转换为BigDecimal（API边界使用）
+     *
+     * @return 按币种精度表示的金额
+     */
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minorUnits, scale);
+    }
+
+    public long getMinorUnits() {
+        return minorUnits;
+    }
+
+    public String getCurrency() {
+        return currency;
+    }
+
+    public int getScale() {
+        return scale;
+    }
+
+    public boolean isZero() {
+        return minorUnits == 0L;
+    }
+
+    public boolean isPositive() {
+        return minorUnits > 0L;
+    }
+
+    public boolean isNegative() {
+        return minorUnits < 0L;
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        checkSameCurrency(other);
+        return Long.compare(minorUnits, other.minorUnits);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Money)) {
+            return false;
+        }
+        Money money = (Money) o;
+        return minorUnits == money.minorUnits && currency.equals(money.currency);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(minorUnits, currency);
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString() + " " + currency;
+    }
+
+    private void checkSameCurrency(Money other) {
+        if (!currency.equals(other.currency)) {
+            throw new IllegalArgumentException("币种不一致: " + currency + " / " + other.currency);
+        }
+    }
+
+    private static String normalizeCurrency(String currency) {
+        return currency == null || currency.isEmpty() ? DEFAULT_CURRENCY : currency.toUpperCase();
+    }
+
+    private static int scaleOf(String currency) {
+        return Math.max(0, Currency.getInstance(currency).getDefaultFractionDigits());
+    }
+}
@@ -0,0 +1,48 @@
+package com.travelplanner.util;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 请求/响应内容日志工具
+ * 提示词和模型响应动辄数千字符，逐条完整输出会占用可观的CPU和磁盘I/O；
+ * 正常请求按比例采样并截断输出，出错时再完整保留现场（同样截断）
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+public final class PayloadLogs {
+
+    /**
+     * 内容日志使用的logger名称，可单独调整级别或路由到独立的appender
+     */
+    public static final String LOGGER_NAME = "com.travelplanner.payload";
+
+    private PayloadLogs() {
+    }
+
+    /**
+     * 按采样率决定本次请求是否输出内容日志
+     *
+     * @param rate 采样率，0关闭，1全部输出
+     */
+    public static boolean sample(double rate) {
+        if (rate <= 0) {
+            return false;
+        }
+        return rate >= 1 || ThreadLocalRandom.current().nextDouble() < rate;
+    }
+
+    /**
+     * 截断内容，超出部分以总长度提示代替
+     *
+     * @param payload 内容，null 原样输出
+     * @param maxLength 最大字符数，不大于0时不截断
+     */
+    public static String abbreviate(Object payload, int maxLength) {
+        String text = String.valueOf(payload);
+        if (maxLength <= 0 || text.length() <= maxLength) {
+            return text;
+        }
+        return text.substring(0, maxLength) + "...(共" + text.length() + "字符)";
+    }
+}
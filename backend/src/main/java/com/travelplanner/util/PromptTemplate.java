@@ -0,0 +1,300 @@
+package com.travelplanner.util;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.core.json.JsonGeneratorImpl;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 预编译的提示词模板
+ * 模板语法：{{name}} 为变量；{{#name}}...{{/name}} 为区块，变量为空时整个区块省略。
+ * 编译时把固定片段转义为JSON字符串内容并缓存其UTF-8字节和估算token数；
+ * 渲染只记录变量值，序列化请求体时固定片段直接写出缓存的字节，只有变量需要转义，
+ * 不生成完整的提示词字符串
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+public final class PromptTemplate {
+
+    private final String name;
+    private final int version;
+    private final List<Part> parts;
+    private final int staticTokens;
+
+    private PromptTemplate(String name, int version, List<Part> parts) {
+        this.name = name;
+        this.version = version;
+        this.parts = parts;
+        int tokens = 0;
+        for (Part part : parts) {
+            tokens += part.staticTokens();
+        }
+        this.staticTokens = tokens;
+    }
+
+    /**
+     * 编译模板
+     *
+     * @param name 模板名称
+     * @param version 模板版本
+     * @param source 模板内容
+     * @throws IllegalArgumentException 区块未闭合或不匹配时
+     */
+    public static PromptTemplate compile(String name, int version, String source) {
+        List<List<Part>> stack = new ArrayList<>();
+        List<String> sections = new ArrayList<>();
+        List<Part> current = new ArrayList<>();
+        int position = 0;
+        while (position < source.length()) {
+            int open = source.indexOf("{{", position);
+            if (open < 0) {
+                current.add(new Literal(source.substring(position)));
+                break;
+            }
+            int close = source.indexOf("}}", open);
+            if (close < 0) {
+                throw new IllegalArgumentException(name + ": 未闭合的 {{ ，位置 " + open);
+            }
+            if (open > position) {
+                current.add(new Literal(source.substring(position, open)));
+            }
+            String tag = source.substring(open + 2, close).trim();
+            if (tag.startsWith("#")) {
+                stack.add(current);
+                sections.add(tag.substring(1).trim());
+                current = new ArrayList<>();
+            } else if (tag.startsWith("/")) {
+                String section = tag.substring(1).trim();
+                if (sections.isEmpty() || !sections.get(sections.size() - 1).equals(section)) {
+                    throw new IllegalArgumentException(name + ": 区块 {{/" + section + "}} 没有对应的开始标记");
+                }
+                sections.remove(sections.size() - 1);
+                Section part = new Section(section, current);
+                current = stack.remove(stack.size() - 1);
+                current.add(part);
+            } else {
+                current.add(new Variable(tag));
+            }
+            position = close + 2;
+        }
+        if (!sections.isEmpty()) {
+            throw new IllegalArgumentException(name + ": 区块 {{#" + sections.get(sections.size() - 1) + "}} 未闭合");
+        }
+        return new PromptTemplate(name, version, Collections.unmodifiableList(current));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * 模板固定部分（含区块内固定部分）的估算token数
+     */
+    public int getStaticTokens() {
+        return staticTokens;
+    }
+
+    /**
+     * 用变量值渲染模板；未提供的变量按空字符串处理，非字符序列的值按 String.valueOf 输出
+     */
+    public Rendered render(Map<String, ?> values) {
+        List<Object> pieces = new ArrayList<>();
+        int tokens = append(parts, values, pieces);
+        return new Rendered(this, pieces, tokens);
+    }
+
+    private static int append(List<Part> parts, Map<String, ?> values, List<Object> pieces) {
+        int tokens = 0;
+        for (Part part : parts) {
+            if (part instanceof Literal) {
+                pieces.add(((Literal) part).escaped);
+                tokens += ((Literal) part).tokens;
+            } else if (part instanceof Variable) {
+                CharSequence value = valueOf(values, ((Variable) part).name);
+                if (value.length() > 0) {
+                    pieces.add(value);
+                    tokens += TokenEstimator.estimate(value);
+                }
+            } else {
+                Section section = (Section) part;
+                if (valueOf(values, section.name).length() > 0) {
+                    tokens += append(section.parts, values, pieces);
+                }
+            }
+        }
+        return tokens;
+    }
+
+    private static CharSequence valueOf(Map<String, ?> values, String name) {
+        if (!values.containsKey(name)) {
+            return "";
+        }
+        Object value = values.get(name);
+        return value instanceof CharSequence ? (CharSequence) value : String.valueOf(value);
+    }
+
+    @Override
+    public String toString() {
+        return name + ".v" + version;
+    }
+
+    /**
+     * 渲染结果，作为请求体中 content 字段的值直接交给Jackson序列化
+     */
+    public static final class Rendered implements JsonSerializable {
+
+        private final PromptTemplate template;
+        /**
+         * SerializableString（已转义的固定片段）或 CharSequence（未转义的变量值）
+         */
+        private final List<Object> pieces;
+        private final int tokens;
+        private String text;
+
+        private Rendered(PromptTemplate template, List<Object> pieces, int tokens) {
+            this.template = template;
+            this.pieces = pieces;
+            this.tokens = tokens;
+        }
+
+        public PromptTemplate getTemplate() {
+            return template;
+        }
+
+        /**
+         * 估算token数：固定片段使用编译时的结果，变量在渲染时估算
+         */
+        public int tokens() {
+            return tokens;
+        }
+
+        @Override
+        public void serialize(JsonGenerator gen, SerializerProvider serializers) throws IOException {
+            if (!(gen instanceof JsonGeneratorImpl)) {
+                // 非文本输出（如TokenBuffer）不支持写入原始内容
+                gen.writeString(toString());
+                return;
+            }
+            gen.writeRawValue("\"");
+            JsonStringEncoder encoder = JsonStringEncoder.getInstance();
+            for (Object piece : pieces) {
+                if (piece instanceof SerializableString) {
+                    gen.writeRaw((SerializableString) piece);
+                } else {
+                    char[] escaped = encoder.quoteAsString((CharSequence) piece);
+                    gen.writeRaw(escaped, 0, escaped.length);
+                }
+            }
+            gen.writeRaw('"');
+        }
+
+        @Override
+        public void serializeWithType(JsonGenerator gen, SerializerProvider serializers, TypeSerializer typeSer)
+                throws IOException {
+            serialize(gen, serializers);
+        }
+
+        /**
+         * 完整的提示词文本，仅在需要时（日志、测试）生成
+         */
+        @Override
+        public String toString() {
+            String result = text;
+            if (result == null) {
+                StringBuilder builder = new StringBuilder();
+                for (Object piece : pieces) {
+                    builder.append(piece instanceof Literal.Escaped ? ((Literal.Escaped) piece).raw : piece);
+                }
+                result = builder.toString();
+                text = result;
+            }
+            return result;
+        }
+    }
+
+    private interface Part {
+        int staticTokens();
+    }
+
+    private static final class Literal implements Part {
+
+        private final Escaped escaped;
+        private final int tokens;
+
+        private Literal(String raw) {
+            this.escaped = new Escaped(raw);
+            this.tokens = TokenEstimator.estimate(raw);
+        }
+
+        @Override
+        public int staticTokens() {
+            return tokens;
+        }
+
+        /**
+         * 以转义后的JSON字符串内容作为"原始"值，writeRaw 时直接写出缓存的UTF-8字节
+         */
+        private static final class Escaped extends SerializedString {
+
+            private static final long serialVersionUID = 1L;
+
+            private final String raw;
+
+            private Escaped(String raw) {
+                super(new String(JsonStringEncoder.getInstance().quoteAsString(raw)));
+                this.raw = raw;
+                // 预先编码，请求线程上不再编码
+                asUnquotedUTF8();
+            }
+        }
+    }
+
+    private static final class Variable implements Part {
+
+        private final String name;
+
+        private Variable(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public int staticTokens() {
+            return 0;
+        }
+    }
+
+    private static final class Section implements Part {
+
+        private final String name;
+        private final List<Part> parts;
+
+        private Section(String name, List<Part> parts) {
+            this.name = name;
+            this.parts = Collections.unmodifiableList(parts);
+        }
+
+        @Override
+        public int staticTokens() {
+            int tokens = 0;
+            for (Part part : parts) {
+                tokens += part.staticTokens();
+            }
+            return tokens;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.travelplanner.util;
+
+/**
+ * 本地token估算
+ * 不调用分词器，按通义千问分词的经验比例估算：汉字及全角标点约1个token，
+ * 其余字符（字母、数字、空白、半角标点）约4个字符1个token。用于提示词长度控制，不用于计费
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+public final class TokenEstimator {
+
+    /**
+     * 非中文字符每个token对应的字符数
+     */
+    private static final int CHARS_PER_TOKEN = 4;
+
+    private TokenEstimator() {
+    }
+
+    /**
+     * 估算文本的token数
+     */
+    public static int estimate(CharSequence text) {
+        if (text == null) {
+            return 0;
+        }
+        int wide = 0;
+        int narrow = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (isWide(text.charAt(i))) {
+                wide++;
+            } else {
+                narrow++;
+            }
+        }
+        return wide + (narrow + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN;
+    }
+
+    /**
+     * 截取不超过 maxTokens 的前缀，被截断时以省略号结尾
+     */
+    public static String truncate(String text, int maxTokens) {
+        if (text == null || estimate(text) <= maxTokens) {
+            return text;
+        }
+        if (maxTokens <= 0) {
+            return "";
+        }
+        // 省略号占1个token
+        int budget = (maxTokens - 1) * CHARS_PER_TOKEN;
+        int end = 0;
+        while (end < text.length()) {
+            int cost = isWide(text.charAt(end)) ? CHARS_PER_TOKEN : 1;
+            if (cost > budget) {
+                break;
+            }
+            budget -= cost;
+            end++;
+        }
+        return text.substring(0, end) + "…";
+    }
+
+    private static boolean isWide(char c) {
+        return Character.isIdeographic(c)
+                || (c >= '\u3000' && c <= '\u303f')  // CJK标点
+                || (c >= '\uff00' && c <= '\uffef'); // 全角字符
+    }
+}
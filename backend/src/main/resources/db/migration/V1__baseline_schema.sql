@@ -0,0 +1,74 @@
+-- 基础表结构
+-- 与实体映射保持一致（prod 配置下 Hibernate 以 validate 模式校验）
+-- 使用 IF NOT EXISTS，可在由 init.sql 创建的已有数据库上执行
+
+CREATE TABLE IF NOT EXISTS users (
+    id BIGSERIAL PRIMARY KEY,
+    username VARCHAR(50) NOT NULL UNIQUE,
+    password VARCHAR(100) NOT NULL,
+    email VARCHAR(100),
+    phone VARCHAR(20),
+    full_name VARCHAR(50),
+    avatar_url VARCHAR(500),
+    user_role VARCHAR(20) DEFAULT 'USER',
+    is_active BOOLEAN DEFAULT TRUE,
+    qwen_api_key VARCHAR(200),
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS travel_plans (
+    id BIGSERIAL PRIMARY KEY,
+    user_id BIGINT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    plan_name VARCHAR(100) NOT NULL,
+    destination VARCHAR(100),
+    start_date TIMESTAMP,
+    end_date TIMESTAMP,
+    budget DOUBLE PRECISION,
+    travel_type VARCHAR(50),
+    group_size INTEGER,
+    special_requirements VARCHAR(1000),
+    status VARCHAR(20) DEFAULT 'DRAFT',
+    ai_generated VARCHAR(5000),
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS conversations (
+    id BIGSERIAL PRIMARY KEY,
+    user_id BIGINT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    plan_id BIGINT REFERENCES travel_plans(id) ON DELETE CASCADE,
+    user_message VARCHAR(2000),
+    ai_response VARCHAR(5000),
+    message_type VARCHAR(50),
+    voice_file_url VARCHAR(500),
+    processing_time BIGINT,
+    extracted_fields VARCHAR(1000),
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS expenses (
+    id BIGSERIAL PRIMARY KEY,
+    plan_id BIGINT NOT NULL REFERENCES travel_plans(id) ON DELETE CASCADE,
+    user_id BIGINT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    category VARCHAR(20) NOT NULL,
+    amount NUMERIC(10, 2) NOT NULL,
+    currency VARCHAR(3) NOT NULL DEFAULT 'CNY',
+    description VARCHAR(500),
+    location VARCHAR(200),
+    expense_date DATE NOT NULL,
+    payment_method VARCHAR(50),
+    receipt_url VARCHAR(500),
+    tags VARCHAR(200),
+    is_reimbursable BOOLEAN DEFAULT FALSE,
+    notes VARCHAR(1000),
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+-- 补齐 init.sql 建表时缺少的列
+ALTER TABLE users ADD COLUMN IF NOT EXISTS qwen_api_key VARCHAR(200);
+ALTER TABLE conversations ADD COLUMN IF NOT EXISTS extracted_fields VARCHAR(1000);
+-- init.sql 中预算为 DECIMAL，实体映射为 Double
+ALTER TABLE travel_plans ALTER COLUMN budget SET DATA TYPE DOUBLE PRECISION;
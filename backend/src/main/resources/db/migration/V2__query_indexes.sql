@@ -0,0 +1,38 @@
+-- 与仓库查询形态对应的组合索引
+-- 等值条件列在前，排序/范围列在后，排序方向与查询一致，避免额外排序
+
+-- init.sql 创建的单列索引被下面的组合索引前缀覆盖
+DROP INDEX IF EXISTS idx_users_username;
+DROP INDEX IF EXISTS idx_travel_plans_user_id;
+DROP INDEX IF EXISTS idx_travel_plans_status;
+DROP INDEX IF EXISTS idx_travel_plans_destination;
+DROP INDEX IF EXISTS idx_conversations_user_id;
+DROP INDEX IF EXISTS idx_conversations_plan_id;
+DROP INDEX IF EXISTS idx_conversations_created_at;
+
+-- users: findByEmail（findByUsername 使用唯一约束索引）
+CREATE INDEX IF NOT EXISTS idx_users_email ON users (email);
+
+-- travel_plans: findByUserIdOrderByCreatedAtDesc, findByUserId
+CREATE INDEX IF NOT EXISTS idx_travel_plans_user_created ON travel_plans (user_id, created_at DESC);
+-- travel_plans: findByUserIdAndStatusOrderByCreatedAtDesc
+CREATE INDEX IF NOT EXISTS idx_travel_plans_user_status_created ON travel_plans (user_id, status, created_at DESC);
+-- travel_plans: findByDateRange
+CREATE INDEX IF NOT EXISTS idx_travel_plans_start_end ON travel_plans (start_date, end_date);
+
+-- conversations: findByUserIdOrderByCreatedAtDesc, findByUserIdAndTimeRange, streamByUserIdAndPlanId(planId为空)
+CREATE INDEX IF NOT EXISTS idx_conversations_user_created ON conversations (user_id, created_at DESC);
+-- conversations: findByUserIdAndPlanIdOrderByCreatedAtDesc, streamByUserIdAndPlanId
+CREATE INDEX IF NOT EXISTS idx_conversations_user_plan_created ON conversations (user_id, plan_id, created_at DESC);
+-- conversations: findByPlanIdOrderByCreatedAtAsc（同时作为外键索引）
+CREATE INDEX IF NOT EXISTS idx_conversations_plan_created ON conversations (plan_id, created_at);
+
+-- expenses: findByPlanIdOrderByExpenseDateDesc, findByPlanIdAndExpenseDateBetween..., findByPlanIdAndExpenseDate...,
+--           findByPlanIdAndUserId..., 按计划的汇总查询（同时作为外键索引）
+CREATE INDEX IF NOT EXISTS idx_expenses_plan_date ON expenses (plan_id, expense_date DESC);
+-- expenses: findByUserIdOrderByExpenseDateDesc, streamByUserId, 按用户的汇总查询
+CREATE INDEX IF NOT EXISTS idx_expenses_user_date ON expenses (user_id, expense_date DESC);
+-- expenses: findByPlanIdAndCategoryOrderByExpenseDateDesc, getAmountByCategoryAndPlanId
+CREATE INDEX IF NOT EXISTS idx_expenses_plan_category_date ON expenses (plan_id, category, expense_date DESC);
+-- expenses: findByPlanIdAndCurrencyOrderByExpenseDateDesc
+CREATE INDEX IF NOT EXISTS idx_expenses_plan_currency_date ON expenses (plan_id, currency, expense_date DESC);
@@ -0,0 +1,26 @@
+-- 旅游计划生成任务队列
+-- worker 按 (status, available_at) 认领任务；可见性超时已过的 RUNNING 任务按 (status, locked_until) 重新认领
+
+CREATE TABLE IF NOT EXISTS plan_generation_jobs (
+    id BIGSERIAL PRIMARY KEY,
+    plan_id BIGINT NOT NULL REFERENCES travel_plans(id) ON DELETE CASCADE,
+    user_id BIGINT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    user_message VARCHAR(2000),
+    status VARCHAR(20) NOT NULL DEFAULT 'QUEUED',
+    attempts INTEGER NOT NULL DEFAULT 0,
+    max_attempts INTEGER NOT NULL,
+    available_at TIMESTAMP NOT NULL,
+    locked_by VARCHAR(100),
+    locked_until TIMESTAMP,
+    last_error VARCHAR(1000),
+    completed_at TIMESTAMP,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+-- findClaimableIds, claim: 排队任务
+CREATE INDEX IF NOT EXISTS idx_plan_generation_jobs_status_available ON plan_generation_jobs (status, available_at);
+-- findClaimableIds, claim: 可见性超时的运行中任务
+CREATE INDEX IF NOT EXISTS idx_plan_generation_jobs_status_locked ON plan_generation_jobs (status, locked_until);
+-- findFirstByPlanIdOrderByIdDesc, findFirstByPlanIdAndStatusIn...（同时作为外键索引）
+CREATE INDEX IF NOT EXISTS idx_plan_generation_jobs_plan ON plan_generation_jobs (plan_id, id DESC);
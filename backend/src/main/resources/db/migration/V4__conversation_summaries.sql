@@ -0,0 +1,14 @@
+-- 对话滚动摘要：每个计划一行，last_conversation_id 之前的对话已折叠进摘要
+-- 按主键（plan_id）读写；deleteByUserId 按 user_id 删除
+
+CREATE TABLE IF NOT EXISTS conversation_summaries (
+    plan_id BIGINT PRIMARY KEY REFERENCES travel_plans(id) ON DELETE CASCADE,
+    user_id BIGINT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    summary VARCHAR(4000) NOT NULL,
+    last_conversation_id BIGINT NOT NULL,
+    summarized_turns INTEGER NOT NULL DEFAULT 0,
+    version BIGINT NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_conversation_summaries_user ON conversation_summaries (user_id);
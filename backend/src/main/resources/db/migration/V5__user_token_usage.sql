@@ -0,0 +1,14 @@
+-- 用户token用量：按用户、日期、任务阶段汇总，由应用定期批量累加
+-- 按 (user_id, usage_date, stage) 累加与查询
+
+CREATE TABLE IF NOT EXISTS user_token_usage (
+    id BIGSERIAL PRIMARY KEY,
+    user_id BIGINT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    usage_date DATE NOT NULL,
+    stage VARCHAR(32) NOT NULL,
+    request_count BIGINT NOT NULL DEFAULT 0,
+    input_tokens BIGINT NOT NULL DEFAULT 0,
+    output_tokens BIGINT NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT uk_user_token_usage_user_date_stage UNIQUE (user_id, usage_date, stage)
+);
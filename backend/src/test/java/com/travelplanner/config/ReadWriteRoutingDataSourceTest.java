@@ -0,0 +1,117 @@
+package com.travelplanner.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 读写分离路由数据源测试
+ * 主库与从库分别使用两个独立的H2内存库，通过表中的标记区分实际命中的数据库
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+public class ReadWriteRoutingDataSourceTest {
+
+    private ReadWriteRoutingDataSource routingDataSource;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate readTemplate;
+    private TransactionTemplate writeTemplate;
+
+    @BeforeEach
+    void setUp() {
+        routingDataSource = create("SELECT 0");
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void testReadOnlyTransactionsGoToReplica() {
+        assertEquals("replica", readMarker());
+        assertEquals("primary", writeTemplate.execute(status -> marker()));
+        // 无事务的访问走主库
+        assertEquals("primary", marker());
+    }
+
+    @Test
+    void testReadYourWritesAfterOwnCommit() {
+        login("alice");
+        writeTemplate.executeWithoutResult(status -> jdbcTemplate.update("UPDATE marker SET touched = touched + 1"));
+        assertEquals("primary", readMarker());
+
+        login("bob");
+        assertEquals("replica", readMarker());
+    }
+
+    @Test
+    void testRolledBackWriteIsNotSticky() {
+        login("alice");
+        writeTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("UPDATE marker SET touched = touched + 1");
+            status.setRollbackOnly();
+        });
+        assertEquals("replica", readMarker());
+    }
+
+    @Test
+    void testLaggingReplicaIsSkipped() {
+        routingDataSource = create("SELECT 60000");
+        assertEquals("primary", readMarker());
+        assertEquals(false, ((Map<?, ?>) routingDataSource.getStatus().get("replica-1")).get("healthy"));
+    }
+
+    private ReadWriteRoutingDataSource create(String lagQuery) {
+        DataSource primary = database("rw_primary", "primary");
+        DataSource replica = database("rw_replica", "replica");
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(primary,
+                Collections.singletonMap("replica-1", replica), 2000L, 60000L, lagQuery);
+        routing.refreshReplicaLag();
+
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routing);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        readTemplate = new TransactionTemplate(transactionManager);
+        readTemplate.setReadOnly(true);
+        writeTemplate = new TransactionTemplate(transactionManager);
+        return routing;
+    }
+
+    private String readMarker() {
+        return readTemplate.execute(status -> marker());
+    }
+
+    private String marker() {
+        return jdbcTemplate.queryForObject("SELECT name FROM marker", String.class);
+    }
+
+    private static void login(String username) {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                username, null, AuthorityUtils.createAuthorityList("ROLE_USER")));
+    }
+
+    private static DataSource database(String name, String marker) {
+        DataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate template = new JdbcTemplate(dataSource);
+        template.execute("DROP TABLE IF EXISTS marker");
+        template.execute("CREATE TABLE marker (name VARCHAR(20), touched INT)");
+        template.update("INSERT INTO marker VALUES (?, 0)", marker);
+        return dataSource;
+    }
+}
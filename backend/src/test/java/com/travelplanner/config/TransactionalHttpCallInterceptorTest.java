@@ -0,0 +1,57 @@
+package com.travelplanner.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.jdbc.datasource.ConnectionHolder;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.net.URI;
+import java.sql.Connection;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 外部HTTP调用检查拦截器与连接池大小计算测试
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+public class TransactionalHttpCallInterceptorTest {
+
+    private final DataSource dataSource = mock(DataSource.class);
+    private final ConnectionPoolMetrics metrics = new ConnectionPoolMetrics(100L);
+    private final TransactionalHttpCallInterceptor interceptor = new TransactionalHttpCallInterceptor(dataSource, metrics);
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.hasResource(dataSource)) {
+            TransactionSynchronizationManager.unbindResource(dataSource);
+        }
+    }
+
+    @Test
+    void testCountsCallsWhileHoldingConnection() throws Exception {
+        ClientHttpRequestExecution execution = mock(ClientHttpRequestExecution.class);
+        MockClientHttpRequest request = new MockClientHttpRequest(HttpMethod.POST, URI.create("https://example.com/ai"));
+
+        interceptor.intercept(request, new byte[0], execution);
+        assertEquals(0L, metrics.snapshot().get("httpCallsInTransaction"));
+
+        TransactionSynchronizationManager.bindResource(dataSource, new ConnectionHolder(mock(Connection.class)));
+        interceptor.intercept(request, new byte[0], execution);
+        assertEquals(1L, metrics.snapshot().get("httpCallsInTransaction"));
+        verify(execution, times(2)).execute(request, new byte[0]);
+    }
+
+    @Test
+    void testComputePoolSize() {
+        assertEquals(17, DataSourcePoolConfig.computePoolSize(8, 0, 4));
+        assertEquals(10, DataSourcePoolConfig.computePoolSize(8, 10, 4));
+        assertEquals(4, DataSourcePoolConfig.computePoolSize(1, 0, 4));
+    }
+}
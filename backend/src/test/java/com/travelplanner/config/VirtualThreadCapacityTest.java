@@ -0,0 +1,161 @@
+package com.travelplanner.config;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.embedded.tomcat.TomcatWebServer;
+import org.springframework.boot.web.server.WebServer;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 虚拟线程执行模式测试
+ * 在Java 21+上启动嵌入式Tomcat，以每请求阻塞 {@value #MODEL_LATENCY_MS}ms 模拟等待大模型响应的对话请求，
+ * 验证数千个请求可同时在途；平台线程模式（默认200个工作线程）下同时在途的请求不超过200个。
+ * 请求数可通过 -Dloadtest.requests 调整
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+public class VirtualThreadCapacityTest {
+
+    private static final long MODEL_LATENCY_MS = 1000;
+
+    static boolean virtualThreadsSupported() {
+        return VirtualThreads.isSupported();
+    }
+
+    @Test
+    void testFallsBackWhenUnsupported() {
+        if (VirtualThreads.isSupported()) {
+            assertTrue(VirtualThreads.isVirtual(newVirtualThread()));
+        } else {
+            assertFalse(VirtualThreads.isVirtual(Thread.currentThread()));
+            assertThrows(IllegalStateException.class, () -> VirtualThreads.threadFactory("vt-"));
+        }
+    }
+
+    @Test
+    @EnabledIf("virtualThreadsSupported")
+    void testThousandsOfBlockingChatsInFlight() throws Exception {
+        int requests = Integer.getInteger("loadtest.requests", 2000);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger peakInFlight = new AtomicInteger();
+        AtomicInteger platformThreadRequests = new AtomicInteger();
+
+        HttpServlet chatServlet = new HttpServlet() {
+            @Override
+            protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+                if (!VirtualThreads.isVirtual(Thread.currentThread())) {
+                    platformThreadRequests.incrementAndGet();
+                }
+                peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(MODEL_LATENCY_MS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+                resp.getWriter().write("ok");
+            }
+        };
+
+        TomcatServletWebServerFactory factory = new TomcatServletWebServerFactory(0);
+        VirtualThreadConfig config = new VirtualThreadConfig();
+        factory.addProtocolHandlerCustomizers(config.virtualThreadProtocolHandlerCustomizer());
+        factory.addConnectorCustomizers(connector -> connector.setProperty("acceptCount", String.valueOf(requests)));
+        WebServer server = factory.getWebServer(context -> context.addServlet("chat", chatServlet).addMapping("/chat"));
+        server.start();
+        ExecutorService clients = VirtualThreads.newThreadPerTaskExecutor("load-client-");
+        try {
+            URL url = new URL("http://localhost:" + ((TomcatWebServer) server).getPort() + "/chat");
+            long start = System.nanoTime();
+            List<Future<Integer>> responses = new ArrayList<>(requests);
+            for (int i = 0; i < requests; i++) {
+                responses.add(clients.submit(() -> call(url)));
+            }
+            int ok = 0;
+            for (Future<Integer> response : responses) {
+                if (response.get(60, TimeUnit.SECONDS) == 200) {
+                    ok++;
+                }
+            }
+            Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+            assertEquals(requests, ok);
+            assertEquals(0, platformThreadRequests.get());
+            // 平台线程模式下同时在途的请求不超过200个工作线程；总耗时受建连开销与CPU核数影响，仅输出不断言
+            assertTrue(peakInFlight.get() > Math.min(requests - 1, 200), "peak in-flight " + peakInFlight.get());
+            System.out.printf("virtual threads: %d requests, peak in-flight %d, elapsed %dms%n",
+                    requests, peakInFlight.get(), elapsed.toMillis());
+        } finally {
+            clients.shutdownNow();
+            server.stop();
+            config.shutdown();
+        }
+    }
+
+    @Test
+    @EnabledIf("virtualThreadsSupported")
+    void testReportsPinnedVirtualThreads() throws Exception {
+        PinnedThreadMonitor monitor = new PinnedThreadMonitor(Duration.ofMillis(10), Duration.ofSeconds(10));
+        assertTrue(monitor.start());
+        try {
+            Object lock = new Object();
+            Thread pinned = VirtualThreads.threadFactory("pinned-").newThread(() -> {
+                synchronized (lock) {
+                    try {
+                        Thread.sleep(100);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+            pinned.start();
+            pinned.join();
+
+            long deadline = System.currentTimeMillis() + 10000;
+            while (monitor.getPinnedEvents() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(100);
+            }
+            assertTrue(monitor.getPinnedEvents() > 0);
+            assertTrue((Long) monitor.snapshot().get("maxPinnedMs") >= 90);
+        } finally {
+            monitor.close();
+        }
+    }
+
+    private static Thread newVirtualThread() {
+        return VirtualThreads.threadFactory("vt-").newThread(() -> { });
+    }
+
+    private static int call(URL url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setConnectTimeout(30000);
+        connection.setReadTimeout(60000);
+        try (InputStream body = connection.getInputStream()) {
+            while (body.read() != -1) {
+                // 读完响应体
+            }
+            return connection.getResponseCode();
+        } finally {
+            connection.disconnect();
+        }
+    }
+}
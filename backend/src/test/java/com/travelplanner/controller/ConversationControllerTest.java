@@ -0,0 +1,115 @@
+package com.travelplanner.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.travelplanner.entity.TravelPlan;
+import com.travelplanner.security.JwtUtil;
+import com.travelplanner.service.AiMetrics;
+import com.travelplanner.service.AiService;
+import com.travelplanner.service.ConversationContextService;
+import com.travelplanner.service.ConversationService;
+import com.travelplanner.service.DataExportService;
+import com.travelplanner.service.TravelPlanService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 对话控制器测试：对话历史只附加到当前用户自己的计划上，调用者以JWT令牌为准
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+public class ConversationControllerTest {
+
+    private static final Long PLAN_ID = 1L;
+    private static final Long OWNER_ID = 7L;
+    private static final String PLAN_INFO = "计划名称: 东京之旅, 目的地: 日本东京, 预算: 20000.0, 人数: 2";
+
+    private ConversationContextService conversationContextService;
+    private JwtUtil jwtUtil;
+    private AiService aiService;
+    private ConversationController controller;
+
+    @BeforeEach
+    void setUp() {
+        TravelPlan plan = new TravelPlan();
+        plan.setUserId(OWNER_ID);
+        plan.setPlanName("东京之旅");
+        plan.setDestination("日本东京");
+        plan.setBudget(20000.0);
+        plan.setGroupSize(2);
+        TravelPlanService travelPlanService = mock(TravelPlanService.class);
+        when(travelPlanService.findById(PLAN_ID)).thenReturn(Optional.of(plan));
+
+        conversationContextService = mock(ConversationContextService.class);
+        when(conversationContextService.withHistory(eq(PLAN_ID), anyString()))
+                .thenAnswer(invocation -> invocation.getArgument(1) + "\n最近对话: 想去浅草寺");
+
+        aiService = mock(AiService.class);
+        when(aiService.extractTravelFields(anyLong(), anyString())).thenReturn(new AiService.ExtractedFields());
+        when(aiService.generateTravelPlan(anyLong(), anyString(), anyString())).thenReturn("东京行程");
+
+        jwtUtil = mock(JwtUtil.class);
+        when(jwtUtil.validateToken("owner-token")).thenReturn(true);
+        when(jwtUtil.getUserIdFromToken("owner-token")).thenReturn(OWNER_ID);
+        when(jwtUtil.validateToken("other-token")).thenReturn(true);
+        when(jwtUtil.getUserIdFromToken("other-token")).thenReturn(8L);
+
+        controller = new ConversationController(mock(ConversationService.class), conversationContextService,
+                aiService, new AiMetrics(new SimpleMeterRegistry()), travelPlanService,
+                mock(DataExportService.class), jwtUtil, new ObjectMapper());
+    }
+
+    @Test
+    void testOwnerGetsConversationHistory() {
+        assertTrue(controller.chat(request(OWNER_ID), withToken("owner-token")).getStatusCode().is2xxSuccessful());
+
+        verify(conversationContextService).withHistory(PLAN_ID, PLAN_INFO);
+        verify(aiService).generateTravelPlan(OWNER_ID, "再安排一天", PLAN_INFO + "\n最近对话: 想去浅草寺");
+    }
+
+    @Test
+    void testOtherUserGetsPlanInfoOnly() {
+        assertTrue(controller.chat(request(8L), withToken("other-token")).getStatusCode().is2xxSuccessful());
+
+        verify(conversationContextService, never()).withHistory(any(), any());
+        verify(aiService).generateTravelPlan(8L, "再安排一天", PLAN_INFO);
+    }
+
+    @Test
+    void testSpoofedUserIdWithoutTokenGetsPlanInfoOnly() {
+        assertTrue(controller.chat(request(OWNER_ID), new MockHttpServletRequest()).getStatusCode().is2xxSuccessful());
+
+        verify(conversationContextService, never()).withHistory(any(), any());
+        verify(aiService).generateTravelPlan(OWNER_ID, "再安排一天", PLAN_INFO);
+    }
+
+    @Test
+    void testSpoofedUserIdWithOtherTokenGetsPlanInfoOnly() {
+        assertTrue(controller.chat(request(OWNER_ID), withToken("other-token")).getStatusCode().is2xxSuccessful());
+
+        verify(conversationContextService, never()).withHistory(any(), any());
+        verify(aiService).generateTravelPlan(OWNER_ID, "再安排一天", PLAN_INFO);
+    }
+
+    private static ConversationController.ChatRequest request(Long userId) {
+        ConversationController.ChatRequest request = new ConversationController.ChatRequest();
+        request.setUserId(userId);
+        request.setPlanId(PLAN_ID);
+        request.setMessage("再安排一天");
+        return request;
+    }
+
+    private static MockHttpServletRequest withToken(String token) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer " + token);
+        return request;
+    }
+}
@@ -0,0 +1,91 @@
+package com.travelplanner.controller;
+
+import com.travelplanner.entity.PlanGenerationJob;
+import com.travelplanner.entity.TravelPlan;
+import com.travelplanner.security.JwtUtil;
+import com.travelplanner.service.PlanGenerationJobService;
+import com.travelplanner.service.TravelPlanService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.Collections;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 旅游计划控制器测试：只有计划所有者可以提交和查看生成任务，调用者以JWT令牌为准
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+public class TravelPlanControllerTest {
+
+    private static final Long PLAN_ID = 1L;
+    private static final Long OWNER_ID = 7L;
+
+    private PlanGenerationJobService planGenerationJobService;
+    private TravelPlanController controller;
+
+    @BeforeEach
+    void setUp() {
+        TravelPlan plan = new TravelPlan();
+        plan.setId(PLAN_ID);
+        plan.setUserId(OWNER_ID);
+        TravelPlanService travelPlanService = mock(TravelPlanService.class);
+        when(travelPlanService.findById(PLAN_ID)).thenReturn(Optional.of(plan));
+
+        PlanGenerationJob job = new PlanGenerationJob();
+        job.setPlanId(PLAN_ID);
+        job.setUserId(OWNER_ID);
+        job.setLastError("模型调用超时");
+        planGenerationJobService = mock(PlanGenerationJobService.class);
+        when(planGenerationJobService.enqueue(eq(PLAN_ID), any())).thenReturn(job);
+        when(planGenerationJobService.findLatest(PLAN_ID)).thenReturn(Optional.of(job));
+        when(planGenerationJobService.describe(job)).thenReturn(Collections.<String, Object>singletonMap("lastError", job.getLastError()));
+
+        JwtUtil jwtUtil = mock(JwtUtil.class);
+        when(jwtUtil.validateToken("owner-token")).thenReturn(true);
+        when(jwtUtil.getUserIdFromToken("owner-token")).thenReturn(OWNER_ID);
+        when(jwtUtil.validateToken("other-token")).thenReturn(true);
+        when(jwtUtil.getUserIdFromToken("other-token")).thenReturn(8L);
+
+        controller = new TravelPlanController(travelPlanService, planGenerationJobService, jwtUtil);
+    }
+
+    @Test
+    void testOwnerCanEnqueueAndQueryGeneration() {
+        assertEquals(HttpStatus.ACCEPTED, controller.generatePlan(PLAN_ID, null, withToken("owner-token")).getStatusCode());
+        assertEquals(HttpStatus.OK, controller.getGenerationStatus(PLAN_ID, withToken("owner-token")).getStatusCode());
+
+        verify(planGenerationJobService).enqueue(PLAN_ID, null);
+    }
+
+    @Test
+    void testOtherUserCannotEnqueueGeneration() {
+        assertEquals(HttpStatus.BAD_REQUEST, controller.generatePlan(PLAN_ID, null, withToken("other-token")).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, controller.generatePlan(PLAN_ID, null, new MockHttpServletRequest()).getStatusCode());
+
+        verify(planGenerationJobService, never()).enqueue(any(), any());
+    }
+
+    @Test
+    void testOtherUserCannotSeeGenerationStatus() {
+        assertEquals(HttpStatus.BAD_REQUEST, controller.getGenerationStatus(PLAN_ID, withToken("other-token")).getStatusCode());
+        controller.streamGenerationStatus(PLAN_ID, new MockHttpServletRequest());
+
+        verify(planGenerationJobService, never()).findLatest(any());
+        verify(planGenerationJobService, never()).describe(any());
+        verify(planGenerationJobService, never()).subscribe(any());
+    }
+
+    private static MockHttpServletRequest withToken(String token) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer " + token);
+        return request;
+    }
+}
@@ -0,0 +1,427 @@
+package com.travelplanner.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.travelplanner.util.FieldsBlockSplitter;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerRequest;
+import reactor.netty.http.server.HttpServerResponse;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 通义千问（DashScope）与科大讯飞本地桩服务
+ * 实现 DashScope 文本生成协议（text/message 两种 result_format，X-DashScope-SSE 流式输出，
+ * incremental_output 增量模式，usage token统计，401/429/500 错误体），延迟、错误率、限流和输出长度
+ * 由 {@link AiStubSettings} 控制。应用通过 app.qwen.base-url 指向 {@link #qwenBaseUrl()} 即可走完整的HTTP链路，
+ * 与 app.ai.mock-mode 在 AiService 内部短路不同
+ *
+ * 独立运行：mvn test-compile exec:java -Dexec.classpathScope=test
+ *     -Dexec.mainClass=com.travelplanner.loadtest.AiStubServer -Dexec.args="--port=18090 --latency=lognormal:300:1500"
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+@Slf4j
+public class AiStubServer implements AutoCloseable {
+
+    public static final String DASHSCOPE_PREFIX = "/api/v1";
+    public static final String GENERATION_PATH = "/services/aigc/text-generation/generation";
+    public static final String XUNFEI_PREFIX = "/v1/private";
+
+    /** AiService.buildFieldExtractionPrompt 的固定片段，用于区分字段提取请求 */
+    static final String EXTRACTION_MARKER = "提取旅行规划的关键信息";
+
+    /** 单次调用模式（AiService.buildCombinedPrompt）的提示词要求回复以字段块开头 */
+    static final String COMBINED_MARKER = FieldsBlockSplitter.OPEN_TAG;
+
+    private static final String PLAN_TEXT = "第一天：抵达目的地后办理酒店入住，傍晚在老城区散步并品尝当地特色小吃。"
+            + "第二天：上午参观历史博物馆，了解城市文化，下午前往著名景区游览，晚上欣赏城市夜景。"
+            + "第三天：前往郊外自然风景区徒步，中午在农家餐厅用餐，下午返回市区购买特产。"
+            + "交通建议：市内优先乘坐地铁，景区之间可以包车，节省换乘时间。"
+            + "住宿建议：选择交通便利的市中心酒店，提前预订可以获得更优惠的价格。"
+            + "预算分配：住宿约占百分之四十，餐饮约占百分之二十五，交通和门票约占百分之三十五。";
+
+    private final AiStubSettings settings;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final DisposableServer server;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong streamed = new AtomicLong();
+    private final AtomicLong throttled = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong rejectedKeys = new AtomicLong();
+    private final AtomicLong inputTokens = new AtomicLong();
+    private final AtomicLong outputTokens = new AtomicLong();
+    private final AtomicLong transcriptions = new AtomicLong();
+
+    private AiStubServer(int port, AiStubSettings settings) {
+        this.settings = settings;
+        this.server = HttpServer.create()
+                .port(port)
+                .handle(this::handle)
+                .bindNow();
+    }
+
+    /**
+     * 启动桩服务
+     *
+     * @param port 端口，0表示随机端口
+     */
+    public static AiStubServer start(int port, AiStubSettings settings) {
+        AiStubServer stub = new AiStubServer(port, settings);
+        log.info("AI桩服务已启动: qwen={}, xunfei={}", stub.qwenBaseUrl(), stub.xunfeiBaseUrl());
+        return stub;
+    }
+
+    public int port() {
+        return server.port();
+    }
+
+    /**
+     * 对应 app.qwen.base-url
+     */
+    public String qwenBaseUrl() {
+        return "http://localhost:" + port() + DASHSCOPE_PREFIX;
+    }
+
+    /**
+     * 对应 app.xunfei.base-url
+     */
+    public String xunfeiBaseUrl() {
+        return "http://localhost:" + port() + XUNFEI_PREFIX;
+    }
+
+    public AiStubSettings settings() {
+        return settings;
+    }
+
+    /**
+     * 当前累计统计
+     */
+    public Stats stats() {
+        Stats stats = new Stats();
+        stats.setRequests(requests.get());
+        stats.setStreamed(streamed.get());
+        stats.setThrottled(throttled.get());
+        stats.setFailed(failed.get());
+        stats.setRejectedKeys(rejectedKeys.get());
+        stats.setInputTokens(inputTokens.get());
+        stats.setOutputTokens(outputTokens.get());
+        stats.setTranscriptions(transcriptions.get());
+        stats.setPeakInFlight(peakInFlight.get());
+        return stats;
+    }
+
+    /**
+     * 重置并发峰值，便于按压测阶段统计
+     */
+    public void resetPeakInFlight() {
+        peakInFlight.set(inFlight.get());
+    }
+
+    @Override
+    public void close() {
+        server.disposeNow();
+    }
+
+    private Publisher<Void> handle(HttpServerRequest request, HttpServerResponse response) {
+        if (!HttpMethod.POST.equals(request.method())) {
+            return response.status(HttpResponseStatus.METHOD_NOT_ALLOWED).send();
+        }
+        String path = request.fullPath();
+        if (path.equals(DASHSCOPE_PREFIX + GENERATION_PATH)) {
+            return generation(request, response);
+        }
+        if (path.startsWith(XUNFEI_PREFIX)) {
+            return transcription(request, response);
+        }
+        return response.status(HttpResponseStatus.NOT_FOUND).send();
+    }
+
+    private Mono<Void> generation(HttpServerRequest request, HttpServerResponse response) {
+        requests.incrementAndGet();
+        String authorization = request.requestHeaders().get("Authorization");
+        String accept = request.requestHeaders().get("Accept");
+        boolean stream = "enable".equalsIgnoreCase(request.requestHeaders().get("X-DashScope-SSE"))
+                || (accept != null && accept.contains("text/event-stream"));
+
+        return request.receive().aggregate().asString(StandardCharsets.UTF_8).defaultIfEmpty("").flatMap(body -> {
+            String requestId = UUID.randomUUID().toString();
+            if (("Bearer " + settings.getInvalidApiKey()).equals(authorization)) {
+                rejectedKeys.incrementAndGet();
+                return error(response, HttpResponseStatus.UNAUTHORIZED, "InvalidApiKey",
+                        "Invalid API-key provided.", requestId);
+            }
+
+            JsonNode json;
+            try {
+                json = objectMapper.readTree(body);
+            } catch (IOException e) {
+                return error(response, HttpResponseStatus.BAD_REQUEST, "InvalidParameter",
+                        "Request body is not valid JSON.", requestId);
+            }
+
+            int current = inFlight.incrementAndGet();
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            if ((settings.getMaxConcurrency() > 0 && current > settings.getMaxConcurrency())
+                    || random.nextDouble() < settings.getThrottleRate()) {
+                inFlight.decrementAndGet();
+                throttled.incrementAndGet();
+                return error(response, HttpResponseStatus.TOO_MANY_REQUESTS, "Throttling.RateQuota",
+                        "Requests rate limit exceeded, please try again later.", requestId);
+            }
+            peakInFlight.accumulateAndGet(current, Math::max);
+
+            Reply reply = reply(json, requestId);
+            Runnable account = () -> {
+                inputTokens.addAndGet(reply.inputTokens);
+                outputTokens.addAndGet(reply.outputTokens);
+            };
+            Duration firstToken = Duration.ofMillis(Math.max(0, settings.getFirstTokenLatency().sampleMillis()));
+            Mono<Void> result;
+            if (random.nextDouble() < settings.getErrorRate()) {
+                failed.incrementAndGet();
+                result = Mono.delay(firstToken).then(error(response, HttpResponseStatus.INTERNAL_SERVER_ERROR,
+                        "InternalError", "An internal error has occured, please try again later or contact service support.",
+                        requestId)).doOnSuccess(ignored -> account.run());
+            } else if (stream) {
+                streamed.incrementAndGet();
+                result = stream(response, reply, firstToken).doOnSuccess(ignored -> account.run());
+            } else {
+                Duration total = firstToken.plusNanos((long) (reply.outputTokens * settings.getPerTokenMillis() * 1_000_000));
+                // 在写出响应前计数，客户端收到响应后读取的统计已包含本次请求
+                result = Mono.delay(total).then(Mono.defer(() -> {
+                    account.run();
+                    return json(response, HttpResponseStatus.OK, reply.body(reply.text, reply.outputTokens, reply.finishReason));
+                }));
+            }
+            return result.doFinally(signal -> inFlight.decrementAndGet());
+        });
+    }
+
+    /**
+     * SSE流式输出，与DashScope一致：每个事件带 id/event/:HTTP_STATUS 行，
+     * 非增量模式下每个事件的 text 为截至当前的完整内容
+     */
+    private Mono<Void> stream(HttpServerResponse response, Reply reply, Duration firstToken) {
+        int chunkTokens = Math.max(1, settings.getStreamChunkTokens());
+        int chunks = Math.max(1, (reply.outputTokens + chunkTokens - 1) / chunkTokens);
+        int charsPerChunk = (reply.text.length() + chunks - 1) / chunks;
+        long periodNanos = (long) (chunkTokens * settings.getPerTokenMillis() * 1_000_000);
+
+        Flux<Long> ticks = periodNanos > 0
+                ? Flux.interval(firstToken, Duration.ofNanos(periodNanos)).take(chunks)
+                : Mono.delay(firstToken).thenMany(Flux.range(0, chunks).map(Integer::longValue));
+        Flux<String> events = ticks.map(tick -> {
+            int index = tick.intValue();
+            int start = Math.min(reply.text.length(), index * charsPerChunk);
+            int end = index == chunks - 1 ? reply.text.length() : Math.min(reply.text.length(), start + charsPerChunk);
+            boolean last = index == chunks - 1;
+            String text = reply.incremental ? reply.text.substring(start, end) : reply.text.substring(0, end);
+            int tokens = last ? reply.outputTokens : Math.min(reply.outputTokens, (index + 1) * chunkTokens);
+            return "id:" + (index + 1) + "\nevent:result\n:HTTP_STATUS/200\ndata:"
+                    + reply.body(text, tokens, last ? reply.finishReason : "null") + "\n\n";
+        });
+        return response.status(HttpResponseStatus.OK)
+                .header("Content-Type", "text/event-stream;charset=UTF-8")
+                .header("X-DashScope-Request-Id", reply.requestId)
+                .sendString(events, StandardCharsets.UTF_8)
+                .then();
+    }
+
+    private Mono<Void> transcription(HttpServerRequest request, HttpServerResponse response) {
+        transcriptions.incrementAndGet();
+        Duration latency = Duration.ofMillis(Math.max(0, settings.getFirstTokenLatency().sampleMillis()));
+        return request.receive().then(Mono.delay(latency)).then(Mono.defer(() -> {
+            ObjectNode root = objectMapper.createObjectNode();
+            root.put("code", 0);
+            root.put("message", "success");
+            root.put("sid", "iat" + UUID.randomUUID().toString().replace("-", ""));
+            ObjectNode data = root.putObject("data");
+            data.put("status", 2);
+            ArrayNode ws = data.putObject("result").putArray("ws");
+            String transcript = settings.getTranscript();
+            for (int i = 0; i < transcript.length(); i++) {
+                ObjectNode word = ws.addObject();
+                word.put("bg", i);
+                word.putArray("cw").addObject().put("w", String.valueOf(transcript.charAt(i))).put("sc", 0);
+            }
+            return json(response, HttpResponseStatus.OK, root.toString());
+        }));
+    }
+
+    private Reply reply(JsonNode request, String requestId) {
+        JsonNode input = request.path("input");
+        StringBuilder prompt = new StringBuilder(input.path("prompt").asText(""));
+        for (JsonNode message : input.path("messages")) {
+            prompt.append(message.path("content").asText(""));
+        }
+        JsonNode parameters = request.path("parameters");
+
+        Reply reply = new Reply();
+        reply.requestId = requestId;
+        reply.messageFormat = "message".equals(parameters.path("result_format").asText());
+        reply.incremental = parameters.path("incremental_output").asBoolean(false);
+        reply.inputTokens = estimateTokens(prompt);
+        reply.finishReason = "stop";
+
+        String promptText = prompt.toString();
+        if (promptText.contains(EXTRACTION_MARKER)) {
+            reply.text = settings.getExtractionReply();
+            reply.outputTokens = estimateTokens(reply.text);
+        } else {
+            // 单次调用模式：字段块 + 计划正文
+            String fields = promptText.contains(COMBINED_MARKER)
+                    ? FieldsBlockSplitter.OPEN_TAG + "\n" + settings.getExtractionReply() + "\n" + FieldsBlockSplitter.CLOSE_TAG + "\n"
+                    : "";
+            int fieldsTokens = estimateTokens(fields);
+            int min = settings.getMinOutputTokens();
+            int max = Math.max(min, settings.getMaxOutputTokens());
+            int tokens = ThreadLocalRandom.current().nextInt(min, max + 1);
+            int maxTokens = parameters.path("max_tokens").asInt(0);
+            if (maxTokens > 0 && fieldsTokens + tokens > maxTokens) {
+                tokens = Math.max(0, maxTokens - fieldsTokens);
+                reply.finishReason = "length";
+            }
+            reply.text = fields + planText(tokens);
+            reply.outputTokens = fieldsTokens + tokens;
+        }
+        return reply;
+    }
+
+    /**
+     * 近似的通义千问分词：汉字约1个token，其余字符约4个一个token
+     */
+    static int estimateTokens(CharSequence text) {
+        int cjk = 0;
+        int other = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (Character.UnicodeScript.of(text.charAt(i)) == Character.UnicodeScript.HAN) {
+                cjk++;
+            } else {
+                other++;
+            }
+        }
+        return cjk + (other + 3) / 4;
+    }
+
+    /**
+     * 生成指定token数的计划正文（全部为汉字和中文标点，一个字符按一个token计）
+     */
+    private static String planText(int tokens) {
+        StringBuilder text = new StringBuilder(tokens);
+        while (text.length() < tokens) {
+            text.append(PLAN_TEXT, 0, Math.min(PLAN_TEXT.length(), tokens - text.length()));
+        }
+        return text.toString();
+    }
+
+    private Mono<Void> error(HttpServerResponse response, HttpResponseStatus status, String code, String message,
+                             String requestId) {
+        ObjectNode root = objectMapper.createObjectNode();
+        root.put("code", code);
+        root.put("message", message);
+        root.put("request_id", requestId);
+        return json(response, status, root.toString());
+    }
+
+    private static Mono<Void> json(HttpServerResponse response, HttpResponseStatus status, String body) {
+        return response.status(status)
+                .header("Content-Type", "application/json;charset=UTF-8")
+                .sendString(Mono.just(body), StandardCharsets.UTF_8)
+                .then();
+    }
+
+    /**
+     * 单次生成请求的回复内容
+     */
+    private final class Reply {
+        private String requestId;
+        private boolean messageFormat;
+        private boolean incremental;
+        private String text;
+        private int inputTokens;
+        private int outputTokens;
+        private String finishReason;
+
+        private String body(String content, int tokens, String finish) {
+            ObjectNode root = objectMapper.createObjectNode();
+            ObjectNode output = root.putObject("output");
+            if (messageFormat) {
+                ObjectNode choice = output.putArray("choices").addObject();
+                choice.put("finish_reason", finish);
+                ObjectNode message = choice.putObject("message");
+                message.put("role", "assistant");
+                message.put("content", content);
+            } else {
+                output.put("text", content);
+                output.put("finish_reason", finish);
+            }
+            ObjectNode usage = root.putObject("usage");
+            usage.put("input_tokens", inputTokens);
+            usage.put("output_tokens", tokens);
+            usage.put("total_tokens", inputTokens + tokens);
+            root.put("request_id", requestId);
+            return root.toString();
+        }
+    }
+
+    /**
+     * 桩服务统计
+     */
+    @Data
+    public static class Stats {
+        private long requests;
+        private long streamed;
+        private long throttled;
+        private long failed;
+        private long rejectedKeys;
+        private long inputTokens;
+        private long outputTokens;
+        private long transcriptions;
+        private int peakInFlight;
+
+        /**
+         * 与较早快照的差值（并发峰值取本快照的值）
+         */
+        public Stats minus(Stats earlier) {
+            Stats delta = new Stats();
+            delta.setRequests(requests - earlier.requests);
+            delta.setStreamed(streamed - earlier.streamed);
+            delta.setThrottled(throttled - earlier.throttled);
+            delta.setFailed(failed - earlier.failed);
+            delta.setRejectedKeys(rejectedKeys - earlier.rejectedKeys);
+            delta.setInputTokens(inputTokens - earlier.inputTokens);
+            delta.setOutputTokens(outputTokens - earlier.outputTokens);
+            delta.setTranscriptions(transcriptions - earlier.transcriptions);
+            delta.setPeakInFlight(peakInFlight);
+            return delta;
+        }
+    }
+
+    public static void main(String[] args) {
+        int port = Integer.parseInt(AiStubSettings.option(args, "port", "18090"));
+        AiStubServer stub = start(port, AiStubSettings.fromArgs(args));
+        log.info("启动应用时指定 --app.qwen.base-url={} --app.xunfei.base-url={}", stub.qwenBaseUrl(), stub.xunfeiBaseUrl());
+        stub.server.onDispose().block();
+    }
+}
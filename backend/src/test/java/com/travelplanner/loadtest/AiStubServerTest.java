@@ -0,0 +1,237 @@
+package com.travelplanner.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.travelplanner.service.AiMetrics;
+import com.travelplanner.service.AiService;
+import com.travelplanner.service.AiServices;
+import com.travelplanner.service.ModelRouter;
+import com.travelplanner.service.ReactiveAiService;
+import com.travelplanner.service.ReactiveConversationStore;
+import com.travelplanner.service.TokenBudget;
+import com.travelplanner.service.TokenUsageService;
+import com.travelplanner.service.UserService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * AI桩服务与压测发生器测试
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+public class AiStubServerTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private AiStubServer stub;
+    private AiService aiService;
+    private SimpleMeterRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        AiStubSettings settings = new AiStubSettings();
+        settings.setFirstTokenLatency(LatencyDistribution.fixed(20));
+        settings.setPerTokenMillis(0.1);
+        settings.setMinOutputTokens(120);
+        settings.setMaxOutputTokens(120);
+        stub = AiStubServer.start(0, settings);
+
+        registry = new SimpleMeterRegistry();
+        aiService = AiServices.forTest(new RestTemplate(), new AiMetrics(registry));
+        ReflectionTestUtils.setField(aiService, "mockMode", false);
+        ReflectionTestUtils.setField(aiService, "qwenBaseUrl", stub.qwenBaseUrl());
+    }
+
+    @AfterEach
+    void tearDown() {
+        stub.close();
+    }
+
+    @Test
+    void testAiServiceTalksToStubOverHttp() {
+        AiService.ExtractedFields fields = aiService.extractFieldsWithCustomKey("sk-load-test", "两个人去北京，预算5000");
+        assertEquals("北京", fields.getDestination());
+        assertEquals(5000.0, fields.getBudget());
+        assertEquals(2, fields.getGroupSize());
+
+        String plan = aiService.generateTravelPlanWithCustomKey("sk-load-test", "两个人去北京，预算5000", "");
+        assertEquals(120, plan.length());
+        assertTrue(plan.startsWith("第一天"), plan);
+
+        AiStubServer.Stats stats = stub.stats();
+        assertEquals(2, stats.getRequests());
+        assertEquals(120 + AiStubServer.estimateTokens(stub.settings().getExtractionReply()), stats.getOutputTokens());
+        // 应用记录的token用量与桩服务返回的usage一致
+        assertEquals((double) stats.getOutputTokens(), registry.get(AiMetrics.TOKEN_COUNTER).tag("type", "output")
+                .counters().stream().mapToDouble(counter -> counter.count()).sum());
+        assertEquals((double) stats.getInputTokens(), registry.get(AiMetrics.TOKEN_COUNTER).tag("type", "input")
+                .counters().stream().mapToDouble(counter -> counter.count()).sum());
+    }
+
+    @Test
+    void testCombinedChatMakesSingleCall() {
+        AiService.CombinedReply reply = aiService.chatWithCustomKey("sk-load-test", "两个人去北京，预算5000", "");
+        assertCombinedReply(reply);
+        assertEquals(1, stub.stats().getRequests());
+
+        // 非阻塞实现以流式接收，边接收边拆分字段块
+        ReactiveAiService reactiveAiService = new ReactiveAiService(WebClient.create(stub.qwenBaseUrl()), aiService,
+                mock(ReactiveConversationStore.class), new AiMetrics(registry), new TokenBudget(),
+                mock(TokenUsageService.class), new ModelRouter(new AiMetrics(registry), mock(UserService.class)));
+        assertCombinedReply(reactiveAiService.chatWithCustomKey("sk-load-test", "两个人去北京，预算5000", "")
+                .block(Duration.ofSeconds(10)));
+
+        AiService.ExtractedFields fallback = reactiveAiService.chatWithCustomKey("sk-invalid", "两个人去北京，预算5000", "")
+                .block(Duration.ofSeconds(10)).getFields();
+        assertEquals("北京", fallback.getDestination());
+
+        AiStubServer.Stats stats = stub.stats();
+        assertEquals(3, stats.getRequests());
+        assertEquals(1, stats.getStreamed());
+        assertEquals((double) stats.getOutputTokens(), registry.get(AiMetrics.TOKEN_COUNTER).tag("type", "output")
+                .counters().stream().mapToDouble(counter -> counter.count()).sum());
+        assertEquals(2, registry.get(AiMetrics.STAGE_TIMER).tags("stage", AiMetrics.STAGE_CHAT_COMBINED,
+                "outcome", AiMetrics.OUTCOME_SUCCESS).timer().count());
+    }
+
+    private static void assertCombinedReply(AiService.CombinedReply reply) {
+        assertEquals("北京", reply.getFields().getDestination());
+        assertEquals(5000.0, reply.getFields().getBudget());
+        assertEquals(2, reply.getFields().getGroupSize());
+        assertEquals("自由行", reply.getFields().getTravelType());
+        assertEquals(120, reply.getMessage().length());
+        assertTrue(reply.getMessage().startsWith("第一天"), reply.getMessage());
+    }
+
+    @Test
+    void testStreamingIncrementalAndCumulative() throws IOException {
+        List<JsonNode> incremental = stream("{\"model\": \"qwen-turbo\", \"input\": {\"messages\": "
+                + "[{\"role\": \"user\", \"content\": \"去杭州\"}]}, \"parameters\": {\"incremental_output\": true}}");
+        assertEquals(15, incremental.size());
+        StringBuilder text = new StringBuilder();
+        for (JsonNode event : incremental) {
+            text.append(event.path("output").path("text").asText());
+        }
+        assertEquals(120, text.length());
+        JsonNode last = incremental.get(incremental.size() - 1);
+        assertEquals("stop", last.path("output").path("finish_reason").asText());
+        assertEquals("null", incremental.get(0).path("output").path("finish_reason").asText());
+        assertEquals(120, last.path("usage").path("output_tokens").asInt());
+
+        List<JsonNode> cumulative = stream("{\"input\": {\"prompt\": \"去杭州\"}, "
+                + "\"parameters\": {\"result_format\": \"message\", \"max_tokens\": 50}}");
+        JsonNode choice = cumulative.get(cumulative.size() - 1).path("output").path("choices").get(0);
+        assertEquals(50, choice.path("message").path("content").asText().length());
+        assertEquals("length", choice.path("finish_reason").asText());
+        assertEquals(2, stub.stats().getStreamed());
+    }
+
+    @Test
+    void testThrottlingAndErrors() {
+        stub.settings().setFirstTokenLatency(LatencyDistribution.fixed(300));
+        stub.settings().setMaxConcurrency(2);
+        List<Tuple2<Integer, String>> responses = Flux.range(0, 6)
+                .flatMap(i -> post("{\"input\": {\"prompt\": \"去杭州\"}}"))
+                .collectList()
+                .block(Duration.ofSeconds(10));
+        assertEquals(4, responses.stream().filter(response -> response.getT1() == 429
+                && response.getT2().contains("Throttling.RateQuota")).count());
+        assertEquals(4, stub.stats().getThrottled());
+        assertEquals(2, stub.stats().getPeakInFlight());
+
+        stub.settings().setMaxConcurrency(0);
+        stub.settings().setFirstTokenLatency(LatencyDistribution.fixed(0));
+        stub.settings().setErrorRate(1.0);
+        Tuple2<Integer, String> failure = post("{\"input\": {\"prompt\": \"去杭州\"}}").block(Duration.ofSeconds(5));
+        assertEquals(500, failure.getT1());
+        assertTrue(failure.getT2().contains("InternalError"));
+        // AiService 把上游错误转换为兜底回复，不向上抛出
+        assertTrue(aiService.generateTravelPlanWithCustomKey("sk-load-test", "去杭州", "").startsWith("抱歉"));
+        assertTrue(aiService.generateTravelPlanWithCustomKey("sk-invalid", "去杭州", "").startsWith("抱歉"));
+        assertEquals(1, stub.stats().getRejectedKeys());
+    }
+
+    @Test
+    void testLoadGeneratorMeasuresFromIntendedStart() {
+        stub.settings().setFirstTokenLatency(LatencyDistribution.fixed(100));
+        HttpClient client = HttpClient.create().baseUrl(stub.qwenBaseUrl());
+        LoadGenerator generator = new LoadGenerator(Duration.ofSeconds(5));
+
+        StageResult result = generator.runStage("stub", 20, Duration.ofSeconds(1), index -> new LoadGenerator.LoadRequest(
+                index % 2 == 0 ? "even" : "odd",
+                client.post().uri(AiStubServer.GENERATION_PATH)
+                        .send((request, outbound) -> outbound.sendString(Mono.just("{\"input\": {\"prompt\": \"去杭州\"}}"), StandardCharsets.UTF_8))
+                        .response()
+                        .map(response -> response.status().code() == 200
+                                ? LoadGenerator.Outcome.OK : LoadGenerator.Outcome.FAILED)));
+
+        assertEquals(20, result.getOverall().getRequests());
+        assertEquals(20, result.getOverall().getOk());
+        assertEquals(Arrays.asList("even", "odd"), new ArrayList<>(result.getOperations().keySet()));
+        assertEquals(10, result.getOperations().get("even").getRequests());
+        // 100ms首token + 120个token * 0.1ms
+        assertTrue(result.getOverall().getP50Ms() >= 100, String.valueOf(result.getOverall().getP50Ms()));
+        assertTrue(result.getOverall().getP99Ms() < 5000, String.valueOf(result.getOverall().getP99Ms()));
+    }
+
+    @Test
+    void testLogNormalLatencyMatchesMedianAndP99() {
+        LatencyDistribution distribution = LatencyDistribution.parse("lognormal:200:1000");
+        long[] samples = new long[20000];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = distribution.sampleMillis();
+        }
+        Arrays.sort(samples);
+        assertEquals(200, samples[samples.length / 2], 20);
+        assertEquals(1000, samples[(int) (samples.length * 0.99)], 150);
+        assertThrows(IllegalArgumentException.class, () -> LatencyDistribution.parse("normal:1:2"));
+    }
+
+    private List<JsonNode> stream(String body) throws IOException {
+        String events = HttpClient.create()
+                .headers(headers -> headers.set("X-DashScope-SSE", "enable"))
+                .post()
+                .uri(stub.qwenBaseUrl() + AiStubServer.GENERATION_PATH)
+                .send((request, outbound) -> outbound.sendString(Mono.just(body), StandardCharsets.UTF_8))
+                .responseContent()
+                .aggregate()
+                .asString(StandardCharsets.UTF_8)
+                .block(Duration.ofSeconds(10));
+        List<JsonNode> data = new ArrayList<>();
+        for (String event : events.split("\n\n")) {
+            assertTrue(event.contains("event:result\n:HTTP_STATUS/200\n"), event);
+            data.add(objectMapper.readTree(event.substring(event.indexOf("data:") + 5)));
+        }
+        return data;
+    }
+
+    private Mono<Tuple2<Integer, String>> post(String body) {
+        return HttpClient.create()
+                .post()
+                .uri(stub.qwenBaseUrl() + AiStubServer.GENERATION_PATH)
+                .send((request, outbound) -> outbound.sendString(Mono.just(body), StandardCharsets.UTF_8))
+                .responseSingle((response, content) -> content.asString(StandardCharsets.UTF_8)
+                        .map(text -> Tuples.of(response.status().code(), text)));
+    }
+}
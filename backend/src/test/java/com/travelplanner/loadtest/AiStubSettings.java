@@ -0,0 +1,104 @@
+package com.travelplanner.loadtest;
+
+import lombok.Data;
+
+/**
+ * AI桩服务行为配置
+ * 字段均为volatile，压测过程中可以直接修改（例如逐步提高错误率）
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+@Data
+public class AiStubSettings {
+
+    /**
+     * 首个token的延迟（排队 + 预填充）
+     */
+    private volatile LatencyDistribution firstTokenLatency = LatencyDistribution.logNormal(300, 1500);
+
+    /**
+     * 每个输出token的生成耗时（毫秒），非流式响应在全部生成后一次返回
+     */
+    private volatile double perTokenMillis = 2.0;
+
+    /**
+     * 生成计划时的输出token数范围，不超过请求中的 max_tokens
+     */
+    private volatile int minOutputTokens = 300;
+
+    private volatile int maxOutputTokens = 800;
+
+    /**
+     * 流式响应每个事件包含的token数
+     */
+    private volatile int streamChunkTokens = 8;
+
+    /**
+     * 返回 500 InternalError 的比例
+     */
+    private volatile double errorRate = 0.0;
+
+    /**
+     * 随机返回 429 Throttling.RateQuota 的比例
+     */
+    private volatile double throttleRate = 0.0;
+
+    /**
+     * 同时处理的最大请求数，超出时返回 429 Throttling，0表示不限制
+     */
+    private volatile int maxConcurrency = 0;
+
+    /**
+     * 字段提取请求的回复
+     */
+    private volatile String extractionReply =
+            "{\"destination\": \"北京\", \"budget\": 5000, \"groupSize\": 2, \"travelType\": \"自由行\"}";
+
+    /**
+     * 科大讯飞语音听写的识别结果
+     */
+    private volatile String transcript = "我想去北京旅游，请帮我制定一个3天的行程计划";
+
+    /**
+     * 该API Key返回 401 InvalidApiKey
+     */
+    private volatile String invalidApiKey = "sk-invalid";
+
+    /**
+     * 从命令行参数构建：--latency=lognormal:300:1500 --per-token-ms=2 --output-tokens=300:800
+     * --error-rate=0.01 --throttle-rate=0.02 --max-concurrency=50 --stream-chunk-tokens=8
+     */
+    public static AiStubSettings fromArgs(String[] args) {
+        AiStubSettings settings = new AiStubSettings();
+        String latency = option(args, "latency", null);
+        if (latency != null) {
+            settings.setFirstTokenLatency(LatencyDistribution.parse(latency));
+        }
+        String outputTokens = option(args, "output-tokens", null);
+        if (outputTokens != null) {
+            String[] range = outputTokens.split(":");
+            settings.setMinOutputTokens(Integer.parseInt(range[0]));
+            settings.setMaxOutputTokens(Integer.parseInt(range[range.length - 1]));
+        }
+        settings.setPerTokenMillis(Double.parseDouble(option(args, "per-token-ms", String.valueOf(settings.getPerTokenMillis()))));
+        settings.setErrorRate(Double.parseDouble(option(args, "error-rate", String.valueOf(settings.getErrorRate()))));
+        settings.setThrottleRate(Double.parseDouble(option(args, "throttle-rate", String.valueOf(settings.getThrottleRate()))));
+        settings.setMaxConcurrency(Integer.parseInt(option(args, "max-concurrency", String.valueOf(settings.getMaxConcurrency()))));
+        settings.setStreamChunkTokens(Integer.parseInt(option(args, "stream-chunk-tokens", String.valueOf(settings.getStreamChunkTokens()))));
+        return settings;
+    }
+
+    /**
+     * 读取 --name=value 形式的参数
+     */
+    static String option(String[] args, String name, String defaultValue) {
+        String prefix = "--" + name + "=";
+        for (String arg : args) {
+            if (arg.startsWith(prefix)) {
+                return arg.substring(prefix.length());
+            }
+        }
+        return defaultValue;
+    }
+}
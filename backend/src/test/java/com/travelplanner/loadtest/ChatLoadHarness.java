@@ -0,0 +1,149 @@
+package com.travelplanner.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * /conversations/chat 压测工具
+ * 默认在本进程内启动AI桩服务和应用（H2内存库，app.qwen.base-url 指向桩服务），按 --rps 列出的到达速率
+ * 依次运行各阶段，输出吞吐和延迟分位表，并将完整结果写入 target/load-reports 下的JSON文件
+ *
+ * 运行方式：mvn test-compile exec:java -Dexec.classpathScope=test
+ *     -Dexec.mainClass=com.travelplanner.loadtest.ChatLoadHarness
+ *     -Dexec.args="--rps=2,5,10 --stage-seconds=30 --latency=lognormal:300:1500 --throttle-rate=0.01"
+ *
+ * 参数：--app-url 压测已运行的应用（此时桩服务需单独启动，见 {@link AiStubServer}），--warmup-seconds，
+ * --timeout-seconds，--user-id，--report-dir；桩服务参数见 {@link AiStubSettings#fromArgs}；
+ * --app.*、--spring.*、--server.*、--logging.* 参数原样传给应用（见 {@link EmbeddedApplication}）
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+@Slf4j
+public class ChatLoadHarness {
+
+    private static final String CHAT_PATH = "/conversations/chat";
+
+    /** 请求中携带的自定义API Key，桩服务接受任意非 sk-invalid 的Key */
+    private static final String STUB_API_KEY = "sk-load-test";
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    public static void main(String[] args) throws IOException {
+        List<Double> rates = new ArrayList<>();
+        for (String rate : AiStubSettings.option(args, "rps", "2,5,10").split(",")) {
+            rates.add(Double.parseDouble(rate.trim()));
+        }
+        Duration stage = Duration.ofSeconds(Long.parseLong(AiStubSettings.option(args, "stage-seconds", "30")));
+        Duration warmup = Duration.ofSeconds(Long.parseLong(AiStubSettings.option(args, "warmup-seconds", "10")));
+        Duration timeout = Duration.ofSeconds(Long.parseLong(AiStubSettings.option(args, "timeout-seconds", "60")));
+        long userId = Long.parseLong(AiStubSettings.option(args, "user-id", "1"));
+        File reportDir = new File(AiStubSettings.option(args, "report-dir", "target/load-reports"));
+        String appUrl = AiStubSettings.option(args, "app-url", null);
+
+        AiStubServer stub = null;
+        EmbeddedApplication application = null;
+        ConnectionProvider connections = ConnectionProvider.builder("chat-load")
+                .maxConnections(5000)
+                .pendingAcquireMaxCount(-1)
+                .build();
+        try {
+            if (appUrl == null) {
+                stub = AiStubServer.start(0, AiStubSettings.fromArgs(args));
+                application = EmbeddedApplication.start(stub, args);
+                appUrl = application.baseUrl();
+            }
+            log.info("压测目标: {}{}", appUrl, CHAT_PATH);
+
+            HttpClient client = HttpClient.create(connections)
+                    .baseUrl(appUrl)
+                    .headers(headers -> headers.set("Content-Type", "application/json;charset=UTF-8"));
+            List<String> messages = loadMessages();
+            LoadGenerator.LoadScenario scenario = index ->
+                    new LoadGenerator.LoadRequest("chat", chat(client, userId, messages.get((int) (index % messages.size()))));
+            LoadGenerator generator = new LoadGenerator(timeout);
+
+            if (!warmup.isZero()) {
+                generator.runStage("warmup", rates.get(0), warmup, scenario);
+            }
+            List<StageResult> results = new ArrayList<>();
+            for (double rps : rates) {
+                AiStubServer.Stats before = stub != null ? stub.stats() : null;
+                if (stub != null) {
+                    stub.resetPeakInFlight();
+                }
+                StageResult result = generator.runStage("chat@" + rps, rps, stage, scenario);
+                if (stub != null) {
+                    result.setUpstream(stub.stats().minus(before));
+                }
+                results.add(result);
+            }
+
+            StageResult.print(results, System.out);
+            File report = StageResult.writeReport(reportDir, "chat-load", appUrl + CHAT_PATH, stub, results, null);
+            System.out.println("压测报告: " + report.getAbsolutePath());
+        } finally {
+            connections.dispose();
+            if (application != null) {
+                application.close();
+            }
+            if (stub != null) {
+                stub.close();
+            }
+        }
+    }
+
+    static Mono<LoadGenerator.Outcome> chat(HttpClient client, long userId, String message) {
+        ObjectNode request = OBJECT_MAPPER.createObjectNode();
+        request.put("userId", userId);
+        request.put("message", message);
+        request.put("apiKey", STUB_API_KEY);
+        return client.post()
+                .uri(CHAT_PATH)
+                .send((httpRequest, outbound) -> outbound.sendString(Mono.just(request.toString()), StandardCharsets.UTF_8))
+                .responseSingle((response, body) -> body.asString(StandardCharsets.UTF_8).defaultIfEmpty("")
+                        .map(text -> classify(response.status().code(), text)));
+    }
+
+    /**
+     * 模型调用失败时 /conversations/chat 仍返回200，回复内容为兜底文案，这类响应单独计为降级
+     */
+    static LoadGenerator.Outcome classify(int status, String body) {
+        if (status != 200) {
+            return LoadGenerator.Outcome.FAILED;
+        }
+        try {
+            String reply = OBJECT_MAPPER.readTree(body).path("message").asText("");
+            if (reply.isEmpty() || reply.startsWith("抱歉") || reply.startsWith("AI服务返回错误")) {
+                return LoadGenerator.Outcome.DEGRADED;
+            }
+            return LoadGenerator.Outcome.OK;
+        } catch (IOException e) {
+            return LoadGenerator.Outcome.FAILED;
+        }
+    }
+
+    static List<String> loadMessages() throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                ChatLoadHarness.class.getResourceAsStream("/loadtest/chat-messages.txt"), StandardCharsets.UTF_8))) {
+            return reader.lines()
+                    .map(String::trim)
+                    .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+                    .collect(Collectors.toList());
+        }
+    }
+}
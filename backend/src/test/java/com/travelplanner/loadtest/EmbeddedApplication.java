@@ -0,0 +1,64 @@
+package com.travelplanner.loadtest;
+
+import com.travelplanner.TravelPlannerApplication;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 压测用的进程内应用
+ * H2内存库，外部模型服务全部指向桩服务；默认关闭SQL和INFO日志，避免控制台输出成为瓶颈
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+public final class EmbeddedApplication implements AutoCloseable {
+
+    private final ConfigurableApplicationContext context;
+
+    private EmbeddedApplication(ConfigurableApplicationContext context) {
+        this.context = context;
+    }
+
+    /**
+     * 启动应用，args 中的 --app.*、--spring.*、--server.*、--logging.* 覆盖默认配置，其余参数忽略
+     */
+    public static EmbeddedApplication start(AiStubServer stub, String... args) {
+        Map<String, String> properties = new LinkedHashMap<>();
+        properties.put("server.port", "0");
+        properties.put("app.qwen.base-url", stub.qwenBaseUrl());
+        properties.put("app.xunfei.base-url", stub.xunfeiBaseUrl());
+        properties.put("app.ai.mock-mode", "false");
+        properties.put("spring.jpa.show-sql", "false");
+        properties.put("spring.main.banner-mode", "off");
+        properties.put("logging.level.com.travelplanner", "WARN");
+        properties.put("logging.level.org.springframework.security", "WARN");
+        for (String arg : args) {
+            if (arg.startsWith("--app.") || arg.startsWith("--spring.") || arg.startsWith("--server.")
+                    || arg.startsWith("--logging.")) {
+                int separator = arg.indexOf('=');
+                properties.put(arg.substring(2, separator), arg.substring(separator + 1));
+            }
+        }
+        String[] applicationArgs = properties.entrySet().stream()
+                .map(entry -> "--" + entry.getKey() + "=" + entry.getValue())
+                .toArray(String[]::new);
+        return new EmbeddedApplication(SpringApplication.run(TravelPlannerApplication.class, applicationArgs));
+    }
+
+    /**
+     * 含 context-path 的根地址，如 http://localhost:12345/api
+     */
+    public String baseUrl() {
+        int port = ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+        return "http://localhost:" + port + context.getEnvironment().getProperty("server.servlet.context-path", "");
+    }
+
+    @Override
+    public void close() {
+        context.close();
+    }
+}
@@ -0,0 +1,91 @@
+package com.travelplanner.loadtest;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 桩服务延迟分布
+ * 文本格式：fixed:200、uniform:100:500、lognormal:800:3000（中位数:P99，单位毫秒）
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+public abstract class LatencyDistribution {
+
+    /** 标准正态分布的99分位 */
+    private static final double Z_99 = 2.3263;
+
+    /**
+     * 采样一次延迟（毫秒）
+     */
+    public abstract long sampleMillis();
+
+    public static LatencyDistribution fixed(long millis) {
+        return new LatencyDistribution() {
+            @Override
+            public long sampleMillis() {
+                return millis;
+            }
+
+            @Override
+            public String toString() {
+                return "fixed:" + millis;
+            }
+        };
+    }
+
+    public static LatencyDistribution uniform(long minMillis, long maxMillis) {
+        if (maxMillis < minMillis) {
+            throw new IllegalArgumentException("uniform上限小于下限: " + minMillis + ":" + maxMillis);
+        }
+        return new LatencyDistribution() {
+            @Override
+            public long sampleMillis() {
+                return ThreadLocalRandom.current().nextLong(minMillis, maxMillis + 1);
+            }
+
+            @Override
+            public String toString() {
+                return "uniform:" + minMillis + ":" + maxMillis;
+            }
+        };
+    }
+
+    /**
+     * 对数正态分布：模型服务延迟的典型形态，大部分请求集中在中位数附近，少量请求拖出长尾
+     */
+    public static LatencyDistribution logNormal(long medianMillis, long p99Millis) {
+        if (medianMillis <= 0 || p99Millis < medianMillis) {
+            throw new IllegalArgumentException("lognormal需要 0 < 中位数 <= P99: " + medianMillis + ":" + p99Millis);
+        }
+        double sigma = Math.log((double) p99Millis / medianMillis) / Z_99;
+        return new LatencyDistribution() {
+            @Override
+            public long sampleMillis() {
+                return Math.round(medianMillis * Math.exp(sigma * ThreadLocalRandom.current().nextGaussian()));
+            }
+
+            @Override
+            public String toString() {
+                return "lognormal:" + medianMillis + ":" + p99Millis;
+            }
+        };
+    }
+
+    public static LatencyDistribution parse(String spec) {
+        String[] parts = spec.trim().split(":");
+        try {
+            switch (parts[0]) {
+                case "fixed":
+                    return fixed(Long.parseLong(parts[1]));
+                case "uniform":
+                    return uniform(Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+                case "lognormal":
+                    return logNormal(Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+                default:
+                    throw new IllegalArgumentException("未知的延迟分布: " + spec);
+            }
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            throw new IllegalArgumentException("延迟分布格式错误: " + spec, e);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.travelplanner.loadtest;
+
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 开放模型压测发生器
+ * 按固定到达速率发出请求，不等待前一个请求完成；延迟从计划发出时刻算起，
+ * 因此发生器自身落后时的排队时间也计入结果（避免协调遗漏导致的延迟低估）
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+@Slf4j
+public class LoadGenerator {
+
+    /** 延迟直方图上限：1小时（微秒） */
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.HOURS.toMicros(1);
+
+    private final Duration requestTimeout;
+
+    public LoadGenerator(Duration requestTimeout) {
+        this.requestTimeout = requestTimeout;
+    }
+
+    /**
+     * 请求结果分类
+     */
+    public enum Outcome {
+        /** 正常响应 */
+        OK,
+        /** HTTP成功但业务降级（例如上游模型报错后返回的兜底文案） */
+        DEGRADED,
+        /** HTTP错误、连接失败或超时 */
+        FAILED
+    }
+
+    /**
+     * 压测场景：决定第 index 个请求调用哪个接口
+     */
+    public interface LoadScenario {
+        LoadRequest next(long index);
+    }
+
+    /**
+     * 单个请求：操作名用于分组统计，调用在订阅时才发出
+     */
+    public static final class LoadRequest {
+        private final String operation;
+        private final Mono<Outcome> call;
+
+        public LoadRequest(String operation, Mono<Outcome> call) {
+            this.operation = operation;
+            this.call = call;
+        }
+    }
+
+    /**
+     * 以固定速率运行一个压测阶段，阻塞直到所有请求完成或超时
+     */
+    public StageResult runStage(String name, double rps, Duration duration, LoadScenario scenario) {
+        long total = Math.max(1, Math.round(rps * duration.toMillis() / 1000.0));
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / rps);
+        Map<String, Recorder> recorders = new ConcurrentHashMap<>();
+
+        log.info("压测阶段 {} 开始: {} rps, {} 个请求", name, rps, total);
+        long start = System.nanoTime();
+        Flux.interval(Duration.ofNanos(intervalNanos))
+                .take(total)
+                .flatMap(index -> {
+                    long intended = start + (index + 1) * intervalNanos;
+                    LoadRequest request = scenario.next(index);
+                    Recorder recorder = recorders.computeIfAbsent(request.operation, operation -> new Recorder());
+                    return request.call
+                            .timeout(requestTimeout)
+                            .onErrorResume(e -> {
+                                if (e instanceof TimeoutException) {
+                                    recorder.timeout();
+                                }
+                                return Mono.just(Outcome.FAILED);
+                            })
+                            .defaultIfEmpty(Outcome.FAILED)
+                            .doOnNext(outcome -> recorder.record(System.nanoTime() - intended, outcome));
+                }, Integer.MAX_VALUE)
+                .blockLast(duration.plus(requestTimeout).plusSeconds(30));
+        long elapsedNanos = System.nanoTime() - start;
+
+        StageResult result = new StageResult();
+        result.setName(name);
+        result.setTargetRps(rps);
+        result.setElapsedSeconds(elapsedNanos / 1e9);
+        Histogram all = new Histogram(HIGHEST_TRACKABLE_MICROS, 3);
+        Recorder totals = new Recorder();
+        Map<String, StageResult.OperationResult> operations = new TreeMap<>();
+        for (Map.Entry<String, Recorder> entry : recorders.entrySet()) {
+            Recorder recorder = entry.getValue();
+            operations.put(entry.getKey(), recorder.toResult(elapsedNanos));
+            all.add(recorder.histogram);
+            totals.ok += recorder.ok;
+            totals.degraded += recorder.degraded;
+            totals.failed += recorder.failed;
+            totals.timeouts += recorder.timeouts;
+        }
+        totals.histogram.add(all);
+        result.setOperations(operations);
+        result.setOverall(totals.toResult(elapsedNanos));
+        log.info("压测阶段 {} 结束: {}", name, result.getOverall());
+        return result;
+    }
+
+    /**
+     * 单个操作的计数与延迟直方图，计数只在完成回调中更新（回调可能在不同线程，用同步保护）
+     */
+    private static final class Recorder {
+        private final Histogram histogram = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+        private long ok;
+        private long degraded;
+        private long failed;
+        private long timeouts;
+
+        private synchronized void timeout() {
+            timeouts++;
+        }
+
+        private synchronized void record(long latencyNanos, Outcome outcome) {
+            histogram.recordValue(Math.min(HIGHEST_TRACKABLE_MICROS, TimeUnit.NANOSECONDS.toMicros(latencyNanos)));
+            switch (outcome) {
+                case OK:
+                    ok++;
+                    break;
+                case DEGRADED:
+                    degraded++;
+                    break;
+                default:
+                    failed++;
+            }
+        }
+
+        private synchronized StageResult.OperationResult toResult(long elapsedNanos) {
+            StageResult.OperationResult result = new StageResult.OperationResult();
+            long requests = ok + degraded + failed;
+            result.setRequests(requests);
+            result.setOk(ok);
+            result.setDegraded(degraded);
+            result.setFailed(failed);
+            result.setTimeouts(timeouts);
+            result.setThroughput(requests / (elapsedNanos / 1e9));
+            result.setErrorRate(requests == 0 ? 0 : (double) (degraded + failed) / requests);
+            result.setP50Ms(percentileMillis(50));
+            result.setP90Ms(percentileMillis(90));
+            result.setP95Ms(percentileMillis(95));
+            result.setP99Ms(percentileMillis(99));
+            result.setMaxMs(histogram.getMaxValue() / 1000.0);
+            return result;
+        }
+
+        private double percentileMillis(double percentile) {
+            return histogram.getValueAtPercentile(percentile) / 1000.0;
+        }
+    }
+}
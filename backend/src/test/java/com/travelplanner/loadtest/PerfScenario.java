@@ -0,0 +1,192 @@
+package com.travelplanner.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * 端到端性能测试场景
+ * 按 {@link PerfWorkload#getMix()} 的权重混合聊天、计划增删改查、费用写入和预算分析请求；
+ * 第 index 个请求由 (seed, index) 唯一确定，同一负载定义每次运行的请求序列相同
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+public class PerfScenario implements LoadGenerator.LoadScenario {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private static final Duration SETUP_TIMEOUT = Duration.ofSeconds(30);
+
+    /** data.sql 预置的测试用户 */
+    private static final long USER_ID = 1L;
+    private static final String USERNAME = "test";
+    private static final String PASSWORD = "password";
+
+    private static final String[] CATEGORIES = {
+            "TRANSPORTATION", "ACCOMMODATION", "MEAL", "ACTIVITY", "SHOPPING", "ENTERTAINMENT", "OTHER"
+    };
+    private static final String[] DESTINATIONS = {"北京", "上海", "杭州", "成都", "西安", "厦门", "日本东京", "泰国曼谷"};
+    private static final String[] TRAVEL_TYPES = {"休闲", "美食", "文化", "亲子", "探险"};
+
+    private final HttpClient client;
+    private final long seed;
+    private final String[] operations;
+    private final int[] cumulativeWeights;
+    private final List<String> messages;
+    private final List<Long> planIds = new ArrayList<>();
+    private String authorization;
+
+    public PerfScenario(HttpClient client, PerfWorkload workload) throws IOException {
+        this.client = client;
+        this.seed = workload.getSeed();
+        this.operations = new String[workload.getMix().size()];
+        this.cumulativeWeights = new int[operations.length];
+        int total = 0;
+        int i = 0;
+        for (Map.Entry<String, Integer> entry : workload.getMix().entrySet()) {
+            total += entry.getValue();
+            operations[i] = entry.getKey();
+            cumulativeWeights[i++] = total;
+        }
+        if (total <= 0) {
+            throw new IllegalArgumentException("负载配比为空");
+        }
+        this.messages = ChatLoadHarness.loadMessages();
+    }
+
+    /**
+     * 登录预置用户并创建读请求使用的计划和费用，需在压测开始前调用
+     */
+    public void prepare(int plans, int expensesPerPlan) throws IOException {
+        ObjectNode login = OBJECT_MAPPER.createObjectNode();
+        login.put("username", USERNAME);
+        login.put("password", PASSWORD);
+        String token = OBJECT_MAPPER.readTree(send("POST", "/auth/login", login)).path("token").asText("");
+        if (token.isEmpty()) {
+            throw new IOException("登录失败，无法获取JWT");
+        }
+        authorization = "Bearer " + token;
+
+        Random random = new Random(seed);
+        for (int i = 0; i < plans; i++) {
+            JsonNode plan = OBJECT_MAPPER.readTree(send("POST", "/plans", planRequest(random)));
+            long planId = plan.path("id").asLong();
+            planIds.add(planId);
+            for (int j = 0; j < expensesPerPlan; j++) {
+                send("POST", "/expenses", expenseRequest(random, planId));
+            }
+        }
+    }
+
+    @Override
+    public LoadGenerator.LoadRequest next(long index) {
+        Random random = new Random(seed * 31 + index);
+        int pick = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        int i = 0;
+        while (pick >= cumulativeWeights[i]) {
+            i++;
+        }
+        String operation = operations[i];
+        long planId = planIds.get(random.nextInt(planIds.size()));
+        return new LoadGenerator.LoadRequest(operation, call(operation, random, planId));
+    }
+
+    private Mono<LoadGenerator.Outcome> call(String operation, Random random, long planId) {
+        switch (operation) {
+            case "chat":
+                return ChatLoadHarness.chat(client, USER_ID, messages.get(random.nextInt(messages.size())));
+            case "plan-create":
+                return exchange("POST", "/plans", planRequest(random));
+            case "plan-read":
+                return exchange("GET", "/plans/" + planId, null);
+            case "plan-list":
+                return exchange("GET", "/plans?userId=" + USER_ID + "&page=0&size=10", null);
+            case "plan-update":
+                return exchange("PUT", "/plans/" + planId, planRequest(random));
+            case "expense-create":
+                return exchange("POST", "/expenses", expenseRequest(random, planId));
+            case "expense-list":
+                return exchange("GET", "/expenses/plans/" + planId, null);
+            case "budget-analysis":
+                return exchange("GET", "/expenses/plans/" + planId + "/budget-analysis", null);
+            default:
+                throw new IllegalArgumentException("未知操作: " + operation);
+        }
+    }
+
+    private Mono<LoadGenerator.Outcome> exchange(String method, String uri, ObjectNode body) {
+        return request(method, uri, body)
+                .response()
+                .map(response -> response.status().code() / 100 == 2
+                        ? LoadGenerator.Outcome.OK : LoadGenerator.Outcome.FAILED);
+    }
+
+    private String send(String method, String uri, ObjectNode body) throws IOException {
+        String response = request(method, uri, body)
+                .responseSingle((status, content) -> status.status().code() / 100 == 2
+                        ? content.asString(StandardCharsets.UTF_8).defaultIfEmpty("")
+                        : Mono.error(new IOException(method + " " + uri + " 返回 " + status.status().code())))
+                .block(SETUP_TIMEOUT);
+        if (response == null) {
+            throw new IOException(method + " " + uri + " 无响应");
+        }
+        return response;
+    }
+
+    private HttpClient.ResponseReceiver<?> request(String method, String uri, ObjectNode body) {
+        HttpClient authorized = authorization == null ? client
+                : client.headers(headers -> headers.set("Authorization", authorization));
+        switch (method) {
+            case "GET":
+                return authorized.get().uri(uri);
+            case "POST":
+                return authorized.post().uri(uri).send((request, outbound) ->
+                        outbound.sendString(Mono.just(body.toString()), StandardCharsets.UTF_8));
+            case "PUT":
+                return authorized.put().uri(uri).send((request, outbound) ->
+                        outbound.sendString(Mono.just(body.toString()), StandardCharsets.UTF_8));
+            default:
+                throw new IllegalArgumentException("不支持的方法: " + method);
+        }
+    }
+
+    private static ObjectNode planRequest(Random random) {
+        String destination = DESTINATIONS[random.nextInt(DESTINATIONS.length)];
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 9, 0).plusDays(random.nextInt(300));
+        ObjectNode request = OBJECT_MAPPER.createObjectNode();
+        request.put("userId", USER_ID);
+        request.put("planName", destination + "之旅");
+        request.put("destination", destination);
+        request.put("startDate", start.toString());
+        request.put("endDate", start.plusDays(2 + random.nextInt(6)).toString());
+        request.put("budget", 2000 + random.nextInt(19) * 1000);
+        request.put("travelType", TRAVEL_TYPES[random.nextInt(TRAVEL_TYPES.length)]);
+        request.put("groupSize", 1 + random.nextInt(4));
+        return request;
+    }
+
+    private static ObjectNode expenseRequest(Random random, long planId) {
+        ObjectNode request = OBJECT_MAPPER.createObjectNode();
+        request.put("planId", planId);
+        request.put("userId", USER_ID);
+        request.put("category", CATEGORIES[random.nextInt(CATEGORIES.length)]);
+        request.put("amount", 20 + random.nextInt(1500));
+        request.put("currency", "CNY");
+        request.put("description", "压测费用");
+        request.put("expenseDate", LocalDate.of(2025, 1, 1).plusDays(random.nextInt(300)).toString());
+        return request;
+    }
+}
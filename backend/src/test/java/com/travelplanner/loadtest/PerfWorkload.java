@@ -0,0 +1,136 @@
+package com.travelplanner.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Data;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 端到端性能测试的负载定义
+ * 由类路径下的JSON文件描述：预热时长、逐级提高的到达速率、按线上访问比例录制的操作配比、
+ * 桩服务与应用参数以及各操作的SLO
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+@Data
+public class PerfWorkload {
+
+    /**
+     * SLO中适用于未单独配置操作的键
+     */
+    public static final String DEFAULT_OPERATION = "default";
+
+    private String description;
+
+    /**
+     * 操作序列的随机种子，同一种子每次运行的请求序列相同
+     */
+    private long seed = 42;
+
+    private int warmupSeconds = 10;
+
+    private double warmupRps = 5;
+
+    private List<Stage> stages = new ArrayList<>();
+
+    /**
+     * 操作名 -> 权重
+     */
+    private Map<String, Integer> mix = new LinkedHashMap<>();
+
+    /**
+     * 预先创建的计划数，读请求在这些计划上均匀分布
+     */
+    private int seedPlans = 20;
+
+    /**
+     * 每个预置计划的费用条数
+     */
+    private int seedExpensesPerPlan = 10;
+
+    /**
+     * 桩服务参数，格式同 {@link AiStubSettings#fromArgs}
+     */
+    private List<String> stubArgs = new ArrayList<>();
+
+    /**
+     * 应用参数，格式同 {@link EmbeddedApplication#start}
+     */
+    private List<String> applicationArgs = new ArrayList<>();
+
+    private Slo slo = new Slo();
+
+    @Data
+    public static class Stage {
+        private double rps;
+        private int seconds;
+    }
+
+    @Data
+    public static class Slo {
+
+        /**
+         * 阈值放宽比例：实测值超过 阈值 * (1 + tolerance) 才判定为违反，用于吸收机器间的抖动
+         */
+        private double tolerance = 0.2;
+
+        /**
+         * 操作名 -> 阈值，未配置的操作使用 default
+         */
+        private Map<String, Threshold> operations = new LinkedHashMap<>();
+    }
+
+    @Data
+    public static class Threshold {
+        private Double p95Ms;
+        private Double p99Ms;
+        private Double errorRate;
+    }
+
+    public static PerfWorkload load(String resource) throws IOException {
+        try (InputStream in = PerfWorkload.class.getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IOException("负载定义不存在: " + resource);
+            }
+            return new ObjectMapper().readValue(in, PerfWorkload.class);
+        }
+    }
+
+    /**
+     * 检查一个阶段是否满足SLO，返回违反项描述（为空表示全部满足）
+     */
+    public List<String> check(StageResult result) {
+        double tolerance = slo.getTolerance();
+        List<String> violations = new ArrayList<>();
+        for (Map.Entry<String, StageResult.OperationResult> entry : result.getOperations().entrySet()) {
+            Threshold threshold = slo.getOperations().getOrDefault(entry.getKey(),
+                    slo.getOperations().get(DEFAULT_OPERATION));
+            if (threshold == null) {
+                continue;
+            }
+            StageResult.OperationResult stats = entry.getValue();
+            String prefix = result.getName() + " " + entry.getKey() + ": ";
+            if (threshold.getP95Ms() != null && stats.getP95Ms() > threshold.getP95Ms() * (1 + tolerance)) {
+                violations.add(String.format("%sp95 %.1fms > %.1fms (+%.0f%%)", prefix,
+                        stats.getP95Ms(), threshold.getP95Ms(), tolerance * 100));
+            }
+            if (threshold.getP99Ms() != null && stats.getP99Ms() > threshold.getP99Ms() * (1 + tolerance)) {
+                violations.add(String.format("%sp99 %.1fms > %.1fms (+%.0f%%)", prefix,
+                        stats.getP99Ms(), threshold.getP99Ms(), tolerance * 100));
+            }
+            // 错误率不放宽：桩服务配置固定，错误只来自应用本身
+            if (threshold.getErrorRate() != null && stats.getErrorRate() > threshold.getErrorRate()) {
+                violations.add(String.format("%serror rate %.2f%% > %.2f%% (%d degraded, %d failed, %d timeouts)", prefix,
+                        stats.getErrorRate() * 100, threshold.getErrorRate() * 100,
+                        stats.getDegraded(), stats.getFailed(), stats.getTimeouts()));
+            }
+        }
+        return violations;
+    }
+}
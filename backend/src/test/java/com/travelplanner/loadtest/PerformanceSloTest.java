@@ -0,0 +1,73 @@
+package com.travelplanner.loadtest;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 端到端性能回归测试
+ * 在本进程内启动AI桩服务和应用（H2内存库），按负载定义逐级加压回放混合请求，
+ * 任一阶段的p95/p99延迟或错误率超出SLO（含容差）时测试失败；结果写入 target/load-reports/perf-*.json
+ *
+ * 运行方式：mvn -Pperf test（默认构建不运行）
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+@Tag("perf")
+public class PerformanceSloTest {
+
+    private static final String DEFAULT_WORKLOAD = "/loadtest/perf-workload.json";
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    @Test
+    void testLatencyAndErrorRateWithinSlo() throws Exception {
+        PerfWorkload workload = PerfWorkload.load(System.getProperty("perf.workload", DEFAULT_WORKLOAD));
+        ConnectionProvider connections = ConnectionProvider.builder("perf")
+                .maxConnections(5000)
+                .pendingAcquireMaxCount(-1)
+                .build();
+        try (AiStubServer stub = AiStubServer.start(0, AiStubSettings.fromArgs(workload.getStubArgs().toArray(new String[0])));
+             EmbeddedApplication application = EmbeddedApplication.start(stub, workload.getApplicationArgs().toArray(new String[0]))) {
+            HttpClient client = HttpClient.create(connections)
+                    .baseUrl(application.baseUrl())
+                    .headers(headers -> headers.set("Content-Type", "application/json;charset=UTF-8"));
+            PerfScenario scenario = new PerfScenario(client, workload);
+            scenario.prepare(workload.getSeedPlans(), workload.getSeedExpensesPerPlan());
+
+            LoadGenerator generator = new LoadGenerator(REQUEST_TIMEOUT);
+            if (workload.getWarmupSeconds() > 0) {
+                generator.runStage("warmup", workload.getWarmupRps(), Duration.ofSeconds(workload.getWarmupSeconds()), scenario);
+            }
+            List<StageResult> results = new ArrayList<>();
+            List<String> violations = new ArrayList<>();
+            for (PerfWorkload.Stage stage : workload.getStages()) {
+                AiStubServer.Stats before = stub.stats();
+                stub.resetPeakInFlight();
+                StageResult result = generator.runStage("mix@" + stage.getRps(), stage.getRps(),
+                        Duration.ofSeconds(stage.getSeconds()), scenario);
+                result.setUpstream(stub.stats().minus(before));
+                results.add(result);
+                violations.addAll(workload.check(result));
+            }
+
+            StageResult.print(results, System.out);
+            File report = StageResult.writeReport(new File("target/load-reports"), "perf", application.baseUrl(),
+                    stub, results, Collections.singletonMap("sloViolations", violations));
+            System.out.println("压测报告: " + report.getAbsolutePath());
+            assertTrue(violations.isEmpty(), "SLO violations:\n" + String.join("\n", violations));
+        } finally {
+            connections.dispose();
+        }
+    }
+}
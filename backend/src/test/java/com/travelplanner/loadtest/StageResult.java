@@ -0,0 +1,140 @@
+package com.travelplanner.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.Data;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 压测阶段结果
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+@Data
+public class StageResult {
+
+    private String name;
+
+    /**
+     * 目标到达速率（请求/秒）
+     */
+    private double targetRps;
+
+    /**
+     * 实际耗时（从第一个请求发出到最后一个请求完成）
+     */
+    private double elapsedSeconds;
+
+    /**
+     * 按操作分组的结果
+     */
+    private Map<String, OperationResult> operations;
+
+    private OperationResult overall;
+
+    /**
+     * 同一时间段内桩服务的统计（连接外部应用时为空）
+     */
+    private AiStubServer.Stats upstream;
+
+    @Data
+    public static class OperationResult {
+        private long requests;
+        private long ok;
+        private long degraded;
+        private long failed;
+        private long timeouts;
+
+        /**
+         * 完成的请求数/秒
+         */
+        private double throughput;
+
+        /**
+         * (degraded + failed) / requests
+         */
+        private double errorRate;
+
+        private double p50Ms;
+        private double p90Ms;
+        private double p95Ms;
+        private double p99Ms;
+        private double maxMs;
+    }
+
+    /**
+     * 以表格形式输出各阶段结果
+     */
+    public static void print(List<StageResult> results, PrintStream out) {
+        out.printf("%-24s %-12s %8s %8s %8s %8s %8s %10s %10s %10s %10s %10s%n",
+                "stage", "operation", "rps", "tput", "ok", "degraded", "failed",
+                "p50(ms)", "p90(ms)", "p95(ms)", "p99(ms)", "max(ms)");
+        for (StageResult result : results) {
+            for (Map.Entry<String, OperationResult> entry : result.getOperations().entrySet()) {
+                print(out, result, entry.getKey(), entry.getValue());
+            }
+            if (result.getOperations().size() > 1) {
+                print(out, result, "ALL", result.getOverall());
+            }
+            AiStubServer.Stats upstream = result.getUpstream();
+            if (upstream != null) {
+                out.printf("%-24s upstream: requests=%d, streamed=%d, throttled=%d, failed=%d, "
+                                + "tokens in/out=%d/%d, peak in-flight=%d%n",
+                        "", upstream.getRequests(), upstream.getStreamed(), upstream.getThrottled(),
+                        upstream.getFailed(), upstream.getInputTokens(), upstream.getOutputTokens(),
+                        upstream.getPeakInFlight());
+            }
+        }
+    }
+
+    private static void print(PrintStream out, StageResult result, String operation, OperationResult stats) {
+        out.printf("%-24s %-12s %8.1f %8.1f %8d %8d %8d %10.1f %10.1f %10.1f %10.1f %10.1f%n",
+                result.getName(), operation, result.getTargetRps(), stats.getThroughput(),
+                stats.getOk(), stats.getDegraded(), stats.getFailed(),
+                stats.getP50Ms(), stats.getP90Ms(), stats.getP95Ms(), stats.getP99Ms(), stats.getMaxMs());
+    }
+
+    /**
+     * 将压测结果与桩服务配置写入 reportDir/prefix-时间戳.json
+     *
+     * @param extra 附加内容（例如SLO检查结果），可为空
+     */
+    public static File writeReport(File reportDir, String prefix, String target, AiStubServer stub,
+                                   List<StageResult> results, Map<String, Object> extra) throws IOException {
+        if (!reportDir.isDirectory() && !reportDir.mkdirs()) {
+            throw new IOException("无法创建报告目录: " + reportDir);
+        }
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("target", target);
+        report.put("timestamp", LocalDateTime.now().toString());
+        report.put("availableProcessors", Runtime.getRuntime().availableProcessors());
+        if (stub != null) {
+            AiStubSettings settings = stub.settings();
+            Map<String, Object> upstream = new LinkedHashMap<>();
+            upstream.put("firstTokenLatency", settings.getFirstTokenLatency().toString());
+            upstream.put("perTokenMillis", settings.getPerTokenMillis());
+            upstream.put("outputTokens", settings.getMinOutputTokens() + ":" + settings.getMaxOutputTokens());
+            upstream.put("errorRate", settings.getErrorRate());
+            upstream.put("throttleRate", settings.getThrottleRate());
+            upstream.put("maxConcurrency", settings.getMaxConcurrency());
+            report.put("stub", upstream);
+        }
+        if (extra != null) {
+            report.putAll(extra);
+        }
+        report.put("stages", results);
+        File file = new File(reportDir, prefix + "-"
+                + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".json");
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file, report);
+        return file;
+    }
+}
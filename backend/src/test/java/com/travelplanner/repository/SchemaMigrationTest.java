@@ -0,0 +1,144 @@
+package com.travelplanner.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 数据库迁移与查询计划回归测试
+ * 在 PostgreSQL 兼容模式的 H2 上执行 Flyway 迁移，由 Hibernate 校验实体与表结构一致，
+ * 并确认各仓库查询形态走索引且存在与之匹配（等值列 + 排序列）的组合索引
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:travel_planner_migration;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1",
+        "spring.flyway.enabled=true",
+        "spring.flyway.locations=classpath:db/migration",
+        "spring.jpa.hibernate.ddl-auto=validate",
+        "spring.jpa.defer-datasource-initialization=false",
+        "spring.sql.init.mode=never"
+})
+public class SchemaMigrationTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void testMigrationsApplied() {
+        Integer applied = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM \"flyway_schema_history\" WHERE \"version\" IS NOT NULL AND \"success\" = TRUE",
+                Integer.class);
+        assertEquals(5, applied);
+    }
+
+    @Test
+    void testExpenseQueriesUseIndexes() {
+        assertIndexed("expenses", cols("plan_id"), cols("expense_date DESC"),
+                "SELECT * FROM expenses WHERE plan_id = 1 ORDER BY expense_date DESC");
+        assertIndexed("expenses", cols("plan_id"), cols("expense_date DESC"),
+                "SELECT * FROM expenses WHERE plan_id = 1 AND expense_date BETWEEN DATE '2025-01-01' AND DATE '2025-01-31' "
+                        + "ORDER BY expense_date DESC");
+        assertIndexed("expenses", cols("plan_id", "expense_date"), cols(),
+                "SELECT * FROM expenses WHERE plan_id = 1 AND expense_date = DATE '2025-01-01' ORDER BY created_at DESC");
+        assertIndexed("expenses", cols("user_id"), cols("expense_date DESC"),
+                "SELECT * FROM expenses WHERE user_id = 1 ORDER BY expense_date DESC, id DESC");
+        assertIndexed("expenses", cols("plan_id", "category"), cols("expense_date DESC"),
+                "SELECT * FROM expenses WHERE plan_id = 1 AND category = 'MEAL' ORDER BY expense_date DESC");
+        assertIndexed("expenses", cols("plan_id", "currency"), cols("expense_date DESC"),
+                "SELECT * FROM expenses WHERE plan_id = 1 AND currency = 'USD' ORDER BY expense_date DESC");
+        assertIndexed("expenses", cols("plan_id"), cols(),
+                "SELECT category, currency, expense_date, SUM(amount) FROM expenses WHERE plan_id = 1 "
+                        + "GROUP BY category, currency, expense_date");
+        assertIndexed("expenses", cols("user_id"), cols(),
+                "SELECT plan_id, category, currency, expense_date, SUM(amount) FROM expenses WHERE user_id = 1 "
+                        + "GROUP BY plan_id, category, currency, expense_date");
+    }
+
+    @Test
+    void testConversationQueriesUseIndexes() {
+        assertIndexed("conversations", cols("user_id"), cols("created_at DESC"),
+                "SELECT * FROM conversations WHERE user_id = 1 ORDER BY created_at DESC");
+        assertIndexed("conversations", cols("user_id", "plan_id"), cols("created_at DESC"),
+                "SELECT * FROM conversations WHERE user_id = 1 AND plan_id = 2 ORDER BY created_at DESC");
+        assertIndexed("conversations", cols("plan_id"), cols("created_at"),
+                "SELECT * FROM conversations WHERE plan_id = 2 ORDER BY created_at ASC");
+    }
+
+    @Test
+    void testTravelPlanQueriesUseIndexes() {
+        assertIndexed("travel_plans", cols("user_id"), cols("created_at DESC"),
+                "SELECT * FROM travel_plans WHERE user_id = 1 ORDER BY created_at DESC");
+        assertIndexed("travel_plans", cols("user_id", "status"), cols("created_at DESC"),
+                "SELECT * FROM travel_plans WHERE user_id = 1 AND status = 'DRAFT' ORDER BY created_at DESC");
+        assertIndexed("travel_plans", cols(), cols("start_date"),
+                "SELECT * FROM travel_plans WHERE start_date >= TIMESTAMP '2025-01-01 00:00:00' "
+                        + "AND end_date <= TIMESTAMP '2025-12-31 00:00:00' ORDER BY created_at DESC");
+    }
+
+    @Test
+    void testPlanGenerationJobQueriesUseIndexes() {
+        assertIndexed("plan_generation_jobs", cols("status"), cols("available_at"),
+                "SELECT id FROM plan_generation_jobs WHERE status = 'QUEUED' "
+                        + "AND available_at <= TIMESTAMP '2025-01-01 00:00:00' ORDER BY available_at");
+        assertIndexed("plan_generation_jobs", cols("status"), cols("locked_until"),
+                "SELECT id FROM plan_generation_jobs WHERE status = 'RUNNING' "
+                        + "AND locked_until < TIMESTAMP '2025-01-01 00:00:00'");
+        assertIndexed("plan_generation_jobs", cols("plan_id"), cols("id DESC"),
+                "SELECT * FROM plan_generation_jobs WHERE plan_id = 1 ORDER BY id DESC");
+    }
+
+    /**
+     * 断言查询不做全表扫描，并且存在一个组合索引：前导列为全部等值条件列（任意顺序），
+     * 随后依次为排序/范围列（方向一致），使 PostgreSQL 可以直接按索引顺序返回结果
+     */
+    private void assertIndexed(String table, List<String> equalityColumns, List<String> orderedColumns, String sql) {
+        String plan = String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + sql, String.class))
+                .toLowerCase(Locale.ROOT);
+        assertFalse(plan.contains("tablescan"), () -> "查询未使用索引: " + sql + "\n" + plan);
+
+        Map<String, List<String>> indexes = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT c.index_name, c.column_name, c.ordering_specification "
+                        + "FROM information_schema.index_columns c WHERE c.table_name = ? "
+                        + "ORDER BY c.index_name, c.ordinal_position",
+                rs -> {
+                    String column = rs.getString(2).toLowerCase(Locale.ROOT);
+                    indexes.computeIfAbsent(rs.getString(1), k -> new ArrayList<>())
+                            .add("DESC".equalsIgnoreCase(rs.getString(3)) ? column + " DESC" : column);
+                }, table);
+
+        boolean covered = indexes.values().stream().anyMatch(columns -> {
+            int prefix = equalityColumns.size();
+            if (columns.size() < prefix + orderedColumns.size()) {
+                return false;
+            }
+            Set<String> leading = columns.subList(0, prefix).stream()
+                    .map(column -> column.replace(" DESC", "")).collect(Collectors.toSet());
+            return leading.equals(new HashSet<>(equalityColumns))
+                    && columns.subList(prefix, prefix + orderedColumns.size()).equals(orderedColumns);
+        });
+        assertTrue(covered, () -> "缺少匹配查询形态的组合索引: " + sql + "\n" + indexes);
+    }
+
+    private static List<String> cols(String... columns) {
+        return Arrays.asList(columns);
+    }
+}
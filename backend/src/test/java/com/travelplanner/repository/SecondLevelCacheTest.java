@@ -0,0 +1,129 @@
+package com.travelplanner.repository;
+
+import com.travelplanner.entity.TravelPlan;
+import com.travelplanner.entity.User;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 二级缓存测试
+ * 验证 TravelPlan/User 实体缓存、用户名自然主键缓存、计数查询缓存的命中与写入后的失效
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.sql.init.mode=never"
+})
+public class SecondLevelCacheTest {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TravelPlanRepository travelPlanRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+    private Statistics statistics;
+    private Long userId;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        User user = new User();
+        user.setUsername("cache-user");
+        user.setPassword("secret");
+        user.setEmail("before@example.com");
+        user.setCreatedAt(LocalDateTime.now());
+        userId = transactionTemplate.execute(status -> userRepository.save(user).getId());
+    }
+
+    @AfterEach
+    void tearDown() {
+        transactionTemplate.executeWithoutResult(status -> {
+            travelPlanRepository.deleteAll();
+            userRepository.deleteAll();
+        });
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    @Test
+    void testUsernameLookupServedFromCache() {
+        transactionTemplate.execute(status -> userRepository.findByNaturalUsername("cache-user"));
+        statistics.clear();
+
+        User user = transactionTemplate.execute(status -> userRepository.findByNaturalUsername("cache-user").orElse(null));
+
+        assertNotNull(user);
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertTrue(statistics.getNaturalIdCacheHitCount() > 0);
+    }
+
+    @Test
+    void testUpdateInvalidatesCachedUser() {
+        transactionTemplate.execute(status -> userRepository.findByNaturalUsername("cache-user"));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            User user = userRepository.findById(userId).orElseThrow(IllegalStateException::new);
+            user.setEmail("after@example.com");
+        });
+
+        User user = transactionTemplate.execute(status -> userRepository.findByNaturalUsername("cache-user").orElse(null));
+        assertEquals("after@example.com", user.getEmail());
+    }
+
+    @Test
+    void testPlanFindByIdAndCountServedFromCache() {
+        Long planId = transactionTemplate.execute(status -> travelPlanRepository.save(plan()).getId());
+        transactionTemplate.execute(status -> travelPlanRepository.findById(planId));
+        assertEquals(1L, countPlans());
+        statistics.clear();
+
+        transactionTemplate.execute(status -> travelPlanRepository.findById(planId));
+        assertEquals(1L, countPlans());
+        assertEquals(0, statistics.getPrepareStatementCount());
+
+        // 新增计划后计数查询缓存失效
+        transactionTemplate.execute(status -> travelPlanRepository.save(plan()));
+        assertEquals(2L, countPlans());
+    }
+
+    private long countPlans() {
+        Long count = transactionTemplate.execute(status -> travelPlanRepository.countByUserId(userId));
+        return count == null ? 0L : count;
+    }
+
+    private TravelPlan plan() {
+        TravelPlan plan = new TravelPlan();
+        plan.setUserId(userId);
+        plan.setPlanName("缓存测试");
+        plan.setCreatedAt(LocalDateTime.now());
+        return plan;
+    }
+}
@@ -0,0 +1,111 @@
+package com.travelplanner.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * AI处理链路指标测试
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+public class AiMetricsTest {
+
+    private SimpleMeterRegistry registry;
+    private RestTemplate restTemplate;
+    private UserService userService;
+    private AiService aiService;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        restTemplate = mock(RestTemplate.class);
+        userService = mock(UserService.class);
+        AiMetrics aiMetrics = new AiMetrics(registry);
+        aiService = AiServices.forTest(restTemplate, userService, aiMetrics);
+        ReflectionTestUtils.setField(aiService, "mockMode", false);
+        ReflectionTestUtils.setField(aiService, "qwenBaseUrl", "http://localhost:9/api/v1");
+    }
+
+    @Test
+    void testStagesTaggedByEndpointAndOutcome() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/conversations/chat");
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+        try {
+            when(userService.getQwenApiKey(1L)).thenReturn("sk-real-key");
+            when(restTemplate.postForEntity(eq("http://localhost:9/api/v1/services/aigc/text-generation/generation"),
+                    any(HttpEntity.class), eq(Map.class)))
+                    .thenReturn(ResponseEntity.ok(body("{\"destination\": \"北京\"}", 30, 10)))
+                    .thenReturn(ResponseEntity.ok(error("InvalidApiKey")));
+
+            assertEquals("北京", aiService.extractTravelFields(1L, "去北京").getDestination());
+            aiService.generateTravelPlanWithCustomKey("sk-real-key", "去北京", "");
+        } finally {
+            RequestContextHolder.resetRequestAttributes();
+        }
+
+        assertEquals(1, stageCount(AiMetrics.STAGE_KEY_LOOKUP, AiMetrics.OUTCOME_SUCCESS));
+        assertEquals(1, stageCount(AiMetrics.STAGE_EXTRACT_LLM, AiMetrics.OUTCOME_SUCCESS));
+        assertEquals(1, stageCount(AiMetrics.STAGE_PARSE, AiMetrics.OUTCOME_SUCCESS));
+        assertEquals(1, stageCount(AiMetrics.STAGE_GENERATE, AiMetrics.OUTCOME_ERROR));
+        assertEquals(30.0, registry.get(AiMetrics.TOKEN_COUNTER)
+                .tags("endpoint", "/conversations/chat", "type", "input").counter().count());
+        assertEquals(10.0, registry.get(AiMetrics.TOKEN_COUNTER)
+                .tags("endpoint", "/conversations/chat", "type", "output").counter().count());
+    }
+
+    @Test
+    void testFailedCallFallsBackToRegexAndIsRecorded() {
+        when(restTemplate.postForEntity(anyString(), any(HttpEntity.class), eq(Map.class)))
+                .thenThrow(new ResourceAccessException("Read timed out"));
+        ReflectionTestUtils.setField(aiService, "qwenApiKey", "sk-real-key");
+
+        assertEquals(3, aiService.extractTravelFields("3个人去北京玩").getGroupSize());
+
+        assertEquals(1, registry.get(AiMetrics.STAGE_TIMER).tags("stage", AiMetrics.STAGE_EXTRACT_LLM,
+                "outcome", AiMetrics.OUTCOME_FAILURE, "endpoint", AiMetrics.BACKGROUND_ENDPOINT).timer().count());
+        assertEquals(1, stageCount(AiMetrics.STAGE_EXTRACT_REGEX, AiMetrics.OUTCOME_SUCCESS));
+        assertNull(registry.find(AiMetrics.TOKEN_COUNTER).counter());
+    }
+
+    private long stageCount(String stage, String outcome) {
+        return registry.get(AiMetrics.STAGE_TIMER).tags("stage", stage, "outcome", outcome).timer().count();
+    }
+
+    private static Map<String, Object> body(String text, int inputTokens, int outputTokens) {
+        Map<String, Object> output = new HashMap<>();
+        output.put("text", text);
+        Map<String, Object> usage = new HashMap<>();
+        usage.put("input_tokens", inputTokens);
+        usage.put("output_tokens", outputTokens);
+        Map<String, Object> body = new HashMap<>();
+        body.put("output", output);
+        body.put("usage", usage);
+        return body;
+    }
+
+    private static Map<String, Object> error(String code) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("code", code);
+        body.put("message", code);
+        return body;
+    }
+}
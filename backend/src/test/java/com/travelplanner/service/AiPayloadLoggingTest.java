@@ -0,0 +1,115 @@
+package com.travelplanner.service;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import com.travelplanner.util.PayloadLogs;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 模型调用内容日志采样测试
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+public class AiPayloadLoggingTest {
+
+    private final Logger payloadLogger = (Logger) LoggerFactory.getLogger(PayloadLogs.LOGGER_NAME);
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+
+    private RestTemplate restTemplate;
+    private AiService aiService;
+
+    @BeforeEach
+    void setUp() {
+        appender.start();
+        payloadLogger.addAppender(appender);
+        payloadLogger.setLevel(Level.INFO);
+
+        restTemplate = mock(RestTemplate.class);
+        AiMetrics aiMetrics = new AiMetrics(new SimpleMeterRegistry());
+        aiService = AiServices.forTest(restTemplate, aiMetrics);
+        ReflectionTestUtils.setField(aiService, "mockMode", false);
+        ReflectionTestUtils.setField(aiService, "qwenBaseUrl", "http://localhost:9/api/v1");
+        ReflectionTestUtils.setField(aiService, "payloadMaxLength", 20);
+    }
+
+    @AfterEach
+    void tearDown() {
+        payloadLogger.detachAppender(appender);
+        payloadLogger.setLevel(null);
+    }
+
+    @Test
+    void testSuccessfulCallsAreSampled() {
+        when(restTemplate.postForEntity(anyString(), any(HttpEntity.class), eq(Map.class)))
+                .thenReturn(ResponseEntity.ok(text("第一天：抵达北京，入住酒店")));
+
+        ReflectionTestUtils.setField(aiService, "payloadSampleRate", 0.0);
+        for (int i = 0; i < 5; i++) {
+            aiService.generateTravelPlanWithCustomKey("sk-real-key", "去北京", "");
+        }
+        assertTrue(appender.list.isEmpty());
+
+        ReflectionTestUtils.setField(aiService, "payloadSampleRate", 1.0);
+        aiService.generateTravelPlanWithCustomKey("sk-real-key", "去北京", "");
+        assertEquals(1, appender.list.size());
+        ILoggingEvent event = appender.list.get(0);
+        assertEquals(Level.INFO, event.getLevel());
+        assertTrue(event.getFormattedMessage().contains("字符)"), event.getFormattedMessage());
+    }
+
+    @Test
+    void testErrorsAreAlwaysLogged() {
+        ReflectionTestUtils.setField(aiService, "payloadSampleRate", 0.0);
+        Map<String, Object> error = new HashMap<>();
+        error.put("code", "Throttling.RateQuota");
+        error.put("message", "Requests rate limit exceeded");
+        when(restTemplate.postForEntity(anyString(), any(HttpEntity.class), eq(Map.class)))
+                .thenReturn(ResponseEntity.ok(error))
+                .thenThrow(new ResourceAccessException("Read timed out"));
+
+        aiService.generateTravelPlanWithCustomKey("sk-real-key", "去北京", "");
+        aiService.generateTravelPlanWithCustomKey("sk-real-key", "去北京", "");
+
+        assertEquals(2, appender.list.size());
+        assertEquals(Level.WARN, appender.list.get(0).getLevel());
+        assertTrue(appender.list.get(0).getFormattedMessage().contains("Throttling"));
+        assertTrue(appender.list.get(1).getFormattedMessage().contains("Read timed out"));
+    }
+
+    @Test
+    void testAbbreviate() {
+        assertEquals("abc", PayloadLogs.abbreviate("abc", 3));
+        assertEquals("ab...(共3字符)", PayloadLogs.abbreviate("abc", 2));
+        assertEquals("abc", PayloadLogs.abbreviate("abc", 0));
+        assertEquals("null", PayloadLogs.abbreviate(null, 10));
+        assertFalse(PayloadLogs.sample(0));
+        assertTrue(PayloadLogs.sample(1));
+    }
+
+    private static Map<String, Object> text(String text) {
+        Map<String, Object> output = new HashMap<>();
+        output.put("text", text);
+        Map<String, Object> body = new HashMap<>();
+        body.put("output", output);
+        return body;
+    }
+}
@@ -0,0 +1,37 @@
+package com.travelplanner.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.web.client.RestTemplate;
+
+import static org.mockito.Mockito.*;
+
+/**
+ * 测试用AiService构建方法
+ * 未指定的依赖使用mock或默认配置，AiService构造参数变化时只需修改这里
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+public final class AiServices {
+
+    private AiServices() {
+    }
+
+    public static AiService forTest(RestTemplate restTemplate) {
+        return forTest(restTemplate, new AiMetrics(new SimpleMeterRegistry()));
+    }
+
+    public static AiService forTest(RestTemplate restTemplate, AiMetrics aiMetrics) {
+        return forTest(restTemplate, mock(UserService.class), aiMetrics);
+    }
+
+    public static AiService forTest(RestTemplate restTemplate, UserService userService, AiMetrics aiMetrics) {
+        return forTest(restTemplate, userService, aiMetrics, new TokenBudget(), new ModelRouter(aiMetrics, userService));
+    }
+
+    public static AiService forTest(RestTemplate restTemplate, UserService userService, AiMetrics aiMetrics,
+                                    TokenBudget tokenBudget, ModelRouter modelRouter) {
+        return new AiService(restTemplate, userService, aiMetrics, tokenBudget, mock(TokenUsageService.class),
+                new PromptTemplateRegistry(), modelRouter);
+    }
+}
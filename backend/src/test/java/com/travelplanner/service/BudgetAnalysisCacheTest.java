@@ -0,0 +1,69 @@
+package com.travelplanner.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * AI预算分析缓存测试
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+public class BudgetAnalysisCacheTest {
+
+    @Test
+    void testVersionIgnoresScaleAndOrdering() {
+        Map<String, Object> first = new HashMap<>();
+        first.put("餐饮", new BigDecimal("120.50"));
+        first.put("交通", new BigDecimal("80"));
+
+        Map<String, Object> second = new HashMap<>();
+        second.put("交通", new BigDecimal("80.00"));
+        second.put("餐饮", new BigDecimal("120.5"));
+
+        assertEquals(
+                BudgetAnalysisCache.buildVersion(new BigDecimal("1000.0"), new BigDecimal("200.50"), first),
+                BudgetAnalysisCache.buildVersion(new BigDecimal("1000"), new BigDecimal("200.5"), second));
+    }
+
+    @Test
+    void testVersionChangesWithInputs() {
+        Map<String, Object> breakdown = new HashMap<>();
+        breakdown.put("餐饮", new BigDecimal("100"));
+
+        String version = BudgetAnalysisCache.buildVersion(new BigDecimal("1000"), new BigDecimal("100"), breakdown);
+        breakdown.put("餐饮", new BigDecimal("101"));
+
+        assertNotEquals(version, BudgetAnalysisCache.buildVersion(new BigDecimal("1000"), new BigDecimal("100"), breakdown));
+    }
+
+    @Test
+    void testGetRequiresMatchingVersion() {
+        BudgetAnalysisCache cache = new BudgetAnalysisCache();
+        ReflectionTestUtils.setField(cache, "ttlMinutes", 30L);
+
+        cache.put(1L, "v1", "分析结果");
+
+        assertEquals("分析结果", cache.get(1L, "v1"));
+        assertNull(cache.get(1L, "v2"));
+        // 版本不一致时旧条目被移除
+        assertNull(cache.get(1L, "v1"));
+    }
+
+    @Test
+    void testInvalidate() {
+        BudgetAnalysisCache cache = new BudgetAnalysisCache();
+        ReflectionTestUtils.setField(cache, "ttlMinutes", 30L);
+
+        cache.put(1L, "v1", "分析结果");
+        cache.invalidate(1L);
+
+        assertNull(cache.get(1L, "v1"));
+    }
+}
@@ -0,0 +1,159 @@
+package com.travelplanner.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 预算分析编排测试
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+public class BudgetAnalysisServiceTest {
+
+    private static final Long PLAN_ID = 1L;
+    private static final Long USER_ID = 7L;
+
+    private ExpenseService expenseService;
+    private AiService aiService;
+    private BudgetAnalysisCache cache;
+    private Queue<Runnable> tasks;
+    private BudgetAnalysisService service;
+
+    @BeforeEach
+    void setUp() {
+        expenseService = mock(ExpenseService.class);
+        aiService = mock(AiService.class);
+        cache = new BudgetAnalysisCache();
+        ReflectionTestUtils.setField(cache, "ttlMinutes", 30L);
+        tasks = new ArrayDeque<>();
+        service = new BudgetAnalysisService(expenseService, aiService, cache, tasks::add);
+        ReflectionTestUtils.setField(service, "failureTtlMs", 60000L);
+        givenVersion("v1");
+    }
+
+    @Test
+    void testPollReturnsPendingThenReady() {
+        when(aiService.requestBudgetAnalysis(eq(PLAN_ID), eq(USER_ID), anyMap(), anyMap())).thenReturn("预算充足");
+
+        assertEquals(BudgetAnalysisService.AI_STATUS_PENDING, service.getAiAnalysis(PLAN_ID, USER_ID).get("aiStatus"));
+        runTasks();
+
+        Map<String, Object> result = service.getAiAnalysis(PLAN_ID, USER_ID);
+        assertEquals(BudgetAnalysisService.AI_STATUS_READY, result.get("aiStatus"));
+        assertEquals("预算充足", result.get("aiAnalysis"));
+        assertEquals(true, result.get("hasAiAnalysis"));
+        verify(aiService, times(1)).requestBudgetAnalysis(any(), any(), anyMap(), anyMap());
+    }
+
+    @Test
+    void testConcurrentRequestsShareOneCallPerVersion() {
+        when(aiService.requestBudgetAnalysis(eq(PLAN_ID), eq(USER_ID), anyMap(), anyMap())).thenReturn("预算充足");
+
+        service.getBudgetAnalysis(PLAN_ID, USER_ID);
+        service.getAiAnalysis(PLAN_ID, USER_ID);
+        service.refreshAiAnalysis(PLAN_ID, USER_ID);
+        assertEquals(1, tasks.size());
+
+        // 数据变化后的新版本重新生成
+        givenVersion("v2");
+        service.getAiAnalysis(PLAN_ID, USER_ID);
+        assertEquals(2, tasks.size());
+    }
+
+    @Test
+    void testAiCallRunsWithoutTransaction() {
+        Transactional transactional = BudgetAnalysisService.class.getAnnotation(Transactional.class);
+        assertEquals(Propagation.NOT_SUPPORTED, transactional.propagation());
+
+        when(aiService.requestBudgetAnalysis(eq(PLAN_ID), eq(USER_ID), anyMap(), anyMap())).thenAnswer(invocation -> {
+            assertFalse(TransactionSynchronizationManager.isActualTransactionActive());
+            return "预算充足";
+        });
+        service.getAiAnalysis(PLAN_ID, USER_ID);
+        runTasks();
+        assertEquals("预算充足", cache.get(PLAN_ID, "v1"));
+
+        // 在事务内执行时拒绝调用大模型
+        givenVersion("v2");
+        service.getAiAnalysis(PLAN_ID, USER_ID);
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            runTasks();
+        } finally {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+        }
+        verify(aiService, times(1)).requestBudgetAnalysis(any(), any(), anyMap(), anyMap());
+        assertEquals(BudgetAnalysisService.AI_STATUS_FAILED, service.getAiAnalysis(PLAN_ID, USER_ID).get("aiStatus"));
+    }
+
+    @Test
+    void testFailureIsNotCachedAndNotRetriedUntilExpired() throws InterruptedException {
+        ReflectionTestUtils.setField(service, "failureTtlMs", 500L);
+        when(aiService.requestBudgetAnalysis(eq(PLAN_ID), eq(USER_ID), anyMap(), anyMap()))
+                .thenThrow(new AiServiceException("AI服务返回错误: Throttling", true))
+                .thenReturn("预算充足");
+
+        service.getAiAnalysis(PLAN_ID, USER_ID);
+        runTasks();
+
+        Map<String, Object> result = service.getAiAnalysis(PLAN_ID, USER_ID);
+        assertEquals(BudgetAnalysisService.AI_STATUS_FAILED, result.get("aiStatus"));
+        assertEquals("AI服务返回错误: Throttling", result.get("aiAnalysis"));
+        assertEquals(false, result.get("hasAiAnalysis"));
+        assertNull(cache.get(PLAN_ID, "v1"));
+        assertEquals(BudgetAnalysisService.AI_STATUS_FAILED, service.getBudgetAnalysis(PLAN_ID, USER_ID).get("aiStatus"));
+        assertTrue(tasks.isEmpty());
+
+        // 失败记录过期后重新生成
+        Thread.sleep(600);
+        service.getAiAnalysis(PLAN_ID, USER_ID);
+        runTasks();
+        assertEquals(BudgetAnalysisService.AI_STATUS_READY, service.getAiAnalysis(PLAN_ID, USER_ID).get("aiStatus"));
+        verify(aiService, times(2)).requestBudgetAnalysis(any(), any(), anyMap(), anyMap());
+    }
+
+    @Test
+    void testExpenseChangeTakesOneExecutorSlot() throws NoSuchMethodException {
+        assertNull(BudgetAnalysisRefreshListener.class.getMethod("onExpenseChanged", ExpenseChangedEvent.class)
+                .getAnnotation(Async.class));
+
+        BudgetAnalysisRefreshListener listener = new BudgetAnalysisRefreshListener(service);
+        ReflectionTestUtils.setField(listener, "asyncRefresh", true);
+        listener.onExpenseChanged(new ExpenseChangedEvent(PLAN_ID, USER_ID));
+        listener.onExpenseChanged(new ExpenseChangedEvent(PLAN_ID, USER_ID));
+
+        // 只提交大模型调用任务，同一版本的重复变更共用一个任务
+        assertEquals(1, tasks.size());
+    }
+
+    private void givenVersion(String version) {
+        Map<String, Object> analysis = new HashMap<>();
+        analysis.put("analysisVersion", version);
+        analysis.put("totalBudget", new BigDecimal("5000"));
+        analysis.put("totalExpense", new BigDecimal("1200"));
+        when(expenseService.getBudgetAnalysis(PLAN_ID)).thenAnswer(invocation -> new HashMap<>(analysis));
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            task.run();
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.travelplanner.service;
+
+import com.travelplanner.entity.Conversation;
+import com.travelplanner.entity.ConversationSummary;
+import com.travelplanner.repository.ConversationRepository;
+import com.travelplanner.repository.ConversationSummaryRepository;
+import com.travelplanner.util.TokenEstimator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.data.domain.Pageable;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 多轮对话上下文测试
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+public class ConversationContextServiceTest {
+
+    private static final Long PLAN_ID = 1L;
+    private static final Long USER_ID = 7L;
+
+    private final List<Conversation> conversations = new ArrayList<>();
+    private final AtomicReference<ConversationSummary> stored = new AtomicReference<>();
+
+    private ConversationRepository conversationRepository;
+    private ConversationSummaryRepository summaryRepository;
+    private AiService aiService;
+    private ConversationContextService contextService;
+
+    @BeforeEach
+    void setUp() {
+        conversationRepository = mock(ConversationRepository.class);
+        summaryRepository = mock(ConversationSummaryRepository.class);
+        aiService = mock(AiService.class);
+
+        when(conversationRepository.findByPlanIdOrderByCreatedAtDesc(eq(PLAN_ID), any(Pageable.class)))
+                .thenAnswer(invocation -> {
+                    Pageable page = invocation.getArgument(1);
+                    return conversations.stream()
+                            .sorted(Comparator.comparing(Conversation::getId).reversed())
+                            .limit(page.getPageSize())
+                            .collect(Collectors.toList());
+                });
+        when(conversationRepository.findByPlanIdAndIdGreaterThanAndIdLessThanOrderByIdAsc(
+                eq(PLAN_ID), anyLong(), anyLong(), any(Pageable.class)))
+                .thenAnswer(invocation -> {
+                    long after = invocation.getArgument(1);
+                    long before = invocation.getArgument(2);
+                    Pageable page = invocation.getArgument(3);
+                    return conversations.stream()
+                            .filter(c -> c.getId() > after && c.getId() < before)
+                            .limit(page.getPageSize())
+                            .collect(Collectors.toList());
+                });
+        when(summaryRepository.findById(PLAN_ID)).thenAnswer(invocation -> Optional.ofNullable(stored.get()));
+        when(summaryRepository.save(any(ConversationSummary.class))).thenAnswer(invocation -> {
+            stored.set(invocation.getArgument(0));
+            return invocation.getArgument(0);
+        });
+
+        contextService = new ConversationContextService(conversationRepository, summaryRepository,
+                aiService, new SyncTaskExecutor());
+    }
+
+    @Test
+    void testRecentTurnsInChronologicalOrder() {
+        addTurns(3);
+
+        String context = contextService.withHistory(PLAN_ID, "计划名称: 北京之旅");
+
+        assertTrue(context.startsWith("计划名称: 北京之旅"));
+        assertTrue(context.contains("最近对话（由早到晚）"));
+        assertTrue(context.indexOf("问题1") < context.indexOf("问题2"));
+        assertTrue(context.indexOf("问题2") < context.indexOf("问题3"));
+        assertFalse(context.contains("此前对话摘要"));
+    }
+
+    @Test
+    void testContextStaysWithinBudget() {
+        StringBuilder longReply = new StringBuilder();
+        for (int i = 0; i < 3000; i++) {
+            longReply.append('行');
+        }
+        for (int i = 1; i <= 50; i++) {
+            addTurn(i, "第" + i + "个问题", longReply.toString());
+        }
+        ConversationSummary summary = new ConversationSummary();
+        summary.setPlanId(PLAN_ID);
+        summary.setUserId(USER_ID);
+        summary.setSummary(longReply.toString());
+        stored.set(summary);
+
+        String history = contextService.buildHistory(PLAN_ID);
+
+        assertTrue(TokenEstimator.estimate(history) <= 1500 + 20, "估算token: " + TokenEstimator.estimate(history));
+        assertTrue(history.contains("第50个问题"));
+        assertTrue(history.contains("第48个问题"));
+        assertFalse(history.contains("第47个问题"));
+    }
+
+    @Test
+    void testRefreshFoldsOnlyTurnsOutsideRecentWindow() {
+        when(aiService.summarizeConversation(eq(USER_ID), anyString(), anyInt())).thenReturn("用户计划去北京三天");
+        addTurns(10);
+
+        assertEquals(6, contextService.refreshSummary(PLAN_ID, USER_ID));
+        assertEquals(6L, stored.get().getLastConversationId());
+        assertEquals(6, stored.get().getSummarizedTurns());
+
+        // 没有新对话滑出窗口时不再调用模型
+        assertEquals(0, contextService.refreshSummary(PLAN_ID, USER_ID));
+        verify(aiService, times(1)).summarizeConversation(anyLong(), anyString(), anyInt());
+
+        addTurns(12);
+        assertEquals(2, contextService.refreshSummary(PLAN_ID, USER_ID));
+        assertEquals(8L, stored.get().getLastConversationId());
+        assertEquals(8, stored.get().getSummarizedTurns());
+
+        String history = contextService.buildHistory(PLAN_ID);
+        assertTrue(history.startsWith("此前对话摘要：\n用户计划去北京三天"));
+        assertFalse(history.contains("问题8\n"));
+        assertTrue(history.contains("问题9"));
+    }
+
+    @Test
+    void testLocalSummaryWhenModelUnavailable() {
+        when(aiService.summarizeConversation(any(), anyString(), anyInt())).thenReturn(null);
+        addTurns(6);
+
+        contextService.scheduleRefresh(PLAN_ID, USER_ID);
+
+        String summary = stored.get().getSummary();
+        assertTrue(summary.contains("用户：问题1"));
+        assertTrue(summary.contains("用户：问题2"));
+        assertFalse(summary.contains("问题3"));
+        assertFalse(summary.contains("回答"));
+    }
+
+    @Test
+    void testTokenEstimator() {
+        assertEquals(0, TokenEstimator.estimate(""));
+        assertEquals(4, TokenEstimator.estimate("北京旅游"));
+        assertEquals(2, TokenEstimator.estimate("hello"));
+        assertEquals("北京…", TokenEstimator.truncate("北京旅游", 3));
+        assertEquals("北京旅游", TokenEstimator.truncate("北京旅游", 4));
+    }
+
+    private void addTurns(int upTo) {
+        for (int i = conversations.size() + 1; i <= upTo; i++) {
+            addTurn(i, "问题" + i, "回答" + i);
+        }
+    }
+
+    private void addTurn(long id, String userMessage, String aiResponse) {
+        Conversation conversation = new Conversation();
+        conversation.setId(id);
+        conversation.setPlanId(PLAN_ID);
+        conversation.setUserId(USER_ID);
+        conversation.setUserMessage(userMessage);
+        conversation.setAiResponse(aiResponse);
+        conversations.add(conversation);
+    }
+}
@@ -0,0 +1,109 @@
+package com.travelplanner.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.travelplanner.entity.TravelPlan;
+import com.travelplanner.repository.ExpenseRepository;
+import com.travelplanner.repository.TravelPlanRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 费用批量导入测试
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+public class ExpenseImportServiceTest {
+
+    private static final Long PLAN_ID = 1L;
+    private static final Long USER_ID = 7L;
+
+    private JdbcTemplate jdbcTemplate;
+    private BudgetAnalysisCache budgetAnalysisCache;
+    private ApplicationEventPublisher eventPublisher;
+    private ExpenseImportService importService;
+
+    @BeforeEach
+    void setUp() {
+        TravelPlan plan = new TravelPlan();
+        plan.setUserId(USER_ID);
+        TravelPlanRepository travelPlanRepository = mock(TravelPlanRepository.class);
+        when(travelPlanRepository.findById(PLAN_ID)).thenReturn(Optional.of(plan));
+
+        FxRateService fxRateService = mock(FxRateService.class);
+        when(fxRateService.getSnapshot()).thenReturn(FxRateSnapshot.empty("CNY"));
+
+        budgetAnalysisCache = new BudgetAnalysisCache();
+        ReflectionTestUtils.setField(budgetAnalysisCache, "ttlMinutes", 30L);
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        ExpenseService expenseService = new ExpenseService(mock(ExpenseRepository.class), travelPlanRepository,
+                budgetAnalysisCache, eventPublisher, fxRateService, mock(ExpenseRollupService.class));
+
+        jdbcTemplate = mock(JdbcTemplate.class);
+        importService = new ExpenseImportService(travelPlanRepository, expenseService, fxRateService, jdbcTemplate,
+                mock(PlatformTransactionManager.class), new ObjectMapper());
+        ReflectionTestUtils.setField(importService, "batchSize", 2);
+        ReflectionTestUtils.setField(importService, "maxRows", 1000);
+        ReflectionTestUtils.setField(importService, "maxReportedErrors", 100);
+    }
+
+    @Test
+    void testTruncatedJsonKeepsCommittedBatchesAndInvalidatesCache() throws Exception {
+        budgetAnalysisCache.put(PLAN_ID, "v1", "旧的分析结果");
+        String json = "[{\"date\": \"2024-05-01\", \"amount\": \"100\"},"
+                + "{\"date\": \"2024-05-02\", \"amount\": \"200\"},"
+                + "{\"date\": \"2024-05-03\", \"amount\": \"300\"},"
+                + "{\"date\": \"2024-05-04\", \"amou";
+
+        ExpenseImportResult result = importService.importExpenses(PLAN_ID, USER_ID, file("expenses.json", json), null);
+
+        assertEquals(3, result.getImportedRows());
+        assertEquals(4, result.getTotalRows());
+        assertEquals(1, result.getFailedRows());
+        assertEquals(4, result.getErrors().get(0).getRow());
+        verify(jdbcTemplate, times(2)).batchUpdate(anyString(), anyList());
+        assertNull(budgetAnalysisCache.get(PLAN_ID, "v1"));
+        verify(eventPublisher).publishEvent(any(ExpenseChangedEvent.class));
+    }
+
+    @Test
+    void testUnclosedCsvQuoteStopsImport() throws Exception {
+        String csv = "日期,金额,描述\n2024-05-01,100,早餐\n2024-05-02,200,\"晚餐\n2024-05-03,300,午餐\n";
+
+        ExpenseImportResult result = importService.importExpenses(PLAN_ID, USER_ID, file("expenses.csv", csv), null);
+
+        assertEquals(1, result.getImportedRows());
+        List<ExpenseImportResult.RowError> errors = result.getErrors();
+        assertEquals(1, errors.size());
+        assertEquals(2, errors.get(0).getRow());
+        assertTrue(errors.get(0).getMessage().contains("CSV引号未闭合"));
+        verify(eventPublisher).publishEvent(any(ExpenseChangedEvent.class));
+    }
+
+    @Test
+    void testNothingImportedDoesNotPublish() throws Exception {
+        ExpenseImportResult result = importService.importExpenses(PLAN_ID, USER_ID,
+                file("expenses.json", "[{\"date\": \"2024-05-01\", \"amount\": \"-1\"}, {"), null);
+
+        assertEquals(0, result.getImportedRows());
+        assertEquals(2, result.getFailedRows());
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    private static MockMultipartFile file(String name, String content) {
+        return new MockMultipartFile("file", name, null, content.getBytes(StandardCharsets.UTF_8));
+    }
+}
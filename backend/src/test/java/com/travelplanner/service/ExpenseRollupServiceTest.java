@@ -0,0 +1,110 @@
+package com.travelplanner.service;
+
+import com.travelplanner.entity.TravelPlan;
+import com.travelplanner.repository.ExpenseRepository;
+import com.travelplanner.repository.TravelPlanRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 费用时间序列汇总服务测试
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+public class ExpenseRollupServiceTest {
+
+    private ExpenseRepository expenseRepository;
+    private ExpenseRollupService rollupService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        expenseRepository = mock(ExpenseRepository.class);
+        TravelPlanRepository travelPlanRepository = mock(TravelPlanRepository.class);
+        FxRateService fxRateService = mock(FxRateService.class);
+        when(fxRateService.getSnapshot()).thenReturn(
+                FxRateSnapshot.parse(new StringReader("2024-01-01,USD,7.00\n"), "CNY"));
+
+        TravelPlan plan = new TravelPlan();
+        plan.setId(1L);
+        plan.setBudget(1000.0);
+        plan.setStartDate(LocalDateTime.of(2025, 10, 1, 0, 0));
+        plan.setEndDate(LocalDateTime.of(2025, 10, 5, 0, 0));
+        when(travelPlanRepository.findById(1L)).thenReturn(Optional.of(plan));
+
+        List<Object[]> rows = Arrays.asList(
+                new Object[]{LocalDate.of(2025, 9, 30), "CNY", new BigDecimal("50.00")},
+                new Object[]{LocalDate.of(2025, 10, 1), "CNY", new BigDecimal("100.00")},
+                new Object[]{LocalDate.of(2025, 10, 1), "USD", new BigDecimal("10.00")},
+                new Object[]{LocalDate.of(2025, 10, 4), "CNY", new BigDecimal("30.50")});
+        when(expenseRepository.getAmountByDateAndCurrencyAndPlanId(1L)).thenReturn(rows);
+
+        rollupService = new ExpenseRollupService(expenseRepository, travelPlanRepository, fxRateService, 100);
+        ReflectionTestUtils.setField(rollupService, "maxRangeDays", 3660);
+    }
+
+    @Test
+    void testDailySeriesIsDenseWithBurnDown() {
+        ExpenseTimeSeries series = rollupService.getPlanSeries(1L, "day", null, null);
+
+        assertEquals(5, series.getBuckets().size());
+        assertEquals(LocalDate.of(2025, 10, 1), series.getBuckets().get(0));
+        assertEquals(Arrays.asList(bd("170.00"), bd("0.00"), bd("0.00"), bd("30.50"), bd("0.00")), series.getAmounts());
+        // 累计费用包含起始日期之前的费用
+        assertEquals(bd("220.00"), series.getCumulative().get(0));
+        assertEquals(bd("250.50"), series.getCumulative().get(4));
+        assertEquals(bd("749.50"), series.getRemaining().get(4));
+        assertEquals(bd("200.50"), series.getTotal());
+        assertEquals(bd("1000.00"), series.getBudget());
+    }
+
+    @Test
+    void testWeeklyBucketsStartOnMonday() {
+        ExpenseTimeSeries series = rollupService.getPlanSeries(1L, "week",
+                LocalDate.of(2025, 9, 29), LocalDate.of(2025, 10, 12));
+
+        assertEquals(Arrays.asList(LocalDate.of(2025, 9, 29), LocalDate.of(2025, 10, 6)), series.getBuckets());
+        assertEquals(Arrays.asList(bd("250.50"), bd("0.00")), series.getAmounts());
+    }
+
+    @Test
+    void testDailyAmountsOrderedAndCachedUntilChanged() {
+        assertEquals(Arrays.asList(LocalDate.of(2025, 9, 30), LocalDate.of(2025, 10, 1), LocalDate.of(2025, 10, 4)),
+                new ArrayList<>(rollupService.getDailyAmounts(1L).keySet()));
+        rollupService.getDailyAmounts(1L);
+        verify(expenseRepository, times(1)).getAmountByDateAndCurrencyAndPlanId(1L);
+
+        rollupService.onExpenseChanged(new ExpenseChangedEvent(1L, 3L));
+        when(expenseRepository.getAmountByDateAndCurrencyAndPlanId(1L)).thenReturn(Collections.emptyList());
+
+        assertTrue(rollupService.getDailyAmounts(1L).isEmpty());
+        verify(expenseRepository, times(2)).getAmountByDateAndCurrencyAndPlanId(1L);
+    }
+
+    @Test
+    void testInvalidRange() {
+        assertThrows(IllegalArgumentException.class,
+                () -> rollupService.getPlanSeries(1L, "day", LocalDate.of(2025, 10, 5), LocalDate.of(2025, 10, 1)));
+        assertThrows(IllegalArgumentException.class,
+                () -> rollupService.getPlanSeries(1L, "year", null, null));
+    }
+
+    private static BigDecimal bd(String value) {
+        return new BigDecimal(value);
+    }
+}
@@ -0,0 +1,76 @@
+package com.travelplanner.service;
+
+import com.travelplanner.entity.Expense;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 汇率快照与费用汇总测试
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+public class FxRateSnapshotTest {
+
+    private static final String RATES = "# 测试汇率\n"
+            + "effective_date,currency,rate\n"
+            + "2024-01-01,USD,7.00\n"
+            + "2025-01-01,USD,7.20\n"
+            + "2024-01-01,JPY,0.05\n";
+
+    @Test
+    void testRateLookupByEffectiveDate() throws IOException {
+        FxRateSnapshot snapshot = FxRateSnapshot.parse(new StringReader(RATES), "CNY");
+
+        assertEquals(new BigDecimal("7.00"), snapshot.rateOn("USD", LocalDate.of(2024, 6, 1)));
+        assertEquals(new BigDecimal("7.20"), snapshot.rateOn("usd", LocalDate.of(2025, 1, 1)));
+        assertEquals(new BigDecimal("7.00"), snapshot.rateOn("USD", LocalDate.of(2023, 1, 1)));
+        assertEquals(new BigDecimal("7.20"), snapshot.rateOn("USD", null));
+        assertEquals(BigDecimal.ONE, snapshot.rateOn("CNY", null));
+        assertNull(snapshot.rateOn("EUR", null));
+        assertEquals(LocalDate.of(2025, 1, 1), snapshot.getLatestEffectiveDate());
+    }
+
+    @Test
+    void testToBase() throws IOException {
+        FxRateSnapshot snapshot = FxRateSnapshot.parse(new StringReader(RATES), "CNY");
+
+        assertEquals(new BigDecimal("72.00"), snapshot.toBase(BigDecimal.TEN, "USD", LocalDate.of(2025, 3, 1)).toBigDecimal());
+        assertEquals(new BigDecimal("50.00"), snapshot.toBase(new BigDecimal("1000"), "JPY", null).toBigDecimal());
+        assertNull(snapshot.toBase(BigDecimal.TEN, "EUR", null));
+    }
+
+    @Test
+    void testInvalidLineRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> FxRateSnapshot.parse(new StringReader("2024-01-01,USD\n"), "CNY"));
+        assertThrows(IllegalArgumentException.class,
+                () -> FxRateSnapshot.parse(new StringReader("2024-01-01,USD,-1\n"), "CNY"));
+    }
+
+    @Test
+    void testSummaryNormalizesCurrencies() throws IOException {
+        FxRateSnapshot snapshot = FxRateSnapshot.parse(new StringReader(RATES), "CNY");
+        List<Object[]> rows = Arrays.asList(
+                new Object[]{Expense.ExpenseCategory.MEAL, "CNY", LocalDate.of(2025, 2, 1), new BigDecimal("100.00")},
+                new Object[]{Expense.ExpenseCategory.MEAL, "USD", LocalDate.of(2025, 2, 1), new BigDecimal("10.00")},
+                new Object[]{Expense.ExpenseCategory.SHOPPING, "USD", LocalDate.of(2024, 2, 1), new BigDecimal("10.00")},
+                new Object[]{Expense.ExpenseCategory.SHOPPING, "EUR", LocalDate.of(2024, 2, 1), new BigDecimal("10.00")});
+
+        ExpenseSummary summary = ExpenseSummary.fromGroupedRows(rows, snapshot);
+
+        assertEquals(new BigDecimal("242.00"), summary.getTotal().toBigDecimal());
+        assertEquals(new BigDecimal("172.00"), summary.getByCategory().get(Expense.ExpenseCategory.MEAL).toBigDecimal());
+        assertEquals(new BigDecimal("70.00"), summary.getByCategory().get(Expense.ExpenseCategory.SHOPPING).toBigDecimal());
+        assertEquals(Collections.singleton("EUR"), summary.getUnconvertedCurrencies());
+    }
+}
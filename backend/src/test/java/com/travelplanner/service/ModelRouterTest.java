@@ -0,0 +1,109 @@
+package com.travelplanner.service;
+
+import com.travelplanner.entity.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 模型路由测试
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+public class ModelRouterTest {
+
+    private SimpleMeterRegistry registry;
+    private UserService userService;
+    private ModelRouter router;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        userService = mock(UserService.class);
+        router = new ModelRouter(new AiMetrics(registry), userService);
+        ReflectionTestUtils.setField(router, "defaultModel", "qwen-turbo");
+        ReflectionTestUtils.setField(router, "stageModelsConfig", "extract_llm=qwen-turbo, generate=qwen-plus");
+        ReflectionTestUtils.setField(router, "tierModelsConfig", "ADMIN.generate=qwen-max,ADMIN.*=qwen-plus");
+        ReflectionTestUtils.setField(router, "pricesConfig", "qwen-turbo=0.0003/0.0006,qwen-plus=0.0008/0.002");
+        router.init();
+    }
+
+    @Test
+    void testRoutesByStage() {
+        assertEquals("qwen-turbo", router.route(AiMetrics.STAGE_EXTRACT_LLM, null));
+        assertEquals("qwen-plus", router.route(AiMetrics.STAGE_GENERATE, null));
+        assertEquals("qwen-turbo", router.route(AiMetrics.STAGE_BUDGET_ANALYSIS, 1L));
+
+        assertEquals(1.0, routeCount(AiMetrics.STAGE_GENERATE, "qwen-plus", ModelRouter.REASON_STAGE));
+        assertEquals(1.0, routeCount(AiMetrics.STAGE_BUDGET_ANALYSIS, "qwen-turbo", ModelRouter.REASON_DEFAULT));
+    }
+
+    @Test
+    void testTierOverridesStageModel() {
+        when(userService.findById(1L)).thenReturn(Optional.of(user(User.UserRole.ADMIN)));
+        when(userService.findById(2L)).thenReturn(Optional.of(user(User.UserRole.USER)));
+        router.refreshTier(1L);
+        router.refreshTier(2L);
+
+        assertEquals("qwen-max", router.route(AiMetrics.STAGE_GENERATE, 1L));
+        assertEquals("qwen-plus", router.route(AiMetrics.STAGE_EXTRACT_LLM, 1L));
+        assertEquals("qwen-plus", router.route(AiMetrics.STAGE_GENERATE, 2L));
+        assertEquals(1.0, routeCount(AiMetrics.STAGE_GENERATE, "qwen-max", ModelRouter.REASON_TIER));
+
+        // 角色变化后在下次查询API Key时生效
+        when(userService.findById(1L)).thenReturn(Optional.of(user(User.UserRole.USER)));
+        router.refreshTier(1L);
+        assertEquals("qwen-plus", router.route(AiMetrics.STAGE_GENERATE, 1L));
+    }
+
+    @Test
+    void testDegradesWhenInFlightLimitReached() {
+        ReflectionTestUtils.setField(router, "maxInFlight", 2);
+        router.begin("qwen-plus");
+        assertEquals("qwen-plus", router.route(AiMetrics.STAGE_GENERATE, null));
+
+        router.begin("qwen-plus");
+        assertEquals("qwen-turbo", router.route(AiMetrics.STAGE_GENERATE, null));
+        assertEquals(1.0, routeCount(AiMetrics.STAGE_GENERATE, "qwen-turbo", ModelRouter.REASON_DEGRADED));
+
+        router.finish("qwen-plus");
+        assertEquals(1, router.inFlight("qwen-plus"));
+        assertEquals("qwen-plus", router.route(AiMetrics.STAGE_GENERATE, null));
+    }
+
+    @Test
+    void testRecordsCostFromUsage() {
+        Map<String, Object> usage = new HashMap<>();
+        usage.put("input_tokens", 1000);
+        usage.put("output_tokens", 2000);
+        Map<String, Object> body = new HashMap<>();
+        body.put("usage", usage);
+
+        router.recordCost(AiMetrics.STAGE_GENERATE, "qwen-plus", 900, body);
+        router.recordCost(AiMetrics.STAGE_GENERATE, "unpriced-model", 900, body);
+
+        assertEquals(0.0048, registry.get(AiMetrics.ROUTE_COST).tags("stage", AiMetrics.STAGE_GENERATE, "model", "qwen-plus")
+                .counter().count(), 1e-9);
+        assertNull(registry.find(AiMetrics.ROUTE_COST).tag("model", "unpriced-model").counter());
+    }
+
+    private double routeCount(String stage, String model, String reason) {
+        return registry.get(AiMetrics.ROUTE_COUNTER).tags("stage", stage, "model", model, "reason", reason)
+                .counter().count();
+    }
+
+    private static User user(User.UserRole role) {
+        User user = new User();
+        user.setRole(role);
+        return user;
+    }
+}
@@ -0,0 +1,227 @@
+package com.travelplanner.service;
+
+import com.travelplanner.entity.PlanGenerationJob;
+import com.travelplanner.entity.PlanGenerationJob.JobStatus;
+import com.travelplanner.entity.TravelPlan;
+import com.travelplanner.entity.User;
+import com.travelplanner.repository.PlanGenerationJobRepository;
+import com.travelplanner.repository.TravelPlanRepository;
+import com.travelplanner.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 旅游计划生成任务队列测试
+ * 在H2上验证入队、认领、完成、重试退避以及可见性超时后的重新认领
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import(PlanGenerationJobService.class)
+@TestPropertySource(properties = {
+        "spring.sql.init.mode=never",
+        "app.plan-generation.max-attempts=2",
+        "app.plan-generation.retry-backoff-ms=60000"
+})
+public class PlanGenerationJobServiceTest {
+
+    @Autowired
+    private PlanGenerationJobService jobService;
+
+    @Autowired
+    private PlanGenerationJobRepository jobRepository;
+
+    @Autowired
+    private TravelPlanRepository travelPlanRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private Long planId;
+
+    @BeforeEach
+    void setUp() {
+        User user = new User();
+        user.setUsername("job-user");
+        user.setPassword("secret");
+        user.setCreatedAt(LocalDateTime.now());
+        user = userRepository.save(user);
+
+        TravelPlan plan = new TravelPlan();
+        plan.setUserId(user.getId());
+        plan.setPlanName("东京之旅");
+        plan.setDestination("日本东京");
+        plan.setBudget(20000.0);
+        plan.setGroupSize(2);
+        plan.setCreatedAt(LocalDateTime.now());
+        planId = travelPlanRepository.save(plan).getId();
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.setField(jobService, "visibilityTimeoutMs", 300000L);
+        jobRepository.deleteAll();
+        travelPlanRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void testEnqueueClaimAndComplete() {
+        PlanGenerationJob job = jobService.enqueue(planId, "两个人去东京");
+        assertEquals(JobStatus.QUEUED, job.getStatus());
+        // 已有进行中的任务时重复提交返回同一任务
+        assertEquals(job.getId(), jobService.enqueue(planId, "再来一次").getId());
+
+        List<PlanGenerationJob> claimed = jobService.claim("worker-a", 5);
+        assertEquals(1, claimed.size());
+        assertEquals(1, claimed.get(0).getAttempts());
+        assertEquals(TravelPlan.PlanStatus.GENERATING, planStatus());
+        assertTrue(jobService.claim("worker-b", 5).isEmpty());
+
+        assertTrue(jobService.complete(claimed.get(0), "worker-a", "东京行程"));
+        PlanGenerationJob done = jobService.findLatest(planId).orElseThrow(IllegalStateException::new);
+        assertEquals(JobStatus.SUCCEEDED, done.getStatus());
+        assertNotNull(done.getCompletedAt());
+        TravelPlan plan = travelPlanRepository.findById(planId).orElseThrow(IllegalStateException::new);
+        assertEquals(TravelPlan.PlanStatus.COMPLETED, plan.getStatus());
+        assertEquals("东京行程", plan.getAiGenerated());
+
+        // 完成后可以再次提交
+        assertNotEquals(job.getId(), jobService.enqueue(planId, null).getId());
+    }
+
+    @Test
+    void testConcurrentEnqueueCreatesOneJob() throws Exception {
+        int callers = 6;
+        ExecutorService pool = Executors.newFixedThreadPool(callers);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Long>> results = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return jobService.enqueue(planId, "两个人去东京").getId();
+                }));
+            }
+            start.countDown();
+
+            Set<Long> jobIds = new HashSet<>();
+            for (Future<Long> result : results) {
+                jobIds.add(result.get(30, TimeUnit.SECONDS));
+            }
+            assertEquals(1, jobIds.size());
+            assertEquals(1, jobRepository.count());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void testRetryWithBackoffThenFail() {
+        jobService.enqueue(planId, null);
+        PlanGenerationJob job = jobService.claim("worker-a", 1).get(0);
+
+        assertTrue(jobService.fail(job, "worker-a", "429 Too Many Requests", true));
+        PlanGenerationJob queued = jobRepository.findById(job.getId()).orElseThrow(IllegalStateException::new);
+        assertEquals(JobStatus.QUEUED, queued.getStatus());
+        assertTrue(queued.getAvailableAt().isAfter(LocalDateTime.now().plusSeconds(50)));
+        // 退避期间不可认领
+        assertTrue(jobService.claim("worker-a", 1).isEmpty());
+
+        makeAvailable(job.getId());
+        PlanGenerationJob retried = jobService.claim("worker-a", 1).get(0);
+        assertEquals(2, retried.getAttempts());
+
+        // 已用尽重试次数
+        assertFalse(jobService.fail(retried, "worker-a", "429 Too Many Requests", true));
+        assertEquals(JobStatus.FAILED, jobRepository.findById(job.getId()).map(PlanGenerationJob::getStatus).orElse(null));
+        assertEquals(TravelPlan.PlanStatus.DRAFT, planStatus());
+    }
+
+    @Test
+    void testExpiredClaimIsReclaimedAndStaleResultDiscarded() {
+        ReflectionTestUtils.setField(jobService, "visibilityTimeoutMs", -1000L);
+        jobService.enqueue(planId, null);
+        PlanGenerationJob stale = jobService.claim("worker-a", 1).get(0);
+
+        ReflectionTestUtils.setField(jobService, "visibilityTimeoutMs", 300000L);
+        PlanGenerationJob reclaimed = jobService.claim("worker-b", 1).get(0);
+        assertEquals(stale.getId(), reclaimed.getId());
+        assertEquals(2, reclaimed.getAttempts());
+
+        assertFalse(jobService.complete(stale, "worker-a", "过期结果"));
+        assertTrue(jobService.complete(reclaimed, "worker-b", "最终结果"));
+        assertEquals("最终结果", travelPlanRepository.findById(planId).map(TravelPlan::getAiGenerated).orElse(null));
+    }
+
+    @Test
+    void testWorkerRetriesTransientErrorsOnly() {
+        TravelPlanService travelPlanService = mock(TravelPlanService.class);
+        when(travelPlanService.findById(planId)).thenAnswer(invocation -> travelPlanRepository.findById(planId));
+        AiService aiService = mock(AiService.class);
+        when(aiService.requestTravelPlan(anyLong(), anyString(), anyString()))
+                .thenThrow(new ResourceAccessException("Read timed out"))
+                .thenThrow(new AiServiceException("InvalidApiKey", false));
+        PlanGenerationWorker worker = new PlanGenerationWorker(jobService, travelPlanService, aiService,
+                mock(ThreadPoolTaskExecutor.class));
+
+        jobService.enqueue(planId, null);
+        worker.process(jobService.claim(worker.getWorkerId(), 1).get(0));
+        assertEquals(JobStatus.QUEUED, jobService.findLatest(planId).map(PlanGenerationJob::getStatus).orElse(null));
+        verify(aiService).requestTravelPlan(anyLong(), eq("请为我生成前往日本东京的旅游计划"), contains("日本东京"));
+
+        makeAvailable(jobService.findLatest(planId).map(PlanGenerationJob::getId).orElse(null));
+        worker.process(jobService.claim(worker.getWorkerId(), 1).get(0));
+        PlanGenerationJob failed = jobService.findLatest(planId).orElseThrow(IllegalStateException::new);
+        assertEquals(JobStatus.FAILED, failed.getStatus());
+        assertEquals("InvalidApiKey", failed.getLastError());
+
+        assertTrue(PlanGenerationWorker.isRetryable(
+                HttpClientErrorException.create(HttpStatus.TOO_MANY_REQUESTS, "", null, null, null)));
+        assertFalse(PlanGenerationWorker.isRetryable(
+                HttpClientErrorException.create(HttpStatus.UNAUTHORIZED, "", null, null, null)));
+        assertFalse(PlanGenerationWorker.isRetryable(new IllegalStateException()));
+    }
+
+    private TravelPlan.PlanStatus planStatus() {
+        return travelPlanRepository.findById(planId).map(TravelPlan::getStatus).orElse(null);
+    }
+
+    private void makeAvailable(Long jobId) {
+        Optional<PlanGenerationJob> job = jobRepository.findById(jobId);
+        job.ifPresent(j -> {
+            j.setAvailableAt(LocalDateTime.now().minusSeconds(1));
+            jobRepository.save(j);
+        });
+    }
+}
@@ -0,0 +1,101 @@
+package com.travelplanner.service;
+
+import com.travelplanner.util.PromptTemplate;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 提示词模板注册表测试
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+public class PromptTemplateRegistryTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testBundledTravelPlanTemplate() {
+        PromptTemplateRegistry registry = new PromptTemplateRegistry();
+        registry.init();
+
+        Map<String, Object> values = new HashMap<>();
+        values.put("userMessage", "去北京玩三天");
+        values.put("planContext", "计划名称: 北京之旅");
+        String prompt = registry.get(PromptTemplateRegistry.TRAVEL_PLAN).render(values).toString();
+
+        assertTrue(prompt.startsWith("你是一个专业的旅游规划助手。请根据用户的需求，生成详细的旅游计划。\n\n"
+                + "当前计划信息：\n计划名称: 北京之旅\n\n用户需求：\n去北京玩三天\n\n请提供以下内容的旅游计划：\n"));
+        assertTrue(prompt.endsWith("7. 注意事项（天气、文化、安全等）\n\n请用中文回答，内容要详细实用，格式清晰。"));
+        for (String name : new String[]{PromptTemplateRegistry.FIELD_EXTRACTION, PromptTemplateRegistry.BUDGET_ANALYSIS,
+                PromptTemplateRegistry.BUDGET_OPTIMIZATION}) {
+            assertEquals(1, registry.get(name).getVersion());
+        }
+        assertThrows(IllegalStateException.class, () -> registry.get("missing"));
+    }
+
+    @Test
+    void testHighestVersionUsedUnlessPinned() throws IOException {
+        write("greeting.v1.txt", "你好，{{name}}\n");
+        write("greeting.v2.txt", "您好，{{name}}\r\n");
+        write("notes.txt", "不是模板");
+
+        PromptTemplateRegistry registry = registry();
+        registry.reload();
+        assertEquals("您好，张三", render(registry));
+
+        ReflectionTestUtils.setField(registry, "pinnedVersions", "greeting=1");
+        registry.reload();
+        assertEquals("你好，张三", render(registry));
+
+        ReflectionTestUtils.setField(registry, "pinnedVersions", "greeting=3");
+        assertThrows(IllegalStateException.class, registry::reload);
+    }
+
+    @Test
+    void testHotReloadKeepsCurrentTemplatesOnError() throws IOException {
+        write("greeting.v1.txt", "你好，{{name}}");
+        PromptTemplateRegistry registry = registry();
+        ReflectionTestUtils.setField(registry, "hotReload", true);
+        registry.init();
+        PromptTemplate loaded = registry.get("greeting");
+
+        // 内容未变化时不重新编译
+        registry.reloadIfChanged();
+        assertSame(loaded, registry.get("greeting"));
+
+        write("greeting.v1.txt", "欢迎，{{name}}");
+        registry.reloadIfChanged();
+        assertEquals("欢迎，张三", render(registry));
+
+        write("greeting.v1.txt", "欢迎，{{#name}}{{name}}");
+        registry.reloadIfChanged();
+        assertEquals("欢迎，张三", render(registry));
+    }
+
+    private PromptTemplateRegistry registry() {
+        PromptTemplateRegistry registry = new PromptTemplateRegistry();
+        ReflectionTestUtils.setField(registry, "location", dir.toUri().toString());
+        return registry;
+    }
+
+    private static String render(PromptTemplateRegistry registry) {
+        return registry.get("greeting").render(Collections.singletonMap("name", "张三")).toString();
+    }
+
+    private void write(String fileName, String content) throws IOException {
+        Files.write(dir.resolve(fileName), content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,162 @@
+package com.travelplanner.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 非阻塞AI服务测试
+ * 使用本地Reactor Netty服务模拟通义千问接口
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+public class ReactiveAiServiceTest {
+
+    private static final String FIELDS_JSON = "{\\\"destination\\\": \\\"日本东京\\\", \\\"budget\\\": 20000, "
+            + "\\\"groupSize\\\": 2, \\\"travelType\\\": \\\"情侣游\\\"}";
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+    private volatile Duration modelLatency = Duration.ofMillis(50);
+
+    private DisposableServer server;
+    private ConnectionProvider connectionProvider;
+    private ReactiveConversationStore store;
+    private AiService aiService;
+    private ReactiveAiService reactiveAiService;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        server = HttpServer.create()
+                .port(0)
+                .route(routes -> routes.post("/services/aigc/text-generation/generation", (request, response) ->
+                        request.receive().aggregate().asString(StandardCharsets.UTF_8).flatMap(body -> {
+                            peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                            return Mono.delay(modelLatency).thenReturn(body);
+                        }).flatMap(body -> {
+                            inFlight.decrementAndGet();
+                            return response.header("Content-Type", "application/json;charset=UTF-8")
+                                    .sendString(Mono.just(respond(body, request.requestHeaders().get("Authorization"))), StandardCharsets.UTF_8)
+                                    .then();
+                        })))
+                .bindNow();
+
+        connectionProvider = ConnectionProvider.builder("test").maxConnections(5000).pendingAcquireMaxCount(-1).build();
+        WebClient webClient = WebClient.builder()
+                .baseUrl("http://localhost:" + server.port())
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connectionProvider)))
+                .build();
+
+        meterRegistry = new SimpleMeterRegistry();
+        AiMetrics aiMetrics = new AiMetrics(meterRegistry);
+        ModelRouter modelRouter = new ModelRouter(aiMetrics, mock(UserService.class));
+        aiService = AiServices.forTest(mock(RestTemplate.class), mock(UserService.class), aiMetrics,
+                new TokenBudget(), modelRouter);
+        ReflectionTestUtils.setField(aiService, "mockMode", false);
+        store = mock(ReactiveConversationStore.class);
+        reactiveAiService = new ReactiveAiService(webClient, aiService, store, aiMetrics,
+                new TokenBudget(), mock(TokenUsageService.class), modelRouter);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.disposeNow();
+        connectionProvider.dispose();
+    }
+
+    @Test
+    void testGeneratesAndExtractsWithUserKey() {
+        when(store.findUserApiKey(7L)).thenReturn(Mono.just("sk-real-key"));
+
+        assertEquals("东京行程", reactiveAiService.generateTravelPlan(7L, "去东京", "").block());
+        AiService.ExtractedFields fields = reactiveAiService.extractTravelFields(7L, "两个人去东京，预算两万").block();
+        assertEquals("日本东京", fields.getDestination());
+        assertEquals(20000.0, fields.getBudget());
+        assertEquals(2, fields.getGroupSize());
+        assertEquals("情侣游", fields.getTravelType());
+
+        // 各阶段耗时与token用量
+        assertEquals(2, meterRegistry.get(AiMetrics.STAGE_TIMER).tag("stage", AiMetrics.STAGE_KEY_LOOKUP).timer().count());
+        assertEquals(1, meterRegistry.get(AiMetrics.STAGE_TIMER).tags("stage", AiMetrics.STAGE_GENERATE,
+                "outcome", AiMetrics.OUTCOME_SUCCESS, "endpoint", AiMetrics.BACKGROUND_ENDPOINT).timer().count());
+        assertEquals(1, meterRegistry.get(AiMetrics.STAGE_TIMER).tag("stage", AiMetrics.STAGE_EXTRACT_LLM).timer().count());
+        assertEquals(1, meterRegistry.get(AiMetrics.STAGE_TIMER).tag("stage", AiMetrics.STAGE_PARSE).timer().count());
+        assertEquals(24.0, meterRegistry.get(AiMetrics.TOKEN_COUNTER).tags("model", "qwen-turbo", "type", "input").counter().count());
+        assertEquals(14.0, meterRegistry.get(AiMetrics.TOKEN_COUNTER).tags("model", "qwen-turbo", "type", "output").counter().count());
+    }
+
+    @Test
+    void testUserWithoutKeyFallsBack() {
+        when(store.findUserApiKey(8L)).thenReturn(Mono.empty());
+        when(store.findUserApiKey(9L)).thenReturn(Mono.just("sk-demo-123"));
+
+        assertTrue(reactiveAiService.generateTravelPlan(8L, "去东京", "").block().contains("还没有配置"));
+        assertTrue(reactiveAiService.generateTravelPlan(9L, "去东京", "").block().contains("演示API Key"));
+        // 没有默认API Key时直接使用正则提取
+        AiService.ExtractedFields fields = reactiveAiService.extractTravelFields(8L, "3个人去北京玩，预算5000元").block();
+        assertEquals("北京", fields.getDestination());
+        assertEquals(3, fields.getGroupSize());
+    }
+
+    @Test
+    void testApiErrorBecomesUserMessage() {
+        String result = reactiveAiService.generateTravelPlanWithCustomKey("sk-invalid", "去东京", "").block();
+        assertTrue(result.contains("InvalidApiKey"), result);
+        assertNull(reactiveAiService.extractFieldsWithCustomKey("sk-invalid", "去东京").block().getDestination());
+        assertEquals(2, meterRegistry.get(AiMetrics.STAGE_TIMER).tag("outcome", AiMetrics.OUTCOME_ERROR).timers().stream()
+                .mapToLong(timer -> timer.count()).sum());
+    }
+
+    @Test
+    void testHoldsThousandsOfSlowCallsOnFewThreads() {
+        modelLatency = Duration.ofMillis(2000);
+        int calls = 2000;
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        int threadsBefore = Thread.activeCount();
+
+        List<String> results = Flux.range(0, calls)
+                .flatMap(i -> reactiveAiService.generateTravelPlanWithCustomKey("sk-real-key", "去东京" + i, "")
+                        .doOnNext(text -> threads.add(Thread.currentThread().getName())), calls)
+                .collectList()
+                .block(Duration.ofSeconds(60));
+
+        assertEquals(calls, results.size());
+        assertTrue(results.stream().allMatch("东京行程"::equals));
+        assertTrue(peakInFlight.get() > calls / 4, "peak in-flight " + peakInFlight.get());
+        // 所有回调都在少量事件循环线程上完成，线程数不随并发量增长
+        assertTrue(threads.size() <= Math.max(4, Runtime.getRuntime().availableProcessors()) * 2, threads.toString());
+        assertTrue(Thread.activeCount() - threadsBefore < 50, "threads grew by " + (Thread.activeCount() - threadsBefore));
+    }
+
+    private static String respond(String body, String authorization) {
+        if ("Bearer sk-invalid".equals(authorization)) {
+            return "{\"code\": \"InvalidApiKey\", \"message\": \"InvalidApiKey\"}";
+        }
+        String text = body.contains("提取旅行规划") ? FIELDS_JSON : "东京行程";
+        return "{\"output\": {\"text\": \"" + text + "\"}, "
+                + "\"usage\": {\"input_tokens\": 12, \"output_tokens\": 7, \"total_tokens\": 19}}";
+    }
+}
@@ -0,0 +1,171 @@
+package com.travelplanner.service;
+
+import com.travelplanner.entity.UserTokenUsage;
+import com.travelplanner.repository.UserTokenUsageRepository;
+import com.travelplanner.util.TokenEstimator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 提示词token预算与用户用量记录测试
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+public class TokenBudgetTest {
+
+    private SimpleMeterRegistry registry;
+    private TokenBudget tokenBudget;
+    private AiService aiService;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        tokenBudget = new TokenBudget();
+        AiMetrics aiMetrics = new AiMetrics(registry);
+        UserService userService = mock(UserService.class);
+        aiService = AiServices.forTest(mock(RestTemplate.class), userService, aiMetrics,
+                tokenBudget, new ModelRouter(aiMetrics, userService));
+    }
+
+    @Test
+    void testMaxOutputTokensByStage() {
+        assertEquals(2000, tokenBudget.maxOutputTokens(AiMetrics.STAGE_GENERATE, "去北京玩三天"));
+        assertEquals(200, tokenBudget.maxOutputTokens(AiMetrics.STAGE_EXTRACT_LLM, "去北京玩三天"));
+        assertEquals(800, tokenBudget.maxOutputTokens(AiMetrics.STAGE_BUDGET_ANALYSIS, "预算"));
+        assertEquals(1200, tokenBudget.maxOutputTokens(AiMetrics.STAGE_BUDGET_OPTIMIZE, "预算"));
+
+        // 输出长度不超过上下文窗口扣除输入后的剩余部分
+        String prompt = repeat('字', 7000);
+        assertEquals(1000, tokenBudget.maxOutputTokens(AiMetrics.STAGE_GENERATE, prompt));
+        assertEquals(200, tokenBudget.maxOutputTokens(AiMetrics.STAGE_GENERATE, repeat('字', 7900)));
+    }
+
+    @Test
+    void testBuildPromptWithinBudgetIsUnchanged() {
+        String prompt = aiService.buildPrompt("去北京玩三天", "计划名称: 北京之旅").toString();
+
+        assertTrue(prompt.contains("当前计划信息：\n计划名称: 北京之旅"));
+        assertTrue(prompt.contains("用户需求：\n去北京玩三天"));
+        assertEquals(0.0, trimmedCount());
+    }
+
+    @Test
+    void testBuildPromptTrimsOversizedContext() {
+        ReflectionTestUtils.setField(tokenBudget, "maxInputTokens", 600);
+        String context = "计划名称: 北京之旅\n" + repeat('史', 2000);
+
+        String prompt = aiService.buildPrompt("去北京玩三天，预算5000元", context).toString();
+
+        assertTrue(TokenEstimator.estimate(prompt) <= 600, "估算token: " + TokenEstimator.estimate(prompt));
+        assertTrue(prompt.contains("计划名称: 北京之旅"));
+        assertTrue(prompt.contains("去北京玩三天，预算5000元"));
+        assertTrue(prompt.endsWith("请用中文回答，内容要详细实用，格式清晰。"));
+        assertEquals(1.0, trimmedCount());
+    }
+
+    @Test
+    void testBudgetAnalysisPromptListsLargestCategoriesFirst() {
+        Map<String, Object> categories = new HashMap<>();
+        categories.put("购物", new BigDecimal("80"));
+        categories.put("住宿", new BigDecimal("1200"));
+        categories.put("餐饮", new BigDecimal("300.50"));
+        Map<String, Object> budgetData = new HashMap<>();
+        budgetData.put("totalBudget", new BigDecimal("5000"));
+        Map<String, Object> expenseData = new HashMap<>();
+        expenseData.put("categoryBreakdown", categories);
+
+        String prompt = aiService.buildBudgetAnalysisPrompt(budgetData, expenseData).toString();
+        assertTrue(prompt.indexOf("住宿") < prompt.indexOf("餐饮"));
+        assertTrue(prompt.indexOf("餐饮") < prompt.indexOf("购物"));
+        assertFalse(prompt.contains("其他"));
+
+        for (int i = 0; i < 200; i++) {
+            categories.put("自定义分类" + i, new BigDecimal("1"));
+        }
+        ReflectionTestUtils.setField(tokenBudget, "maxInputTokens", 300);
+        prompt = aiService.buildBudgetAnalysisPrompt(budgetData, expenseData).toString();
+        assertTrue(TokenEstimator.estimate(prompt) <= 300, "估算token: " + TokenEstimator.estimate(prompt));
+        assertTrue(prompt.contains("- 住宿：1200元"));
+        assertTrue(prompt.matches("(?s).*- 其他\\d+类：\\d+元.*"));
+        assertTrue(prompt.endsWith("请用简洁的中文回答。"));
+    }
+
+    @Test
+    void testUsageRecordedPerUserAndFlushed() {
+        UserTokenUsageRepository repository = mock(UserTokenUsageRepository.class);
+        when(repository.addUsage(any(), any(), any(), anyLong(), anyLong(), anyLong(), any())).thenReturn(0);
+        TokenUsageService usageService = new TokenUsageService(repository);
+
+        Map<String, Object> usage = new HashMap<>();
+        usage.put("input_tokens", 120);
+        usage.put("output_tokens", 480);
+        Map<String, Object> body = new HashMap<>();
+        body.put("usage", usage);
+        usageService.record(7L, AiMetrics.STAGE_GENERATE, 3, body);
+        // 没有usage时按提示词估算值和响应文本估算
+        Map<String, Object> output = new HashMap<>();
+        output.put("text", "第一天");
+        Map<String, Object> noUsage = new HashMap<>();
+        noUsage.put("output", output);
+        usageService.record(7L, AiMetrics.STAGE_GENERATE, 3, noUsage);
+        usageService.record(null, AiMetrics.STAGE_GENERATE, 3, body);
+
+        usageService.flush();
+
+        ArgumentCaptor<UserTokenUsage> saved = ArgumentCaptor.forClass(UserTokenUsage.class);
+        verify(repository).saveAndFlush(saved.capture());
+        assertEquals(7L, saved.getValue().getUserId());
+        assertEquals(LocalDate.now(), saved.getValue().getUsageDate());
+        assertEquals(2L, saved.getValue().getRequestCount());
+        assertEquals(123L, saved.getValue().getInputTokens());
+        assertEquals(483L, saved.getValue().getOutputTokens());
+
+        // 已写入的部分不会重复写入
+        usageService.flush();
+        verify(repository, times(1)).saveAndFlush(any());
+    }
+
+    @Test
+    void testFailedFlushIsRetried() {
+        UserTokenUsageRepository repository = mock(UserTokenUsageRepository.class);
+        when(repository.addUsage(any(), any(), any(), anyLong(), anyLong(), anyLong(), any()))
+                .thenThrow(new IllegalStateException("connection refused"))
+                .thenReturn(1);
+        TokenUsageService usageService = new TokenUsageService(repository);
+        Map<String, Object> body = new HashMap<>();
+        usageService.record(7L, AiMetrics.STAGE_GENERATE, 3, body);
+
+        usageService.flush();
+        usageService.flush();
+
+        verify(repository, times(2)).addUsage(eq(7L), eq(LocalDate.now()), eq(AiMetrics.STAGE_GENERATE),
+                eq(1L), eq(3L), eq(0L), any());
+        verify(repository, never()).saveAndFlush(any());
+    }
+
+    private double trimmedCount() {
+        return registry.find(AiMetrics.PROMPT_TRIMMED).counters().stream().mapToDouble(c -> c.count()).sum();
+    }
+
+    private static String repeat(char c, int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            text.append(c);
+        }
+        return text.toString();
+    }
+}
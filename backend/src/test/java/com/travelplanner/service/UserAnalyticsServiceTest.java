@@ -0,0 +1,143 @@
+package com.travelplanner.service;
+
+import com.travelplanner.entity.Expense;
+import com.travelplanner.entity.TravelPlan;
+import com.travelplanner.repository.ExpenseRepository;
+import com.travelplanner.repository.TravelPlanRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 用户跨计划消费分析服务测试
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+public class UserAnalyticsServiceTest {
+
+    private ExpenseRepository expenseRepository;
+    private FxRateSnapshot rates;
+    private UserAnalyticsService analyticsService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        expenseRepository = mock(ExpenseRepository.class);
+        TravelPlanRepository travelPlanRepository = mock(TravelPlanRepository.class);
+        FxRateService fxRateService = mock(FxRateService.class);
+        rates = FxRateSnapshot.parse(new StringReader("2024-01-01,USD,7.00\n"), "CNY");
+        when(fxRateService.getSnapshot()).thenReturn(rates);
+
+        when(travelPlanRepository.findByUserId(7L)).thenReturn(Arrays.asList(
+                plan(1L, 500.0), plan(2L, 1000.0), plan(3L, null)));
+
+        List<Object[]> rows = Arrays.asList(
+                new Object[]{1L, Expense.ExpenseCategory.MEAL, "CNY", LocalDate.of(2025, 9, 30), new BigDecimal("200.00")},
+                new Object[]{1L, Expense.ExpenseCategory.TRANSPORTATION, "USD", LocalDate.of(2025, 10, 1), new BigDecimal("50.00")},
+                new Object[]{2L, Expense.ExpenseCategory.MEAL, "CNY", LocalDate.of(2025, 10, 2), new BigDecimal("100.50")},
+                new Object[]{2L, Expense.ExpenseCategory.OTHER, "JPY", LocalDate.of(2025, 10, 2), new BigDecimal("3000")});
+        when(expenseRepository.getAmountByPlanCategoryCurrencyAndDateAndUserId(7L)).thenReturn(rows);
+
+        analyticsService = new UserAnalyticsService(expenseRepository, travelPlanRepository, fxRateService, 100);
+        ReflectionTestUtils.setField(analyticsService, "parallelThreshold", 5000);
+    }
+
+    @Test
+    void testAggregatesByPlanCategoryAndMonth() {
+        UserSpendingAnalytics analytics = analyticsService.getUserAnalytics(7L);
+
+        assertEquals("CNY", analytics.getCurrency());
+        assertEquals(3, analytics.getPlanCount());
+        assertEquals(bd("650.50"), analytics.getTotalExpense());
+        assertEquals(bd("1500.00"), analytics.getTotalBudget());
+        assertEquals(bd("300.50"), analytics.getByCategory().get("餐饮"));
+        assertEquals(bd("350.00"), analytics.getByCategory().get("交通"));
+        assertFalse(analytics.getByCategory().containsKey("其他"));
+        assertEquals(Arrays.asList("2025-09", "2025-10"), new ArrayList<>(analytics.getByMonth().keySet()));
+        assertEquals(bd("450.50"), analytics.getByMonth().get("2025-10"));
+        assertEquals(Collections.singleton("JPY"), analytics.getUnconvertedCurrencies());
+    }
+
+    @Test
+    void testBudgetAdherence() {
+        UserSpendingAnalytics analytics = analyticsService.getUserAnalytics(7L);
+
+        assertEquals(1, analytics.getPlansOverBudget());
+        assertEquals(bd("43.37"), analytics.getBudgetUtilization());
+
+        UserSpendingAnalytics.PlanSpending first = analytics.getPlans().get(0);
+        assertEquals(1L, first.getPlanId());
+        assertEquals(bd("550.00"), first.getSpent());
+        assertEquals(bd("-50.00"), first.getRemaining());
+        assertEquals(bd("110.00"), first.getUtilization());
+        assertTrue(first.isOverBudget());
+
+        UserSpendingAnalytics.PlanSpending unbudgeted = analytics.getPlans().get(2);
+        assertEquals(3L, unbudgeted.getPlanId());
+        assertEquals(bd("0.00"), unbudgeted.getSpent());
+        assertNull(unbudgeted.getUtilization());
+        assertFalse(unbudgeted.isOverBudget());
+    }
+
+    @Test
+    void testCachedUntilExpenseChanged() {
+        analyticsService.getUserAnalytics(7L);
+        analyticsService.getUserAnalytics(7L);
+        verify(expenseRepository, times(1)).getAmountByPlanCategoryCurrencyAndDateAndUserId(7L);
+
+        analyticsService.onExpenseChanged(new ExpenseChangedEvent(1L, 8L));
+        analyticsService.getUserAnalytics(7L);
+        verify(expenseRepository, times(1)).getAmountByPlanCategoryCurrencyAndDateAndUserId(7L);
+
+        analyticsService.onExpenseChanged(new ExpenseChangedEvent(1L, 7L));
+        analyticsService.getUserAnalytics(7L);
+        verify(expenseRepository, times(2)).getAmountByPlanCategoryCurrencyAndDateAndUserId(7L);
+    }
+
+    @Test
+    void testParallelAggregationMatchesSequential() {
+        Expense.ExpenseCategory[] categories = Expense.ExpenseCategory.values();
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            rows.add(new Object[]{(long) (i % 37), categories[i % categories.length],
+                    i % 5 == 0 ? "USD" : "CNY", LocalDate.of(2024, 1, 1).plusDays(i % 700),
+                    BigDecimal.valueOf(i % 1000 + 1, 2)});
+        }
+
+        UserAnalyticsService.SpendingAggregate sequential =
+                UserAnalyticsService.SpendingAggregate.fromGroupedRows(rows, rates, false);
+        UserAnalyticsService.SpendingAggregate parallel =
+                UserAnalyticsService.SpendingAggregate.fromGroupedRows(rows, rates, true);
+
+        assertEquals(sequential.getTotal(), parallel.getTotal());
+        assertEquals(sequential.getByPlan(), parallel.getByPlan());
+        assertEquals(sequential.getByMonth(), parallel.getByMonth());
+        for (Expense.ExpenseCategory category : categories) {
+            assertEquals(sequential.getCategory(category), parallel.getCategory(category));
+        }
+    }
+
+    private static TravelPlan plan(Long id, Double budget) {
+        TravelPlan plan = new TravelPlan();
+        plan.setId(id);
+        plan.setPlanName("计划" + id);
+        plan.setBudget(budget);
+        return plan;
+    }
+
+    private static BigDecimal bd(String value) {
+        return new BigDecimal(value);
+    }
+}
@@ -0,0 +1,55 @@
+package com.travelplanner.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * CSV工具类测试
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+public class CsvUtilsTest {
+
+    @Test
+    void testReadRecords() throws IOException {
+        BufferedReader reader = new BufferedReader(new StringReader(
+                "﻿date,amount,description\n"
+                + "2025-10-01,12.50,\"午饭, 拉面\"\n"
+                + "2025-10-02,8,\"说\"\"明\"\"\n第二行\"\n"
+                + "2025-10-03,,\n"));
+
+        assertEquals(Arrays.asList("date", "amount", "description"), CsvUtils.readRecord(reader));
+        assertEquals(Arrays.asList("2025-10-01", "12.50", "午饭, 拉面"), CsvUtils.readRecord(reader));
+        assertEquals(Arrays.asList("2025-10-02", "8", "说\"明\"\n第二行"), CsvUtils.readRecord(reader));
+        assertEquals(Arrays.asList("2025-10-03", "", ""), CsvUtils.readRecord(reader));
+        assertNull(CsvUtils.readRecord(reader));
+    }
+
+    @Test
+    void testUnclosedQuote() {
+        BufferedReader reader = new BufferedReader(new StringReader("a,\"b\n"));
+        assertThrows(IOException.class, () -> CsvUtils.readRecord(reader));
+    }
+
+    @Test
+    void testEscapeRoundTrip() throws IOException {
+        String[] values = {"plain", "a,b", "say \"hi\"", "line1\nline2", null};
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                line.append(',');
+            }
+            line.append(CsvUtils.escape(values[i]));
+        }
+
+        assertEquals(Arrays.asList("plain", "a,b", "say \"hi\"", "line1\nline2", ""),
+                CsvUtils.readRecord(new BufferedReader(new StringReader(line.toString()))));
+    }
+}
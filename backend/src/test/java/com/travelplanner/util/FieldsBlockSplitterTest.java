@@ -0,0 +1,72 @@
+package com.travelplanner.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 合并回复拆分器测试
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+public class FieldsBlockSplitterTest {
+
+    private static final String FIELDS = "{\"destination\": \"北京\", \"budget\": 5000, \"groupSize\": 2, \"travelType\": null}";
+    private static final String PLAN = "第一天：抵达北京，入住酒店。\n第二天：游览故宫。";
+
+    @Test
+    void testSplitsWholeReply() {
+        FieldsBlockSplitter splitter = new FieldsBlockSplitter();
+        String plan = splitter.feed("\n<fields>\n" + FIELDS + "\n</fields>\n\n" + PLAN) + splitter.finish();
+
+        assertEquals(FIELDS, splitter.getFields());
+        assertEquals(PLAN, plan);
+    }
+
+    @Test
+    void testSplitsReplyStreamedCharByChar() {
+        String reply = "<fields>" + FIELDS + "</fields>\n" + PLAN;
+        FieldsBlockSplitter splitter = new FieldsBlockSplitter();
+        int blockEnd = reply.indexOf(FieldsBlockSplitter.CLOSE_TAG) + FieldsBlockSplitter.CLOSE_TAG.length();
+        StringBuilder plan = new StringBuilder();
+        for (int i = 0; i < reply.length(); i++) {
+            plan.append(splitter.feed(reply.substring(i, i + 1)));
+            // 收到完整的结束标记前不输出字段和正文
+            if (i < blockEnd - 1) {
+                assertEquals(0, plan.length());
+                assertNull(splitter.getFields());
+            }
+        }
+        plan.append(splitter.finish());
+
+        assertEquals(FIELDS, splitter.getFields());
+        assertEquals(PLAN, plan.toString());
+    }
+
+    @Test
+    void testReplyWithoutFieldsBlockIsPlan() {
+        FieldsBlockSplitter splitter = new FieldsBlockSplitter();
+        String plan = splitter.feed("<fi") + splitter.feed("rst>" + PLAN) + splitter.finish();
+        assertNull(splitter.getFields());
+        assertEquals("<first>" + PLAN, plan);
+
+        splitter = new FieldsBlockSplitter();
+        assertEquals("", splitter.feed("<fie"));
+        assertEquals("<fie", splitter.finish());
+        assertNull(splitter.getFields());
+    }
+
+    @Test
+    void testUnclosedFieldsBlock() {
+        FieldsBlockSplitter splitter = new FieldsBlockSplitter();
+        assertEquals("", splitter.feed("<fields>\n" + FIELDS + "\n" + PLAN));
+        assertEquals(PLAN, splitter.finish());
+        assertEquals(FIELDS, splitter.getFields());
+
+        splitter = new FieldsBlockSplitter();
+        splitter.feed("<fields>{\"destination\": \"北");
+        assertEquals("", splitter.finish());
+        assertEquals("{\"destination\": \"北", splitter.getFields());
+    }
+}
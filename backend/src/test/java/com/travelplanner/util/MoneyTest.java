@@ -0,0 +1,58 @@
+package com.travelplanner.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 金额值类型测试
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+public class MoneyTest {
+
+    @Test
+    void testConversionUsesCurrencyScale() {
+        assertEquals(12050L, Money.of(new BigDecimal("120.5"), "CNY").getMinorUnits());
+        assertEquals(101L, Money.of(new BigDecimal("1.005"), "CNY").getMinorUnits());
+        assertEquals(1235L, Money.of(new BigDecimal("1234.5"), "JPY").getMinorUnits());
+        assertEquals(new BigDecimal("1000.00"), Money.of(1000.0, "CNY").toBigDecimal());
+        assertEquals(0L, Money.of((Double) null, null).getMinorUnits());
+        assertEquals(Money.DEFAULT_CURRENCY, Money.of((BigDecimal) null, null).getCurrency());
+    }
+
+    @Test
+    void testArithmetic() {
+        Money budget = Money.of(new BigDecimal("1000"), "CNY");
+        Money expense = Money.of(new BigDecimal("120.50"), "CNY");
+
+        assertEquals(new BigDecimal("879.50"), budget.minus(expense).toBigDecimal());
+        assertEquals(new BigDecimal("1120.50"), budget.plus(expense).toBigDecimal());
+        assertTrue(expense.compareTo(budget) < 0);
+        assertTrue(expense.minus(budget).isNegative());
+        assertEquals(Money.ofMinor(12050L, "cny"), expense);
+    }
+
+    @Test
+    void testCurrencyMismatchRejected() {
+        Money cny = Money.ofMinor(100L, "CNY");
+        Money usd = Money.ofMinor(100L, "USD");
+
+        assertThrows(IllegalArgumentException.class, () -> cny.plus(usd));
+        assertThrows(IllegalArgumentException.class, () -> cny.compareTo(usd));
+    }
+
+    @Test
+    void testBasisPoints() {
+        assertEquals(1205L, Money.basisPoints(12050L, 100000L));
+        assertEquals(3333L, Money.basisPoints(1L, 3L));
+        assertEquals(6667L, Money.basisPoints(2L, 3L));
+        assertEquals(0L, Money.basisPoints(100L, 0L));
+        assertEquals(new BigDecimal("12.05"), Money.toPercent(1205L));
+        // 超出long乘法范围时仍能得到正确结果
+        assertEquals(5000L, Money.basisPoints(Long.MAX_VALUE / 2, Long.MAX_VALUE - 1));
+    }
+}
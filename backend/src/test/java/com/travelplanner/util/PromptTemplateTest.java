@@ -0,0 +1,85 @@
+package com.travelplanner.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 预编译提示词模板测试
+ *
+ * @author TravelPlanner Team
+ * @version 1.0.0
+ */
+public class PromptTemplateTest {
+
+    private static final String SOURCE = "规划助手。\n\n{{#context}}当前计划信息：\n{{context}}\n\n{{/context}}用户需求：\n{{message}}\n\n请用中文回答。";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void testRenderSubstitutesVariablesAndSections() {
+        PromptTemplate template = PromptTemplate.compile("test", 1, SOURCE);
+
+        Map<String, Object> values = new HashMap<>();
+        values.put("message", "去北京玩三天");
+        values.put("context", "计划名称: 北京之旅");
+        assertEquals("规划助手。\n\n当前计划信息：\n计划名称: 北京之旅\n\n用户需求：\n去北京玩三天\n\n请用中文回答。",
+                template.render(values).toString());
+
+        // 区块变量为空时整个区块省略
+        values.put("context", "");
+        assertEquals("规划助手。\n\n用户需求：\n去北京玩三天\n\n请用中文回答。", template.render(values).toString());
+        values.remove("context");
+        assertEquals("规划助手。\n\n用户需求：\n去北京玩三天\n\n请用中文回答。", template.render(values).toString());
+    }
+
+    @Test
+    void testSerializationMatchesPlainString() throws Exception {
+        PromptTemplate template = PromptTemplate.compile("test", 1, "返回 {\"destination\": \"目的地\"}\t\\\n{{message}}");
+        Map<String, Object> values = new HashMap<>();
+        values.put("message", "引号\"、反斜杠\\、换行\r\n、控制字符\u0001");
+        PromptTemplate.Rendered rendered = template.render(values);
+
+        Map<String, Object> body = new HashMap<>();
+        body.put("content", rendered);
+        Map<String, Object> expected = new HashMap<>();
+        expected.put("content", rendered.toString());
+
+        assertEquals(objectMapper.writeValueAsString(expected), objectMapper.writeValueAsString(body));
+        assertArrayEquals(objectMapper.writeValueAsBytes(expected), objectMapper.writeValueAsBytes(body));
+        // 非文本输出（TokenBuffer）回退为普通字符串
+        assertEquals(rendered.toString(), objectMapper.convertValue(body, Map.class).get("content"));
+
+        // 增补平面字符直接输出UTF-8（writeString 会转义为代理对），解析结果相同
+        values.put("message", "表情😀");
+        body.put("content", template.render(values));
+        assertEquals("返回 {\"destination\": \"目的地\"}\t\\\n表情😀",
+                objectMapper.readTree(objectMapper.writeValueAsBytes(body)).get("content").asText());
+    }
+
+    @Test
+    void testTokensUsePrecomputedStaticEstimates() {
+        PromptTemplate template = PromptTemplate.compile("test", 1, SOURCE);
+        Map<String, Object> values = new HashMap<>();
+        values.put("message", "去北京玩三天，预算5000元");
+
+        PromptTemplate.Rendered rendered = template.render(values);
+        int estimate = TokenEstimator.estimate(rendered.toString());
+        // 按片段分别估算，半角字符的取整最多让每个片段多算1个token
+        assertTrue(rendered.tokens() >= estimate);
+        assertTrue(rendered.tokens() <= estimate + 5);
+        assertTrue(template.getStaticTokens() < rendered.tokens());
+    }
+
+    @Test
+    void testMalformedTemplateRejected() {
+        assertThrows(IllegalArgumentException.class, () -> PromptTemplate.compile("test", 1, "用户需求：{{message"));
+        assertThrows(IllegalArgumentException.class, () -> PromptTemplate.compile("test", 1, "{{#context}}上下文"));
+        assertThrows(IllegalArgumentException.class,
+                () -> PromptTemplate.compile("test", 1, "{{#context}}上下文{{/message}}"));
+    }
+}
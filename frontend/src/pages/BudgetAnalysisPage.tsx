@@ -1,4 +1,4 @@
-import React, { useState, useEffect } from 'react';
+import React, { useState, useEffect, useRef } from 'react';
 import { useParams, useNavigate } from 'react-router-dom';
 import { Card, Typography, Spin, Alert, Button, Space, Avatar } from 'antd';
 import { ArrowLeftOutlined, RobotOutlined, ReloadOutlined } from '@ant-design/icons';
@@ -6,12 +6,17 @@ import apiService from '../services/api';
 
 const { Title, Text, Paragraph } = Typography;
 
+// AI分析生成中时的轮询间隔与最大次数
+const AI_POLL_INTERVAL_MS = 2000;
+const AI_POLL_MAX_ATTEMPTS = 30;
+
 const BudgetAnalysisPage: React.FC = () => {
   const { planId } = useParams<{ planId: string }>();
   const navigate = useNavigate();
   const [loading, setLoading] = useState(true);
   const [error, setError] = useState<string | null>(null);
   const [analysis, setAnalysis] = useState<any>(null);
+  const pollAttemptsRef = useRef(0);
 
   useEffect(() => {
     if (planId) {
@@ -19,10 +24,33 @@ const BudgetAnalysisPage: React.FC = () => {
     }
   }, [planId]);
 
+  // AI分析在后台生成，预算数值先展示，AI部分轮询获取
+  useEffect(() => {
+    if (!planId || analysis?.aiStatus !== 'PENDING') {
+      return;
+    }
+    if (pollAttemptsRef.current >= AI_POLL_MAX_ATTEMPTS) {
+      setAnalysis((prev: any) => prev && { ...prev, aiStatus: 'FAILED', hasAiAnalysis: false });
+      return;
+    }
+    const timer = setTimeout(async () => {
+      pollAttemptsRef.current += 1;
+      try {
+        const ai = await apiService.getBudgetAiAnalysis(Number(planId));
+        setAnalysis((prev: any) => prev && { ...prev, ...ai, pollTick: pollAttemptsRef.current });
+      } catch (err) {
+        console.error('Poll AI budget analysis error:', err);
+        setAnalysis((prev: any) => prev && { ...prev, pollTick: pollAttemptsRef.current });
+      }
+    }, AI_POLL_INTERVAL_MS);
+    return () => clearTimeout(timer);
+  }, [planId, analysis?.aiStatus, analysis?.pollTick]);
+
   const loadBudgetAnalysis = async () => {
     try {
       setLoading(true);
       setError(null);
+      pollAttemptsRef.current = 0;
       console.log('Loading budget analysis for planId:', planId);
       const data = await apiService.getBudgetAnalysis(Number(planId));
       console.log('Budget analysis data:', data);
@@ -53,7 +81,7 @@ const BudgetAnalysisPage: React.FC = () => {
     return (
       <div style={{ textAlign: 'center', padding: '50px' }}>
         <Spin size="large" />
-        <div style={{ marginTop: '16px' }}>AI正在分析预算中...</div>
+        <div style={{ marginTop: '16px' }}>正在加载预算分析...</div>
       </div>
     );
   }
@@ -178,6 +206,11 @@ const BudgetAnalysisPage: React.FC = () => {
               {analysis.aiAnalysis}
             </Paragraph>
           </div>
+        ) : analysis.aiStatus === 'PENDING' ? (
+          <div style={{ textAlign: 'center', padding: '24px' }}>
+            <Spin />
+            <div style={{ marginTop: '12px' }}>AI正在分析预算中...</div>
+          </div>
         ) : (
           <Alert
             message="AI分析暂时不可用"
@@ -24,6 +24,7 @@ import {
   UpdateExpenseRequest,
   ExpenseStats,
   BudgetAnalysis,
+  BudgetAiAnalysis,
   BudgetOptimization
 } from '../types';
 
@@ -339,6 +340,11 @@ class ApiService {
     }
   }
 
+  async getBudgetAiAnalysis(planId: number): Promise<BudgetAiAnalysis> {
+    const response = await this.api.get(`/expenses/plans/${planId}/budget-analysis/ai`);
+    return response.data.data;
+  }
+
   async getBudgetOptimization(planId: number, targetSavings: number): Promise<BudgetOptimization> {
     const response = await this.api.post(`/expenses/plans/${planId}/budget-optimization?targetSavings=${targetSavings}`);
     return response.data.data;
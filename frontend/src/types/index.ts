@@ -251,6 +251,16 @@ export interface BudgetAnalysis {
   budgetUtilization: number;
   categoryBreakdown: Record<string, number>;
   basicSuggestions: string[];
+  analysisVersion?: string;
+  aiStatus?: 'READY' | 'PENDING' | 'FAILED';
+  aiAnalysis?: string;
+  hasAiAnalysis: boolean;
+}
+
+export interface BudgetAiAnalysis {
+  planId: number;
+  analysisVersion?: string;
+  aiStatus: 'READY' | 'PENDING' | 'FAILED';
   aiAnalysis?: string;
   hasAiAnalysis: boolean;
 }
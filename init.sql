@@ -1,3 +1,6 @@
+-- 注意：生产环境表结构已改由后端 Flyway 迁移脚本维护（backend/src/main/resources/db/migration），
+-- 使用 prod 配置启动时自动执行。本脚本仅保留用于兼容旧的部署方式。
+
 -- 创建数据库（如果不存在）
 -- 注意：PostgreSQL中CREATE DATABASE IF NOT EXISTS语法在较新版本中支持
 -- 如果版本不支持，请手动创建数据库：createdb travel_planner